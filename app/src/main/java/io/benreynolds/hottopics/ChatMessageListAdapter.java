@@ -1,45 +1,183 @@
 package io.benreynolds.hottopics;
 
-import android.content.Context;
-import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.TextView;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
 
-public class ChatMessageListAdapter extends ArrayAdapter<ReceiveMessagePacket> {
+/**
+ * {@code ChatMessageListAdapter} binds chat messages to the rows of {@code ChatroomActivity}'s message feed. The feed
+ * displays the messages held by a {@code MessageRingBuffer}, preceded by any older messages that have been paged in
+ * (see {@code prependMessages()}); both are bounded, meaning that the feed's memory usage is too.
+ * <p>
+ * Messages appended to the {@code MessageRingBuffer} are not displayed until {@code sync()} is called, which notifies
+ * the {@code RecyclerView} of only the inserted (and evicted) ranges, meaning that existing rows are never re-bound.
+ * Each message's sequence number is used as its stable ID. All methods must be called on the UI thread.
+ */
+public class ChatMessageListAdapter extends RecyclerView.Adapter<ChatMessageListAdapter.MessageViewHolder> {
 
-    ChatMessageListAdapter(Context context, ArrayList<ReceiveMessagePacket> receiveMessagePackets) {
-        super(context, 0, receiveMessagePackets);
+    /** Most recent messages received in the chatroom. */
+    private final MessageRingBuffer mMessages;
+
+    /** Older messages that have been paged in, oldest first. */
+    private final ArrayList<ReceiveMessagePacket> mOlderMessages = new ArrayList<>();
+
+    /** Maximum amount of older messages that may be paged in. */
+    private final int mOlderMessagesCapacity;
+
+    /** Sequence number of the oldest message from the {@code MessageRingBuffer} that is displayed. */
+    private long mFirstSequence;
+
+    /** Sequence number following the newest message from the {@code MessageRingBuffer} that is displayed. */
+    private long mEndSequence;
+
+    /**
+     * @param messages Most recent messages received in the chatroom.
+     * @param olderMessagesCapacity Maximum amount of older messages that may be paged in.
+     */
+    ChatMessageListAdapter(final MessageRingBuffer messages, final int olderMessagesCapacity) {
+        mMessages = messages;
+        mOlderMessagesCapacity = olderMessagesCapacity;
+        setHasStableIds(true);
+    }
+
+    /**
+     * Displays the messages that have been appended to the {@code MessageRingBuffer} since the last call, and removes
+     * rows whose messages have been overwritten. If any rows are removed, the paged in older messages are removed too,
+     * as they are no longer contiguous with the rest of the feed.
+     * @return Amount of rows that were removed from the start of the feed.
+     */
+    int sync() {
+        long endSequence = mMessages.getEndSequence();
+        // The writer may already be overwriting the slot of the oldest message, so it is not displayed.
+        long firstSequence = Math.max(mFirstSequence, endSequence - mMessages.getCapacity() + 1);
+
+        int removed = 0;
+        long evictedEnd = Math.min(firstSequence, mEndSequence);
+        if(evictedEnd > mFirstSequence) {
+            removed = mOlderMessages.size() + (int)(evictedEnd - mFirstSequence);
+            mOlderMessages.clear();
+        }
+
+        long insertedStart = Math.max(firstSequence, mEndSequence);
+        mFirstSequence = firstSequence;
+        mEndSequence = endSequence;
+
+        if(removed > 0) {
+            notifyItemRangeRemoved(0, removed);
+        }
+        int inserted = (int)(endSequence - insertedStart);
+        if(inserted > 0) {
+            notifyItemRangeInserted(getItemCount() - inserted, inserted);
+        }
+        return removed;
+    }
+
+    /**
+     * Inserts older messages at the start of the feed. If this would exceed the amount of older messages that may be
+     * paged in, only the newest of them are inserted.
+     * @param messages Messages to insert, oldest first, which immediately precede the oldest message displayed.
+     * @return Amount of messages that were inserted.
+     */
+    int prependMessages(final List<ReceiveMessagePacket> messages) {
+        int count = Math.min(messages.size(), mOlderMessagesCapacity - mOlderMessages.size());
+        if(count <= 0) {
+            return 0;
+        }
+        mOlderMessages.addAll(0, messages.subList(messages.size() - count, messages.size()));
+        notifyItemRangeInserted(0, count);
+        return count;
+    }
+
+    /**
+     * Returns the sequence number of the oldest message from the {@code MessageRingBuffer} that is displayed.
+     * @return Sequence number of the oldest message from the {@code MessageRingBuffer} that is displayed.
+     */
+    long getFirstSequence() {
+        return mFirstSequence;
+    }
+
+    /**
+     * Returns the message displayed at the specified position.
+     * @param position Position within the feed.
+     * @return Message displayed at the specified position. If it has been overwritten since the last {@code sync()},
+     * returns {@code null}.
+     */
+    ReceiveMessagePacket getMessage(final int position) {
+        if(position < mOlderMessages.size()) {
+            return mOlderMessages.get(position);
+        }
+        return mMessages.get(mFirstSequence + position - mOlderMessages.size());
     }
 
-    @NonNull
     @Override
-    public View getView(int position, View convertView, @NonNull ViewGroup parent) {
-        ReceiveMessagePacket receiveMessagePacket = getItem(position);
-        if (convertView == null) {
-            convertView = LayoutInflater.from(getContext()).inflate(R.layout.chat_message_row,
-                    parent, false);
+    public MessageViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        return new MessageViewHolder(LayoutInflater.from(parent.getContext()).inflate(R.layout.chat_message_row,
+                parent, false));
+    }
+
+    @Override
+    public void onBindViewHolder(MessageViewHolder holder, int position) {
+        holder.bind(getMessage(position));
+    }
+
+    @Override
+    public int getItemCount() {
+        return mOlderMessages.size() + (int)(mEndSequence - mFirstSequence);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        // Older messages are assigned negative IDs, counting back from the oldest message in the MessageRingBuffer,
+        // so that their IDs do not change as more are prepended.
+        if(position < mOlderMessages.size()) {
+            return position - mOlderMessages.size();
         }
+        return mFirstSequence + position - mOlderMessages.size();
+    }
+
+    /**
+     * {@code MessageViewHolder} holds the views of a single row of the message feed, so that they are only looked up
+     * once when the row is created rather than every time it is bound.
+     */
+    static class MessageViewHolder extends RecyclerView.ViewHolder {
 
-        TextView userName = convertView.findViewById(R.id.textView_userName);
-        TextView message = convertView.findViewById(R.id.textView_Message);
+        /** Text that displays the message's author. */
+        private final TextView tvUserName;
 
-        if(receiveMessagePacket == null || !receiveMessagePacket.isValid()) {
-            userName.setText(R.string.null_string);
-            message.setText(R.string.null_string);
+        /** Text that displays the message. */
+        private final TextView tvMessage;
+
+        /**
+         * @param itemView Row view.
+         */
+        MessageViewHolder(final View itemView) {
+            super(itemView);
+            tvUserName = itemView.findViewById(R.id.textView_userName);
+            tvMessage = itemView.findViewById(R.id.textView_Message);
         }
-        else {
-            userName.setText(receiveMessagePacket.getAuthor());
-            message.setText(receiveMessagePacket.getMessage());
+
+        /**
+         * Displays a message in the row.
+         * @param receiveMessagePacket Message to display.
+         */
+        void bind(final ReceiveMessagePacket receiveMessagePacket) {
+            if(receiveMessagePacket == null || !receiveMessagePacket.isValid()) {
+                tvUserName.setText(R.string.null_string);
+                tvMessage.setText(R.string.null_string);
+            }
+            else {
+                tvUserName.setText(receiveMessagePacket.getAuthor());
+                tvMessage.setText(receiveMessagePacket.getMessage());
+            }
         }
 
-        return convertView;
     }
 
-}
\ No newline at end of file
+}
@@ -4,19 +4,25 @@ import android.content.Intent;
 import android.graphics.drawable.ColorDrawable;
 import android.os.Bundle;
 import android.support.constraint.ConstraintLayout;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.text.Html;
 import android.view.View;
 import android.widget.EditText;
-import android.widget.ListView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
 
 import io.benreynolds.hottopics.packets.Chatroom;
 import io.benreynolds.hottopics.packets.ChatroomUserCountUpdatePacket;
+import io.benreynolds.hottopics.packets.HistoryRequestPacket;
+import io.benreynolds.hottopics.packets.HistoryResponsePacket;
 import io.benreynolds.hottopics.packets.LeaveChatroomRequestPacket;
 import io.benreynolds.hottopics.packets.LeaveChatroomResponsePacket;
 import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
@@ -37,8 +43,24 @@ public class ChatroomActivity extends ConnectedActivity {
     /** Alpha value used to fade out the chatroom's controls whilst waiting for a LeaveChatroomResponse (see onBackPressed) */
     private static final float ALPHA_FADE_OUT = 0.33f;
 
-    /** Stores handlers that are attached to the WebSocketCommunicator throughout this activity (for mass removal upon cleanup) */
-    private Set<PacketHandler> mPacketHandlers = new HashSet<>();
+    /** Period of time (in milliseconds) to wait for a LeaveChatroomResponse before the connection is considered broken
+     * (see onBackPressed) */
+    private static final long LEAVE_CHATROOM_TIMEOUT = 5000;
+
+    /** Maximum amount of older messages that are paged into the message feed at once, from the message cache or the
+     * server (see loadOlderMessages). */
+    private static final int OLDER_MESSAGES_PAGE_SIZE = 50;
+
+    /** Maximum amount of older messages that may be paged into the message feed in total. */
+    private static final int OLDER_MESSAGES_CAPACITY = 500;
+
+    /** Amount of rows from the top of the message feed at which older messages are paged in. */
+    private static final int OLDER_MESSAGES_PREFETCH_DISTANCE = 10;
+
+    /** Stores handlers that are attached to the WebSocketCommunicator throughout this activity (for mass removal upon
+     * cleanup). They are removed both on the UI thread (see onDestroy) and on the thread that completes the leave
+     * request (see LeaveChatroomResponseListener), so the set must be safe to iterate and modify concurrently. */
+    private final Set<PacketHandler<?>> mPacketHandlers = new CopyOnWriteArraySet<>();
 
     /** Currently active chatroom */
     private Chatroom mActiveChatroom;
@@ -55,10 +77,49 @@ public class ChatroomActivity extends ConnectedActivity {
     /** Constraint layout that contains all of the activities' views other than the progress bar (used to fade alpha whilst leaving the active chatroom) */
     private ConstraintLayout clChatroom;
 
-    /** List view and related objects used to display chat messages. */
-    final ArrayList<ReceiveMessagePacket> mMessages = new ArrayList<>();
+    /** Applies UI updates posted by this activity's 'PacketHandler's once per frame. */
+    private UiUpdateCoalescer mUiUpdates;
+
+    /** Recycler view and related objects used to display chat messages. Messages are appended to the ring buffer by
+     * the ReceiveMessagePacketHandler and displayed once the UI thread syncs the feed (see mSyncMessageFeed). */
+    private final MessageRingBuffer mMessages = new MessageRingBuffer(MessageRingBuffer.CAPACITY_DEFAULT);
     private ChatMessageListAdapter mMessageListAdapter;
-    private ListView lvMessageFeed;
+    private LinearLayoutManager mMessageFeedLayoutManager;
+    private RecyclerView rvMessageFeed;
+
+    /** Cache of the messages received in each chatroom. Every message appended to the ring buffer is also appended
+     * to the cache (in the same order), so a message's cache sequence number is its ring buffer sequence number plus
+     * mCacheSequenceOffset. */
+    private MessageCache mMessageCache;
+    private long mCacheSequenceOffset;
+
+    /** Cache sequence number of the oldest message displayed by the message feed (used to page in older messages),
+     * whether a page of older messages is being loaded, and whether there are no older messages to load. Only
+     * accessed on the UI thread. */
+    private long mOldestDisplayedSequence;
+    private boolean mLoadingOlderMessages;
+    private boolean mOlderMessagesExhausted;
+
+    /** Displays the messages that have been appended to the ring buffer since the last sync. */
+    private final Runnable mSyncMessageFeed = new Runnable() {
+        @Override
+        public void run() {
+            // Only follow new messages if the user was already looking at the latest entry, so that reading older
+            // messages is not interrupted.
+            boolean atLatestEntry = mMessageFeedLayoutManager.findLastVisibleItemPosition() >=
+                    mMessageListAdapter.getItemCount() - 1;
+
+            // Only the inserted rows are bound. If messages were evicted from the ring buffer, the paged in messages
+            // are removed too, so older messages are paged in from the oldest message that is still displayed.
+            if(mMessageListAdapter.sync() > 0) {
+                mOldestDisplayedSequence = mCacheSequenceOffset + mMessageListAdapter.getFirstSequence();
+                mOlderMessagesExhausted = false;
+            }
+            if(atLatestEntry) {
+                rvMessageFeed.scrollToPosition(mMessageListAdapter.getItemCount() - 1);
+            }
+        }
+    };
 
     @Override
     public void onBackPressed() {
@@ -71,16 +132,17 @@ public class ChatroomActivity extends ConnectedActivity {
         // Display the progress bar
         pbLeavingChatroom.setVisibility(ProgressBar.VISIBLE);
 
-        // Send a request to the server to be removed from the active chatroom (see LeaveChatroomResponseHandler).
-        WEB_SOCKET_COMMUNICATOR.sendPacket(new LeaveChatroomRequestPacket());
-
-        // TODO: What happens if no LeaveChatroomResponsePacket is received? (Implement a Runnable with a timeout period?)
+        // Send a request to the server to be removed from the active chatroom (see LeaveChatroomResponseListener). If
+        // no response is received within LEAVE_CHATROOM_TIMEOUT, the listener is completed with a null response.
+        WEB_SOCKET_COMMUNICATOR.sendRequest(new LeaveChatroomRequestPacket(), LeaveChatroomResponsePacket.class,
+                LEAVE_CHATROOM_TIMEOUT, TimeUnit.MILLISECONDS).addListener(new LeaveChatroomResponseListener());
     }
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_chatroom);
+        mUiUpdates = new UiUpdateCoalescer();
 
         // Set the action bar background and text colour.
         if(getActionBar() != null) {
@@ -88,8 +150,13 @@ public class ChatroomActivity extends ConnectedActivity {
             getActionBar().setTitle(Html.fromHtml("<font color=\"#FFFFFF\">" + getString(R.string.app_name) + "</font>"));
         }
 
-        // Retrieve the active chatroom from the serialized extra stored upon room selection.
-        mActiveChatroom = (Chatroom) getIntent().getSerializableExtra(RoomListActivity.EXTRA_ROOM);
+        // Retrieve the active chatroom from the ChatroomRepository using the name stored upon room selection. If the
+        // process was restarted since, the chatroom is no longer held, so only its cached messages are displayed.
+        String chatroomName = getIntent().getStringExtra(RoomListActivity.EXTRA_ROOM_NAME);
+        mActiveChatroom = ChatroomRepository.getInstance().getChatroom(chatroomName);
+        if(mActiveChatroom == null) {
+            mActiveChatroom = new Chatroom(chatroomName);
+        }
 
         // Display the active chatroom's name.
         tvChatroomName = findViewById(R.id.tvChatroomName);
@@ -97,19 +164,62 @@ public class ChatroomActivity extends ConnectedActivity {
 
         // Display the amount of users present within the active chatroom (incremented to account for this user joining).
         tvUsersInChatroom = findViewById(R.id.tvUsersInChatroom);
-        tvUsersInChatroom.setText(String.format("%s User(s)", mActiveChatroom.getSize() + 1));
-
-        // Setup the chat message feed and related objects.
-        mMessageListAdapter = new ChatMessageListAdapter(this, mMessages);
-        lvMessageFeed = findViewById(R.id.lvMessageFeed);
-        lvMessageFeed.setAdapter(mMessageListAdapter);
-
-        // Populate the chat message feed with any messages that have been cached for the active chatroom.
-        mMessages.addAll(mActiveChatroom.getMessages());
+        tvUsersInChatroom.setText(String.format("%s User(s)",
+                (mActiveChatroom.getSize() != null ? mActiveChatroom.getSize() : 0) + 1));
+
+        // Setup the chat message feed and related objects. The feed is stacked from the bottom, like a chat.
+        mMessageListAdapter = new ChatMessageListAdapter(mMessages, OLDER_MESSAGES_CAPACITY);
+        mMessageFeedLayoutManager = new LinearLayoutManager(this);
+        mMessageFeedLayoutManager.setStackFromEnd(true);
+        rvMessageFeed = findViewById(R.id.rvMessageFeed);
+        rvMessageFeed.setLayoutManager(mMessageFeedLayoutManager);
+        rvMessageFeed.setAdapter(mMessageListAdapter);
+
+        // Populate the chat message feed with the most recent messages that have been cached for the active chatroom,
+        // followed by any newer messages that were received with it, and scroll the message feed to the latest entry.
+        // This happens before the ReceiveMessagePacketHandler is attached, so the UI thread is the ring buffer's only
+        // writer until then.
+        mMessageCache = MessageCache.getInstance(this);
+        List<ReceiveMessagePacket> messages = new ArrayList<>(
+                mMessageCache.loadLatest(mActiveChatroom.getName(), mMessages.getCapacity()));
+        List<ReceiveMessagePacket> receivedMessages = new ArrayList<>();
+        for(ReceiveMessagePacket message : mActiveChatroom.getMessages()) {
+            if(message != null && message.isValid()) {
+                receivedMessages.add(message);
+            }
+        }
+        List<ReceiveMessagePacket> newerMessages = getNewerMessages(messages, receivedMessages);
+        if(newerMessages != null) {
+            for(ReceiveMessagePacket message : newerMessages) {
+                mMessageCache.append(mActiveChatroom.getName(), message);
+            }
+            messages.addAll(newerMessages);
+        }
+        else {
+            // It cannot be determined which of the received messages are already cached, so they replace the cache.
+            mMessageCache.replace(mActiveChatroom.getName(), receivedMessages);
+            messages = receivedMessages;
+        }
 
-        // Notify the message list adapter that new messages have been added and scroll to message feed the latest entry.
-        mMessageListAdapter.notifyDataSetChanged();
-        lvMessageFeed.setSelection(lvMessageFeed.getCount() - 1);
+        int displayed = Math.min(messages.size(), mMessages.getCapacity());
+        for(ReceiveMessagePacket message : messages.subList(messages.size() - displayed, messages.size())) {
+            mMessages.append(message);
+        }
+        mCacheSequenceOffset = mMessageCache.getEndSequence(mActiveChatroom.getName()) - displayed;
+        mOldestDisplayedSequence = mCacheSequenceOffset;
+        mMessageListAdapter.sync();
+        rvMessageFeed.scrollToPosition(mMessageListAdapter.getItemCount() - 1);
+
+        // Page older messages into the message feed as the user scrolls towards the top of it.
+        rvMessageFeed.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if(dy < 0 &&
+                        mMessageFeedLayoutManager.findFirstVisibleItemPosition() <= OLDER_MESSAGES_PREFETCH_DISTANCE) {
+                    loadOlderMessages();
+                }
+            }
+        });
 
         // Obtain a reference to the chat message box widget.
         etMessageBox = findViewById(R.id.etMessageBox);
@@ -131,10 +241,162 @@ public class ChatroomActivity extends ConnectedActivity {
         mPacketHandlers.add(chatroomUserCountUpdateHandler);
         WEB_SOCKET_COMMUNICATOR.addHandler(chatroomUserCountUpdateHandler);
 
-        // Add a ChatroomUserCountUpdateHandler to the WebSocketCommunicator that handles users requests to leave the active chatroom (see onBackButtonPressed()).
-        LeaveChatroomResponsePacketHandler leaveChatroomResponsePacketHandler = new LeaveChatroomResponsePacketHandler();
-        mPacketHandlers.add(leaveChatroomResponsePacketHandler);
-        WEB_SOCKET_COMMUNICATOR.addHandler(leaveChatroomResponsePacketHandler);
+        // Resend any messages that were written in the active chatroom but could not be sent before the connection was
+        // lost.
+        WEB_SOCKET_COMMUNICATOR.flushOutbox(mActiveChatroom.getName());
+    }
+
+    @Override
+    protected void onDestroy() {
+        // The handlers must not outlive the activity, however it is left (including after a failed leave request,
+        // which disconnects instead), or they would keep updating this chatroom's feed and cache.
+        removePacketHandlers();
+        mUiUpdates.release();
+        super.onDestroy();
+    }
+
+    /**
+     * Detaches all of the '{@code PacketHandler}'s used in this activity from the {@code WebSocketCommunicator}. May be
+     * called from any thread, and more than once.
+     */
+    private void removePacketHandlers() {
+        for(PacketHandler<?> packetHandler : mPacketHandlers) {
+            WEB_SOCKET_COMMUNICATOR.removeHandler(packetHandler);
+        }
+        mPacketHandlers.clear();
+    }
+
+    /**
+     * Returns the received messages that are newer than the cached messages, determined by the server-assigned IDs of
+     * the messages.
+     * @param cachedMessages Messages that are cached for the active chatroom, oldest first.
+     * @param receivedMessages Messages that were received with the active chatroom, oldest first.
+     * @return Received messages that are newer than the cached messages. If this cannot be determined (because the
+     * messages were not assigned IDs, or because messages may have been sent between the latest cached message and
+     * the oldest received message), returns {@code null}.
+     */
+    private static List<ReceiveMessagePacket> getNewerMessages(final List<ReceiveMessagePacket> cachedMessages,
+                                                               final List<ReceiveMessagePacket> receivedMessages) {
+        if(cachedMessages.isEmpty()) {
+            return receivedMessages;
+        }
+
+        Long latestMessageId = cachedMessages.get(cachedMessages.size() - 1).getMessageId();
+        List<ReceiveMessagePacket> newerMessages = new ArrayList<>();
+        for(ReceiveMessagePacket message : receivedMessages) {
+            if(latestMessageId == null || message.getMessageId() == null) {
+                return null;
+            }
+            if(message.getMessageId() > latestMessageId) {
+                newerMessages.add(message);
+            }
+        }
+
+        // If none of the received messages are cached and the preview is full, there may be a gap between them.
+        if(newerMessages.size() == receivedMessages.size() && receivedMessages.size() >= Chatroom.PREVIEW_SIZE_MAX) {
+            return null;
+        }
+        return newerMessages;
+    }
+
+    /**
+     * Loads the page of messages that precede the oldest message displayed by the message feed, and inserts it at the
+     * start of the message feed. Pages are read from the message cache until it has no older messages, then
+     * requested from the server (and cached).
+     */
+    private void loadOlderMessages() {
+        if(mLoadingOlderMessages || mOlderMessagesExhausted) {
+            return;
+        }
+
+        mLoadingOlderMessages = true;
+        final long beforeSequence = mOldestDisplayedSequence;
+        mMessageCache.loadBefore(mActiveChatroom.getName(), beforeSequence, OLDER_MESSAGES_PAGE_SIZE,
+                new MessageCache.PageCallback() {
+            @Override
+            public void onPageLoaded(final List<ReceiveMessagePacket> messages, final long firstSequence) {
+                mUiUpdates.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mLoadingOlderMessages = false;
+                        // Discard the page if messages were evicted from the message feed whilst it was loading.
+                        if(beforeSequence != mOldestDisplayedSequence) {
+                            return;
+                        }
+                        if(messages.isEmpty()) {
+                            loadOlderMessagesFromServer();
+                            return;
+                        }
+                        onOlderMessagesLoaded(messages, firstSequence);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Requests the page of messages that precede the oldest message displayed by the message feed from the server,
+     * caches it and inserts it at the start of the message feed.
+     */
+    private void loadOlderMessagesFromServer() {
+        // Pages are requested by the server-assigned ID of the oldest message displayed.
+        Long before = null;
+        if(mMessageListAdapter.getItemCount() > 0) {
+            ReceiveMessagePacket oldestMessage = mMessageListAdapter.getMessage(0);
+            before = oldestMessage != null ? oldestMessage.getMessageId() : null;
+            if(before == null) {
+                mOlderMessagesExhausted = true;
+                return;
+            }
+        }
+
+        mLoadingOlderMessages = true;
+        final long beforeSequence = mOldestDisplayedSequence;
+        WEB_SOCKET_COMMUNICATOR.sendRequest(new HistoryRequestPacket(mActiveChatroom.getName(), before,
+                OLDER_MESSAGES_PAGE_SIZE), HistoryResponsePacket.class).addListener(
+                        new RequestFuture.Listener<HistoryResponsePacket>() {
+            @Override
+            public void onComplete(final HistoryResponsePacket response) {
+                mUiUpdates.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // If the request failed, it is retried when the user next scrolls.
+                        mLoadingOlderMessages = false;
+                        if(response == null || beforeSequence != mOldestDisplayedSequence ||
+                                !mActiveChatroom.getName().equals(response.getChatroomName())) {
+                            return;
+                        }
+
+                        List<ReceiveMessagePacket> messages = new ArrayList<>();
+                        for(ReceiveMessagePacket message : response.getMessages()) {
+                            if(message != null && message.isValid()) {
+                                messages.add(message);
+                            }
+                        }
+                        long firstSequence = mMessageCache.prepend(mActiveChatroom.getName(), beforeSequence,
+                                messages);
+                        onOlderMessagesLoaded(messages, firstSequence);
+                        if(!response.hasMore()) {
+                            mOlderMessagesExhausted = true;
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Inserts a page of older messages at the start of the message feed.
+     * @param messages Messages to insert, oldest first.
+     * @param firstSequence Cache sequence number of the oldest of the messages.
+     */
+    private void onOlderMessagesLoaded(final List<ReceiveMessagePacket> messages, final long firstSequence) {
+        int inserted = mMessageListAdapter.prependMessages(messages);
+        mOldestDisplayedSequence = firstSequence + messages.size() - inserted;
+        // Stop paging once no more messages may be inserted.
+        if(inserted == 0) {
+            mOlderMessagesExhausted = true;
+        }
     }
 
     /**
@@ -148,10 +410,14 @@ public class ChatroomActivity extends ConnectedActivity {
             // Obtain the user's message and trim any leading or trailing spaces.
             String messageToSend = etMessageBox.getText().toString().trim();
 
-            // Construct a SendMessagePacket and, if valid, send it to the server.
+            // Construct a SendMessagePacket and, if valid, send it to the server. If the message cannot be held until
+            // it is sent (see MessageOutbox), leave it in the message box so that the user can try again.
             SendMessagePacket sendMessagePacket = new SendMessagePacket(messageToSend);
-            if(sendMessagePacket.isValid()) {
-                WEB_SOCKET_COMMUNICATOR.sendPacket(sendMessagePacket);
+            if(sendMessagePacket.isValid() &&
+                    !WEB_SOCKET_COMMUNICATOR.sendMessage(mActiveChatroom.getName(), messageToSend)) {
+                Toast.makeText(ChatroomActivity.this, R.string.chatroom_activity_outbox_full_error, Toast.LENGTH_SHORT)
+                        .show();
+                return;
             }
 
             // Clear the message box.
@@ -161,53 +427,41 @@ public class ChatroomActivity extends ConnectedActivity {
     }
 
     /**
-     * {@code LeaveChatroomResponsePacketHandler} is responsible for handling responses to '{@code LeaveChatroomRequestPacket}'s.
+     * {@code LeaveChatroomResponseListener} handles the server's response to the {@code LeaveChatroomRequestPacket}
+     * sent by {@code onBackPressed()}.
      */
-    private class LeaveChatroomResponsePacketHandler implements PacketHandler<LeaveChatroomResponsePacket> {
+    private class LeaveChatroomResponseListener implements RequestFuture.Listener<LeaveChatroomResponsePacket> {
 
         @Override
-        public void update(LeaveChatroomResponsePacket packet) {
-            // If the LeaveChatroomResponsePacket contains a 'false' value, an unexpected error has occurred and the connection to server is broken.
-            if(!packet.getResponse()) {
+        public void onComplete(LeaveChatroomResponsePacket packet) {
+            // If the LeaveChatroomResponsePacket contains a 'false' value (or none was received in time), an unexpected error has occurred and the connection to server is broken.
+            if(packet == null || !packet.getResponse()) {
                 WEB_SOCKET_COMMUNICATOR.disconnect();
                 return;
             }
 
-            // Detach all of the 'PacketHandler's used in this activity from the WebSocketCommunicator.
-            for(PacketHandler packetHandler : mPacketHandlers) {
-                WEB_SOCKET_COMMUNICATOR.removeHandler(packetHandler);
-            }
+            // Detach all of the 'PacketHandler's used in this activity from the WebSocketCommunicator before the
+            // next chatroom can be joined.
+            removePacketHandlers();
 
             // Start the chatroom list activity.
             startActivity(new Intent(ChatroomActivity.this, RoomListActivity.class));
         }
 
-        @Override
-        public Class<LeaveChatroomResponsePacket> packetType() {
-            return LeaveChatroomResponsePacket.class;
-        }
-
     }
 
     /**
      * {@code ReceiveMessagePacketHandler} is responsible for processing '{@code ReceiveMessagePacket}'s.
-     * It adds messages to the chat feed when they are received.
+     * It appends messages to the message feed's ring buffer when they are received, and posts a sync of the message
+     * feed that is applied once in the next frame, however many messages arrive before then.
      */
     private class ReceiveMessagePacketHandler implements PacketHandler<ReceiveMessagePacket> {
 
         @Override
-        public void update(ReceiveMessagePacket packet) {
-            // Add the message to the message feed.
-            mMessages.add(packet);
-
-            // Notify the message list adapter that a new message has been added and scroll the message feed to the latest entry.
-            runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                    mMessageListAdapter.notifyDataSetChanged();
-                    lvMessageFeed.setSelection(lvMessageFeed.getCount() - 1);
-                }
-            });
+        public void update(final ReceiveMessagePacket packet) {
+            mMessageCache.append(mActiveChatroom.getName(), packet);
+            mMessages.append(packet);
+            mUiUpdates.postLatest(ReceiveMessagePacket.class, mSyncMessageFeed);
         }
 
         @Override
@@ -219,13 +473,14 @@ public class ChatroomActivity extends ConnectedActivity {
 
     /**
      * {@code ChatroomUserCountUpdateHandler} is responsible for processing '{@code ChatroomUserCountUpdatePacket}'s.
-     * It updates the text that displays the amount of users present within the room.
+     * It updates the text that displays the amount of users present within the room (only the latest count received
+     * before each frame is displayed).
      */
     private class ChatroomUserCountUpdateHandler implements PacketHandler<ChatroomUserCountUpdatePacket> {
 
         @Override
         public void update(final ChatroomUserCountUpdatePacket packet) {
-            runOnUiThread(new Runnable() {
+            mUiUpdates.postLatest(ChatroomUserCountUpdatePacket.class, new Runnable() {
                 @Override
                 public void run() {
                     tvChatroomName.setText(mActiveChatroom.getName());
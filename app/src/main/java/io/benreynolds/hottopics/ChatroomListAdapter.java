@@ -1,68 +1,141 @@
 package io.benreynolds.hottopics;
 
 import android.app.SearchManager;
-import android.content.Context;
 import android.content.Intent;
-import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.Button;
-import android.widget.ImageButton;
 import android.widget.TextView;
 
-import java.util.ArrayList;
+import java.util.List;
 
 import io.benreynolds.hottopics.packets.Chatroom;
 
-import static android.support.v4.content.ContextCompat.startActivity;
+/**
+ * {@code ChatroomListAdapter} binds chatrooms to the rows of {@code RoomListActivity}'s chatroom list. The adapter
+ * displays the activity's list of chatrooms directly, so the activity notifies it of each change to that list
+ * ({@code notifyItemInserted()}, {@code notifyItemRemoved()} or {@code notifyItemChanged()}), meaning that only the
+ * affected rows are re-bound. All methods must be called on the UI thread.
+ */
+public class ChatroomListAdapter extends RecyclerView.Adapter<ChatroomListAdapter.ChatroomViewHolder> {
+
+    /**
+     * {@code OnChatroomClickListener} is notified when a row of the chatroom list is pressed.
+     */
+    interface OnChatroomClickListener {
+
+        /**
+         * Invoked when a row of the chatroom list is pressed.
+         * @param chatroom Chatroom displayed by the row.
+         */
+        void onChatroomClick(Chatroom chatroom);
 
-public class ChatroomListAdapter extends ArrayAdapter<Chatroom> {
+    }
+
+    /** Chatrooms displayed by the chatroom list. */
+    private final List<Chatroom> mChatrooms;
 
-    private Context mContext;
+    /** Notified when a row is pressed. */
+    private final OnChatroomClickListener mOnChatroomClickListener;
 
-    ChatroomListAdapter(Context context, ArrayList<Chatroom> chatrooms) {
-        super(context, 0, chatrooms);
-        mContext = context;
+    /**
+     * @param chatrooms Chatrooms displayed by the chatroom list.
+     * @param onChatroomClickListener Notified when a row is pressed.
+     */
+    ChatroomListAdapter(final List<Chatroom> chatrooms, final OnChatroomClickListener onChatroomClickListener) {
+        mChatrooms = chatrooms;
+        mOnChatroomClickListener = onChatroomClickListener;
     }
 
-    @NonNull
     @Override
-    public View getView(int position, View convertView, @NonNull ViewGroup parent) {
-        final Chatroom chatroom = getItem(position);
-        if (convertView == null) {
-            convertView = LayoutInflater.from(getContext()).inflate(R.layout.chatroom_row, parent,
-                    false);
-        }
+    public ChatroomViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        return new ChatroomViewHolder(LayoutInflater.from(parent.getContext()).inflate(R.layout.chatroom_row, parent,
+                false));
+    }
+
+    @Override
+    public void onBindViewHolder(ChatroomViewHolder holder, int position) {
+        holder.bind(mChatrooms.get(position));
+    }
 
-        TextView tvChatroomName = convertView.findViewById(R.id.tvChatroomName);
-        TextView tvUsersInChatroom = convertView.findViewById(R.id.tvUsersInChatroom);
-        Button ibSearch = convertView.findViewById(R.id.ibSearch);
-        ibSearch.setFocusable(false);
+    @Override
+    public int getItemCount() {
+        return mChatrooms.size();
+    }
 
+    /**
+     * {@code ChatroomViewHolder} holds the views of a single row of the chatroom list, so that they are only looked
+     * up once when the row is created rather than every time it is bound.
+     */
+    class ChatroomViewHolder extends RecyclerView.ViewHolder {
 
+        /** Text that displays the chatroom's name. */
+        private final TextView tvChatroomName;
 
-        if(chatroom == null) {
-            tvChatroomName.setText(R.string.null_string);
-            tvUsersInChatroom.setText(R.string.null_string);
-        }
-        else {
-            tvChatroomName.setText(chatroom.getName());
-            tvUsersInChatroom.setText(String.format("%s User(s)", chatroom.getSize()));
+        /** Text that displays the amount of users in the chatroom. */
+        private final TextView tvUsersInChatroom;
+
+        /** Button that searches the web for the chatroom's name. */
+        private final Button ibSearch;
+
+        /**
+         * @param itemView Row view.
+         */
+        ChatroomViewHolder(final View itemView) {
+            super(itemView);
+            tvChatroomName = itemView.findViewById(R.id.tvChatroomName);
+            tvUsersInChatroom = itemView.findViewById(R.id.tvUsersInChatroom);
+            ibSearch = itemView.findViewById(R.id.ibSearch);
+
+            itemView.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View view) {
+                    Chatroom chatroom = getChatroom();
+                    if(chatroom != null) {
+                        mOnChatroomClickListener.onChatroomClick(chatroom);
+                    }
+                }
+            });
             ibSearch.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View view) {
-                    Intent intent = new Intent(Intent.ACTION_WEB_SEARCH);
-                    intent.putExtra(SearchManager.QUERY, chatroom.getName()); // query contains search string
-                    mContext.startActivity(intent);
+                    Chatroom chatroom = getChatroom();
+                    if(chatroom != null) {
+                        Intent intent = new Intent(Intent.ACTION_WEB_SEARCH);
+                        intent.putExtra(SearchManager.QUERY, chatroom.getName()); // query contains search string
+                        view.getContext().startActivity(intent);
+                    }
                 }
             });
         }
 
+        /**
+         * Returns the chatroom displayed by the row.
+         * @return Chatroom displayed by the row, or {@code null} if the row no longer displays one (because it is
+         * being removed).
+         */
+        private Chatroom getChatroom() {
+            int position = getAdapterPosition();
+            return position != RecyclerView.NO_POSITION ? mChatrooms.get(position) : null;
+        }
 
+        /**
+         * Displays a chatroom in the row.
+         * @param chatroom Chatroom to display.
+         */
+        void bind(final Chatroom chatroom) {
+            if(chatroom == null) {
+                tvChatroomName.setText(R.string.null_string);
+                tvUsersInChatroom.setText(R.string.null_string);
+            }
+            else {
+                tvChatroomName.setText(chatroom.getName());
+                tvUsersInChatroom.setText(String.format("%s User(s)", chatroom.getSize()));
+            }
+        }
 
-        return convertView;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,87 @@
+package io.benreynolds.hottopics;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.benreynolds.hottopics.packets.Chatroom;
+
+/**
+ * {@code ChatroomRepository} owns the state of the chatrooms listed by the Hot Topics server for the lifetime of the
+ * process. Activities hand off a chatroom by its name (see {@code RoomListActivity.EXTRA_ROOM_NAME}) and look it up
+ * here, rather than passing the {@code Chatroom} itself through an {@code Intent}, which would serialize its messages
+ * through Binder (and fail once they exceed the transaction size limit).
+ */
+public class ChatroomRepository {
+
+    /** Singleton instance of the {@code ChatroomRepository}. */
+    private static volatile ChatroomRepository mInstance;
+
+    /** Chatrooms, keyed by their names (guarded by {@code this}). */
+    private final Map<String, Chatroom> mChatrooms = new HashMap<>();
+
+    private ChatroomRepository() { }
+
+    /**
+     * Replaces all of the chatrooms held by the {@code ChatroomRepository} (used when the full chatroom list is
+     * received).
+     * @param chatrooms Chatrooms listed by the server.
+     */
+    public synchronized void setChatrooms(final Collection<Chatroom> chatrooms) {
+        mChatrooms.clear();
+        for(Chatroom chatroom : chatrooms) {
+            putChatroom(chatroom);
+        }
+    }
+
+    /**
+     * Adds a chatroom, replacing any existing chatroom with the same name.
+     * @param chatroom Chatroom to add.
+     */
+    public synchronized void putChatroom(final Chatroom chatroom) {
+        if(chatroom != null && chatroom.getName() != null) {
+            mChatrooms.put(chatroom.getName(), chatroom);
+        }
+    }
+
+    /**
+     * Removes a chatroom. Has no effect if the chatroom is not held by the {@code ChatroomRepository}.
+     * @param chatroomName Name of the chatroom.
+     */
+    public synchronized void removeChatroom(final String chatroomName) {
+        mChatrooms.remove(chatroomName);
+    }
+
+    /**
+     * Returns the chatroom with the specified name.
+     * @param chatroomName Name of the chatroom.
+     * @return Chatroom with the specified name. If it is not held by the {@code ChatroomRepository} (for example,
+     * because the process was restarted), returns {@code null}.
+     */
+    public synchronized Chatroom getChatroom(final String chatroomName) {
+        return mChatrooms.get(chatroomName);
+    }
+
+    /**
+     * Removes all chatrooms (used when the user disconnects from the server).
+     */
+    public synchronized void clear() {
+        mChatrooms.clear();
+    }
+
+    /**
+     * Returns the singleton instance of the {@code ChatroomRepository}.
+     * @return Singleton instance of the {@code ChatroomRepository}.
+     */
+    public static ChatroomRepository getInstance() {
+        if(mInstance == null) {
+            synchronized(ChatroomRepository.class) {
+                if(mInstance == null) {
+                    mInstance = new ChatroomRepository();
+                }
+            }
+        }
+        return mInstance;
+    }
+
+}
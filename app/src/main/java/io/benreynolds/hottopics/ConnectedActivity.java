@@ -2,9 +2,12 @@ package io.benreynolds.hottopics;
 
 import android.app.Activity;
 import android.content.Intent;
-import android.os.Bundle;
 import android.util.Log;
 
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.PrintWriter;
+
 public class ConnectedActivity extends Activity {
 
     private static int COUNT = 0;
@@ -16,70 +19,73 @@ public class ConnectedActivity extends Activity {
     protected static final WebSocketCommunicator WEB_SOCKET_COMMUNICATOR =
             WebSocketCommunicator.getInstance();
 
-    /** Thread used to run the {@code MonitorConnectionTask} runnable that monitors the Hot Topics server
-     * connection */
-    protected Thread tMonitorConnection;
-
-    @Override
-    protected void onCreate(Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
-        tMonitorConnection = new Thread(new MonitorConnectionTask());
-        tMonitorConnection.start();
-    }
+    /** Listener that transitions to the {@code LoginActivity} when the connection to the Hot Topics server is
+     * lost. Attached whilst the activity is in the foreground. */
+    private final ConnectionLostListener mConnectionLostListener = new ConnectionLostListener();
 
     @Override
     protected void onResume() {
-        if(tMonitorConnection != null && !tMonitorConnection.isAlive()) {
-            tMonitorConnection = new Thread(new MonitorConnectionTask());
-            tMonitorConnection.start();
-        }
         super.onResume();
+        WEB_SOCKET_COMMUNICATOR.addConnectionStateListener(mConnectionLostListener);
+
+        // The connection may have been lost (and not re-established) whilst the activity was in the background.
+        if(!WEB_SOCKET_COMMUNICATOR.isConnected() && !WEB_SOCKET_COMMUNICATOR.isReconnectPending()) {
+            mConnectionLostListener.onConnectionStateChanged(WEB_SOCKET_COMMUNICATOR.getConnectionState(),
+                    WEB_SOCKET_COMMUNICATOR.getConnectionState());
+        }
     }
 
     @Override
     protected void onPause() {
-        if(tMonitorConnection != null && tMonitorConnection.isAlive()) {
-            tMonitorConnection.interrupt();
-        }
+        WEB_SOCKET_COMMUNICATOR.removeConnectionStateListener(mConnectionLostListener);
         super.onPause();
     }
 
+    /**
+     * Appends the '{@code WebSocketCommunicator}' metrics and {@code PacketTrace} to the activity's state, meaning that they can be dumped on
+     * demand with {@code adb shell dumpsys activity top}.
+     */
     @Override
-    protected void onDestroy() {
-        if(tMonitorConnection != null && tMonitorConnection.isAlive()) {
-            tMonitorConnection.interrupt();
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        writer.print(prefix);
+        writer.println("WebSocketCommunicator metrics:");
+        try {
+            WEB_SOCKET_COMMUNICATOR.getMetrics().dump(writer);
+            writer.print(prefix);
+            writer.println("WebSocketCommunicator trace:");
+            WEB_SOCKET_COMMUNICATOR.getTrace().dump(writer);
+        }
+        catch(IOException exception) {
+            Log.w(TAG, String.format("Failed to dump metrics: \"%s\".", exception.getMessage()));
         }
-        super.onDestroy();
     }
 
     /**
-     * {@code MonitorConnectionTask} continuously checks if a connection to the Hot Topics server
-     * is established. If no connection is established, it transitions to the {@code LoginActivity}.
+     * {@code ConnectionLostListener} is notified of '{@code WebSocketCommunicator}' {@code ConnectionState}
+     * transitions. If the connection to the Hot Topics server is lost and cannot be re-established, it transitions to
+     * the {@code LoginActivity}.
      */
-    private class MonitorConnectionTask implements Runnable {
+    private class ConnectionLostListener implements ConnectionStateListener {
 
         @Override
-        public void run() {
-            // TODO: Remove all observers from the WebSocketCommunicator?
-
-            Log.d(TAG, String.format("[%s:%s] Started...", getClass().getSimpleName(),
-                    Thread.currentThread().getId()));
-
-            while(!Thread.currentThread().isInterrupted()) {
-                if(WEB_SOCKET_COMMUNICATOR.isConnected()) {
-                    continue;
-                }
-
-                Log.w(TAG, "Connection was lost unexpectedly.");
-                Intent mainActivity = new Intent(ConnectedActivity.this,
-                        LoginActivity.class);
-                startActivity(mainActivity);
+        public void onConnectionStateChanged(ConnectionState previousState, ConnectionState newState) {
+            // Whilst the WebSocketCommunicator is reconnecting the user stays where they are; the session is resumed
+            // once the connection is re-established.
+            if(newState == ConnectionState.OPEN || WEB_SOCKET_COMMUNICATOR.isReconnectPending()) {
+                return;
+            }
 
-                break;
+            // Detaching the listener ensures that only a single transition is made, even if several state
+            // changes are reported concurrently.
+            if(!WEB_SOCKET_COMMUNICATOR.removeConnectionStateListener(this)) {
+                return;
             }
 
-            Log.d(TAG, String.format("[%s:%s] Finished...", getClass().getSimpleName(),
-                    Thread.currentThread().getId()));
+            Log.w(TAG, "Connection was lost unexpectedly.");
+            Intent mainActivity = new Intent(ConnectedActivity.this,
+                    LoginActivity.class);
+            startActivity(mainActivity);
         }
 
     }
@@ -0,0 +1,22 @@
+package io.benreynolds.hottopics;
+
+/**
+ * {@code ConnectionState} describes the state of the {@code WebSocketCommunicator}'s connection to the Hot Topics
+ * server. Transitions are made atomically by the {@code WebSocketCommunicator} and are broadcast to
+ * '{@code ConnectionStateListener}'s.
+ */
+public enum ConnectionState {
+
+    /** A connection to the server is being established. */
+    CONNECTING,
+
+    /** A connection to the server is established and '{@code Packet}'s may be sent and received. */
+    OPEN,
+
+    /** The connection to the server is being shut down. */
+    CLOSING,
+
+    /** There is no connection to the server. */
+    CLOSED
+
+}
@@ -0,0 +1,17 @@
+package io.benreynolds.hottopics;
+
+/**
+ * {@code ConnectionStateListener} is notified whenever the {@code WebSocketCommunicator}'s {@code ConnectionState}
+ * changes (see {@code WebSocketCommunicator.addConnectionStateListener()}).
+ */
+public interface ConnectionStateListener {
+
+    /**
+     * Invoked after the {@code WebSocketCommunicator}'s {@code ConnectionState} has changed. Invoked on the thread that
+     * caused the transition (typically an OkHttp thread), so implementations should not block.
+     * @param previousState Previous {@code ConnectionState}.
+     * @param newState New {@code ConnectionState}.
+     */
+    void onConnectionStateChanged(ConnectionState previousState, ConnectionState newState);
+
+}
@@ -34,14 +34,6 @@ public class LoginActivity extends Activity {
     private static final WebSocketCommunicator WEB_SOCKET_COMMUNICATOR =
             WebSocketCommunicator.getInstance();
 
-    /** Thread used to establish connections to the Hot Topics Server (see
-     * {@code EstablishConnectionTask}). */
-    private Thread tEstablishConnection;
-
-    /** Thread used to send a {@code UsernameRequestPacket} to the Hot Topics server and await a
-     *  response. */
-    private Thread tRequestUsername;
-
     /** Status label. */
     private TextView lblStatus;
 
@@ -89,6 +81,10 @@ public class LoginActivity extends Activity {
             WEB_SOCKET_COMMUNICATOR.disconnect();
         }
 
+        // Hold chat messages in a persistent outbox until the server confirms them, so that messages written whilst
+        // the connection is unavailable (or sent just before it drops) are not lost.
+        WEB_SOCKET_COMMUNICATOR.setOutbox(MessageOutbox.getInstance(this));
+
         // Set the default activity status.
         setActivityState(true);
 
@@ -152,7 +148,9 @@ public class LoginActivity extends Activity {
 
     @Override
     public void onBackPressed() {
-        // Close the application
+        // Close the application, releasing the connection and the transport's threads and pooled connections.
+        WEB_SOCKET_COMMUNICATOR.disconnect();
+        WebSocketTransport.getInstance().shutdown();
         this.finishAffinity();
     }
 
@@ -173,51 +171,70 @@ public class LoginActivity extends Activity {
     }
 
     /**
-     * {@code EstablishConnectionTask} attempts to establish a connection to the Hot Topics server
-     * using the {@code WebSocketCommunicator}. A single attempt at establishing a connection is
-     * made before the thread dies (see '{@code WebSocketCommunicator}'s connection timeout period).
+     * Sends a {@code UsernameRequestPacket} to the Hot Topics server. The response is handled by the
+     * {@code UsernameResponseListener} once it is received (or the request times out), so the calling
+     * thread does not wait for it.
+     * @param username Requested username.
      */
-    public class EstablishConnectionTask implements Runnable {
+    private void requestUsername(final String username) {
+        UsernameRequestPacket usernameRequestPacket = new UsernameRequestPacket(username);
+        WEB_SOCKET_COMMUNICATOR.sendRequest(usernameRequestPacket, UsernameResponsePacket.class)
+                .addListener(new UsernameResponseListener());
+    }
 
-        @Override
-        public void run() {
-            Log.d(TAG, String.format("Thread [%s] started... (%d).", getClass().getSimpleName(),
-                    Thread.currentThread().getId()));
+    /**
+     * {@code EstablishConnectionListener} awaits the outcome of a connection attempt made by
+     * {@code LoginTask}. Once the connection is open it requests the username; if the attempt fails
+     * it updates the status bar to reflect this and re-enables the form. It detaches itself from the
+     * {@code WebSocketCommunicator} after either outcome.
+     */
+    private class EstablishConnectionListener implements ConnectionStateListener {
+
+        /** Requested username */
+        private final String mUsername;
 
-            // Ensure that the WebSocketCommunicator is not already connected or establishing a
-            // connection.
-            if(WEB_SOCKET_COMMUNICATOR.isConnected() || WEB_SOCKET_COMMUNICATOR.isConnecting()) {
-                Log.w(TAG, "Attempted to establish a connection to the server whilst already" +
-                        " connected/connecting.");
-                Log.d(TAG, String.format("Thread [%s] finished... (%d).", getClass().getSimpleName(),
-                        Thread.currentThread().getId()));
+        /**
+         * @param username Requested username
+         */
+        EstablishConnectionListener(final String username) {
+            mUsername = username;
+        }
+
+        @Override
+        public void onConnectionStateChanged(ConnectionState previousState, ConnectionState newState) {
+            if(newState == ConnectionState.CONNECTING) {
                 return;
             }
 
-            // Attempt to connect to the Hot Topics server.
-            Log.i(TAG, "Attempting to establish a connection to the Hot Topics server...");
-            WEB_SOCKET_COMMUNICATOR.connect();
-            while (WEB_SOCKET_COMMUNICATOR.isConnecting()) {
-                Thread.yield();
+            // Ensure that the outcome is only handled once.
+            if(!WEB_SOCKET_COMMUNICATOR.removeConnectionStateListener(this)) {
+                return;
             }
 
-            if(!WEB_SOCKET_COMMUNICATOR.isConnected()) {
-                Log.w(TAG, "Failed to establish a connection to the Hot Topics server.");
-                Log.d(TAG, String.format("Thread [%s] finished... (%d).", getClass().getSimpleName(),
-                        Thread.currentThread().getId()));
+            if(newState == ConnectionState.OPEN) {
+                Log.i(TAG, "Connected to the Hot Topics Server server.");
+                requestUsername(mUsername);
                 return;
             }
 
-            Log.i(TAG, "Connected to the Hot Topics Server server.");
-            Log.d(TAG, String.format("Thread [%s] finished... (%d).", getClass().getSimpleName(),
-                    Thread.currentThread().getId()));
+            // A connection could not be established, update the status bar to reflect this and
+            // re-enable the form.
+            Log.w(TAG, "Failed to establish a connection to the Hot Topics server.");
+            setStatusText(true, getString(R.string.status_connection_failed), getColor(R.color.hot_topics_error_text));
+            setActivityState(true);
+            runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    progressBar.setVisibility(ProgressBar.GONE);
+                }
+            });
         }
 
     }
 
     /**
-     * {@code LoginTask} uses {@code EstablishConnectionTask} and {@code RequestResponseTask} to
-     * establish a connection to the Hot Topics server and request the specified username.
+     * {@code LoginTask} uses {@code EstablishConnectionListener} and {@code WebSocketCommunicator.sendRequest()}
+     * to establish a connection to the Hot Topics server and request the specified username.
      */
     public class LoginTask implements Runnable {
 
@@ -249,64 +266,33 @@ public class LoginActivity extends Activity {
                 }
             });
 
-            // If a connection to the Hot Topics server is not established then establish one.
-            if(!WEB_SOCKET_COMMUNICATOR.isConnected()) {
-                // If an instance of the tEstablishConnection thread exits, interrupt it before
-                // creating a new one.
-                if (tEstablishConnection != null && tEstablishConnection.isAlive()) {
-                    tEstablishConnection.interrupt();
-                }
-
-                // Create and run a new instance of the EstablishConnectionTask
-                tEstablishConnection = new Thread(new EstablishConnectionTask());
-                tEstablishConnection.start();
-
-                // Await the completion of the EstablishConnectionTask
-                while (tEstablishConnection.isAlive()) {
-                    Thread.yield();
-                }
-
-                // If a connection could not be established, update its status bar to reflect this
-                // and re-enable the form before killing the thread.
-                if (!WEB_SOCKET_COMMUNICATOR.isConnected()) {
-                    setStatusText(true, getString(R.string.status_connection_failed), getColor(R.color.hot_topics_error_text));
-                    setActivityState(true);
-                    runOnUiThread(new Runnable() {
-                        @Override
-                        public void run() {
-                            progressBar.setVisibility(ProgressBar.GONE);
-                        }
-                    });
-                    Log.d(TAG, String.format("Thread [%s] finished... (%d).",
-                            getClass().getSimpleName(), Thread.currentThread().getId()));
-                    return;
-                }
-
-                // A connection was established, update the form status to reflect this.
-                //setStatus(getString(R.string.status_connected), false);
+            if(WEB_SOCKET_COMMUNICATOR.isConnected()) {
+                requestUsername(mUsername);
             }
-
-            // If an instance of the tRequestUsername thread exists, interrupt it and construct
-            // a new one.
-            if(tRequestUsername != null && tRequestUsername.isAlive()) {
-                tRequestUsername.interrupt();
+            else {
+                // If a connection to the Hot Topics server is not established then establish one. The
+                // username is requested by the EstablishConnectionListener once the connection opens.
+                Log.i(TAG, "Attempting to establish a connection to the Hot Topics server...");
+                WEB_SOCKET_COMMUNICATOR.addConnectionStateListener(new EstablishConnectionListener(mUsername));
+                WEB_SOCKET_COMMUNICATOR.connect();
             }
 
-            // Create and run a new instance of the username RequestResponseTask
-            UsernameRequestPacket usernameRequestPacket = new UsernameRequestPacket(mUsername);
-            RequestResponseTask<UsernameRequestPacket> requestUsernameTask =
-                    new RequestResponseTask<>(usernameRequestPacket, UsernameResponsePacket.class);
-            tRequestUsername = new Thread(requestUsernameTask);
-            tRequestUsername.start();
+            Log.d(TAG, String.format("Thread [%s] finished... (%d).", getClass().getSimpleName(),
+                    Thread.currentThread().getId()));
+        }
 
-            // Await the completion of the username RequestResponseTask
-            while(tRequestUsername.isAlive()) {
-                Thread.yield();
-            }
+    }
+
+    /**
+     * {@code UsernameResponseListener} handles the server's response to a {@code UsernameRequestPacket}
+     * sent by {@code LoginTask}.
+     */
+    private class UsernameResponseListener implements RequestFuture.Listener<UsernameResponsePacket> {
 
+        @Override
+        public void onComplete(UsernameResponsePacket responsePacket) {
             // If the server rejected the username, update its status bar to reflect this and
-            // re-enable the form before killing the thread.
-            UsernameResponsePacket responsePacket = (UsernameResponsePacket)requestUsernameTask.getResponse();
+            // re-enable the form.
             if(responsePacket == null || !responsePacket.getResponse()) {
                 setStatusText(true, getString(R.string.username_taken_error), getColor(R.color.hot_topics_error_text));
                 setActivityState(true);
@@ -316,18 +302,13 @@ public class LoginActivity extends Activity {
                         progressBar.setVisibility(ProgressBar.GONE);
                     }
                 });
-                Log.d(TAG, String.format("Thread [%s] finished... (%d).",
-                        getClass().getSimpleName(), Thread.currentThread().getId()));
                 return;
             }
 
             // The username was accepted and assigned to the connection by the server, transition to
             // the RoomListActivity}.
-
             Intent roomList = new Intent(LoginActivity.this, RoomListActivity.class);
             startActivity(roomList);
-            Log.d(TAG, String.format("Thread [%s] finished... (%d).", getClass().getSimpleName(),
-                    Thread.currentThread().getId()));
         }
 
     }
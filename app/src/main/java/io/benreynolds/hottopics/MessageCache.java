@@ -0,0 +1,439 @@
+package io.benreynolds.hottopics;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+
+/**
+ * {@code MessageCache} persists the messages received in each chatroom to an on-device SQLite database, so that
+ * {@code ChatroomActivity} can display a chatroom's most recent messages as soon as it is opened (and across
+ * restarts) and only needs to add the messages that are newer than those it has cached.
+ * <p>
+ * Within a chatroom, each cached message is assigned a sequence number (one higher than the previous message's). The
+ * table's primary key is the chatroom's name followed by the sequence number, meaning that reading the latest
+ * messages of a chatroom (or the messages before a given sequence number) is an indexed range scan. Sequence numbers
+ * are assigned as soon as a message is appended, whilst the message itself is written on a background thread, in a
+ * single transaction with any other messages appended in the meantime. A pending write stays queued until its
+ * transaction has ended, so that reads made on other threads can merge the writes that they cannot yet see in the
+ * database. Only the most recent {@code MESSAGES_PER_CHATROOM_MAX} messages of each chatroom are kept.
+ */
+public class MessageCache extends SQLiteOpenHelper {
+
+    /**
+     * {@code PageCallback} receives a page of messages loaded by {@code loadBefore()}.
+     */
+    public interface PageCallback {
+
+        /**
+         * Invoked on the {@code MessageCache}'s thread once a page of messages has been loaded.
+         * @param messages Messages that were loaded, oldest first (empty if there are no older messages).
+         * @param firstSequence Sequence number of the oldest message that was loaded.
+         */
+        void onPageLoaded(List<ReceiveMessagePacket> messages, long firstSequence);
+
+    }
+
+    /** TAG used in Logcat messages outputted by {@code MessageCache}. */
+    private static final String TAG = MessageCache.class.getSimpleName();
+
+    /** Name of the database file. */
+    private static final String DATABASE_NAME = "messages.db";
+
+    /** Version of the database schema. */
+    private static final int DATABASE_VERSION = 1;
+
+    /** Maximum amount of messages kept for each chatroom. */
+    static final int MESSAGES_PER_CHATROOM_MAX = 2000;
+
+    /** Names of the table and its columns. */
+    private static final String TABLE_MESSAGES = "messages";
+    private static final String COLUMN_CHATROOM = "chatroom";
+    private static final String COLUMN_SEQUENCE = "sequence";
+    private static final String COLUMN_MESSAGE_ID = "message_id";
+    private static final String COLUMN_AUTHOR = "author";
+    private static final String COLUMN_MESSAGE = "message";
+
+    /** Columns read when loading messages. */
+    private static final String[] MESSAGE_COLUMNS = new String[] {
+            COLUMN_SEQUENCE, COLUMN_AUTHOR, COLUMN_MESSAGE, COLUMN_MESSAGE_ID
+    };
+
+    /** Singleton instance of the {@code MessageCache}. */
+    private static volatile MessageCache mInstance;
+
+    /** Sequence number that will be assigned to the next message appended to each chatroom (guarded by
+     * {@code this}). */
+    private final Map<String, Long> mEndSequences = new HashMap<>();
+
+    /** Writes that have not yet been applied to the database (or are being applied), in the order they were made. */
+    private final Queue<PendingWrite> mPendingWrites = new ConcurrentLinkedQueue<>();
+
+    /** {@code true} whilst a drain of the pending writes is scheduled or running. */
+    private final AtomicBoolean mDrainScheduled = new AtomicBoolean(false);
+
+    /** Lock held whilst the pending writes are applied, so that they are applied in order. */
+    private final Object mDrainLock = new Object();
+
+    /** Single thread on which the database is written to and pages are loaded. */
+    private final ExecutorService mExecutor;
+
+    /** Applies the pending writes to the database. */
+    private final Runnable mDrain = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    /**
+     * Write that has not yet been applied to the database: either a message to insert, or (if {@code mMessage} is
+     * {@code null}) the removal of all of a chatroom's messages.
+     */
+    private static class PendingWrite {
+
+        /** Name of the chatroom. */
+        final String mChatroomName;
+
+        /** Sequence number assigned to the message. */
+        final long mSequence;
+
+        /** Message to insert. */
+        final ReceiveMessagePacket mMessage;
+
+        /**
+         * @param chatroomName Name of the chatroom.
+         * @param sequence Sequence number assigned to the message.
+         * @param message Message to insert.
+         */
+        PendingWrite(final String chatroomName, final long sequence, final ReceiveMessagePacket message) {
+            mChatroomName = chatroomName;
+            mSequence = sequence;
+            mMessage = message;
+        }
+
+    }
+
+    /**
+     * @param context Context used to locate the application's databases directory.
+     */
+    private MessageCache(final Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        mExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "MessageCache");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase database) {
+        database.execSQL("CREATE TABLE " + TABLE_MESSAGES + " (" +
+                COLUMN_CHATROOM + " TEXT NOT NULL, " +
+                COLUMN_SEQUENCE + " INTEGER NOT NULL, " +
+                COLUMN_MESSAGE_ID + " INTEGER, " +
+                COLUMN_AUTHOR + " TEXT NOT NULL, " +
+                COLUMN_MESSAGE + " TEXT NOT NULL, " +
+                "PRIMARY KEY (" + COLUMN_CHATROOM + ", " + COLUMN_SEQUENCE + "))");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase database, int oldVersion, int newVersion) {
+        // The cache can always be rebuilt from the server, so older schemas are simply discarded.
+        database.execSQL("DROP TABLE IF EXISTS " + TABLE_MESSAGES);
+        onCreate(database);
+    }
+
+    /**
+     * Appends a message to a chatroom's cached messages. The message is written to the database asynchronously.
+     * @param chatroomName Name of the chatroom.
+     * @param message Message to append.
+     * @return Sequence number assigned to the message.
+     */
+    public synchronized long append(final String chatroomName, final ReceiveMessagePacket message) {
+        long sequence = getEndSequence(chatroomName);
+        mEndSequences.put(chatroomName, sequence + 1);
+        mPendingWrites.add(new PendingWrite(chatroomName, sequence, message));
+        scheduleDrain();
+        return sequence;
+    }
+
+    /**
+     * Inserts messages before a chatroom's oldest cached message (used to cache older messages fetched from the
+     * server). The messages are written to the database asynchronously.
+     * @param chatroomName Name of the chatroom.
+     * @param beforeSequence Sequence number of the chatroom's oldest cached message.
+     * @param messages Messages to insert, oldest first. They are assigned the sequence numbers preceding
+     * {@code beforeSequence}.
+     * @return Sequence number assigned to the first of the messages.
+     */
+    public synchronized long prepend(final String chatroomName, final long beforeSequence,
+                                     final List<ReceiveMessagePacket> messages) {
+        long firstSequence = beforeSequence - messages.size();
+        for(int i = 0; i < messages.size(); i++) {
+            mPendingWrites.add(new PendingWrite(chatroomName, firstSequence + i, messages.get(i)));
+        }
+        scheduleDrain();
+        return firstSequence;
+    }
+
+    /**
+     * Discards a chatroom's cached messages and replaces them with the specified messages (used when it cannot be
+     * determined which of the chatroom's messages are already cached).
+     * @param chatroomName Name of the chatroom.
+     * @param messages Messages to cache, oldest first. They are assigned sequence numbers starting at {@code 0}.
+     */
+    public synchronized void replace(final String chatroomName, final List<ReceiveMessagePacket> messages) {
+        mEndSequences.put(chatroomName, 0L);
+        mPendingWrites.add(new PendingWrite(chatroomName, 0, null));
+        for(ReceiveMessagePacket message : messages) {
+            append(chatroomName, message);
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * Returns the sequence number that will be assigned to the next message appended to a chatroom. The first call
+     * for each chatroom reads it from the database.
+     * @param chatroomName Name of the chatroom.
+     * @return Sequence number that will be assigned to the next message.
+     */
+    public synchronized long getEndSequence(final String chatroomName) {
+        Long endSequence = mEndSequences.get(chatroomName);
+        if(endSequence != null) {
+            return endSequence;
+        }
+
+        endSequence = 0L;
+        Cursor cursor = null;
+        try {
+            cursor = getReadableDatabase().query(TABLE_MESSAGES, new String[] { COLUMN_SEQUENCE },
+                    COLUMN_CHATROOM + " = ?", new String[] { chatroomName }, null, null, COLUMN_SEQUENCE + " DESC",
+                    "1");
+            if(cursor.moveToFirst()) {
+                endSequence = cursor.getLong(0) + 1;
+            }
+        }
+        catch(SQLiteException exception) {
+            Log.e(TAG, "Failed to read the message cache.", exception);
+        }
+        finally {
+            if(cursor != null) {
+                cursor.close();
+            }
+        }
+        mEndSequences.put(chatroomName, endSequence);
+        return endSequence;
+    }
+
+    /**
+     * Reads a chatroom's most recent cached messages. This is an indexed read of only the requested messages, so is
+     * fast enough to be made whilst an activity is created: the pending writes are merged in memory rather than
+     * written first.
+     * @param chatroomName Name of the chatroom.
+     * @param limit Maximum amount of messages to read.
+     * @return Chatroom's most recent cached messages, oldest first. The last of them was assigned the sequence
+     * number preceding {@code getEndSequence()}.
+     */
+    public synchronized List<ReceiveMessagePacket> loadLatest(final String chatroomName, final int limit) {
+        long endSequence = getEndSequence(chatroomName);
+
+        // Writes are only removed from the queue once their transaction has ended, so every write that the query
+        // cannot see is in this copy. Nothing can be appended meanwhile, as appending also synchronizes on 'this'.
+        List<PendingWrite> pendingWrites = new ArrayList<>(mPendingWrites);
+        SortedMap<Long, ReceiveMessagePacket> messages = new TreeMap<>();
+        query(chatroomName, endSequence, limit, messages);
+        for(PendingWrite write : pendingWrites) {
+            if(!write.mChatroomName.equals(chatroomName)) {
+                continue;
+            }
+            if(write.mMessage == null) {
+                // Every message that follows the removal is also pending, so none of those read can be kept.
+                messages.clear();
+            }
+            else if(write.mSequence < endSequence) {
+                messages.put(write.mSequence, write.mMessage);
+            }
+        }
+
+        while(messages.size() > limit) {
+            messages.remove(messages.firstKey());
+        }
+        return new ArrayList<>(messages.values());
+    }
+
+    /**
+     * Asynchronously reads the cached messages of a chatroom that precede the specified sequence number.
+     * @param chatroomName Name of the chatroom.
+     * @param beforeSequence Sequence number of the oldest message that has already been read.
+     * @param limit Maximum amount of messages to read.
+     * @param callback Receives the messages that were read.
+     */
+    public void loadBefore(final String chatroomName, final long beforeSequence, final int limit,
+                           final PageCallback callback) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+                SortedMap<Long, ReceiveMessagePacket> messages = new TreeMap<>();
+                query(chatroomName, beforeSequence, limit, messages);
+                callback.onPageLoaded(new ArrayList<>(messages.values()),
+                        messages.isEmpty() ? beforeSequence : messages.firstKey());
+            }
+        });
+    }
+
+    /**
+     * Reads cached messages of a chatroom that precede the specified sequence number.
+     * @param chatroomName Name of the chatroom.
+     * @param beforeSequence Sequence number that the messages must precede.
+     * @param limit Maximum amount of messages to read.
+     * @param messages Receives the messages that were read, by sequence number.
+     */
+    private void query(final String chatroomName, final long beforeSequence, final int limit,
+                       final SortedMap<Long, ReceiveMessagePacket> messages) {
+        Cursor cursor = null;
+        try {
+            cursor = getReadableDatabase().query(TABLE_MESSAGES, MESSAGE_COLUMNS,
+                    COLUMN_CHATROOM + " = ? AND " + COLUMN_SEQUENCE + " < ?",
+                    new String[] { chatroomName, Long.toString(beforeSequence) }, null, null,
+                    COLUMN_SEQUENCE + " DESC", Integer.toString(limit));
+            while(cursor.moveToNext()) {
+                messages.put(cursor.getLong(0), new ReceiveMessagePacket(cursor.getString(1), cursor.getString(2),
+                        cursor.isNull(3) ? null : cursor.getLong(3)));
+            }
+        }
+        catch(SQLiteException exception) {
+            Log.e(TAG, "Failed to read the message cache.", exception);
+        }
+        finally {
+            if(cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * Schedules a drain of the pending writes, unless one is already scheduled.
+     */
+    private void scheduleDrain() {
+        if(mDrainScheduled.compareAndSet(false, true)) {
+            mExecutor.execute(mDrain);
+        }
+    }
+
+    /**
+     * Applies the pending writes to the database in a single transaction, then removes each affected chatroom's
+     * messages beyond the most recent {@code MESSAGES_PER_CHATROOM_MAX}.
+     */
+    private void drain() {
+        synchronized(mDrainLock) {
+            mDrainScheduled.set(false);
+            if(!mPendingWrites.isEmpty()) {
+                applyPendingWrites();
+            }
+        }
+    }
+
+    /**
+     * Applies the pending writes to the database, then removes them from the queue. Must be called whilst holding
+     * {@code mDrainLock}.
+     */
+    private void applyPendingWrites() {
+        Map<String, Long> endSequences = new HashMap<>();
+        SQLiteDatabase database;
+        try {
+            database = getWritableDatabase();
+        }
+        catch(SQLiteException exception) {
+            Log.e(TAG, "Failed to open the message cache, discarding pending writes.", exception);
+            mPendingWrites.clear();
+            return;
+        }
+
+        int applied = 0;
+        database.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            Iterator<PendingWrite> writes = mPendingWrites.iterator();
+            while(writes.hasNext()) {
+                PendingWrite write = writes.next();
+                applied++;
+                if(write.mMessage == null) {
+                    database.delete(TABLE_MESSAGES, COLUMN_CHATROOM + " = ?", new String[] { write.mChatroomName });
+                    continue;
+                }
+                values.clear();
+                values.put(COLUMN_CHATROOM, write.mChatroomName);
+                values.put(COLUMN_SEQUENCE, write.mSequence);
+                values.put(COLUMN_MESSAGE_ID, write.mMessage.getMessageId());
+                values.put(COLUMN_AUTHOR, write.mMessage.getAuthor());
+                values.put(COLUMN_MESSAGE, write.mMessage.getMessage());
+                database.insertWithOnConflict(TABLE_MESSAGES, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+                Long endSequence = endSequences.get(write.mChatroomName);
+                if(endSequence == null || endSequence <= write.mSequence) {
+                    endSequences.put(write.mChatroomName, write.mSequence + 1);
+                }
+            }
+
+            for(Map.Entry<String, Long> endSequence : endSequences.entrySet()) {
+                database.delete(TABLE_MESSAGES, COLUMN_CHATROOM + " = ? AND " + COLUMN_SEQUENCE + " < ?",
+                        new String[] { endSequence.getKey(),
+                                Long.toString(endSequence.getValue() - MESSAGES_PER_CHATROOM_MAX) });
+            }
+            database.setTransactionSuccessful();
+        }
+        catch(SQLiteException exception) {
+            Log.e(TAG, "Failed to write to the message cache.", exception);
+        }
+        finally {
+            database.endTransaction();
+            // Writes are only added to the tail, so the head holds exactly those that were iterated.
+            for(int i = 0; i < applied; i++) {
+                mPendingWrites.poll();
+            }
+        }
+    }
+
+    /**
+     * Returns the singleton instance of the {@code MessageCache}.
+     * @param context Context used to locate the application's databases directory.
+     * @return Singleton instance of the {@code MessageCache}.
+     */
+    public static MessageCache getInstance(final Context context) {
+        if(mInstance == null) {
+            synchronized(MessageCache.class) {
+                if(mInstance == null) {
+                    mInstance = new MessageCache(context.getApplicationContext());
+                }
+            }
+        }
+        return mInstance;
+    }
+
+}
@@ -0,0 +1,434 @@
+package io.benreynolds.hottopics;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import io.benreynolds.hottopics.packets.SendMessagePacket;
+
+/**
+ * {@code MessageOutbox} holds chat messages that have been written by the user until the server confirms that it has
+ * received them, so that messages typed during a network outage (or written to a connection that then dropped) are
+ * resent (in order) once the user is back in the chatroom rather than being lost. Each message is assigned a
+ * client-generated ID that the server uses to discard duplicates and echoes back to its author, which confirms the
+ * message (see {@code acknowledge()}).
+ * <p>
+ * Messages are persisted to an append-only log within the application's files directory: appending a message and
+ * acknowledging one each write a single small record to the end of the file, so the {@code MessageOutbox} costs
+ * little more than a sequential write whilst the connection is healthy. Records are written in order on a background
+ * thread, meaning that no method blocks on I/O (other than loading the log). The log is compacted (rewritten with only
+ * the unconfirmed messages) once acknowledged records dominate it, and when it is loaded.
+ */
+public class MessageOutbox {
+
+    /** TAG used in Logcat messages outputted by {@code MessageOutbox}. */
+    private static final String TAG = MessageOutbox.class.getSimpleName();
+
+    /** Name of the file that the {@code MessageOutbox} is persisted to. */
+    private static final String FILE_NAME = "outbox.log";
+
+    /** Maximum amount of unconfirmed messages held by the {@code MessageOutbox}. */
+    static final int CAPACITY_DEFAULT = 256;
+
+    /** Amount of acknowledged records the log may contain before it is compacted. */
+    private static final int COMPACTION_THRESHOLD = 512;
+
+    /** Log record type: a message was appended. */
+    private static final byte RECORD_APPEND = 1;
+
+    /** Log record type: the server confirmed that it received a message. */
+    private static final byte RECORD_ACKNOWLEDGE = 2;
+
+    /** Singleton instance of the {@code MessageOutbox}. */
+    private static volatile MessageOutbox mInstance;
+
+    /** File that the {@code MessageOutbox} is persisted to. */
+    private final File mFile;
+
+    /** Maximum amount of unconfirmed messages held by the {@code MessageOutbox}. */
+    private final int mCapacity;
+
+    /** Unconfirmed messages, keyed by their client-generated ID, in the order they were appended (guarded by
+     * {@code this}). */
+    private final Map<String, Entry> mEntries = new LinkedHashMap<>();
+
+    /** IDs of unconfirmed messages that have been queued for sending on the current connection (guarded by
+     * {@code this}). */
+    private final Set<String> mInFlight = new HashSet<>();
+
+    /** Single thread on which the log is written. Records are submitted whilst holding {@code this}, so they are
+     * written in the order the changes they record were made. */
+    private final ExecutorService mExecutor;
+
+    /** Stream used to append records to the log (only used on {@code mExecutor}). */
+    private DataOutputStream mLog;
+
+    /** Amount of acknowledged records the log contains (guarded by {@code this}). */
+    private int mAcknowledgedRecords;
+
+    /**
+     * Unconfirmed message held by the {@code MessageOutbox}.
+     */
+    private static class Entry {
+
+        /** Name of the chatroom that the message was written in. */
+        final String mChatroomName;
+
+        /** Message to send. */
+        final SendMessagePacket mPacket;
+
+        /**
+         * @param chatroomName Name of the chatroom that the message was written in.
+         * @param packet Message to send.
+         */
+        Entry(final String chatroomName, final SendMessagePacket packet) {
+            mChatroomName = chatroomName;
+            mPacket = packet;
+        }
+
+    }
+
+    /**
+     * @param file File that the {@code MessageOutbox} is persisted to.
+     * @param capacity Maximum amount of unconfirmed messages held by the {@code MessageOutbox}.
+     */
+    MessageOutbox(final File file, final int capacity) {
+        mFile = file;
+        mCapacity = capacity;
+        mExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "MessageOutbox");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        load();
+    }
+
+    /**
+     * Appends a message to the {@code MessageOutbox}, assigning it a client-generated ID. The message is persisted on
+     * a background thread.
+     * @param chatroomName Name of the chatroom that the message was written in.
+     * @param message Message to send.
+     * @return {@code SendMessagePacket} containing the message. If the {@code MessageOutbox} is full, returns
+     * {@code null}.
+     */
+    public synchronized SendMessagePacket append(final String chatroomName, final String message) {
+        if(mEntries.size() >= mCapacity) {
+            Log.w(TAG, String.format("Outbox is full (%d messages), rejected message.", mEntries.size()));
+            return null;
+        }
+
+        final SendMessagePacket packet = new SendMessagePacket(message, UUID.randomUUID().toString());
+        mEntries.put(packet.getClientId(), new Entry(chatroomName, packet));
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    DataOutputStream log = getLog();
+                    log.writeByte(RECORD_APPEND);
+                    log.writeUTF(packet.getClientId());
+                    log.writeUTF(chatroomName);
+                    log.writeUTF(message);
+                    log.flush();
+                }
+                catch(IOException exception) {
+                    Log.e(TAG, "Failed to persist message, it will not survive a restart.", exception);
+                }
+            }
+        });
+        return packet;
+    }
+
+    /**
+     * Removes a message from the {@code MessageOutbox} once the server has confirmed that it received it (by echoing
+     * the message's client-generated ID). Has no effect if the message is not held by the {@code MessageOutbox}.
+     * @param clientId Client-generated ID of the message.
+     */
+    public synchronized void acknowledge(final String clientId) {
+        if(clientId == null || mEntries.remove(clientId) == null) {
+            return;
+        }
+        mInFlight.remove(clientId);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    DataOutputStream log = getLog();
+                    log.writeByte(RECORD_ACKNOWLEDGE);
+                    log.writeUTF(clientId);
+                    log.flush();
+                }
+                catch(IOException exception) {
+                    Log.e(TAG, "Failed to persist acknowledgement.", exception);
+                }
+            }
+        });
+
+        if(++mAcknowledgedRecords >= COMPACTION_THRESHOLD) {
+            compact();
+        }
+    }
+
+    /**
+     * Marks a message as queued for sending, preventing it from being returned by {@code takeUnsent()} until the
+     * connection is lost (see {@code resetInFlight()}). The message is held until it is acknowledged.
+     * @param clientId Client-generated ID of the message.
+     */
+    public synchronized void markInFlight(final String clientId) {
+        if(mEntries.containsKey(clientId)) {
+            mInFlight.add(clientId);
+        }
+    }
+
+    /**
+     * Returns a message that could not be queued for sending to being unsent.
+     * @param clientId Client-generated ID of the message.
+     */
+    public synchronized void markUnsent(final String clientId) {
+        mInFlight.remove(clientId);
+    }
+
+    /**
+     * Returns all unconfirmed messages to being unsent (used when the connection is lost, as messages that were queued
+     * or written may not have reached the server).
+     */
+    public synchronized void resetInFlight() {
+        mInFlight.clear();
+    }
+
+    /**
+     * Returns the unsent messages that were written in the specified chatroom, in the order they were appended, and
+     * marks them as queued for sending. Unsent messages include those that were written to a connection that was lost
+     * before the server confirmed them. Messages that were written in other chatrooms can no longer be delivered and
+     * are discarded.
+     * @param chatroomName Name of the chatroom that the user is in.
+     * @return Unsent messages that were written in the specified chatroom.
+     */
+    public synchronized List<SendMessagePacket> takeUnsent(final String chatroomName) {
+        List<SendMessagePacket> unsent = new ArrayList<>();
+        List<String> stale = new ArrayList<>();
+        for(Entry entry : mEntries.values()) {
+            String clientId = entry.mPacket.getClientId();
+            if(!entry.mChatroomName.equals(chatroomName)) {
+                stale.add(clientId);
+            }
+            else if(mInFlight.add(clientId)) {
+                unsent.add(entry.mPacket);
+            }
+        }
+
+        if(!stale.isEmpty()) {
+            Log.w(TAG, String.format("Discarded %d message(s) written in other chatrooms.", stale.size()));
+            for(String clientId : stale) {
+                acknowledge(clientId);
+            }
+        }
+        return unsent;
+    }
+
+    /**
+     * Returns the amount of unconfirmed messages held by the {@code MessageOutbox}.
+     * @return Amount of unconfirmed messages held by the {@code MessageOutbox}.
+     */
+    public synchronized int size() {
+        return mEntries.size();
+    }
+
+    /**
+     * Discards all unconfirmed messages.
+     */
+    public synchronized void clear() {
+        mEntries.clear();
+        mInFlight.clear();
+        compact();
+    }
+
+    /**
+     * Returns the stream used to append records to the log, opening it if required (only called on
+     * {@code mExecutor}).
+     * @return Stream used to append records to the log.
+     * @throws FileNotFoundException If the log could not be opened.
+     */
+    private DataOutputStream getLog() throws FileNotFoundException {
+        if(mLog == null) {
+            mLog = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(mFile, true)));
+        }
+        return mLog;
+    }
+
+    /**
+     * Closes the stream used to append records to the log (only called on {@code mExecutor}).
+     */
+    private void closeLog() {
+        if(mLog == null) {
+            return;
+        }
+        try {
+            mLog.close();
+        }
+        catch(IOException exception) {
+            Log.w(TAG, "Failed to close the outbox log.", exception);
+        }
+        mLog = null;
+    }
+
+    /**
+     * Reads the unconfirmed messages from the log, then compacts it (discarding acknowledged records and any record
+     * that was only partially written).
+     */
+    private synchronized void load() {
+        if(!mFile.exists()) {
+            return;
+        }
+
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+            while(true) {
+                byte type = input.readByte();
+                String clientId = input.readUTF();
+                if(type == RECORD_APPEND) {
+                    String chatroomName = input.readUTF();
+                    String message = input.readUTF();
+                    if(!mEntries.containsKey(clientId)) {
+                        mEntries.put(clientId, new Entry(chatroomName, new SendMessagePacket(message, clientId)));
+                    }
+                }
+                else if(type == RECORD_ACKNOWLEDGE) {
+                    mEntries.remove(clientId);
+                }
+                else {
+                    throw new IOException(String.format("Unknown record type: %d.", type));
+                }
+            }
+        }
+        catch(EOFException exception) {
+            // Reached the end of the log (or a partially written record).
+        }
+        catch(IOException exception) {
+            Log.e(TAG, "Outbox log is corrupt, messages after the corruption are lost.", exception);
+        }
+        finally {
+            if(input != null) {
+                try {
+                    input.close();
+                }
+                catch(IOException exception) {
+                    Log.w(TAG, "Failed to close the outbox log.", exception);
+                }
+            }
+        }
+
+        // Enforce the capacity in case it was reduced, keeping the oldest messages.
+        Iterator<String> iterator = mEntries.keySet().iterator();
+        for(int i = 0; iterator.hasNext(); i++) {
+            iterator.next();
+            if(i >= mCapacity) {
+                iterator.remove();
+            }
+        }
+
+        Log.i(TAG, String.format("Loaded %d unconfirmed message(s).", mEntries.size()));
+        compact();
+    }
+
+    /**
+     * Schedules a rewrite of the log so that it only contains the messages that are currently unconfirmed (must be
+     * called whilst holding {@code this}).
+     */
+    private void compact() {
+        mAcknowledgedRecords = 0;
+        final List<Entry> entries = new ArrayList<>(mEntries.values());
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                rewriteLog(entries);
+            }
+        });
+    }
+
+    /**
+     * Rewrites the log so that it only contains the specified messages (only called on {@code mExecutor}). The new
+     * log is written to a temporary file which then replaces the log, meaning that the log is never left partially
+     * written.
+     * @param entries Unconfirmed messages, in the order they were appended.
+     */
+    private void rewriteLog(final List<Entry> entries) {
+        closeLog();
+
+        File compactedFile = new File(mFile.getPath() + ".tmp");
+        DataOutputStream output = null;
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compactedFile)));
+            for(Entry entry : entries) {
+                output.writeByte(RECORD_APPEND);
+                output.writeUTF(entry.mPacket.getClientId());
+                output.writeUTF(entry.mChatroomName);
+                output.writeUTF(entry.mPacket.getMessage());
+            }
+            output.close();
+            output = null;
+            if(!compactedFile.renameTo(mFile)) {
+                throw new IOException("Failed to replace the outbox log.");
+            }
+        }
+        catch(IOException exception) {
+            Log.e(TAG, "Failed to compact the outbox log.", exception);
+        }
+        finally {
+            if(output != null) {
+                try {
+                    output.close();
+                }
+                catch(IOException exception) {
+                    Log.w(TAG, "Failed to close the compacted outbox log.", exception);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the singleton instance of the {@code MessageOutbox}, loading it from the application's files directory
+     * if required.
+     * @param context Context used to locate the application's files directory.
+     * @return Singleton instance of the {@code MessageOutbox}.
+     */
+    public static MessageOutbox getInstance(final Context context) {
+        if(mInstance == null) {
+            synchronized(MessageOutbox.class) {
+                if(mInstance == null) {
+                    mInstance = new MessageOutbox(new File(context.getApplicationContext().getFilesDir(), FILE_NAME),
+                            CAPACITY_DEFAULT);
+                }
+            }
+        }
+        return mInstance;
+    }
+
+}
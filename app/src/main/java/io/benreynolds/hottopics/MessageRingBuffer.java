@@ -0,0 +1,118 @@
+package io.benreynolds.hottopics;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+
+/**
+ * {@code MessageRingBuffer} holds the most recent messages received in a chatroom, up to a fixed capacity. Once it is
+ * full, each appended message overwrites the oldest one, meaning that the memory used by a busy chatroom's feed does
+ * not grow with the amount of messages received.
+ * <p>
+ * Every appended message is assigned a sequence number (starting at {@code 0}, one higher than the previous message's)
+ * that identifies it for as long as it is held. The {@code MessageRingBuffer} has a single writer (the thread that
+ * '{@code ReceiveMessagePacket}'s are dispatched on) and may be read from any thread (normally the UI thread) without
+ * locking: a message becomes visible to readers once {@code getEndSequence()} passes its sequence number, and
+ * {@code get()} returns {@code null} rather than a newer message if the requested message has since been overwritten.
+ */
+class MessageRingBuffer {
+
+    /** Default maximum amount of messages held by the {@code MessageRingBuffer}. */
+    static final int CAPACITY_DEFAULT = 500;
+
+    /** Slots that hold the messages, indexed by their sequence number modulo the capacity. */
+    private final AtomicReferenceArray<Slot> mSlots;
+
+    /** Maximum amount of messages held by the {@code MessageRingBuffer}. */
+    private final int mCapacity;
+
+    /** Sequence number that will be assigned to the next appended message (only written by the writer). */
+    private volatile long mEndSequence;
+
+    /**
+     * Immutable pairing of a message and its sequence number, so that readers can detect when a slot has been
+     * overwritten.
+     */
+    private static final class Slot {
+
+        /** Sequence number of the message. */
+        final long mSequence;
+
+        /** Message held by the slot. */
+        final ReceiveMessagePacket mMessage;
+
+        /**
+         * @param sequence Sequence number of the message.
+         * @param message Message held by the slot.
+         */
+        Slot(final long sequence, final ReceiveMessagePacket message) {
+            mSequence = sequence;
+            mMessage = message;
+        }
+
+    }
+
+    /**
+     * @param capacity Maximum amount of messages held by the {@code MessageRingBuffer}.
+     */
+    MessageRingBuffer(final int capacity) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("'capacity' must be positive.");
+        }
+        mCapacity = capacity;
+        mSlots = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Appends a message, overwriting the oldest message if the {@code MessageRingBuffer} is full. Must only be called
+     * by the writer.
+     * @param message Message to append.
+     * @return Sequence number assigned to the message.
+     */
+    long append(final ReceiveMessagePacket message) {
+        long sequence = mEndSequence;
+        mSlots.set((int)(sequence % mCapacity), new Slot(sequence, message));
+        mEndSequence = sequence + 1;
+        return sequence;
+    }
+
+    /**
+     * Returns the message with the specified sequence number.
+     * @param sequence Sequence number of the message.
+     * @return Message with the specified sequence number. If it has been overwritten (or not yet appended), returns
+     * {@code null}.
+     */
+    ReceiveMessagePacket get(final long sequence) {
+        if(sequence < 0) {
+            return null;
+        }
+        Slot slot = mSlots.get((int)(sequence % mCapacity));
+        return slot != null && slot.mSequence == sequence ? slot.mMessage : null;
+    }
+
+    /**
+     * Returns the sequence number of the oldest message held.
+     * @return Sequence number of the oldest message held (equal to {@code getEndSequence()} if no messages are held).
+     */
+    long getStartSequence() {
+        return Math.max(0, mEndSequence - mCapacity);
+    }
+
+    /**
+     * Returns the sequence number that will be assigned to the next appended message; all messages with lower
+     * sequence numbers have been published to readers.
+     * @return Sequence number that will be assigned to the next appended message.
+     */
+    long getEndSequence() {
+        return mEndSequence;
+    }
+
+    /**
+     * Returns the maximum amount of messages held by the {@code MessageRingBuffer}.
+     * @return Maximum amount of messages held.
+     */
+    int getCapacity() {
+        return mCapacity;
+    }
+
+}
@@ -0,0 +1,206 @@
+package io.benreynolds.hottopics;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.benreynolds.hottopics.packets.Packet;
+
+/**
+ * {@code OutboundPipeline} serializes and writes '{@code Packet}'s on a dedicated thread, meaning that callers (such as
+ * the UI thread) never encode or write '{@code Packet}'s themselves. '{@code Packet}'s are held in a bounded queue and
+ * drained in bursts of up to {@code BATCH_SIZE_MAX}, which the {@code Sink} may write as a single frame.
+ * <p>
+ * Whilst the amount of bytes queued by the underlying WebSocket exceeds the high-water mark, the
+ * {@code OutboundPipeline} stops writing and retries after {@code BACKPRESSURE_RETRY_DELAY}. If '{@code Packet}'s
+ * continue to arrive whilst it is stalled, its own queue fills and further '{@code Packet}'s are rejected. This
+ * prevents the WebSocket from buffering up to its 16 MB limit, at which point OkHttp closes the connection.
+ */
+class OutboundPipeline {
+
+    /**
+     * {@code Sink} writes drained '{@code Packet}'s to the underlying WebSocket.
+     */
+    interface Sink {
+
+        /**
+         * Returns the amount of bytes that are queued by the underlying WebSocket but have not yet been transmitted.
+         * @return Amount of queued bytes.
+         */
+        long getQueuedBytes();
+
+        /**
+         * Encodes and writes a burst of '{@code Packet}'s. Invoked on the {@code OutboundPipeline}'s thread.
+         * @param packets '{@code Packet}'s to write, in the order they were enqueued.
+         */
+        void write(List<Packet> packets);
+
+    }
+
+    /** TAG used in Logcat messages outputted by {@code OutboundPipeline}. */
+    private static final String TAG = OutboundPipeline.class.getSimpleName();
+
+    /** Default maximum amount of '{@code Packet}'s awaiting serialization. */
+    static final int QUEUE_CAPACITY_DEFAULT = 256;
+
+    /** Default amount of bytes queued by the WebSocket above which writing is paused. */
+    static final long HIGH_WATER_MARK_DEFAULT = 256 * 1024;
+
+    /** Maximum amount of '{@code Packet}'s written in a single burst. */
+    static final int BATCH_SIZE_MAX = 32;
+
+    /** Period of time (in milliseconds) to wait before writing again whilst above the high-water mark. */
+    private static final long BACKPRESSURE_RETRY_DELAY = 50;
+
+    /** Writes drained '{@code Packet}'s. */
+    private final Sink mSink;
+
+    /** Amount of bytes queued by the WebSocket above which writing is paused. */
+    private final long mHighWaterMark;
+
+    /** '{@code Packet}'s awaiting serialization. */
+    private final BlockingQueue<Packet> mPending;
+
+    /** Single thread on which '{@code Packet}'s are serialized and written. */
+    private final ExecutorService mExecutor;
+
+    /** Schedules retries whilst the WebSocket is above the high-water mark. */
+    private final TimeoutScheduler mTimeoutScheduler = TimeoutScheduler.getInstance();
+
+    /** {@code true} whilst a drain is scheduled or running. */
+    private final AtomicBoolean mDrainScheduled = new AtomicBoolean(false);
+
+    /** Amount of '{@code Packet}'s that were rejected because the queue was full. */
+    private final AtomicLong mRejectedCount = new AtomicLong();
+
+    /** Amount of times writing was paused because the WebSocket was above the high-water mark. */
+    private final AtomicLong mBackpressureCount = new AtomicLong();
+
+    /** Drains the queue of pending '{@code Packet}'s. */
+    private final Runnable mDrain = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    /** Resumes draining on the writing thread once the backpressure retry delay has passed. */
+    private final Runnable mResumeDrain = new Runnable() {
+        @Override
+        public void run() {
+            mExecutor.execute(mDrain);
+        }
+    };
+
+    /**
+     * @param sink Writes drained '{@code Packet}'s.
+     * @param capacity Maximum amount of '{@code Packet}'s awaiting serialization.
+     * @param highWaterMark Amount of bytes queued by the WebSocket above which writing is paused.
+     */
+    OutboundPipeline(final Sink sink, final int capacity, final long highWaterMark) {
+        mSink = sink;
+        mHighWaterMark = highWaterMark;
+        mPending = new ArrayBlockingQueue<>(capacity);
+        mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "OutboundPipeline");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Queues a {@code Packet} to be serialized and written. Never blocks.
+     * @param packet {@code Packet} to write.
+     * @return {@code true} if the {@code Packet} was queued, {@code false} if the queue is full.
+     */
+    boolean enqueue(final Packet packet) {
+        if(!mPending.offer(packet)) {
+            mRejectedCount.incrementAndGet();
+            return false;
+        }
+        if(mDrainScheduled.compareAndSet(false, true)) {
+            mExecutor.execute(mDrain);
+        }
+        return true;
+    }
+
+    /**
+     * Writes pending '{@code Packet}'s in bursts until the queue is empty or the WebSocket passes the high-water mark.
+     */
+    private void drain() {
+        List<Packet> batch = new ArrayList<>(BATCH_SIZE_MAX);
+        while(true) {
+            if(mSink.getQueuedBytes() > mHighWaterMark) {
+                mBackpressureCount.incrementAndGet();
+                mTimeoutScheduler.schedule(mResumeDrain, BACKPRESSURE_RETRY_DELAY, TimeUnit.MILLISECONDS);
+                return;
+            }
+
+            mPending.drainTo(batch, BATCH_SIZE_MAX);
+            if(batch.isEmpty()) {
+                // Allow the next enqueue() to schedule a drain, unless a Packet arrived in the meantime (in which
+                // case this drain continues).
+                mDrainScheduled.set(false);
+                if(mPending.isEmpty() || !mDrainScheduled.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+
+            try {
+                mSink.write(batch);
+            }
+            catch(RuntimeException exception) {
+                Log.e(TAG, String.format("Failed to write %d Packet(s).", batch.size()), exception);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Discards all '{@code Packet}'s that have not yet been written (used when the connection is lost).
+     * @return Amount of '{@code Packet}'s that were discarded.
+     */
+    int clear() {
+        List<Packet> discarded = new ArrayList<>();
+        mPending.drainTo(discarded);
+        return discarded.size();
+    }
+
+    /**
+     * Returns the amount of '{@code Packet}'s awaiting serialization.
+     * @return Amount of '{@code Packet}'s awaiting serialization.
+     */
+    int size() {
+        return mPending.size();
+    }
+
+    /**
+     * Returns the amount of '{@code Packet}'s that were rejected because the queue was full.
+     * @return Amount of '{@code Packet}'s that were rejected.
+     */
+    long getRejectedCount() {
+        return mRejectedCount.get();
+    }
+
+    /**
+     * Returns the amount of times writing was paused because the WebSocket was above the high-water mark.
+     * @return Amount of times writing was paused.
+     */
+    long getBackpressureCount() {
+        return mBackpressureCount.get();
+    }
+
+}
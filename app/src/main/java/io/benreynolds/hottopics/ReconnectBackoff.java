@@ -0,0 +1,68 @@
+package io.benreynolds.hottopics;
+
+import java.util.Random;
+
+/**
+ * {@code ReconnectBackoff} calculates the delay before each reconnection attempt made by the
+ * {@code WebSocketCommunicator}. Delays grow exponentially from the base delay up to the maximum delay, and each is
+ * randomly reduced by up to half ("jitter") so that clients that lost their connections at the same time (for example,
+ * when the server restarts) do not all reconnect at the same time.
+ */
+class ReconnectBackoff {
+
+    /** Delay (in milliseconds) before the first reconnection attempt (before jitter is applied). */
+    private final long mBaseDelay;
+
+    /** Maximum delay (in milliseconds) between reconnection attempts (before jitter is applied). */
+    private final long mMaxDelay;
+
+    /** Maximum amount of reconnection attempts before giving up. */
+    private final int mMaxAttempts;
+
+    /** Source of jitter. */
+    private final Random mRandom = new Random();
+
+    /** Amount of reconnection attempts made since the last {@code reset()} (guarded by {@code this}). */
+    private int mAttempts;
+
+    /**
+     * @param baseDelay Delay (in milliseconds) before the first reconnection attempt.
+     * @param maxDelay Maximum delay (in milliseconds) between reconnection attempts.
+     * @param maxAttempts Maximum amount of reconnection attempts before giving up.
+     */
+    ReconnectBackoff(final long baseDelay, final long maxDelay, final int maxAttempts) {
+        mBaseDelay = baseDelay;
+        mMaxDelay = maxDelay;
+        mMaxAttempts = maxAttempts;
+    }
+
+    /**
+     * Records a reconnection attempt and returns the delay to wait before making it.
+     * @return Delay (in milliseconds) before the next reconnection attempt. If the maximum amount of attempts has been
+     * made, returns {@code -1}.
+     */
+    synchronized long nextDelay() {
+        if(mAttempts >= mMaxAttempts) {
+            return -1;
+        }
+        long delay = Math.min(mMaxDelay, mBaseDelay << Math.min(mAttempts, 30));
+        mAttempts++;
+        return delay / 2 + (long)(mRandom.nextDouble() * (delay / 2 + 1));
+    }
+
+    /**
+     * Returns the amount of reconnection attempts made since the last {@code reset()}.
+     * @return Amount of reconnection attempts made.
+     */
+    synchronized int getAttempts() {
+        return mAttempts;
+    }
+
+    /**
+     * Resets the amount of reconnection attempts (used once a connection has been re-established).
+     */
+    synchronized void reset() {
+        mAttempts = 0;
+    }
+
+}
@@ -4,16 +4,20 @@ import android.content.Intent;
 import android.graphics.drawable.ColorDrawable;
 import android.os.Bundle;
 import android.support.constraint.ConstraintLayout;
+import android.support.v7.widget.DividerItemDecoration;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.text.Html;
-import android.view.View;
-import android.widget.AdapterView;
-import android.widget.ListView;
+import android.text.TextUtils;
 import android.widget.ProgressBar;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.List;
 
 import io.benreynolds.hottopics.packets.Chatroom;
+import io.benreynolds.hottopics.packets.ChatroomAddedPacket;
+import io.benreynolds.hottopics.packets.ChatroomRemovedPacket;
+import io.benreynolds.hottopics.packets.ChatroomSizeChangedPacket;
 import io.benreynolds.hottopics.packets.ChatroomsRequestPacket;
 import io.benreynolds.hottopics.packets.ChatroomsResponsePacket;
 import io.benreynolds.hottopics.packets.JoinChatroomRequestPacket;
@@ -25,28 +29,42 @@ import io.benreynolds.hottopics.packets.JoinChatroomResponsePacket;
  */
 public class RoomListActivity extends ConnectedActivity {
 
-    /** String key for the name of the chatroom sent to {@code ChatroomActivity} */
-    public static final String EXTRA_ROOM = "ROOM";
+    /** String key for the name of the chatroom sent to {@code ChatroomActivity} (which looks the chatroom up in the
+     * {@code ChatroomRepository}) */
+    public static final String EXTRA_ROOM_NAME = "ROOM_NAME";
 
     /** Singleton instance of the {@code WebSocketCommunicator} used for network communications. */
     private static final WebSocketCommunicator WEB_SOCKET_COMMUNICATOR = WebSocketCommunicator.getInstance();
 
+    /** Singleton instance of the {@code ChatroomRepository} that owns the state of the listed chatrooms. */
+    private static final ChatroomRepository CHATROOM_REPOSITORY = ChatroomRepository.getInstance();
+
     /** Alpha value used to fade out the chatroom's controls whilst waiting for a JoinChatroomResponse (see ChatroomListItemClickListener) */
     private static final float ALPHA_FADE_OUT = 0.33f;
 
-    /** List of available chatrooms. */
+    /** List of available chatrooms. Each change to it must be notified to {@code mChatroomsAdapter}. */
     final ArrayList<Chatroom> mChatrooms = new ArrayList<>();
     private ChatroomListAdapter mChatroomsAdapter;
-    private ListView mChatroomList;
+    private RecyclerView mChatroomList;
 
     /** Progress bar that is displayed whilst joining a chatroom */
     private ProgressBar pbLeavingChatroom;
     /** Constraint layout that contains all of the activities' views other than the progress bar (used to fade alpha whilst joining a chatroom) */
     private ConstraintLayout clRoomList;
 
+    /** Applies UI updates posted by this activity's 'PacketHandler's once per frame. */
+    private UiUpdateCoalescer mUiUpdates;
+
     /** Observer used to handle the receipt of available Chatrooms */
     private ChatroomsResponsePacketHandler chatroomsResponsePacketHandler;
 
+    /** Observers used to merge chatroom list deltas into the chatroom list */
+    private final PacketHandler<?>[] mChatroomDeltaHandlers = new PacketHandler<?>[] {
+            new ChatroomAddedPacketHandler(),
+            new ChatroomRemovedPacketHandler(),
+            new ChatroomSizeChangedPacketHandler()
+    };
+
     /** Observer used to handle responses to 'JoinChatroomRequestPacket's */
     private JoinChatroomResponsePacketHandler joinChatroomResponsePacketHandler;
 
@@ -54,6 +72,7 @@ public class RoomListActivity extends ConnectedActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_room_list);
+        mUiUpdates = new UiUpdateCoalescer();
 
         // Set the action bar background and text colour.
         if(getActionBar() != null) {
@@ -61,9 +80,11 @@ public class RoomListActivity extends ConnectedActivity {
             getActionBar().setTitle(Html.fromHtml("<font color=\"#FFFFFF\">" + getString(R.string.app_name) + "</font>"));
         }
 
-        // Setup the chatroom feed and related objects.
-        mChatroomsAdapter = new ChatroomListAdapter(this, mChatrooms);
-        mChatroomList = findViewById(R.id.lvChatrooms);
+        // Setup the chatroom feed and related objects, assigning the OnClick handler for handling room selection.
+        mChatroomsAdapter = new ChatroomListAdapter(mChatrooms, new ChatroomClickListener());
+        mChatroomList = findViewById(R.id.rvChatrooms);
+        mChatroomList.setLayoutManager(new LinearLayoutManager(this));
+        mChatroomList.addItemDecoration(new DividerItemDecoration(this, LinearLayoutManager.VERTICAL));
         mChatroomList.setAdapter(mChatroomsAdapter);
 
         // Obtain a reference to the progress bar widget.
@@ -71,17 +92,25 @@ public class RoomListActivity extends ConnectedActivity {
         // Obtain a reference to the constraint layout widget.
         clRoomList = findViewById(R.id.clRoomList);
 
-        // Assign the OnClick handler for handling room selection
-        mChatroomList.setOnItemClickListener(new ChatroomListItemClickListener());
-
         // Instantiate and attach the observer that handles chatroom list responses
         chatroomsResponsePacketHandler = new ChatroomsResponsePacketHandler();
         WEB_SOCKET_COMMUNICATOR.addHandler(chatroomsResponsePacketHandler);
 
+        // Attach the observers that merge changes to the chatroom list as the server reports them
+        for(PacketHandler<?> chatroomDeltaHandler : mChatroomDeltaHandlers) {
+            WEB_SOCKET_COMMUNICATOR.addHandler(chatroomDeltaHandler);
+        }
+
         // Send a ChatRoomsRequestPacket to the server
         WEB_SOCKET_COMMUNICATOR.sendPacket(new ChatroomsRequestPacket());
     }
 
+    @Override
+    protected void onDestroy() {
+        mUiUpdates.release();
+        super.onDestroy();
+    }
+
     @Override
     public void onBackPressed() {
         // Remove all observers attached within this activity from the WebSocketCommunicator
@@ -91,9 +120,13 @@ public class RoomListActivity extends ConnectedActivity {
         if(joinChatroomResponsePacketHandler != null) {
             WEB_SOCKET_COMMUNICATOR.removeHandler(joinChatroomResponsePacketHandler);
         }
+        for(PacketHandler<?> chatroomDeltaHandler : mChatroomDeltaHandlers) {
+            WEB_SOCKET_COMMUNICATOR.removeHandler(chatroomDeltaHandler);
+        }
 
         // TODO: Prompt the user to confirm/deny that they would like to disconnect from the server.
         // Disconnect from the Hot Topics server (In turn returning to the LoginActivity (see ConnectedActivity)
+        CHATROOM_REPOSITORY.clear();
         WEB_SOCKET_COMMUNICATOR.disconnect();
     }
 
@@ -112,14 +145,35 @@ public class RoomListActivity extends ConnectedActivity {
     }
 
     /**
-     * {@code ChatroomListItemClickListener}'s {@code onItemClick} method is executed when an item
+     * Returns the position of the chatroom with the specified name in the chatroom list (which never contains
+     * {@code null} chatrooms). Must be called on the UI thread.
+     * @param chatroomName Name of the chatroom.
+     * @return Position of the chatroom, or {@code -1} if it is not in the chatroom list.
+     */
+    private int indexOfChatroom(final String chatroomName) {
+        for(int i = 0; i < mChatrooms.size(); i++) {
+            if(chatroomName.equals(mChatrooms.get(i).getName())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * {@code ChatroomClickListener}'s {@code onChatroomClick} method is executed when an item
      * from the chatroom list is pressed. It sends a request to the Hot Topics server to join the
      * selected room.
      */
-    private class ChatroomListItemClickListener implements AdapterView.OnItemClickListener {
+    private class ChatroomClickListener implements ChatroomListAdapter.OnChatroomClickListener {
 
         @Override
-        public void onItemClick(AdapterView<?> adapterView, View view, int position, long l) {
+        public void onChatroomClick(Chatroom selectedRoom) {
+            // Disabling a RecyclerView does not stop its rows from being pressed, so presses are ignored whilst the
+            // chatroom list is disabled (see setActivityState()).
+            if(!mChatroomList.isEnabled()) {
+                return;
+            }
+
             // Fade the alpha value of the room list views and make them non-interactive.
             clRoomList.setAlpha(ALPHA_FADE_OUT);
             for(int i = 0; i < clRoomList.getChildCount(); i++) {
@@ -129,9 +183,6 @@ public class RoomListActivity extends ConnectedActivity {
             // Display the progress bar
             pbLeavingChatroom.setVisibility(ProgressBar.VISIBLE);
 
-            // Get the name of the selected room from the chatroom list
-            Chatroom selectedRoom = (Chatroom) mChatroomList.getItemAtPosition(position);
-
             // Instantiate and attach a JoinChatroomResponsePacketHandler to the WebSocketCommunicator to handle ChatroomRequestPacket responses
             joinChatroomResponsePacketHandler = new JoinChatroomResponsePacketHandler(selectedRoom.getName());
             WEB_SOCKET_COMMUNICATOR.addHandler(joinChatroomResponsePacketHandler);
@@ -169,16 +220,10 @@ public class RoomListActivity extends ConnectedActivity {
                 return;
             }
 
-            // Prepare transition to ChatroomActivity, include an extra containing the chatroom's name so that it can be used to display above the message feed.
+            // Prepare transition to ChatroomActivity, include an extra containing only the chatroom's name; the
+            // ChatroomActivity looks the chatroom up in the ChatroomRepository.
             Intent chatRoomActivity = new Intent(RoomListActivity.this, ChatroomActivity.class);
-
-            for(Chatroom chatroom : mChatrooms) {
-                if(chatroom.getName().equals(mChatroomName)) {
-                    chatRoomActivity.putExtra(EXTRA_ROOM, chatroom);
-                    break;
-                }
-            }
-
+            chatRoomActivity.putExtra(EXTRA_ROOM_NAME, mChatroomName);
 
             // Transition to the ChatroomActivity
             startActivity(chatRoomActivity);
@@ -197,17 +242,42 @@ public class RoomListActivity extends ConnectedActivity {
     private class ChatroomsResponsePacketHandler implements PacketHandler<ChatroomsResponsePacket> {
 
         @Override
-        public void update(ChatroomsResponsePacket packet) {
-            // Remove all existing chatrooms from the chatroom list
-            mChatrooms.clear();
-
-            // Populate the chatroom list with the newly received data
-            mChatrooms.addAll(Arrays.asList(packet.getChatrooms()));
-
-            // Notify the room list adapter that the underlying data has changed and the list requires updating
-            runOnUiThread(new Runnable() {
+        public void update(final ChatroomsResponsePacket packet) {
+            mUiUpdates.post(new Runnable() {
                 @Override
                 public void run() {
+                    // A listed chatroom may be null (the packet is valid as long as it lists any chatroom); null
+                    // chatrooms are left out, so that every chatroom in the chatroom list can be looked up by name.
+                    List<Chatroom> chatrooms = new ArrayList<>(packet.getChatrooms().length);
+                    for(Chatroom chatroom : packet.getChatrooms()) {
+                        if(chatroom != null) {
+                            chatrooms.add(chatroom);
+                        }
+                    }
+
+                    CHATROOM_REPOSITORY.setChatrooms(chatrooms);
+
+                    // If the same chatrooms are listed in the same order, only notify the rows whose size changed.
+                    boolean sameChatrooms = chatrooms.size() == mChatrooms.size();
+                    for(int i = 0; sameChatrooms && i < chatrooms.size(); i++) {
+                        sameChatrooms = TextUtils.equals(chatrooms.get(i).getName(), mChatrooms.get(i).getName());
+                    }
+                    if(sameChatrooms) {
+                        for(int i = 0; i < chatrooms.size(); i++) {
+                            Integer previousSize = mChatrooms.get(i).getSize();
+                            Integer size = chatrooms.get(i).getSize();
+                            mChatrooms.set(i, chatrooms.get(i));
+                            if(size == null ? previousSize != null : !size.equals(previousSize)) {
+                                mChatroomsAdapter.notifyItemChanged(i);
+                            }
+                        }
+                        return;
+                    }
+
+                    // Otherwise, replace the chatroom list and notify the room list adapter that every row requires
+                    // updating
+                    mChatrooms.clear();
+                    mChatrooms.addAll(chatrooms);
                     mChatroomsAdapter.notifyDataSetChanged();
                 }
             });
@@ -220,4 +290,92 @@ public class RoomListActivity extends ConnectedActivity {
 
     }
 
+    /**
+     * {@code ChatroomAddedPacketHandler} is responsible for processing '{@code ChatroomAddedPacket}'s. It appends the
+     * added chatroom to the chatroom list (or replaces an existing chatroom with the same name).
+     */
+    private class ChatroomAddedPacketHandler implements PacketHandler<ChatroomAddedPacket> {
+
+        @Override
+        public void update(final ChatroomAddedPacket packet) {
+            mUiUpdates.post(new Runnable() {
+                @Override
+                public void run() {
+                    Chatroom chatroom = packet.getChatroom();
+                    CHATROOM_REPOSITORY.putChatroom(chatroom);
+                    int position = indexOfChatroom(chatroom.getName());
+                    if(position >= 0) {
+                        mChatrooms.set(position, chatroom);
+                        mChatroomsAdapter.notifyItemChanged(position);
+                        return;
+                    }
+
+                    mChatrooms.add(chatroom);
+                    mChatroomsAdapter.notifyItemInserted(mChatrooms.size() - 1);
+                }
+            });
+        }
+
+        @Override
+        public Class<ChatroomAddedPacket> packetType() {
+            return ChatroomAddedPacket.class;
+        }
+
+    }
+
+    /**
+     * {@code ChatroomRemovedPacketHandler} is responsible for processing '{@code ChatroomRemovedPacket}'s. It removes
+     * the chatroom from the chatroom list.
+     */
+    private class ChatroomRemovedPacketHandler implements PacketHandler<ChatroomRemovedPacket> {
+
+        @Override
+        public void update(final ChatroomRemovedPacket packet) {
+            mUiUpdates.post(new Runnable() {
+                @Override
+                public void run() {
+                    CHATROOM_REPOSITORY.removeChatroom(packet.getChatroomName());
+                    int position = indexOfChatroom(packet.getChatroomName());
+                    if(position >= 0) {
+                        mChatrooms.remove(position);
+                        mChatroomsAdapter.notifyItemRemoved(position);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public Class<ChatroomRemovedPacket> packetType() {
+            return ChatroomRemovedPacket.class;
+        }
+
+    }
+
+    /**
+     * {@code ChatroomSizeChangedPacketHandler} is responsible for processing '{@code ChatroomSizeChangedPacket}'s. It
+     * updates the size of the chatroom and notifies only the row that displays it.
+     */
+    private class ChatroomSizeChangedPacketHandler implements PacketHandler<ChatroomSizeChangedPacket> {
+
+        @Override
+        public void update(final ChatroomSizeChangedPacket packet) {
+            mUiUpdates.post(new Runnable() {
+                @Override
+                public void run() {
+                    int position = indexOfChatroom(packet.getChatroomName());
+                    if(position >= 0) {
+                        mChatrooms.get(position).setSize(packet.getSize());
+                        mChatroomsAdapter.notifyItemChanged(position);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public Class<ChatroomSizeChangedPacket> packetType() {
+            return ChatroomSizeChangedPacket.class;
+        }
+
+    }
+
 }
@@ -0,0 +1,200 @@
+package io.benreynolds.hottopics;
+
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code UiUpdateCoalescer} collects UI updates posted by '{@code PacketHandler}'s (on the thread that
+ * '{@code Packet}'s are dispatched on) and applies them on the UI thread in a single batch per frame, rather than
+ * posting a message to the main looper for every '{@code Packet}'. During a burst of '{@code Packet}'s this keeps the
+ * main looper free to draw, and updates that supersede one another (see {@code postLatest()}) are only applied once
+ * per frame.
+ * <p>
+ * Each frame records how many updates it absorbed (were posted since the previous frame) and how long applying them
+ * took; see {@code toString()}. A {@code UiUpdateCoalescer} must be created on the UI thread.
+ */
+class UiUpdateCoalescer implements Choreographer.FrameCallback {
+
+    /** TAG used in Logcat messages outputted by {@code UiUpdateCoalescer}. */
+    private static final String TAG = UiUpdateCoalescer.class.getSimpleName();
+
+    /** Choreographer of the UI thread. */
+    private final Choreographer mChoreographer;
+
+    /** Updates to apply in the next frame, in the order they were posted. */
+    private final Queue<Runnable> mPending = new ConcurrentLinkedQueue<>();
+
+    /** Updates to apply in the next frame that replace earlier updates posted with the same key. */
+    private final ConcurrentMap<Object, Runnable> mPendingLatest = new ConcurrentHashMap<>();
+
+    /** {@code true} whilst a frame callback is posted. */
+    private final AtomicBoolean mFrameScheduled = new AtomicBoolean(false);
+
+    /** Amount of updates posted since the last frame. */
+    private final AtomicInteger mPostedSinceFrame = new AtomicInteger();
+
+    /** {@code true} once the {@code UiUpdateCoalescer} has been released. */
+    private volatile boolean mReleased;
+
+    /** Amount of frames that applied updates (only accessed on the UI thread). */
+    private long mFrameCount;
+
+    /** Amount of updates absorbed by all frames (only accessed on the UI thread). */
+    private long mAbsorbedCount;
+
+    /** Highest amount of updates absorbed by a single frame (only accessed on the UI thread). */
+    private int mMaxAbsorbed;
+
+    /** Amount of time (in microseconds) spent applying updates (only accessed on the UI thread). */
+    private long mApplyTime;
+
+    /** Longest amount of time (in microseconds) spent applying a single frame's updates (only accessed on the UI
+     * thread). */
+    private long mMaxApplyTime;
+
+    UiUpdateCoalescer() {
+        mChoreographer = Choreographer.getInstance();
+    }
+
+    /**
+     * Posts an update to be applied on the UI thread in the next frame. May be called from any thread.
+     * @param update Update to apply.
+     */
+    void post(final Runnable update) {
+        if(mReleased) {
+            return;
+        }
+        mPending.add(update);
+        onPosted();
+    }
+
+    /**
+     * Posts an update to be applied on the UI thread in the next frame, replacing any update posted with the same key
+     * that has not yet been applied. Used for updates where only the latest matters (such as displaying a count). May
+     * be called from any thread.
+     * @param key Key that identifies the kind of update.
+     * @param update Update to apply.
+     */
+    void postLatest(final Object key, final Runnable update) {
+        if(mReleased) {
+            return;
+        }
+        mPendingLatest.put(key, update);
+        onPosted();
+    }
+
+    /**
+     * Records that an update was posted and schedules a frame callback, unless one is already scheduled.
+     */
+    private void onPosted() {
+        mPostedSinceFrame.incrementAndGet();
+        if(mFrameScheduled.compareAndSet(false, true)) {
+            mChoreographer.postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        // Clear the flag before applying updates, so that updates posted whilst applying schedule the next frame.
+        mFrameScheduled.set(false);
+        if(mReleased) {
+            return;
+        }
+
+        int absorbed = mPostedSinceFrame.getAndSet(0);
+        long startTime = SystemClock.elapsedRealtimeNanos();
+
+        Runnable update;
+        while((update = mPending.poll()) != null) {
+            apply(update);
+        }
+
+        // Each update is only removed if it is still the latest for its key: one posted after it was read replaces it
+        // and is kept (its frame is already scheduled), rather than being removed unapplied.
+        List<Runnable> latest = new ArrayList<>(mPendingLatest.size());
+        for(Map.Entry<Object, Runnable> entry : mPendingLatest.entrySet()) {
+            Runnable latestUpdate = entry.getValue();
+            if(mPendingLatest.remove(entry.getKey(), latestUpdate)) {
+                latest.add(latestUpdate);
+            }
+        }
+        for(Runnable latestUpdate : latest) {
+            apply(latestUpdate);
+        }
+
+        long applyTime = (SystemClock.elapsedRealtimeNanos() - startTime) / 1000;
+        mFrameCount++;
+        mAbsorbedCount += absorbed;
+        mMaxAbsorbed = Math.max(mMaxAbsorbed, absorbed);
+        mApplyTime += applyTime;
+        mMaxApplyTime = Math.max(mMaxApplyTime, applyTime);
+    }
+
+    /**
+     * Applies an update, logging (rather than propagating) any exception so that the remaining updates are applied.
+     * @param update Update to apply.
+     */
+    private void apply(final Runnable update) {
+        try {
+            update.run();
+        }
+        catch(RuntimeException exception) {
+            Log.e(TAG, "Failed to apply UI update.", exception);
+        }
+    }
+
+    /**
+     * Discards all pending updates and stops applying further updates (used when the owning activity finishes). Must
+     * be called on the UI thread.
+     */
+    void release() {
+        mReleased = true;
+        mChoreographer.removeFrameCallback(this);
+        mPending.clear();
+        mPendingLatest.clear();
+        Log.d(TAG, toString());
+    }
+
+    /**
+     * Returns the amount of frames that applied updates. Must be called on the UI thread.
+     * @return Amount of frames that applied updates.
+     */
+    long getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * Returns the amount of updates absorbed by all frames. Must be called on the UI thread.
+     * @return Amount of updates absorbed by all frames.
+     */
+    long getAbsorbedCount() {
+        return mAbsorbedCount;
+    }
+
+    /**
+     * Returns the highest amount of updates absorbed by a single frame. Must be called on the UI thread.
+     * @return Highest amount of updates absorbed by a single frame.
+     */
+    int getMaxAbsorbed() {
+        return mMaxAbsorbed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("UI updates: %d in %d frame(s) (%.1f per frame, max %d), applied in %.1f us per frame " +
+                "(max %d us)", mAbsorbedCount, mFrameCount, mFrameCount == 0 ? 0.0 : (double)mAbsorbedCount /
+                mFrameCount, mMaxAbsorbed, mFrameCount == 0 ? 0.0 : (double)mApplyTime / mFrameCount, mMaxApplyTime);
+    }
+
+}
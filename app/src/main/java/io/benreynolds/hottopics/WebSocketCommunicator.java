@@ -1,28 +1,34 @@
 package io.benreynolds.hottopics;
 
 import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
 import android.util.Log;
 
-import com.google.gson.Gson;
-
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import io.benreynolds.hottopics.packets.AcknowledgementRequestPacket;
 import io.benreynolds.hottopics.packets.AcknowledgementResponsePacket;
+import io.benreynolds.hottopics.packets.BatchPacket;
+import io.benreynolds.hottopics.packets.JoinChatroomRequestPacket;
+import io.benreynolds.hottopics.packets.JoinChatroomResponsePacket;
+import io.benreynolds.hottopics.packets.LeaveChatroomResponsePacket;
 import io.benreynolds.hottopics.packets.Packet;
 import io.benreynolds.hottopics.packets.PacketIdentifier;
-import io.benreynolds.hottopics.packets.UnidentifiedPacket;
-import okhttp3.OkHttpClient;
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+import io.benreynolds.hottopics.packets.SendMessagePacket;
+import io.benreynolds.hottopics.packets.UsernameRequestPacket;
+import io.benreynolds.hottopics.packets.UsernameResponsePacket;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.WebSocket;
 import okhttp3.WebSocketListener;
+import okio.ByteString;
+import okio.Utf8;
 
 /**
  * {@code WebSocketCommunicator}
@@ -39,70 +45,367 @@ public class WebSocketCommunicator extends WebSocketListener {
     private static final String SERVER_ADDRESS = "ws://35.189.116.222:8025/hottopics/chat";
     //private static final String SERVER_ADDRESS = "ws://192.168.1.64:8025/hottopics/chat";
 
+    /** Name of the HTTP header used to negotiate the {@code WireFormat} (see {@code connect()}). */
+    private static final String HEADER_SUBPROTOCOL = "Sec-WebSocket-Protocol";
+
+    /** Name of the HTTP header used to negotiate protocol extensions such as compression (see {@code connect()}). */
+    private static final String HEADER_EXTENSIONS = "X-HotTopics-Extensions";
+
+    /** Name of the extension that enables DEFLATE compression of large frames. */
+    private static final String EXTENSION_DEFLATE = "deflate";
+
+    /** Name of the extension that enables '{@code BatchPacket}' envelopes. */
+    private static final String EXTENSION_BATCH = "batch";
+
+    /** Name of the extension that enables chatroom list deltas ('{@code ChatroomAddedPacket}'s,
+     *  '{@code ChatroomRemovedPacket}'s and '{@code ChatroomSizeChangedPacket}'s). */
+    private static final String EXTENSION_ROOM_DELTAS = "room-deltas";
+
+    /** Name of the extension under which the server echoes the correlation ID of each request in its response (see
+     *  {@code sendRequest()}). */
+    private static final String EXTENSION_CORRELATION = "correlation";
+
+    /** Delay before the first attempt to reconnect after the connection is lost (in milliseconds). */
+    private static final long RECONNECT_DELAY_BASE = 500;
+
+    /** Maximum delay between attempts to reconnect (in milliseconds). */
+    private static final long RECONNECT_DELAY_MAX = 30000;
+
+    /** Maximum amount of attempts to reconnect before the session is abandoned. */
+    private static final int RECONNECT_ATTEMPTS_MAX = 8;
+
+    /** Default amount of time to await a response to a request (in milliseconds). */
+    private static final long REQUEST_TIMEOUT_DEFAULT = 5000;
+
+    /** Process-wide transport that owns the {@code OkHttpClient} used to open WebSockets. */
+    private static final WebSocketTransport WEB_SOCKET_TRANSPORT = WebSocketTransport.getInstance();
+
+    /** Scheduler used to time out requests that have not received a response (see {@code sendRequest()}) and to delay
+     *  attempts to reconnect. */
+    private static final TimeoutScheduler TIMEOUT_SCHEDULER = TimeoutScheduler.getInstance();
+
+    /** Simple names of the {@code Packet} types, indexed by ID (used to label the per-type metrics). */
+    private static final String[] PACKET_NAMES = PacketIdentifier.getPacketNames();
+
     /** Stores a references the singleton instance of {@code WebSocketCommunicator}. */
     private static volatile WebSocketCommunicator mInstance;
 
-    /** Used to store the '{@code Packet}'s that the {@code WebSocketCommunicator} has received from
-     *  the server. */
-    private final Queue<Packet> mReceivedPackets = new ConcurrentLinkedQueue<>();
+    /** '{@code ConnectionStateListener}'s that are notified of {@code ConnectionState} transitions. */
+    private final List<ConnectionStateListener> mConnectionStateListeners = new CopyOnWriteArrayList<>();
+
+    /** Current {@code ConnectionState} of the connection to the server. */
+    private final AtomicReference<ConnectionState> mConnectionState =
+            new AtomicReference<>(ConnectionState.CLOSED);
+
+    /** Guards the replacement of {@code mWebSocket}, ensuring that callbacks from a new WebSocket are not handled
+     * before it has been stored. */
+    private final Object mWebSocketLock = new Object();
 
     /** WebSocket. */
-    private WebSocket mWebSocket;
+    private volatile WebSocket mWebSocket;
+
+    /** Address of the server that is connected to. */
+    private volatile String mServerAddress = SERVER_ADDRESS;
+
+    /** Username most recently requested from the server. */
+    private volatile String mRequestedUsername;
+
+    /** Name of the chatroom that the user most recently requested to join. */
+    private volatile String mRequestedChatroomName;
+
+    /** Username assigned to the user by the server, requested again after reconnecting. If {@code null}, the user
+     * has not been assigned a username and the connection is not re-established if it is lost. */
+    private volatile String mSessionUsername;
+
+    /** Name of the chatroom that the user is in, joined again after reconnecting. */
+    private volatile String mSessionChatroomName;
+
+    /** {@code true} from the moment a connection with an assigned username is lost until the session has been resumed
+     * on a new connection (or abandoned). */
+    private volatile boolean mReconnectPending;
+
+    /** Scheduled reconnection attempt (guarded by {@code mWebSocketLock}). */
+    private TimeoutScheduler.Timeout mReconnect;
+
+    /** Calculates the delay before each reconnection attempt. */
+    private final ReconnectBackoff mReconnectBackoff =
+            new ReconnectBackoff(RECONNECT_DELAY_BASE, RECONNECT_DELAY_MAX, RECONNECT_ATTEMPTS_MAX);
+
+    /** {@code WireFormat} offered to the server when connecting (see {@code connect()}). */
+    private volatile WireFormat mPreferredWireFormat = WireFormat.BINARY;
+
+    /** {@code WireFormat} negotiated with the server for the current connection. */
+    private volatile WireFormat mWireFormat = WireFormat.JSON;
+
+    /** Encodes and decodes binary frames, compressing them whilst compression is enabled. */
+    private final FrameCodec mFrameCodec = new FrameCodec();
+
+    /** {@code true} if compression is offered to the server when connecting. */
+    private volatile boolean mCompressionPreferred = true;
+
+    /** {@code true} if the server accepted compression for the current connection. */
+    private volatile boolean mCompressionEnabled;
+
+    /** {@code true} if the server accepted '{@code BatchPacket}' envelopes for the current connection. */
+    private volatile boolean mBatchingEnabled;
+
+    /** {@code true} if the server accepted correlation IDs for the current connection. */
+    private volatile boolean mCorrelationEnabled;
+
+    /** Correlation ID assigned to the next request (see {@code sendRequest()}). */
+    private final AtomicInteger mNextCorrelationId = new AtomicInteger();
+
+    /** Holds chat messages that the server has not yet confirmed (see {@code sendMessage()}). */
+    private volatile MessageOutbox mOutbox;
+
+    /** Serializes and writes '{@code Packet}'s off the calling thread (see {@code sendPacket()}). */
+    private final OutboundPipeline mOutboundPipeline = new OutboundPipeline(new OutboundPipeline.Sink() {
+        @Override
+        public long getQueuedBytes() {
+            WebSocket webSocket = mWebSocket;
+            return webSocket != null ? webSocket.queueSize() : 0;
+        }
+
+        @Override
+        public void write(List<Packet> packets) {
+            writePackets(packets);
+        }
+    }, OutboundPipeline.QUEUE_CAPACITY_DEFAULT, OutboundPipeline.HIGH_WATER_MARK_DEFAULT);
+
+    /** Time at which the last connection attempt was started (see {@code System.nanoTime()}). */
+    private volatile long mConnectStartTime;
+
+    /** Metrics recorded on the receive and send paths (see {@code getMetrics()}). */
+    private final MetricsRegistry mMetrics = new MetricsRegistry();
+
+    /** Amount of '{@code Packet}'s received, by {@code Packet} ID. */
+    private final StripedCounter mPacketsIn = mMetrics.counter("packets.in", PACKET_NAMES);
+
+    /** Amount of bytes received, by the ID of the {@code Packet} that was framed. */
+    private final StripedCounter mBytesIn = mMetrics.counter("bytes.in", PACKET_NAMES);
+
+    /** Amount of '{@code Packet}'s written, by {@code Packet} ID. */
+    private final StripedCounter mPacketsOut = mMetrics.counter("packets.out", PACKET_NAMES);
+
+    /** Amount of bytes written, by the ID of the {@code Packet} that was framed. */
+    private final StripedCounter mBytesOut = mMetrics.counter("bytes.out", PACKET_NAMES);
 
-    /** {@code true} if the {@code WebSocketCommunicator} is currently connecting to the server. */
-    private boolean mConnecting;
+    /** Amount of received messages that could not be decoded. */
+    private final StripedCounter mUnknownPackets = mMetrics.counter("packets.unknown");
 
-    /** {@code true} if the {@code WebSocketCommunicator} has a connection to the server. */
-    private boolean mConnected;
+    /** Amount of received '{@code Packet}'s that were invalid (see {@code Packet.isValid()}). */
+    private final StripedCounter mInvalidPackets = mMetrics.counter("packets.invalid");
 
-    private List<PacketHandler> mActiveHandlers = new ArrayList<>();
-    private List<PacketHandler> mHandlersToRemove = new ArrayList<>();
+    /** Amount of requests that timed out awaiting a response. */
+    private final StripedCounter mTimedOutRequests = mMetrics.counter("requests.timedOut");
 
+    /** Time spent decoding each received message. */
+    private final LatencyHistogram mDecodeTime = mMetrics.histogram("decode.time");
 
-    public void addHandler(PacketHandler packetHandler) {
-        mActiveHandlers.add(packetHandler);
+    /** Records what happens to each {@code Packet} in place of per-{@code Packet} log messages (see
+     *  {@code getTrace()}). Only warnings are recorded in release builds. */
+    private final PacketTrace mTrace = new PacketTrace(PacketTrace.CAPACITY_DEFAULT,
+            BuildConfig.DEBUG ? PacketTrace.Level.DEBUG : PacketTrace.Level.WARN);
+
+    /** Delivers received '{@code Packet}'s to pending requests, '{@code PacketHandler}'s and
+     *  '{@code PacketMailbox}'s. */
+    private final PacketDispatcher mPacketDispatcher = new PacketDispatcher(new PacketDispatcher.Listener() {
+        @Override
+        public void onPacketReceived(Packet packet) {
+            count(mPacketsIn, packet, 1);
+            if(packet.getId().equals(AcknowledgementRequestPacket.ID)) {
+                sendPacket(new AcknowledgementResponsePacket());
+            }
+            else if(packet instanceof ReceiveMessagePacket) {
+                onMessageEchoed((ReceiveMessagePacket)packet);
+            }
+            updateSession(packet);
+        }
+
+        @Override
+        public void onPacketRejected(Packet packet) {
+            mInvalidPackets.increment(0);
+            mTrace.record(PacketTrace.Event.INVALID, packet, 0);
+        }
+
+        @Override
+        public void onPacketDropped(Packet packet) {
+            mTrace.record(PacketTrace.Event.DROPPED, packet, 0);
+        }
+    });
+
+    /**
+     * Adds a {@code PacketHandler} that is passed received '{@code Packet}'s of its type. Safe to call from any
+     * thread, including from within a {@code PacketHandler}.
+     * @param packetHandler {@code PacketHandler} to add.
+     */
+    public void addHandler(PacketHandler<?> packetHandler) {
+        mPacketDispatcher.addHandler(packetHandler);
+    }
+
+    /**
+     * Removes a {@code PacketHandler}. '{@code Packet}'s dispatched after this method returns are not passed to the
+     * {@code PacketHandler}. Safe to call from any thread, including from within a {@code PacketHandler}.
+     * @param packetHandler {@code PacketHandler} to remove.
+     */
+    public void removeHandler(PacketHandler<?> packetHandler) {
+        mPacketDispatcher.removeHandler(packetHandler);
+    }
+
+    /**
+     * Adds a {@code ConnectionStateListener} that is notified of {@code ConnectionState} transitions.
+     * @param connectionStateListener {@code ConnectionStateListener} to add.
+     */
+    public void addConnectionStateListener(final ConnectionStateListener connectionStateListener) {
+        mConnectionStateListeners.add(connectionStateListener);
+    }
+
+    /**
+     * Removes a {@code ConnectionStateListener}.
+     * @param connectionStateListener {@code ConnectionStateListener} to remove.
+     * @return {@code true} if the {@code ConnectionStateListener} was attached and has been removed.
+     */
+    public boolean removeConnectionStateListener(final ConnectionStateListener connectionStateListener) {
+        return mConnectionStateListeners.remove(connectionStateListener);
     }
 
-    public void removeHandler(PacketHandler packetHandler) {
-        mHandlersToRemove.add(packetHandler);
+    /**
+     * Atomically transitions to the specified {@code ConnectionState} and notifies the attached
+     * '{@code ConnectionStateListener}'s if the state changed.
+     * @param newState {@code ConnectionState} to transition to.
+     */
+    private void setConnectionState(final ConnectionState newState) {
+        ConnectionState previousState = mConnectionState.getAndSet(newState);
+        if(previousState != newState) {
+            notifyConnectionStateChanged(previousState, newState);
+        }
+    }
+
+    /**
+     * Atomically transitions from the expected {@code ConnectionState} to the specified {@code ConnectionState} and
+     * notifies the attached '{@code ConnectionStateListener}'s. No transition is made if the current
+     * {@code ConnectionState} is not the expected one.
+     * @param expectedState Expected current {@code ConnectionState}.
+     * @param newState {@code ConnectionState} to transition to.
+     * @return {@code true} if the transition was made.
+     */
+    private boolean setConnectionState(final ConnectionState expectedState, final ConnectionState newState) {
+        if(!mConnectionState.compareAndSet(expectedState, newState)) {
+            return false;
+        }
+        notifyConnectionStateChanged(expectedState, newState);
+        return true;
+    }
+
+    /**
+     * Notifies the attached '{@code ConnectionStateListener}'s of a {@code ConnectionState} transition.
+     * @param previousState Previous {@code ConnectionState}.
+     * @param newState New {@code ConnectionState}.
+     */
+    private void notifyConnectionStateChanged(final ConnectionState previousState, final ConnectionState newState) {
+        Log.d(TAG, String.format("Connection state changed: %s -> %s.", previousState, newState));
+        for(ConnectionStateListener connectionStateListener : mConnectionStateListeners) {
+            connectionStateListener.onConnectionStateChanged(previousState, newState);
+        }
     }
 
     /**
      * Connects the {@code WebSocketCommunicator} to the server.
      */
     public void connect() {
-        if(mConnected) {
-            mWebSocket.close(CLOSURE_NORMAL, null);
+        // Release any existing connection; callbacks from it are ignored once it has been replaced.
+        WebSocket previousWebSocket = mWebSocket;
+        if(previousWebSocket != null) {
+            if(mConnectionState.get() == ConnectionState.OPEN) {
+                previousWebSocket.close(CLOSURE_NORMAL, null);
+            }
+            else if(mConnectionState.get() == ConnectionState.CONNECTING) {
+                previousWebSocket.cancel();
+            }
         }
 
-        mConnecting = true;
-
-        OkHttpClient okHttpClient = new OkHttpClient.Builder()
-                .connectTimeout(5, TimeUnit.SECONDS)
-                .readTimeout(0,  TimeUnit.MILLISECONDS)
-                .build();
+        setConnectionState(ConnectionState.CONNECTING);
 
-        Request request = new Request.Builder()
-                .url(SERVER_ADDRESS)
-                .build();
+        // Offer the preferred wire format, falling back to JSON if the server does not select it.
+        Request.Builder requestBuilder = new Request.Builder()
+                .url(mServerAddress);
+        if(mPreferredWireFormat != WireFormat.JSON) {
+            requestBuilder.header(HEADER_SUBPROTOCOL, String.format("%s, %s",
+                    mPreferredWireFormat.getSubprotocol(), WireFormat.JSON.getSubprotocol()));
+        }
+        String extensions = String.format("%s, %s, %s", EXTENSION_BATCH, EXTENSION_ROOM_DELTAS,
+                EXTENSION_CORRELATION);
+        requestBuilder.header(HEADER_EXTENSIONS, mCompressionPreferred ?
+                String.format("%s, %s", EXTENSION_DEFLATE, extensions) : extensions);
+        Request request = requestBuilder.build();
 
-        mWebSocket = okHttpClient.newWebSocket(request, this);
-        okHttpClient.dispatcher().executorService().shutdown();
+        mConnectStartTime = System.nanoTime();
+        synchronized(mWebSocketLock) {
+            mWebSocket = WEB_SOCKET_TRANSPORT.newWebSocket(request, this);
+        }
     }
 
     /**
      * Disconnects the {@code WebSocketCommunicator} from the server.
      */
     public void disconnect() {
-        if(mWebSocket != null) {
-            mWebSocket.close(CLOSURE_NORMAL, null);
+        // The session is over, so the connection is not re-established once it closes.
+        boolean reconnectPending = endSession();
+        if(reconnectPending && mConnectionState.get() == ConnectionState.CLOSED) {
+            // Waiting to reconnect, there is no connection to close. Notify listeners that are waiting for the session
+            // to be resumed that it has ended.
+            notifyConnectionStateChanged(ConnectionState.CLOSED, ConnectionState.CLOSED);
+            return;
+        }
+
+        WebSocket webSocket = mWebSocket;
+        if(webSocket != null && (setConnectionState(ConnectionState.OPEN, ConnectionState.CLOSING) ||
+                setConnectionState(ConnectionState.CONNECTING, ConnectionState.CLOSING))) {
+            if(!webSocket.close(CLOSURE_NORMAL, null)) {
+                webSocket.cancel();
+            }
         }
-        mConnected = false;
     }
 
     /** Private constructor used during {@code WebSocketCommunicator}'s singleton initialization
      * (see {@code getInstance()}. */
-    private WebSocketCommunicator() { Log.w(TAG, "SINGLETON CONSTRUCTED");}
+    private WebSocketCommunicator() {
+        Log.w(TAG, "SINGLETON CONSTRUCTED");
+
+        mMetrics.histogram("handler.time", mPacketDispatcher.getHandlerTime());
+        mMetrics.histogram("request.latency", mPacketDispatcher.getRequestLatency());
+        mMetrics.gauge("mailbox.depth", new MetricsRegistry.Gauge() {
+            @Override
+            public long getValue() {
+                return mPacketDispatcher.getMailboxDepth();
+            }
+        });
+        mMetrics.gauge("mailbox.dropped", new MetricsRegistry.Gauge() {
+            @Override
+            public long getValue() {
+                return mPacketDispatcher.getDroppedPacketCount();
+            }
+        });
+        mMetrics.gauge("outbound.queue.depth", new MetricsRegistry.Gauge() {
+            @Override
+            public long getValue() {
+                return mOutboundPipeline.size();
+            }
+        });
+        mMetrics.gauge("outbound.rejected", new MetricsRegistry.Gauge() {
+            @Override
+            public long getValue() {
+                return mOutboundPipeline.getRejectedCount();
+            }
+        });
+        mMetrics.gauge("websocket.queue.bytes", new MetricsRegistry.Gauge() {
+            @Override
+            public long getValue() {
+                WebSocket webSocket = mWebSocket;
+                return webSocket != null ? webSocket.queueSize() : 0;
+            }
+        });
+    }
 
     /**
      * Invoked when a WebSocket has been accepted by the remote peer and may begin transmitting
@@ -113,8 +416,19 @@ public class WebSocketCommunicator extends WebSocketListener {
     @Override
     public void onOpen(WebSocket webSocket, Response response) {
         Log.d(TAG, String.format("onOpen() { WebSocket: \"%s\"," + " Response: \"%s\".", webSocket.toString(), response != null ? response.toString() : null));
-        mConnecting = false;
-        mConnected = true;
+        if(isCurrentWebSocket(webSocket)) {
+            mWireFormat = WireFormat.fromSubprotocol(response != null ? response.header(HEADER_SUBPROTOCOL) : null);
+            mCompressionEnabled = hasExtension(response, EXTENSION_DEFLATE);
+            mBatchingEnabled = hasExtension(response, EXTENSION_BATCH);
+            mCorrelationEnabled = hasExtension(response, EXTENSION_CORRELATION);
+            Log.d(TAG, String.format("Connection established in %d ms (%s, compression %s, batching %s, " +
+                    "correlation %s).", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - mConnectStartTime),
+                    mWireFormat, mCompressionEnabled ? "enabled" : "disabled",
+                    mBatchingEnabled ? "enabled" : "disabled", mCorrelationEnabled ? "enabled" : "disabled"));
+            if(setConnectionState(ConnectionState.CONNECTING, ConnectionState.OPEN) && mReconnectPending) {
+                resumeSession(webSocket);
+            }
+        }
     }
 
     /**
@@ -124,42 +438,47 @@ public class WebSocketCommunicator extends WebSocketListener {
      */
     @Override
     public void onMessage(WebSocket webSocket, String message) {
-        UnidentifiedPacket unidentifiedPacket = PacketIdentifier.convertToPacket(message, UnidentifiedPacket.class);
-        if (unidentifiedPacket == null || !unidentifiedPacket.isValid() || !PacketIdentifier.PACKET_IDS.containsValue(unidentifiedPacket.getId())) {
-            Log.w(TAG, String.format("Unknown Packet Received: \"%s\".", message));
+        long decodeStartTime = System.nanoTime();
+        Packet receivedPacket = PacketIdentifier.decode(message);
+        mDecodeTime.record(System.nanoTime() - decodeStartTime);
+        long size = Utf8.size(message);
+        if (receivedPacket == null) {
+            mUnknownPackets.increment(0);
+            mTrace.record(PacketTrace.Event.UNKNOWN, null, size);
             return;
         }
 
-        for(PacketHandler packetHandler : mHandlersToRemove) {
-            if(mActiveHandlers.contains(packetHandler)) {
-                mActiveHandlers.remove(packetHandler);
-            }
-        }
-
-        // TODO: ONLY ADD VALID PACKETS!!
-        for (Map.Entry<Class<? extends Packet>, Integer> entry : PacketIdentifier.PACKET_IDS.entrySet()) {
-            if (Objects.equals(unidentifiedPacket.getId(), entry.getValue())) {
-                Packet convertedPacket = new Gson().fromJson(message, entry.getKey());
-                if(!convertedPacket.isValid()) {
-                    Log.w(TAG, String.format("Invalid Packet Received: \"%s\".", message));
-                    break;
-                }
-
-                if(convertedPacket.getId().equals(AcknowledgementRequestPacket.ID)) {
-                    sendPacket(new AcknowledgementResponsePacket());
-                }
+        count(mBytesIn, receivedPacket, size);
+        mTrace.record(PacketTrace.Event.RECEIVED, receivedPacket, size);
+        mPacketDispatcher.dispatch(receivedPacket);
+    }
 
-                for(PacketHandler packetHandler : mActiveHandlers) {
-                    if(packetHandler != null && packetHandler.packetType() == convertedPacket.getClass()) {
-                        packetHandler.update(convertedPacket);
-                    }
-                }
+    /**
+     * Invoked when a binary message has been received (see {@code FrameCodec}).
+     * @param webSocket Open WebSocket connection.
+     * @param bytes Received message.
+     */
+    @Override
+    public void onMessage(WebSocket webSocket, ByteString bytes) {
+        Packet receivedPacket = null;
+        long decodeStartTime = System.nanoTime();
+        try {
+            receivedPacket = mFrameCodec.decode(bytes);
+        }
+        catch(IOException exception) {
+            Log.w(TAG, String.format("Failed to decompress a frame: \"%s\".", exception.getMessage()));
+        }
+        mDecodeTime.record(System.nanoTime() - decodeStartTime);
 
-                mReceivedPackets.add(convertedPacket);
-                Log.i(TAG, String.format("Packet Received: \"%s\".", convertedPacket.toString()));
-                break;
-            }
+        if (receivedPacket == null) {
+            mUnknownPackets.increment(0);
+            mTrace.record(PacketTrace.Event.UNKNOWN, null, bytes.size());
+            return;
         }
+
+        count(mBytesIn, receivedPacket, bytes.size());
+        mTrace.record(PacketTrace.Event.RECEIVED, receivedPacket, bytes.size());
+        mPacketDispatcher.dispatch(receivedPacket);
     }
 
     /**
@@ -172,6 +491,12 @@ public class WebSocketCommunicator extends WebSocketListener {
     public void onClosing(WebSocket webSocket, int code, String reason) {
         Log.d(TAG, String.format("onClosing() { WebSocket: \"%s\"," +
                 " Code: \"%s\", Reason: \"%s\".", webSocket.toString(), code, reason));
+        if(isCurrentWebSocket(webSocket)) {
+            setConnectionState(ConnectionState.CLOSING);
+        }
+
+        // Complete the closing handshake initiated by the server.
+        webSocket.close(CLOSURE_NORMAL, null);
     }
 
     /**
@@ -185,7 +510,9 @@ public class WebSocketCommunicator extends WebSocketListener {
     public void onClosed(WebSocket webSocket, int code, String reason) {
         Log.d(TAG, String.format("onClosed() { WebSocket: \"%s\"," +
                 " Code: \"%s\", Reason: \"%s\".", webSocket.toString(), code, reason));
-        mConnected = false;
+        if(isCurrentWebSocket(webSocket)) {
+            onConnectionLost();
+        }
     }
 
     /**
@@ -201,40 +528,497 @@ public class WebSocketCommunicator extends WebSocketListener {
         Log.e(TAG, String.format("onFailure() { WebSocket: \"%s\"," +
                 "Throwable: \"%s\", Response: \"%s\".", webSocket.toString(), throwable,
                 response != null ? response.toString() : null));
-        mConnecting = false;
-        mConnected = false;
+        if(isCurrentWebSocket(webSocket)) {
+            onConnectionLost();
+        }
+    }
+
+    /**
+     * Invoked when the current connection has closed or failed. Discards '{@code Packet}'s that have not been written,
+     * fails pending requests and, if the user has been assigned a username, schedules an attempt to reconnect.
+     */
+    private void onConnectionLost() {
+        mOutboundPipeline.clear();
+        MessageOutbox outbox = mOutbox;
+        if(outbox != null) {
+            outbox.resetInFlight();
+        }
+        mPacketDispatcher.failPendingRequests();
+
+        // The reconnection attempt is scheduled before the transition to CLOSED is reported, so that listeners can
+        // tell that the session will be resumed (see isReconnectPending()).
+        if(mSessionUsername != null) {
+            scheduleReconnect();
+        }
+        setConnectionState(ConnectionState.CLOSED);
+    }
+
+    /**
+     * Schedules an attempt to reconnect after a jittered, exponentially increasing delay. If the maximum amount of
+     * attempts has been made, the session is abandoned instead.
+     */
+    private void scheduleReconnect() {
+        long delay = mReconnectBackoff.nextDelay();
+        if(delay < 0) {
+            Log.w(TAG, String.format("Failed to reconnect after %d attempts, abandoning the session.",
+                    mReconnectBackoff.getAttempts()));
+            endSession();
+            return;
+        }
+
+        Log.i(TAG, String.format("Connection lost, reconnecting in %d ms (attempt %d).", delay,
+                mReconnectBackoff.getAttempts()));
+        synchronized(mWebSocketLock) {
+            mReconnectPending = true;
+            mReconnect = TIMEOUT_SCHEDULER.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if(mReconnectPending) {
+                        connect();
+                    }
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Resumes the session on a newly opened connection by requesting the username that was assigned to the user and
+     * rejoining the chatroom that they were in, then resends the messages held in the {@code MessageOutbox}. The
+     * responses to these requests are not passed to '{@code PacketHandler}'s, meaning that the UI is unaware that the
+     * connection was re-established. If the session cannot be resumed, the connection is cancelled (and another
+     * attempt is scheduled).
+     * @param webSocket Newly opened WebSocket.
+     */
+    private void resumeSession(final WebSocket webSocket) {
+        final String username = mSessionUsername;
+        final String chatroomName = mSessionChatroomName;
+        if(username == null) {
+            return;
+        }
+
+        Log.i(TAG, String.format("Resuming session (username: \"%s\", chatroom: \"%s\").", username, chatroomName));
+        RequestFuture<UsernameResponsePacket> usernameRequest = sendRequest(new UsernameRequestPacket(username),
+                UsernameResponsePacket.class);
+
+        // If the server correlates responses, the chatroom is rejoined without waiting for the username to be
+        // assigned (the server handles the requests in order, so the join is only accepted once the username is).
+        final RequestFuture<JoinChatroomResponsePacket> pipelinedJoinRequest = chatroomName != null &&
+                mCorrelationEnabled ? sendRequest(new JoinChatroomRequestPacket(chatroomName),
+                JoinChatroomResponsePacket.class) : null;
+
+        usernameRequest.addListener(new RequestFuture.Listener<UsernameResponsePacket>() {
+            @Override
+            public void onComplete(@Nullable UsernameResponsePacket response) {
+                if(response == null || !response.getResponse()) {
+                    onResumeFailed(webSocket, "username was not assigned");
+                    return;
+                }
+                if(chatroomName == null) {
+                    onSessionResumed(null);
+                    return;
+                }
+
+                RequestFuture<JoinChatroomResponsePacket> joinRequest = pipelinedJoinRequest != null ?
+                        pipelinedJoinRequest : sendRequest(new JoinChatroomRequestPacket(chatroomName),
+                        JoinChatroomResponsePacket.class);
+                joinRequest.addListener(new RequestFuture.Listener<JoinChatroomResponsePacket>() {
+                    @Override
+                    public void onComplete(@Nullable JoinChatroomResponsePacket response) {
+                        if(response == null || !response.getResponse()) {
+                            onResumeFailed(webSocket, "chatroom could not be rejoined");
+                            return;
+                        }
+                        onSessionResumed(chatroomName);
+                    }
+                });
+            }
+        });
     }
 
     /**
-     * Sends a {@code Packet} to the server.
+     * Invoked once the session has been resumed on a new connection.
+     * @param chatroomName Name of the chatroom that was rejoined, or {@code null} if the user was not in a chatroom.
+     */
+    private void onSessionResumed(@Nullable final String chatroomName) {
+        mReconnectBackoff.reset();
+        mReconnectPending = false;
+        Log.i(TAG, "Session resumed.");
+        if(chatroomName != null) {
+            flushOutbox(chatroomName);
+        }
+    }
+
+    /**
+     * Invoked if the session could not be resumed on a new connection. Cancels the connection, which schedules another
+     * attempt (see {@code onConnectionLost()}).
+     * @param webSocket WebSocket that the session could not be resumed on.
+     * @param reason Reason that the session could not be resumed.
+     */
+    private void onResumeFailed(final WebSocket webSocket, final String reason) {
+        Log.w(TAG, String.format("Failed to resume session: %s.", reason));
+        if(isCurrentWebSocket(webSocket) && mReconnectPending) {
+            webSocket.cancel();
+        }
+    }
+
+    /**
+     * Ends the session, meaning that the connection is not re-established if it is lost. Cancels any scheduled
+     * reconnection attempt.
+     * @return {@code true} if a reconnection attempt was pending.
+     */
+    private boolean endSession() {
+        mSessionUsername = null;
+        mSessionChatroomName = null;
+        mReconnectBackoff.reset();
+        synchronized(mWebSocketLock) {
+            boolean reconnectPending = mReconnectPending;
+            mReconnectPending = false;
+            if(mReconnect != null) {
+                mReconnect.cancel();
+                mReconnect = null;
+            }
+            return reconnectPending;
+        }
+    }
+
+    /**
+     * Records the username and chatroom that the user requests, so that the session can be resumed after a reconnect.
+     * @param packet {@code Packet} sent to the server.
+     */
+    private void onPacketSent(final Packet packet) {
+        if(packet instanceof UsernameRequestPacket) {
+            mRequestedUsername = ((UsernameRequestPacket)packet).getUsername();
+        }
+        else if(packet instanceof JoinChatroomRequestPacket) {
+            mRequestedChatroomName = ((JoinChatroomRequestPacket)packet).getChatroomName();
+        }
+    }
+
+    /**
+     * Updates the session when the server accepts a request for a username or to join or leave a chatroom.
+     * @param packet {@code Packet} received from the server.
+     */
+    private void updateSession(final Packet packet) {
+        if(packet instanceof UsernameResponsePacket && ((UsernameResponsePacket)packet).getResponse()) {
+            mSessionUsername = mRequestedUsername;
+        }
+        else if(packet instanceof JoinChatroomResponsePacket && ((JoinChatroomResponsePacket)packet).getResponse()) {
+            mSessionChatroomName = mRequestedChatroomName;
+        }
+        else if(packet instanceof LeaveChatroomResponsePacket && ((LeaveChatroomResponsePacket)packet).getResponse()) {
+            mSessionChatroomName = null;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the specified WebSocket is the {@code WebSocketCommunicator}'s current WebSocket.
+     * Callbacks from WebSockets that have since been replaced (see {@code connect()}) are ignored.
+     * @param webSocket WebSocket that invoked a callback.
+     * @return {@code true} if the specified WebSocket is the current WebSocket.
+     */
+    private boolean isCurrentWebSocket(final WebSocket webSocket) {
+        synchronized(mWebSocketLock) {
+            return webSocket == mWebSocket;
+        }
+    }
+
+    /**
+     * Sends a {@code Packet} to the server. The {@code Packet} is serialized and written by the
+     * {@code OutboundPipeline}, meaning that this method never blocks and is safe to call from the UI thread.
      * @param packet {@code Packet} to send.
+     * @return {@code true} if the {@code Packet} was queued for sending. Returns {@code false} if there is no open
+     * connection or if the outbound queue is full (because the connection cannot keep up).
      */
-    public void sendPacket(final Packet packet) {
+    public boolean sendPacket(final Packet packet) {
         if(packet == null) {
             Log.w(TAG, "Attempted to send a null Packet.");
+            return false;
+        }
+        if(mWebSocket == null || mConnectionState.get() != ConnectionState.OPEN) {
+            return false;
+        }
+        if(!mOutboundPipeline.enqueue(packet)) {
+            mTrace.record(PacketTrace.Event.DISCARDED, packet, 0);
+            return false;
+        }
+        onPacketSent(packet);
+        return true;
+    }
+
+    /**
+     * Writes a burst of '{@code Packet}'s drained by the {@code OutboundPipeline}. If the server accepted
+     * '{@code BatchPacket}' envelopes, a burst of more than one {@code Packet} is written as a single frame.
+     * @param packets '{@code Packet}'s to write, in the order they were sent.
+     */
+    private void writePackets(final List<Packet> packets) {
+        WebSocket webSocket = mWebSocket;
+        if(webSocket == null || mConnectionState.get() != ConnectionState.OPEN) {
+            for(Packet packet : packets) {
+                mTrace.record(PacketTrace.Event.DISCARDED, packet, 0);
+            }
             return;
         }
-        if(mWebSocket != null && mConnected) {
-            Log.d(TAG, String.format("Packet Sent: \"%s\".", packet.toString()));
-            mWebSocket.send(packet.toString());
+
+        if(mBatchingEnabled && packets.size() > 1) {
+            if(writePacket(webSocket, new BatchPacket(packets.toArray(new Packet[packets.size()])))) {
+                for(Packet packet : packets) {
+                    onPacketWritten(packet);
+                }
+            }
+            return;
+        }
+        for(Packet packet : packets) {
+            if(writePacket(webSocket, packet)) {
+                onPacketWritten(packet);
+            }
         }
     }
 
-    // TODO: Redesign to avoid the need for performing an unchecked type cast.
-    public <T extends Packet> T pollPacket(Class<T> packetType) {
-        for(Packet receivedPacket : mReceivedPackets) {
-            if(receivedPacket.getId().equals(PacketIdentifier.PACKET_IDS.get(packetType))) {
-                mReceivedPackets.remove(receivedPacket);
-                if(receivedPacket.getClass().equals(packetType)) {
-                    T packet = (T)receivedPacket;
-                    if(packet.isValid()) {
-                        return packet;
-                    }
+    /**
+     * Invoked once a {@code Packet} has been written to the connection.
+     * @param packet {@code Packet} that was written.
+     */
+    private void onPacketWritten(final Packet packet) {
+        count(mPacketsOut, packet, 1);
+    }
+
+    /**
+     * Invoked when a chat message is received. If the message is the server's echo of a message sent by the user, the
+     * server has received it, so it is removed from the {@code MessageOutbox}.
+     * @param packet Received chat message.
+     */
+    private void onMessageEchoed(final ReceiveMessagePacket packet) {
+        MessageOutbox outbox = mOutbox;
+        if(outbox != null && packet.getClientId() != null) {
+            outbox.acknowledge(packet.getClientId());
+        }
+    }
+
+    /**
+     * Sends a chat message to the server. If a {@code MessageOutbox} has been set, the message is held in it until the
+     * server echoes it back, meaning that it is not lost if the connection is unavailable or drops before the server
+     * receives it (see {@code flushOutbox()}).
+     * @param chatroomName Name of the chatroom that the message was written in.
+     * @param message Message to send.
+     * @return {@code true} if the message was sent or held in the {@code MessageOutbox}.
+     */
+    public boolean sendMessage(final String chatroomName, final String message) {
+        MessageOutbox outbox = mOutbox;
+        if(outbox == null) {
+            return sendPacket(new SendMessagePacket(message));
+        }
+
+        SendMessagePacket sendMessagePacket = outbox.append(chatroomName, message);
+        if(sendMessagePacket == null) {
+            return false;
+        }
+        // Whilst the session is being resumed the chatroom has not yet been rejoined, so the message is held until the
+        // outbox is flushed.
+        if(!mReconnectPending && sendPacket(sendMessagePacket)) {
+            outbox.markInFlight(sendMessagePacket.getClientId());
+        }
+        return true;
+    }
+
+    /**
+     * Resends the chat messages held in the {@code MessageOutbox} that were written in the specified chatroom, in the
+     * order they were written. Should be invoked once the user has (re)joined the chatroom.
+     * @param chatroomName Name of the chatroom that the user is in.
+     * @return Amount of messages that were resent.
+     */
+    public int flushOutbox(final String chatroomName) {
+        MessageOutbox outbox = mOutbox;
+        if(outbox == null || !isConnected()) {
+            return 0;
+        }
+
+        List<SendMessagePacket> unsent = outbox.takeUnsent(chatroomName);
+        int sent = 0;
+        while(sent < unsent.size() && sendPacket(unsent.get(sent))) {
+            sent++;
+        }
+        // If the connection was lost or the outbound queue filled up, the remaining messages are resent later.
+        for(int i = sent; i < unsent.size(); i++) {
+            outbox.markUnsent(unsent.get(i).getClientId());
+        }
+        if(sent > 0) {
+            Log.i(TAG, String.format("Resent %d message(s) from the outbox.", sent));
+        }
+        return sent;
+    }
+
+    /**
+     * Sets the {@code MessageOutbox} used to hold chat messages until the server confirms them.
+     * @param outbox {@code MessageOutbox} to use, or {@code null} to send chat messages without holding them.
+     */
+    public void setOutbox(@Nullable final MessageOutbox outbox) {
+        mOutbox = outbox;
+    }
+
+    /**
+     * Serializes a {@code Packet} using the negotiated {@code WireFormat} and writes it to the specified WebSocket.
+     * @param webSocket WebSocket to write to.
+     * @param packet {@code Packet} to write.
+     * @return {@code true} if the {@code Packet} was queued by the WebSocket.
+     */
+    private boolean writePacket(final WebSocket webSocket, final Packet packet) {
+        if(mWireFormat == WireFormat.BINARY) {
+            ByteString bytes = mFrameCodec.encode(packet, mCompressionEnabled);
+            if(bytes == null) {
+                Log.w(TAG, String.format("Attempted to send an unencodable Packet: \"%s\".", packet));
+                return false;
+            }
+            return countWritten(webSocket.send(bytes), packet, bytes.size());
+        }
+
+        String message = packet.toString();
+        if(mCompressionEnabled && mFrameCodec.shouldCompress(message.length())) {
+            ByteString bytes = mFrameCodec.encode(ByteString.encodeUtf8(message), FrameCodec.FLAG_JSON, true);
+            return countWritten(webSocket.send(bytes), packet, bytes.size());
+        }
+        return countWritten(webSocket.send(message), packet, Utf8.size(message));
+    }
+
+    /**
+     * Records the size of a frame in {@code bytes.out} and traces it if it was queued by the WebSocket.
+     * @param written {@code true} if the frame was queued by the WebSocket.
+     * @param packet {@code Packet} that was framed.
+     * @param size Size of the frame (in bytes).
+     * @return {@code written}.
+     */
+    private boolean countWritten(final boolean written, final Packet packet, final long size) {
+        if(written) {
+            count(mBytesOut, packet, size);
+            mTrace.record(PacketTrace.Event.SENT, packet, size);
+        }
+        return written;
+    }
+
+    /**
+     * Adds an amount to the counter of a {@code Packet}'s type. '{@code Packet}'s without a known ID are not counted.
+     * @param counter Counters labelled with {@code PACKET_NAMES}.
+     * @param packet {@code Packet} to count.
+     * @param amount Amount to add.
+     */
+    private static void count(final StripedCounter counter, final Packet packet, final long amount) {
+        Integer id = packet.getId();
+        if(id != null && id >= 0 && id < PACKET_NAMES.length) {
+            counter.add(id, amount);
+        }
+    }
+
+    /**
+     * Returns {@code true} if the server accepted the specified extension in its handshake response.
+     * @param response Handshake response.
+     * @param extension Name of the extension.
+     * @return {@code true} if the server accepted the specified extension.
+     */
+    private static boolean hasExtension(@Nullable final Response response, final String extension) {
+        String extensions = response != null ? response.header(HEADER_EXTENSIONS) : null;
+        if(extensions == null) {
+            return false;
+        }
+        for(String acceptedExtension : extensions.split(",")) {
+            if(acceptedExtension.trim().equalsIgnoreCase(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sends a request {@code Packet} to the server and returns a {@code RequestFuture} that is completed when a
+     * response of the specified type is received, using the default timeout period.
+     * @param requestPacket Request {@code Packet} to send.
+     * @param responseType Response {@code Packet} type to await.
+     * @param <T> Response {@code Packet} type.
+     * @return {@code RequestFuture} that is completed with the response, or with {@code null} if the request could not
+     * be sent, timed out or the connection was lost.
+     */
+    public <T extends Packet> RequestFuture<T> sendRequest(final Packet requestPacket, final Class<T> responseType) {
+        return sendRequest(requestPacket, responseType, REQUEST_TIMEOUT_DEFAULT, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends a request {@code Packet} to the server and returns a {@code RequestFuture} that is completed when a
+     * response of the specified type is received. If the server accepted correlation IDs, the request is assigned one
+     * (replacing any that it had) and is completed by the response that echoes it, meaning that any amount of requests
+     * can be in flight at once. Otherwise, responses are matched to requests of the same response type in the order
+     * that the requests were sent. No thread waits on the response; the {@code RequestFuture} is completed by the
+     * thread that receives it (or by the timeout scheduler).
+     * @param requestPacket Request {@code Packet} to send.
+     * @param responseType Response {@code Packet} type to await.
+     * @param timeout Amount of time to await a response.
+     * @param unit Unit of {@code timeout}.
+     * @param <T> Response {@code Packet} type.
+     * @return {@code RequestFuture} that is completed with the response, or with {@code null} if the request could not
+     * be sent, timed out or the connection was lost.
+     */
+    public <T extends Packet> RequestFuture<T> sendRequest(final Packet requestPacket, final Class<T> responseType,
+                                                           final long timeout, final TimeUnit unit) {
+        Integer correlationId = mCorrelationEnabled ? mNextCorrelationId.getAndIncrement() & Integer.MAX_VALUE : null;
+        requestPacket.setCorrelationId(correlationId);
+        final RequestFuture<T> requestFuture = new RequestFuture<>(responseType, correlationId);
+
+        mPacketDispatcher.addPendingRequest(requestFuture);
+        requestFuture.setTimeout(TIMEOUT_SCHEDULER.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if(mPacketDispatcher.removePendingRequest(requestFuture)) {
+                    mTimedOutRequests.increment(0);
+                    Log.w(TAG, String.format("Request timed out awaiting a \"%s\".", responseType.getSimpleName()));
+                    requestFuture.complete(null);
                 }
-                return null;
             }
+        }, timeout, unit));
+
+        if(!sendPacket(requestPacket) && mPacketDispatcher.removePendingRequest(requestFuture)) {
+            requestFuture.complete(null);
         }
-        return null;
+
+        return requestFuture;
+    }
+
+    /**
+     * Configures the {@code PacketMailbox} that stores received '{@code Packet}'s of the specified type (see
+     * {@code PacketDispatcher.configureMailbox()}).
+     * @param packetType {@code Packet} type.
+     * @param capacity Maximum amount of '{@code Packet}'s to hold. If {@code 0}, '{@code Packet}'s of the type are not
+     * stored.
+     * @param overflowPolicy Policy applied when a {@code Packet} is received whilst the {@code PacketMailbox} is full.
+     */
+    public <T extends Packet> void configureMailbox(final Class<T> packetType, final int capacity,
+                                                    final PacketMailbox.OverflowPolicy overflowPolicy) {
+        mPacketDispatcher.configureMailbox(packetType, capacity, overflowPolicy);
+    }
+
+    /**
+     * Returns the {@code PacketMailbox} that stores received '{@code Packet}'s of the specified type (see
+     * {@code PacketDispatcher.getMailbox()}).
+     * @param packetType {@code Packet} type.
+     * @return {@code PacketMailbox} that stores received '{@code Packet}'s of the specified type. If
+     * '{@code Packet}'s of the type are not stored, returns {@code null}.
+     */
+    public <T extends Packet> PacketMailbox<T> getMailbox(final Class<T> packetType) {
+        return mPacketDispatcher.getMailbox(packetType);
+    }
+
+    /**
+     * Removes and returns the oldest received {@code Packet} of the specified type.
+     * @param packetType {@code Packet} type.
+     * @return Oldest received {@code Packet} of the specified type. If none is available, returns {@code null}.
+     */
+    public <T extends Packet> T pollPacket(Class<T> packetType) {
+        return mPacketDispatcher.pollPacket(packetType);
+    }
+
+    /**
+     * Returns the total amount of received '{@code Packet}'s that have been dropped because their
+     * {@code PacketMailbox} was full.
+     * @return Total amount of received '{@code Packet}'s that have been dropped.
+     */
+    public long getDroppedPacketCount() {
+        return mPacketDispatcher.getDroppedPacketCount();
     }
 
     /** Returns the singleton instance of {@code WebSocketCommunicator}.
@@ -251,16 +1035,6 @@ public class WebSocketCommunicator extends WebSocketListener {
         return mInstance;
     }
 
-    /**
-     * Returns a {@code Queue} containing the '{@code Packet}'s that the
-     * {@code WebSocketCommunicator} has received from the server.
-     * @return {@code Queue} containing the '{@code Packet}'s that the
-     * {@code WebSocketCommunicator} has received from the server.
-     */
-    public Queue<Packet> getReceivedPackets() {
-        return mReceivedPackets;
-    }
-
     /**
      * Returns {@code true} if the {@code WebSocketCommunicator} is currently connecting to the
      * server.
@@ -268,7 +1042,7 @@ public class WebSocketCommunicator extends WebSocketListener {
      * server.
      */
     public boolean isConnecting() {
-        return mConnecting;
+        return mConnectionState.get() == ConnectionState.CONNECTING;
     }
 
     /**
@@ -276,7 +1050,119 @@ public class WebSocketCommunicator extends WebSocketListener {
      * @return {@code true} if the {@code WebSocketCommunicator} has a connection to the server.
      */
     public boolean isConnected() {
-        return mConnected;
+        return mConnectionState.get() == ConnectionState.OPEN;
+    }
+
+    /**
+     * Sets the {@code WireFormat} offered to the server on subsequent connections. The server may decline it, in which
+     * case {@code JSON} is used.
+     * @param wireFormat {@code WireFormat} to offer.
+     */
+    public void setPreferredWireFormat(final WireFormat wireFormat) {
+        mPreferredWireFormat = wireFormat;
+    }
+
+    /**
+     * Sets whether compression of large frames is offered to the server on subsequent connections.
+     * @param compressionPreferred {@code true} if compression should be offered.
+     */
+    public void setCompressionPreferred(final boolean compressionPreferred) {
+        mCompressionPreferred = compressionPreferred;
+    }
+
+    /**
+     * Returns {@code true} if the server accepted compression of large frames for the current connection.
+     * @return {@code true} if the server accepted compression of large frames for the current connection.
+     */
+    public boolean isCompressionEnabled() {
+        return mCompressionEnabled;
+    }
+
+    /**
+     * Returns a summary of the compression ratio achieved and the CPU time spent compressing and decompressing frames.
+     * @return Summary of the compression ratio and CPU time.
+     */
+    public String getCompressionStatistics() {
+        return mFrameCodec.getCompressionStatistics();
+    }
+
+    /**
+     * Returns the metrics recorded on the receive and send paths: '{@code Packet}'s and bytes in and out by
+     * {@code Packet} type, decode, handler and request/response times, and the depth of the inbound and outbound
+     * queues. The metrics can be dumped on demand (see {@code MetricsRegistry.dump()}).
+     * @return {@code MetricsRegistry} of the {@code WebSocketCommunicator}.
+     */
+    public MetricsRegistry getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * Returns the trace of what happened to the most recent '{@code Packet}'s (received, sent, dropped, etc.). The
+     * trace records nothing below {@code WARN} in release builds; see {@code PacketTrace.setLevel()}.
+     * @return {@code PacketTrace} of the {@code WebSocketCommunicator}.
+     */
+    public PacketTrace getTrace() {
+        return mTrace;
+    }
+
+    /**
+     * Returns {@code true} if the connection was lost and the {@code WebSocketCommunicator} is reconnecting and
+     * resuming the session. Whilst this is {@code true}, the loss of the connection should not be reported to the user.
+     * @return {@code true} if the session is being resumed.
+     */
+    public boolean isReconnectPending() {
+        return mReconnectPending;
+    }
+
+    /**
+     * Sets the address of the server that is connected to (used to connect to local and test servers).
+     * @param serverAddress WebSocket URL of the server.
+     */
+    @VisibleForTesting
+    void setServerAddress(final String serverAddress) {
+        mServerAddress = serverAddress;
+    }
+
+    /**
+     * Returns {@code true} if the server accepted '{@code BatchPacket}' envelopes for the current connection.
+     * @return {@code true} if the server accepted '{@code BatchPacket}' envelopes for the current connection.
+     */
+    public boolean isBatchingEnabled() {
+        return mBatchingEnabled;
+    }
+
+    /**
+     * Returns {@code true} if the server accepted correlation IDs for the current connection (see
+     * {@code sendRequest()}).
+     * @return {@code true} if the server accepted correlation IDs for the current connection.
+     */
+    public boolean isCorrelationEnabled() {
+        return mCorrelationEnabled;
+    }
+
+    /**
+     * Returns the amount of '{@code Packet}'s that were rejected by {@code sendPacket()} because the outbound queue was
+     * full.
+     * @return Amount of '{@code Packet}'s that were rejected because the outbound queue was full.
+     */
+    public long getRejectedPacketCount() {
+        return mOutboundPipeline.getRejectedCount();
+    }
+
+    /**
+     * Returns the {@code WireFormat} negotiated with the server for the current connection.
+     * @return {@code WireFormat} negotiated with the server for the current connection.
+     */
+    public WireFormat getWireFormat() {
+        return mWireFormat;
+    }
+
+    /**
+     * Returns the current {@code ConnectionState} of the connection to the server.
+     * @return Current {@code ConnectionState} of the connection to the server.
+     */
+    public ConnectionState getConnectionState() {
+        return mConnectionState.get();
     }
 
 }
@@ -0,0 +1,84 @@
+package io.benreynolds.hottopics;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+
+/**
+ * {@code WebSocketTransport} is a process-wide service that owns the single, configured {@code OkHttpClient} used to
+ * open WebSockets to the Hot Topics server. The client's dispatcher (thread pool), connection pool and DNS cache are
+ * reused across reconnects until {@code shutdown()} is called.
+ */
+public class WebSocketTransport {
+
+    /** Amount of time to wait for a connection to the server to be established (in seconds). */
+    private static final long CONNECT_TIMEOUT = 5;
+
+    /** Stores a reference to the singleton instance of {@code WebSocketTransport}. */
+    private static volatile WebSocketTransport mInstance;
+
+    /** Client used to open WebSockets (guarded by {@code this}). Created on first use. */
+    private OkHttpClient mOkHttpClient;
+
+    /** Private constructor used during {@code WebSocketTransport}'s singleton initialization (see
+     * {@code getInstance()}). */
+    private WebSocketTransport() { }
+
+    /**
+     * Returns the {@code OkHttpClient} used to open WebSockets, creating it if it does not exist (or was shut down).
+     * @return {@code OkHttpClient} used to open WebSockets.
+     */
+    private synchronized OkHttpClient getClient() {
+        if(mOkHttpClient == null) {
+            mOkHttpClient = new OkHttpClient.Builder()
+                    .connectTimeout(CONNECT_TIMEOUT, TimeUnit.SECONDS)
+                    .readTimeout(0, TimeUnit.MILLISECONDS)
+                    .build();
+        }
+        return mOkHttpClient;
+    }
+
+    /**
+     * Opens a WebSocket using the shared {@code OkHttpClient}.
+     * @param request WebSocket upgrade request.
+     * @param listener Listener notified of the WebSocket's events.
+     * @return WebSocket that is being opened.
+     */
+    public WebSocket newWebSocket(final Request request, final WebSocketListener listener) {
+        return getClient().newWebSocket(request, listener);
+    }
+
+    /**
+     * Shuts down the shared {@code OkHttpClient}'s dispatcher and evicts its pooled connections. Open WebSockets
+     * should be closed beforehand. A new client is created if a WebSocket is opened afterwards.
+     */
+    public void shutdown() {
+        OkHttpClient okHttpClient;
+        synchronized(this) {
+            okHttpClient = mOkHttpClient;
+            mOkHttpClient = null;
+        }
+        if(okHttpClient != null) {
+            okHttpClient.dispatcher().executorService().shutdown();
+            okHttpClient.connectionPool().evictAll();
+        }
+    }
+
+    /** Returns the singleton instance of {@code WebSocketTransport}.
+     * @return Singleton instance of {@code WebSocketTransport}.
+     */
+    public static WebSocketTransport getInstance() {
+        if (mInstance == null) {
+            synchronized (WebSocketTransport.class) {
+                if (mInstance == null) {
+                    mInstance = new WebSocketTransport();
+                }
+            }
+        }
+        return mInstance;
+    }
+
+}
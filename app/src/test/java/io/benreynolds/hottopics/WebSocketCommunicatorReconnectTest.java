@@ -0,0 +1,238 @@
+package io.benreynolds.hottopics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.benreynolds.hottopics.packets.JoinChatroomRequestPacket;
+import io.benreynolds.hottopics.packets.JoinChatroomResponsePacket;
+import io.benreynolds.hottopics.packets.Packet;
+import io.benreynolds.hottopics.packets.PacketIdentifier;
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+import io.benreynolds.hottopics.packets.SendMessagePacket;
+import io.benreynolds.hottopics.packets.UsernameRequestPacket;
+import io.benreynolds.hottopics.packets.UsernameResponsePacket;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drops the connection of a {@code WebSocketCommunicator} with an established session and checks that the session is
+ * resumed in order on the new connection: the username is requested again, then the chatroom is rejoined, then the
+ * messages held in the {@code MessageOutbox} are resent in the order they were written.
+ */
+public class WebSocketCommunicatorReconnectTest {
+
+    /** Amount of time to wait for each step (in seconds), which covers the first reconnection delay. */
+    private static final long TIMEOUT = 10;
+
+    /** Status code with which the server drops the connection (RFC 6455, Section 7.4.1). */
+    private static final int CLOSURE_GOING_AWAY = 1001;
+
+    /** Username assigned to the user. */
+    private static final String USERNAME = "Tester";
+
+    /** Name of the chatroom that the user is in. */
+    private static final String CHATROOM_NAME = "Lobby";
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    /** Server that the {@code WebSocketCommunicator} connects to. */
+    private final MockWebServer mServer = new MockWebServer();
+
+    /** '{@code Packet}'s received by the server, in the order they were received (across connections). */
+    private final BlockingQueue<Packet> mReceivedPackets = new LinkedBlockingQueue<>();
+
+    /** Server's side of the most recently opened connection. */
+    private final AtomicReference<WebSocket> mServerWebSocket = new AtomicReference<>();
+
+    private final WebSocketCommunicator mCommunicator = WebSocketCommunicator.getInstance();
+
+    private MessageOutbox mOutbox;
+
+    /**
+     * {@code ServerConnection} is the server's side of a connection. It records every {@code Packet} it receives and
+     * accepts every username and chatroom, but never echoes chat messages (so they remain unconfirmed).
+     */
+    private class ServerConnection extends WebSocketListener {
+
+        @Override
+        public void onOpen(WebSocket webSocket, Response response) {
+            mServerWebSocket.set(webSocket);
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            Packet packet = PacketIdentifier.decode(text);
+            if(packet == null) {
+                return;
+            }
+            mReceivedPackets.add(packet);
+
+            Packet response = null;
+            if(packet instanceof UsernameRequestPacket) {
+                response = new UsernameResponsePacket(true);
+            }
+            else if(packet instanceof JoinChatroomRequestPacket) {
+                response = new JoinChatroomResponsePacket(true);
+            }
+            if(response != null) {
+                response.setCorrelationId(packet.getCorrelationId());
+                webSocket.send(response.toString());
+            }
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            webSocket.close(code, null);
+        }
+
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        mServer.enqueue(new MockResponse().withWebSocketUpgrade(new ServerConnection()));
+        mServer.enqueue(new MockResponse().withWebSocketUpgrade(new ServerConnection()));
+        mServer.start();
+
+        mOutbox = new MessageOutbox(new File(mTemporaryFolder.getRoot(), "outbox"), 16);
+        mCommunicator.setOutbox(mOutbox);
+        mCommunicator.setPreferredWireFormat(WireFormat.JSON);
+        mCommunicator.setServerAddress(mServer.url("/hottopics/chat").toString());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mCommunicator.disconnect();
+        mCommunicator.setOutbox(null);
+        mServer.shutdown();
+    }
+
+    @Test
+    public void resumesSessionThenFlushesOutboxInOrder() throws Exception {
+        awaitConnectionState(ConnectionState.OPEN, new Runnable() {
+            @Override
+            public void run() {
+                mCommunicator.connect();
+            }
+        });
+        assertNotNull(mCommunicator.sendRequest(new UsernameRequestPacket(USERNAME), UsernameResponsePacket.class)
+                .get(TIMEOUT, TimeUnit.SECONDS));
+        assertNotNull(mCommunicator.sendRequest(new JoinChatroomRequestPacket(CHATROOM_NAME),
+                JoinChatroomResponsePacket.class).get(TIMEOUT, TimeUnit.SECONDS));
+        assertUsernameRequest(nextReceivedPacket());
+        assertJoinChatroomRequest(nextReceivedPacket());
+
+        // The first message reaches the server but is never echoed, so it is still unconfirmed when the connection
+        // drops.
+        assertTrue(mCommunicator.sendMessage(CHATROOM_NAME, "First"));
+        String firstClientId = assertSendMessage(nextReceivedPacket(), "First");
+
+        awaitConnectionState(ConnectionState.CLOSED, new Runnable() {
+            @Override
+            public void run() {
+                mServerWebSocket.get().close(CLOSURE_GOING_AWAY, null);
+            }
+        });
+        assertTrue(mCommunicator.isReconnectPending());
+
+        // The second message is written whilst the session is being resumed, so it is only held in the outbox.
+        assertTrue(mCommunicator.sendMessage(CHATROOM_NAME, "Second"));
+
+        assertUsernameRequest(nextReceivedPacket());
+        assertJoinChatroomRequest(nextReceivedPacket());
+        assertEquals(firstClientId, assertSendMessage(nextReceivedPacket(), "First"));
+        String secondClientId = assertSendMessage(nextReceivedPacket(), "Second");
+        assertEquals(2, mOutbox.size());
+
+        // Once the server echoes the messages, they are removed from the outbox.
+        mServerWebSocket.get().send(new ReceiveMessagePacket(USERNAME, "First", 0L, firstClientId).toString());
+        mServerWebSocket.get().send(new ReceiveMessagePacket(USERNAME, "Second", 1L, secondClientId).toString());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT);
+        while(mOutbox.size() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, mOutbox.size());
+    }
+
+    /**
+     * Performs an action and waits for the {@code WebSocketCommunicator} to transition to a {@code ConnectionState}.
+     * @param connectionState {@code ConnectionState} to wait for.
+     * @param action Action that causes the transition.
+     * @throws InterruptedException If interrupted whilst waiting.
+     */
+    private void awaitConnectionState(final ConnectionState connectionState, final Runnable action)
+            throws InterruptedException {
+        final CountDownLatch transitioned = new CountDownLatch(1);
+        ConnectionStateListener listener = new ConnectionStateListener() {
+            @Override
+            public void onConnectionStateChanged(ConnectionState previousState, ConnectionState newState) {
+                if(newState == connectionState) {
+                    transitioned.countDown();
+                }
+            }
+        };
+        mCommunicator.addConnectionStateListener(listener);
+        try {
+            action.run();
+            assertTrue(String.format("Timed out waiting for %s.", connectionState),
+                    transitioned.await(TIMEOUT, TimeUnit.SECONDS));
+        }
+        finally {
+            mCommunicator.removeConnectionStateListener(listener);
+        }
+    }
+
+    /**
+     * Returns the next {@code Packet} received by the server.
+     * @return Next {@code Packet} received by the server.
+     * @throws InterruptedException If interrupted whilst waiting.
+     */
+    private Packet nextReceivedPacket() throws InterruptedException {
+        Packet packet = mReceivedPackets.poll(TIMEOUT, TimeUnit.SECONDS);
+        assertNotNull("Timed out waiting for a Packet.", packet);
+        return packet;
+    }
+
+    private static void assertUsernameRequest(final Packet packet) {
+        assertTrue(String.format("Expected a UsernameRequestPacket: %s", packet),
+                packet instanceof UsernameRequestPacket);
+        assertEquals(USERNAME, ((UsernameRequestPacket)packet).getUsername());
+    }
+
+    private static void assertJoinChatroomRequest(final Packet packet) {
+        assertTrue(String.format("Expected a JoinChatroomRequestPacket: %s", packet),
+                packet instanceof JoinChatroomRequestPacket);
+        assertEquals(CHATROOM_NAME, ((JoinChatroomRequestPacket)packet).getChatroomName());
+    }
+
+    /**
+     * Asserts that a {@code Packet} is a chat message.
+     * @param packet {@code Packet} received by the server.
+     * @param message Expected message.
+     * @return Client-generated ID of the message.
+     */
+    private static String assertSendMessage(final Packet packet, final String message) {
+        assertTrue(String.format("Expected a SendMessagePacket: %s", packet), packet instanceof SendMessagePacket);
+        assertEquals(message, ((SendMessagePacket)packet).getMessage());
+        assertNotNull(((SendMessagePacket)packet).getClientId());
+        return ((SendMessagePacket)packet).getClientId();
+    }
+
+}
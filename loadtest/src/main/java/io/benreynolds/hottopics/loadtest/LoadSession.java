@@ -0,0 +1,405 @@
+package io.benreynolds.hottopics.loadtest;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import io.benreynolds.hottopics.FrameCodec;
+import io.benreynolds.hottopics.PacketDispatcher;
+import io.benreynolds.hottopics.PacketHandler;
+import io.benreynolds.hottopics.WireFormat;
+import io.benreynolds.hottopics.packets.JoinChatroomRequestPacket;
+import io.benreynolds.hottopics.packets.JoinChatroomResponsePacket;
+import io.benreynolds.hottopics.packets.Packet;
+import io.benreynolds.hottopics.packets.PacketIdentifier;
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+import io.benreynolds.hottopics.packets.SendMessagePacket;
+import io.benreynolds.hottopics.packets.UsernameRequestPacket;
+import io.benreynolds.hottopics.packets.UsernameResponsePacket;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+
+/**
+ * {@code LoadSession} is a single client session driven by the {@code LoadTest}: it connects, requests a username,
+ * joins a chatroom and then sends chat messages at a fixed rate, recording the time between sending each message and
+ * receiving its echo. Received frames take the same path as in the app ({@code FrameCodec} and
+ * {@code PacketDispatcher}), but each {@code LoadSession} owns its own connection and state, meaning that any amount of
+ * them can run side by side (unlike the {@code WebSocketCommunicator} singleton).
+ */
+class LoadSession extends WebSocketListener implements Runnable {
+
+    /** Amount of time to await the connection, each response and the final echoes (in seconds). */
+    private static final long TIMEOUT = 30;
+
+    /** Client used to open the WebSocket (shared between sessions). */
+    private final OkHttpClient mClient;
+
+    /** WebSocket URL of the server. */
+    private final String mServerAddress;
+
+    /** {@code WireFormat} offered to the server. */
+    private final WireFormat mPreferredWireFormat;
+
+    /** Username requested by the session. */
+    private final String mUsername;
+
+    /** Name of the chatroom joined by the session. */
+    private final String mChatroomName;
+
+    /** Chat message that is sent. */
+    private final String mMessage;
+
+    /** Interval between chat messages (in nanoseconds). If {@code 0}, messages are sent as fast as possible. */
+    private final long mSendInterval;
+
+    /** Encodes and decodes binary frames. */
+    private final FrameCodec mFrameCodec = new FrameCodec();
+
+    /** Delivers received '{@code Packet}'s. */
+    private final PacketDispatcher mPacketDispatcher;
+
+    /** Responses to the requests sent by the session. */
+    private final BlockingQueue<Packet> mResponses = new LinkedBlockingQueue<>();
+
+    /** Times at which the chat messages awaiting an echo were sent (see {@code System.nanoTime()}), oldest first. */
+    private final Queue<Long> mSendTimes = new ConcurrentLinkedQueue<>();
+
+    /** Send-to-echo latency of each echoed chat message (in nanoseconds, only written by the reading thread). */
+    private final long[] mLatencies;
+
+    /** Amount of entries in {@code mLatencies} (only written by the reading thread). */
+    private int mLatencyCount;
+
+    /** Counted down once the session has finished (or failed), before its connection is closed. */
+    private final CountDownLatch mFinished;
+
+    /** Awaited before the connection is closed, so that the connection's threads can be measured. */
+    private final CountDownLatch mCloseAllowed;
+
+    /** Released once the WebSocket opens. */
+    private final CountDownLatch mOpen = new CountDownLatch(1);
+
+    /** Counted down as each chat message is echoed. */
+    private final CountDownLatch mEchoes;
+
+    /** WebSocket. */
+    private volatile WebSocket mWebSocket;
+
+    /** {@code WireFormat} negotiated with the server. */
+    private volatile WireFormat mWireFormat = WireFormat.JSON;
+
+    /** Reason that the session failed, or {@code null} if it has not. */
+    private volatile String mFailure;
+
+    /** {@code true} once the session has finished, after which the loss of the connection is expected. */
+    private volatile boolean mClosing;
+
+    /**
+     * @param client Client used to open the WebSocket.
+     * @param serverAddress WebSocket URL of the server.
+     * @param preferredWireFormat {@code WireFormat} offered to the server.
+     * @param username Username requested by the session.
+     * @param chatroomName Name of the chatroom joined by the session.
+     * @param message Chat message that is sent.
+     * @param messageCount Amount of chat messages to send.
+     * @param messageRate Amount of chat messages to send per second. If {@code 0}, messages are sent as fast as
+     * possible.
+     * @param finished Counted down once the session has finished, before its connection is closed.
+     * @param closeAllowed Awaited before the connection is closed.
+     */
+    LoadSession(final OkHttpClient client, final String serverAddress, final WireFormat preferredWireFormat,
+                final String username, final String chatroomName, final String message, final int messageCount,
+                final int messageRate, final CountDownLatch finished, final CountDownLatch closeAllowed) {
+        mClient = client;
+        mServerAddress = serverAddress;
+        mPreferredWireFormat = preferredWireFormat;
+        mUsername = username;
+        mChatroomName = chatroomName;
+        mMessage = message;
+        mSendInterval = messageRate > 0 ? TimeUnit.SECONDS.toNanos(1) / messageRate : 0;
+        mLatencies = new long[messageCount];
+        mEchoes = new CountDownLatch(messageCount);
+        mFinished = finished;
+        mCloseAllowed = closeAllowed;
+
+        mPacketDispatcher = new PacketDispatcher(new PacketDispatcher.Listener() {
+            @Override
+            public void onPacketReceived(Packet packet) { }
+
+            @Override
+            public void onPacketRejected(Packet packet) {
+                fail(String.format("invalid Packet received: %s", packet));
+            }
+
+            @Override
+            public void onPacketDropped(Packet packet) { }
+        });
+        mPacketDispatcher.addHandler(new PacketHandler<ReceiveMessagePacket>() {
+            @Override
+            public void update(ReceiveMessagePacket packet) {
+                onEcho(packet);
+            }
+
+            @Override
+            public Class<ReceiveMessagePacket> packetType() {
+                return ReceiveMessagePacket.class;
+            }
+        });
+        mPacketDispatcher.addHandler(new ResponseHandler<>(UsernameResponsePacket.class));
+        mPacketDispatcher.addHandler(new ResponseHandler<>(JoinChatroomResponsePacket.class));
+    }
+
+    /**
+     * {@code ResponseHandler} queues responses for the session's thread to take (see {@code request()}).
+     * @param <T> Response {@code Packet} type.
+     */
+    private class ResponseHandler<T extends Packet> implements PacketHandler<T> {
+
+        /** Response {@code Packet} type. */
+        private final Class<T> mPacketType;
+
+        /**
+         * @param packetType Response {@code Packet} type.
+         */
+        ResponseHandler(final Class<T> packetType) {
+            mPacketType = packetType;
+        }
+
+        @Override
+        public void update(T packet) {
+            mResponses.add(packet);
+        }
+
+        @Override
+        public Class<T> packetType() {
+            return mPacketType;
+        }
+
+    }
+
+    @Override
+    public void run() {
+        try {
+            connect();
+            UsernameResponsePacket usernameResponse = request(new UsernameRequestPacket(mUsername),
+                    UsernameResponsePacket.class);
+            if(usernameResponse == null || !usernameResponse.getResponse()) {
+                fail("username was not assigned");
+                return;
+            }
+            JoinChatroomResponsePacket joinResponse = request(new JoinChatroomRequestPacket(mChatroomName),
+                    JoinChatroomResponsePacket.class);
+            if(joinResponse == null || !joinResponse.getResponse()) {
+                fail("chatroom could not be joined");
+                return;
+            }
+
+            sendMessages();
+            if(!mEchoes.await(TIMEOUT, TimeUnit.SECONDS)) {
+                fail(String.format("%d message(s) were not echoed", mEchoes.getCount()));
+            }
+        }
+        catch(InterruptedException exception) {
+            fail("interrupted");
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            close();
+        }
+    }
+
+    /**
+     * Reports that the session has finished, then closes the connection once allowed.
+     */
+    private void close() {
+        mClosing = true;
+        mFinished.countDown();
+        try {
+            mCloseAllowed.await();
+        }
+        catch(InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            WebSocket webSocket = mWebSocket;
+            if(webSocket != null) {
+                webSocket.close(1000, null);
+            }
+        }
+    }
+
+    /**
+     * Opens the WebSocket and awaits the server's acceptance.
+     * @throws InterruptedException If interrupted whilst waiting.
+     */
+    private void connect() throws InterruptedException {
+        Request.Builder requestBuilder = new Request.Builder().url(mServerAddress);
+        if(mPreferredWireFormat != WireFormat.JSON) {
+            requestBuilder.header(StandInServer.HEADER_SUBPROTOCOL, String.format("%s, %s",
+                    mPreferredWireFormat.getSubprotocol(), WireFormat.JSON.getSubprotocol()));
+        }
+        mWebSocket = mClient.newWebSocket(requestBuilder.build(), this);
+        if(!mOpen.await(TIMEOUT, TimeUnit.SECONDS)) {
+            fail("connection was not opened");
+        }
+    }
+
+    /**
+     * Sends a request and awaits its response.
+     * @param requestPacket Request {@code Packet} to send.
+     * @param responseType Response {@code Packet} type to await.
+     * @param <T> Response {@code Packet} type.
+     * @return Response, or {@code null} if none was received in time.
+     * @throws InterruptedException If interrupted whilst waiting.
+     */
+    private <T extends Packet> T request(final Packet requestPacket, final Class<T> responseType)
+            throws InterruptedException {
+        if(!send(requestPacket)) {
+            return null;
+        }
+        Packet response = mResponses.poll(TIMEOUT, TimeUnit.SECONDS);
+        return responseType.isInstance(response) ? responseType.cast(response) : null;
+    }
+
+    /**
+     * Sends the chat messages, pacing them at the configured rate.
+     */
+    private void sendMessages() {
+        long nextSendTime = System.nanoTime();
+        for(int i = 0; i < mLatencies.length && mFailure == null; i++) {
+            if(mSendInterval > 0) {
+                long delay = nextSendTime - System.nanoTime();
+                if(delay > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+                nextSendTime += mSendInterval;
+            }
+
+            mSendTimes.add(System.nanoTime());
+            if(!send(new SendMessagePacket(mMessage))) {
+                fail("message could not be sent");
+            }
+        }
+    }
+
+    /**
+     * Sends a {@code Packet} using the negotiated {@code WireFormat}.
+     * @param packet {@code Packet} to send.
+     * @return {@code true} if the {@code Packet} was queued by the WebSocket.
+     */
+    private boolean send(final Packet packet) {
+        WebSocket webSocket = mWebSocket;
+        if(webSocket == null) {
+            return false;
+        }
+        if(mWireFormat == WireFormat.BINARY) {
+            return webSocket.send(mFrameCodec.encode(packet, false));
+        }
+        return webSocket.send(packet.toString());
+    }
+
+    /**
+     * Records the send-to-echo latency of a chat message sent by the session. Chat messages sent by other sessions in
+     * the same chatroom are ignored.
+     * @param packet Received chat message.
+     */
+    private void onEcho(final ReceiveMessagePacket packet) {
+        if(!mUsername.equals(packet.getAuthor())) {
+            return;
+        }
+        Long sendTime = mSendTimes.poll();
+        if(sendTime != null && mLatencyCount < mLatencies.length) {
+            mLatencies[mLatencyCount++] = System.nanoTime() - sendTime;
+            mEchoes.countDown();
+        }
+    }
+
+    /**
+     * Records that the session failed and releases the session's thread.
+     * @param reason Reason that the session failed.
+     */
+    private void fail(final String reason) {
+        if(mFailure == null) {
+            mFailure = reason;
+        }
+        mOpen.countDown();
+        while(mEchoes.getCount() > 0) {
+            mEchoes.countDown();
+        }
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket, Response response) {
+        mWireFormat = WireFormat.fromSubprotocol(response.header(StandInServer.HEADER_SUBPROTOCOL));
+        mOpen.countDown();
+    }
+
+    @Override
+    public void onMessage(WebSocket webSocket, String text) {
+        Packet packet = PacketIdentifier.decode(text);
+        if(packet == null) {
+            fail(String.format("unknown Packet received: %s", text));
+            return;
+        }
+        mPacketDispatcher.dispatch(packet);
+    }
+
+    @Override
+    public void onMessage(WebSocket webSocket, ByteString bytes) {
+        Packet packet = null;
+        try {
+            packet = mFrameCodec.decode(bytes);
+        }
+        catch(IOException exception) {
+            fail(String.format("failed to decompress a frame: %s", exception.getMessage()));
+            return;
+        }
+        if(packet == null) {
+            fail(String.format("unknown Packet received: %s", bytes.hex()));
+            return;
+        }
+        mPacketDispatcher.dispatch(packet);
+    }
+
+    @Override
+    public void onClosing(WebSocket webSocket, int code, String reason) {
+        webSocket.close(1000, null);
+    }
+
+    @Override
+    public void onFailure(WebSocket webSocket, Throwable throwable, Response response) {
+        if(mClosing) {
+            return;
+        }
+        fail(String.format("connection failed: %s", throwable));
+    }
+
+    /**
+     * Returns the reason that the session failed.
+     * @return Reason that the session failed, or {@code null} if it did not.
+     */
+    String getFailure() {
+        return mFailure;
+    }
+
+    /**
+     * Returns the send-to-echo latencies of the echoed chat messages. Must only be called once the session's thread
+     * has finished.
+     * @return Send-to-echo latencies (in nanoseconds).
+     */
+    long[] getLatencies() {
+        long[] latencies = new long[mLatencyCount];
+        System.arraycopy(mLatencies, 0, latencies, 0, mLatencyCount);
+        return latencies;
+    }
+
+}
@@ -0,0 +1,275 @@
+package io.benreynolds.hottopics.loadtest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.benreynolds.hottopics.WireFormat;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+/**
+ * {@code LoadTest} runs many independent client sessions (see {@code LoadSession}) against an in-process
+ * {@code StandInServer} and reports the throughput, the send-to-echo latency percentiles and the rate at which the
+ * client threads allocate memory. Run with {@code ./gradlew :loadtest:run -Pargs="..."} or from the distribution
+ * built by {@code ./gradlew :loadtest:installDist}.
+ * <p>
+ * Options (all optional): {@code --sessions=N}, {@code --messages=N} (per session), {@code --rate=N} (messages per
+ * second per session, {@code 0} for as fast as possible), {@code --length=N} (characters per message),
+ * {@code --rooms=N} (sessions are spread over the chatrooms; by default each session has a chatroom of its own) and
+ * {@code --format=json|binary}.
+ */
+public class LoadTest {
+
+    /** Prefix of the names of the threads used by the client sessions (whose allocations are measured). */
+    private static final String CLIENT_THREAD_PREFIX = "LoadSession";
+
+    /** Prefix of the names of the threads that OkHttp uses to write to client WebSockets. */
+    private static final String CLIENT_WRITER_THREAD_PREFIX = "OkHttp WebSocket";
+
+    /** Amount of client sessions. */
+    private int mSessionCount = 50;
+
+    /** Amount of chat messages sent by each session. */
+    private int mMessageCount = 1000;
+
+    /** Amount of chat messages sent per second by each session. */
+    private int mMessageRate = 50;
+
+    /** Length of each chat message (in characters). */
+    private int mMessageLength = 64;
+
+    /** Amount of chatrooms that the sessions are spread over. If {@code 0}, each session has a chatroom of its own. */
+    private int mChatroomCount;
+
+    /** {@code WireFormat} offered to the server. */
+    private WireFormat mWireFormat = WireFormat.BINARY;
+
+    public static void main(String[] args) throws Exception {
+        LoadTest loadTest = new LoadTest();
+        for(String arg : args) {
+            loadTest.parseOption(arg);
+        }
+        loadTest.run();
+    }
+
+    /**
+     * Parses a command line option.
+     * @param option Option, in the form {@code --name=value}.
+     */
+    private void parseOption(final String option) {
+        int separator = option.indexOf('=');
+        if(!option.startsWith("--") || separator < 0) {
+            throw new IllegalArgumentException(String.format("Malformed option: \"%s\".", option));
+        }
+
+        String name = option.substring(2, separator);
+        String value = option.substring(separator + 1);
+        switch(name) {
+            case "sessions":
+                mSessionCount = Integer.parseInt(value);
+                break;
+            case "messages":
+                mMessageCount = Integer.parseInt(value);
+                break;
+            case "rate":
+                mMessageRate = Integer.parseInt(value);
+                break;
+            case "length":
+                mMessageLength = Integer.parseInt(value);
+                break;
+            case "rooms":
+                mChatroomCount = Integer.parseInt(value);
+                break;
+            case "format":
+                mWireFormat = WireFormat.valueOf(value.toUpperCase());
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("Unknown option: \"%s\".", option));
+        }
+    }
+
+    /**
+     * Runs the sessions to completion and prints the report.
+     * @throws Exception If the {@code StandInServer} could not be started or stopped.
+     */
+    private void run() throws Exception {
+        StandInServer server = new StandInServer();
+        server.start();
+
+        // Every session holds a connection (and, whilst it is open, one of the dispatcher's threads) for its lifetime.
+        ExecutorService executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), newThreadFactory(CLIENT_THREAD_PREFIX + " reader"));
+        Dispatcher dispatcher = new Dispatcher(executor);
+        dispatcher.setMaxRequests(mSessionCount);
+        dispatcher.setMaxRequestsPerHost(mSessionCount);
+        OkHttpClient client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .readTimeout(0, TimeUnit.MILLISECONDS)
+                .build();
+
+        StringBuilder messageBuilder = new StringBuilder(mMessageLength);
+        while(messageBuilder.length() < mMessageLength) {
+            messageBuilder.append((char)('a' + messageBuilder.length() % 26));
+        }
+        String message = messageBuilder.toString();
+
+        CountDownLatch finished = new CountDownLatch(mSessionCount);
+        CountDownLatch closeAllowed = new CountDownLatch(1);
+        List<LoadSession> sessions = new ArrayList<>(mSessionCount);
+        List<Thread> threads = new ArrayList<>(mSessionCount);
+        ThreadFactory sessionThreadFactory = newThreadFactory(CLIENT_THREAD_PREFIX);
+        for(int i = 0; i < mSessionCount; i++) {
+            String chatroomName = String.format("#load%d", mChatroomCount > 0 ? i % mChatroomCount : i);
+            LoadSession session = new LoadSession(client, server.getAddress(), mWireFormat, String.format("load%d", i),
+                    chatroomName, message, mMessageCount, mMessageRate, finished, closeAllowed);
+            sessions.add(session);
+            threads.add(sessionThreadFactory.newThread(session));
+        }
+
+        long startAllocated = getClientAllocatedBytes();
+        long startTime = System.nanoTime();
+        for(Thread thread : threads) {
+            thread.start();
+        }
+        // Allocations are measured before the sessions close their connections, whilst the client threads are alive.
+        finished.await();
+        long duration = System.nanoTime() - startTime;
+        long allocated = getClientAllocatedBytes() - startAllocated;
+        closeAllowed.countDown();
+        for(Thread thread : threads) {
+            thread.join();
+        }
+
+        client.dispatcher().executorService().shutdown();
+        server.shutdown();
+
+        report(sessions, duration, allocated);
+    }
+
+    /**
+     * Prints the results of the sessions.
+     * @param sessions Finished sessions.
+     * @param duration Duration of the run (in nanoseconds).
+     * @param allocated Amount of bytes allocated by the client threads during the run, or {@code -1} if unknown.
+     */
+    private void report(final List<LoadSession> sessions, final long duration, final long allocated) {
+        int failedCount = 0;
+        int latencyCount = 0;
+        List<long[]> sessionLatencies = new ArrayList<>(sessions.size());
+        for(LoadSession session : sessions) {
+            if(session.getFailure() != null) {
+                failedCount++;
+                System.out.println(String.format("Session failed: %s.", session.getFailure()));
+            }
+            long[] latencies = session.getLatencies();
+            sessionLatencies.add(latencies);
+            latencyCount += latencies.length;
+        }
+
+        long[] latencies = new long[latencyCount];
+        int offset = 0;
+        for(long[] sessionLatency : sessionLatencies) {
+            System.arraycopy(sessionLatency, 0, latencies, offset, sessionLatency.length);
+            offset += sessionLatency.length;
+        }
+        Arrays.sort(latencies);
+
+        double seconds = duration / (double)TimeUnit.SECONDS.toNanos(1);
+        System.out.println(String.format("Sessions: %d (%d failed), %s, %d message(s) of %d characters per session " +
+                "at %s, %d chatroom(s).", sessions.size(), failedCount, mWireFormat, mMessageCount, mMessageLength,
+                mMessageRate > 0 ? String.format("%d/s", mMessageRate) : "full speed",
+                mChatroomCount > 0 ? mChatroomCount : sessions.size()));
+        System.out.println(String.format("Throughput: %.0f echoes/s (%.1f per session) over %.2f s.",
+                latencyCount / seconds, latencyCount / seconds / sessions.size(), seconds));
+        System.out.println(String.format("Send-to-echo latency: p50 %d us, p99 %d us, p999 %d us, max %d us.",
+                toMicros(percentile(latencies, 0.5)), toMicros(percentile(latencies, 0.99)),
+                toMicros(percentile(latencies, 0.999)), toMicros(latencies.length > 0 ?
+                        latencies[latencies.length - 1] : 0)));
+        if(allocated >= 0) {
+            System.out.println(String.format("Allocation: %.1f KB/s per session (%d bytes per echo).",
+                    allocated / 1024.0 / seconds / sessions.size(), latencyCount > 0 ? allocated / latencyCount : 0));
+        }
+        else {
+            System.out.println("Allocation: not supported by this JVM.");
+        }
+    }
+
+    /**
+     * Returns the value at the specified percentile of sorted values (nearest-rank).
+     * @param sortedValues Values, sorted in ascending order.
+     * @param percentile Percentile, between {@code 0} and {@code 1}.
+     * @return Value at the percentile, or {@code 0} if there are no values.
+     */
+    private static long percentile(final long[] sortedValues, final double percentile) {
+        if(sortedValues.length == 0) {
+            return 0;
+        }
+        int rank = (int)Math.ceil(percentile * sortedValues.length);
+        return sortedValues[Math.max(0, Math.min(sortedValues.length - 1, rank - 1))];
+    }
+
+    /**
+     * Converts nanoseconds to microseconds.
+     * @param nanos Nanoseconds.
+     * @return Microseconds.
+     */
+    private static long toMicros(final long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    /**
+     * Returns the total amount of bytes allocated by the live client threads (the session threads, the threads that
+     * read their WebSockets and the threads that write them). Threads of the {@code StandInServer} are excluded.
+     * @return Total amount of bytes allocated by the client threads, or {@code -1} if the JVM cannot measure it.
+     */
+    private static long getClientAllocatedBytes() {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if(!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean allocationMXBean = (com.sun.management.ThreadMXBean)threadMXBean;
+        if(!allocationMXBean.isThreadAllocatedMemorySupported() || !allocationMXBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+
+        long allocated = 0;
+        for(ThreadInfo threadInfo : threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds())) {
+            if(threadInfo == null) {
+                continue;
+            }
+            String threadName = threadInfo.getThreadName();
+            if(threadName.startsWith(CLIENT_THREAD_PREFIX) || threadName.startsWith(CLIENT_WRITER_THREAD_PREFIX)) {
+                allocated += Math.max(0, allocationMXBean.getThreadAllocatedBytes(threadInfo.getThreadId()));
+            }
+        }
+        return allocated;
+    }
+
+    /**
+     * Creates a {@code ThreadFactory} that creates daemon threads with numbered names.
+     * @param name Prefix of the names of the threads.
+     * @return {@code ThreadFactory}.
+     */
+    private static ThreadFactory newThreadFactory(final String name) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, String.format("%s %d", name, threadCount.getAndIncrement()));
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+}
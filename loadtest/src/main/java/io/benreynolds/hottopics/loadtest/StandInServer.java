@@ -0,0 +1,279 @@
+package io.benreynolds.hottopics.loadtest;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import io.benreynolds.hottopics.FrameCodec;
+import io.benreynolds.hottopics.WireFormat;
+import io.benreynolds.hottopics.packets.JoinChatroomRequestPacket;
+import io.benreynolds.hottopics.packets.JoinChatroomResponsePacket;
+import io.benreynolds.hottopics.packets.Packet;
+import io.benreynolds.hottopics.packets.PacketIdentifier;
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+import io.benreynolds.hottopics.packets.SendMessagePacket;
+import io.benreynolds.hottopics.packets.UsernameRequestPacket;
+import io.benreynolds.hottopics.packets.UsernameResponsePacket;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.ByteString;
+
+/**
+ * {@code StandInServer} is an in-process stand-in for the Hot Topics server, used by the {@code LoadTest}. It accepts
+ * every username and chatroom, and relays each chat message to every user in the sender's chatroom (including the
+ * sender, who receives it as an echo carrying the message's client-generated ID). It negotiates the {@code WireFormat} offered by the client and the correlation
+ * extension (echoing the correlation ID of each request in its response), but no other extensions.
+ */
+class StandInServer {
+
+    /** Name of the HTTP header used to negotiate the {@code WireFormat}. */
+    static final String HEADER_SUBPROTOCOL = "Sec-WebSocket-Protocol";
+
+    /** Name of the HTTP header used to negotiate extensions. */
+    static final String HEADER_EXTENSIONS = "X-HotTopics-Extensions";
+
+    /** Name of the extension under which correlation IDs are echoed. */
+    static final String EXTENSION_CORRELATION = "correlation";
+
+    /** Logger of the underlying server, which is quietened as it logs every request (held so that its level is not
+     *  lost if it is garbage collected). */
+    private static final Logger SERVER_LOGGER = Logger.getLogger(MockWebServer.class.getName());
+
+    /** Path that clients connect to. */
+    private static final String PATH = "/hottopics/chat";
+
+    /** Underlying server. */
+    private final MockWebServer mServer = new MockWebServer();
+
+    /** Connections of the users in each chatroom, keyed by chatroom name. */
+    private final ConcurrentMap<String, List<Connection>> mChatrooms = new ConcurrentHashMap<>();
+
+    /** ID assigned to the next relayed chat message. */
+    private final AtomicLong mNextMessageId = new AtomicLong();
+
+    /**
+     * {@code Connection} handles the WebSocket of a single client.
+     */
+    private class Connection extends WebSocketListener {
+
+        /** {@code WireFormat} negotiated with the client. */
+        private final WireFormat mWireFormat;
+
+        /** Encodes and decodes binary frames. */
+        private final FrameCodec mFrameCodec = new FrameCodec();
+
+        /** WebSocket of the client. */
+        private volatile WebSocket mWebSocket;
+
+        /** Username assigned to the client. */
+        private volatile String mUsername;
+
+        /** Connections of the users in the chatroom that the client joined, or {@code null} if it has not joined one. */
+        private volatile List<Connection> mChatroom;
+
+        /**
+         * @param wireFormat {@code WireFormat} negotiated with the client.
+         */
+        Connection(final WireFormat wireFormat) {
+            mWireFormat = wireFormat;
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket, Response response) {
+            mWebSocket = webSocket;
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            onPacket(PacketIdentifier.decode(text));
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, ByteString bytes) {
+            try {
+                onPacket(mFrameCodec.decode(bytes));
+            }
+            catch(IOException exception) {
+                webSocket.cancel();
+            }
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            webSocket.close(code, null);
+            leave();
+        }
+
+        @Override
+        public void onFailure(WebSocket webSocket, Throwable throwable, Response response) {
+            leave();
+        }
+
+        /**
+         * Handles a {@code Packet} received from the client.
+         * @param packet Received {@code Packet}, or {@code null} if it could not be decoded.
+         */
+        private void onPacket(final Packet packet) {
+            if(packet == null || !packet.isValid()) {
+                return;
+            }
+
+            if(packet instanceof UsernameRequestPacket) {
+                mUsername = ((UsernameRequestPacket)packet).getUsername();
+                respond(packet, new UsernameResponsePacket(true));
+            }
+            else if(packet instanceof JoinChatroomRequestPacket) {
+                join(((JoinChatroomRequestPacket)packet).getChatroomName());
+                respond(packet, new JoinChatroomResponsePacket(true));
+            }
+            else if(packet instanceof SendMessagePacket) {
+                SendMessagePacket sendMessagePacket = (SendMessagePacket)packet;
+                relay(new ReceiveMessagePacket(mUsername, sendMessagePacket.getMessage(),
+                        mNextMessageId.getAndIncrement(), sendMessagePacket.getClientId()));
+            }
+        }
+
+        /**
+         * Moves the client to a chatroom.
+         * @param chatroomName Name of the chatroom.
+         */
+        private void join(final String chatroomName) {
+            leave();
+            List<Connection> connections = mChatrooms.get(chatroomName);
+            if(connections == null) {
+                mChatrooms.putIfAbsent(chatroomName, new CopyOnWriteArrayList<Connection>());
+                connections = mChatrooms.get(chatroomName);
+            }
+            connections.add(this);
+            mChatroom = connections;
+        }
+
+        /**
+         * Removes the client from its chatroom.
+         */
+        private void leave() {
+            List<Connection> connections = mChatroom;
+            if(connections != null) {
+                connections.remove(this);
+                mChatroom = null;
+            }
+        }
+
+        /**
+         * Relays a chat message to every user in the client's chatroom. The message is encoded at most once per
+         * {@code WireFormat}.
+         * @param message Chat message.
+         */
+        private void relay(final ReceiveMessagePacket message) {
+            List<Connection> connections = mChatroom;
+            if(connections == null) {
+                return;
+            }
+
+            String text = null;
+            ByteString bytes = null;
+            for(Connection connection : connections) {
+                WebSocket webSocket = connection.mWebSocket;
+                if(webSocket == null) {
+                    continue;
+                }
+                if(connection.mWireFormat == WireFormat.BINARY) {
+                    if(bytes == null) {
+                        bytes = mFrameCodec.encode(message, false);
+                    }
+                    webSocket.send(bytes);
+                }
+                else {
+                    if(text == null) {
+                        text = message.toString();
+                    }
+                    webSocket.send(text);
+                }
+            }
+        }
+
+        /**
+         * Sends the response to a request, echoing the request's correlation ID.
+         * @param request Request {@code Packet}.
+         * @param response Response {@code Packet} to send.
+         */
+        private void respond(final Packet request, final Packet response) {
+            response.setCorrelationId(request.getCorrelationId());
+            send(response);
+        }
+
+        /**
+         * Sends a {@code Packet} to the client using the negotiated {@code WireFormat}.
+         * @param packet {@code Packet} to send.
+         */
+        private void send(final Packet packet) {
+            WebSocket webSocket = mWebSocket;
+            if(webSocket == null) {
+                return;
+            }
+            if(mWireFormat == WireFormat.BINARY) {
+                webSocket.send(mFrameCodec.encode(packet, false));
+            }
+            else {
+                webSocket.send(packet.toString());
+            }
+        }
+
+    }
+
+    /**
+     * Starts the {@code StandInServer} on a free local port.
+     * @throws IOException If the server could not be started.
+     */
+    void start() throws IOException {
+        SERVER_LOGGER.setLevel(Level.WARNING);
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                WireFormat wireFormat = WireFormat.JSON;
+                String subprotocols = request.getHeader(HEADER_SUBPROTOCOL);
+                if(subprotocols != null && subprotocols.contains(WireFormat.BINARY.getSubprotocol())) {
+                    wireFormat = WireFormat.BINARY;
+                }
+
+                MockResponse response = new MockResponse().withWebSocketUpgrade(new Connection(wireFormat));
+                if(wireFormat != WireFormat.JSON) {
+                    response.setHeader(HEADER_SUBPROTOCOL, wireFormat.getSubprotocol());
+                }
+                String extensions = request.getHeader(HEADER_EXTENSIONS);
+                if(extensions != null && extensions.contains(EXTENSION_CORRELATION)) {
+                    response.setHeader(HEADER_EXTENSIONS, EXTENSION_CORRELATION);
+                }
+                return response;
+            }
+        });
+        mServer.start();
+    }
+
+    /**
+     * Returns the WebSocket URL that clients connect to.
+     * @return WebSocket URL of the {@code StandInServer}.
+     */
+    String getAddress() {
+        return String.format("ws://%s:%d%s", mServer.getHostName(), mServer.getPort(), PATH);
+    }
+
+    /**
+     * Stops the {@code StandInServer}.
+     * @throws IOException If the server could not be stopped.
+     */
+    void shutdown() throws IOException {
+        mServer.shutdown();
+    }
+
+}
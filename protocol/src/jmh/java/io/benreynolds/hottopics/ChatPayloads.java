@@ -0,0 +1,50 @@
+package io.benreynolds.hottopics;
+
+import io.benreynolds.hottopics.packets.Chatroom;
+import io.benreynolds.hottopics.packets.ChatroomsResponsePacket;
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+
+/**
+ * {@code ChatPayloads} builds the '{@code Packet}'s used by the benchmarks, sized to resemble the traffic of a busy Hot
+ * Topics server.
+ */
+final class ChatPayloads {
+
+    /** Text that chat messages are built from. */
+    private static final String TEXT = "Did anyone see the match last night? Unbelievable, \u00fcber-close finish! ";
+
+    private ChatPayloads() { }
+
+    /**
+     * Returns a chat message of the specified length.
+     * @param length Length of the chat message (in characters).
+     * @return Chat message.
+     */
+    static String message(final int length) {
+        StringBuilder message = new StringBuilder(length);
+        while(message.length() < length) {
+            message.append(TEXT, 0, Math.min(TEXT.length(), length - message.length()));
+        }
+        return message.toString();
+    }
+
+    /**
+     * Returns a chatroom list in which every chatroom has a full preview (see {@code Chatroom.PREVIEW_SIZE_MAX}).
+     * @param chatroomCount Amount of chatrooms.
+     * @param messageLength Length of each message in the previews (in characters).
+     * @return Chatroom list.
+     */
+    static ChatroomsResponsePacket chatrooms(final int chatroomCount, final int messageLength) {
+        Chatroom[] chatrooms = new Chatroom[chatroomCount];
+        for(int i = 0; i < chatroomCount; i++) {
+            chatrooms[i] = new Chatroom(String.format("#trend%d", i));
+            chatrooms[i].setSize(10 + i);
+            for(int j = 0; j < Chatroom.PREVIEW_SIZE_MAX; j++) {
+                chatrooms[i].getMessages().add(new ReceiveMessagePacket(String.format("user%d", j),
+                        message(messageLength), (long)j));
+            }
+        }
+        return new ChatroomsResponsePacket(chatrooms);
+    }
+
+}
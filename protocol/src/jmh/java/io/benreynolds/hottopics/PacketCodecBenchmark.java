@@ -0,0 +1,85 @@
+package io.benreynolds.hottopics;
+
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import io.benreynolds.hottopics.packets.BinaryPacketCodec;
+import io.benreynolds.hottopics.packets.Packet;
+import io.benreynolds.hottopics.packets.PacketIdentifier;
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+import okio.ByteString;
+
+/**
+ * Measures the cost of converting a chat message ({@code ReceiveMessagePacket}, the most frequently received
+ * {@code Packet}) between its object, JSON and binary representations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PacketCodecBenchmark {
+
+    /** Length of the chat message (in characters): a short reply, a typical message and a pasted paragraph. */
+    @Param({"32", "256", "2048"})
+    public int mMessageLength;
+
+    /** Chat message. */
+    private ReceiveMessagePacket mPacket;
+
+    /** JSON representation of the chat message. */
+    private String mJson;
+
+    /** JSON representation of the chat message with its ID last, as written by a reflective serializer. */
+    private String mJsonIdLast;
+
+    /** Binary representation of the chat message. */
+    private ByteString mBinary;
+
+    @Setup
+    public void setUp() {
+        mPacket = new ReceiveMessagePacket("Benchmark", ChatPayloads.message(mMessageLength), 1000L);
+        mJson = mPacket.toString();
+        mJsonIdLast = new Gson().toJson(mPacket);
+        mBinary = BinaryPacketCodec.encode(mPacket);
+    }
+
+    @Benchmark
+    public ReceiveMessagePacket convertToPacket() {
+        return PacketIdentifier.convertToPacket(mJson, ReceiveMessagePacket.class);
+    }
+
+    @Benchmark
+    public Packet decodeJson() {
+        return PacketIdentifier.decode(mJson);
+    }
+
+    @Benchmark
+    public Packet decodeJsonIdLast() {
+        return PacketIdentifier.decode(mJsonIdLast);
+    }
+
+    @Benchmark
+    public Packet decodeBinary() {
+        return BinaryPacketCodec.decode(mBinary);
+    }
+
+    @Benchmark
+    public String packetToString() {
+        return mPacket.toString();
+    }
+
+    @Benchmark
+    public ByteString encodeBinary() {
+        return BinaryPacketCodec.encode(mPacket);
+    }
+
+}
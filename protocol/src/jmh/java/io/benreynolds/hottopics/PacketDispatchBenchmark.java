@@ -0,0 +1,153 @@
+package io.benreynolds.hottopics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import io.benreynolds.hottopics.packets.ChatroomsResponsePacket;
+import io.benreynolds.hottopics.packets.Packet;
+import io.benreynolds.hottopics.packets.PacketIdentifier;
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+import okio.ByteString;
+
+/**
+ * Measures the receive path of {@code WebSocketCommunicator.onMessage()}: decoding a frame and dispatching the
+ * {@code Packet} through a {@code PacketDispatcher} to a {@code PacketHandler} or, for chatroom lists, to a
+ * {@code PacketMailbox} that is then polled.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PacketDispatchBenchmark {
+
+    /**
+     * {@code Receiver} holds a {@code PacketDispatcher} configured as the {@code WebSocketCommunicator} configures
+     * its own: chat messages are passed to a {@code PacketHandler}, chatroom lists are stored in a mailbox.
+     */
+    @State(Scope.Thread)
+    public static class Receiver {
+
+        /** Dispatcher under test. */
+        PacketDispatcher mPacketDispatcher;
+
+        /** Decodes binary frames. */
+        FrameCodec mFrameCodec;
+
+        /** Amount of chat messages passed to the {@code PacketHandler}. */
+        long mHandledCount;
+
+        @Setup
+        public void setUp() {
+            mFrameCodec = new FrameCodec();
+            mPacketDispatcher = new PacketDispatcher(new PacketDispatcher.Listener() {
+                @Override
+                public void onPacketReceived(Packet packet) { }
+
+                @Override
+                public void onPacketRejected(Packet packet) { }
+
+                @Override
+                public void onPacketDropped(Packet packet) { }
+            });
+            mPacketDispatcher.configureMailbox(ChatroomsResponsePacket.class,
+                    PacketDispatcher.MAILBOX_CAPACITY_DEFAULT, PacketDispatcher.MAILBOX_OVERFLOW_POLICY_DEFAULT);
+            mPacketDispatcher.addHandler(new PacketHandler<ReceiveMessagePacket>() {
+                @Override
+                public void update(ReceiveMessagePacket packet) {
+                    mHandledCount++;
+                }
+
+                @Override
+                public Class<ReceiveMessagePacket> packetType() {
+                    return ReceiveMessagePacket.class;
+                }
+            });
+        }
+
+    }
+
+    /**
+     * {@code MessageFrames} holds a chat message encoded as a text (JSON) frame and as a binary frame.
+     */
+    @State(Scope.Benchmark)
+    public static class MessageFrames {
+
+        /** Length of the chat message (in characters). */
+        @Param({"32", "256", "2048"})
+        public int mMessageLength;
+
+        /** Chat message as a text frame. */
+        String mText;
+
+        /** Chat message as a binary frame. */
+        ByteString mBinary;
+
+        @Setup
+        public void setUp() {
+            ReceiveMessagePacket packet = new ReceiveMessagePacket("Benchmark", ChatPayloads.message(mMessageLength),
+                    1000L);
+            mText = packet.toString();
+            mBinary = new FrameCodec().encode(packet, false);
+        }
+
+    }
+
+    /**
+     * {@code ChatroomFrames} holds a chatroom list (the largest {@code Packet} received in normal use) encoded as a
+     * text (JSON) frame and as a binary frame.
+     */
+    @State(Scope.Benchmark)
+    public static class ChatroomFrames {
+
+        /** Amount of chatrooms listed. */
+        @Param({"10", "50"})
+        public int mChatroomCount;
+
+        /** Chatroom list as a text frame. */
+        String mText;
+
+        /** Chatroom list as a binary frame. */
+        ByteString mBinary;
+
+        @Setup
+        public void setUp() {
+            ChatroomsResponsePacket packet = ChatPayloads.chatrooms(mChatroomCount, 64);
+            mText = packet.toString();
+            mBinary = new FrameCodec().encode(packet, false);
+        }
+
+    }
+
+    @Benchmark
+    public long dispatchTextMessage(final Receiver receiver, final MessageFrames frames) {
+        receiver.mPacketDispatcher.dispatch(PacketIdentifier.decode(frames.mText));
+        return receiver.mHandledCount;
+    }
+
+    @Benchmark
+    public long dispatchBinaryMessage(final Receiver receiver, final MessageFrames frames) throws IOException {
+        receiver.mPacketDispatcher.dispatch(receiver.mFrameCodec.decode(frames.mBinary));
+        return receiver.mHandledCount;
+    }
+
+    @Benchmark
+    public ChatroomsResponsePacket pollTextChatrooms(final Receiver receiver, final ChatroomFrames frames) {
+        receiver.mPacketDispatcher.dispatch(PacketIdentifier.decode(frames.mText));
+        return receiver.mPacketDispatcher.pollPacket(ChatroomsResponsePacket.class);
+    }
+
+    @Benchmark
+    public ChatroomsResponsePacket pollBinaryChatrooms(final Receiver receiver, final ChatroomFrames frames)
+            throws IOException {
+        receiver.mPacketDispatcher.dispatch(receiver.mFrameCodec.decode(frames.mBinary));
+        return receiver.mPacketDispatcher.pollPacket(ChatroomsResponsePacket.class);
+    }
+
+}
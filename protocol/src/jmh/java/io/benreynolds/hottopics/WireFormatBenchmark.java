@@ -0,0 +1,108 @@
+package io.benreynolds.hottopics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import io.benreynolds.hottopics.packets.BinaryPacketCodec;
+import io.benreynolds.hottopics.packets.Packet;
+import io.benreynolds.hottopics.packets.PacketIdentifier;
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+import okio.ByteString;
+
+/**
+ * Compares the JSON and binary wire formats for a chat message and for a chatroom list (the largest {@code Packet}
+ * received in normal use): the cost of encoding and decoding each payload is measured by the benchmarks, and the
+ * amount of bytes each payload occupies on the wire is printed by {@code main()} (run
+ * {@code './gradlew :protocol:wireSizes'}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WireFormatBenchmark {
+
+    /** Payloads: chat messages of 32 and 256 characters, and lists of 10 and 50 chatrooms with full previews. */
+    private static final String[] PAYLOADS = {"message32", "message256", "chatrooms10", "chatrooms50"};
+
+    /** Length of each message in a chatroom's preview (in characters). */
+    private static final int PREVIEW_MESSAGE_LENGTH = 64;
+
+    /** Payload (one of {@code PAYLOADS}). */
+    @Param({"message32", "message256", "chatrooms10", "chatrooms50"})
+    public String mPayload;
+
+    /** Wire format that the payload is encoded with. */
+    @Param({"JSON", "BINARY"})
+    public WireFormat mWireFormat;
+
+    /** Payload {@code Packet}. */
+    private Packet mPacket;
+
+    /** Payload, as sent on the wire. */
+    private ByteString mEncoded;
+
+    @Setup
+    public void setUp() {
+        mPacket = createPayload(mPayload);
+        mEncoded = encode(mPacket, mWireFormat);
+    }
+
+    @Benchmark
+    public ByteString encode() {
+        return encode(mPacket, mWireFormat);
+    }
+
+    @Benchmark
+    public Packet decode() {
+        return mWireFormat == WireFormat.JSON ? PacketIdentifier.decode(mEncoded.utf8()) :
+                BinaryPacketCodec.decode(mEncoded);
+    }
+
+    /**
+     * Creates a payload {@code Packet}.
+     * @param payload Payload (one of {@code PAYLOADS}).
+     * @return Payload {@code Packet}.
+     */
+    private static Packet createPayload(final String payload) {
+        if(payload.startsWith("message")) {
+            return new ReceiveMessagePacket("Benchmark",
+                    ChatPayloads.message(Integer.parseInt(payload.substring("message".length()))), 1000L);
+        }
+        return ChatPayloads.chatrooms(Integer.parseInt(payload.substring("chatrooms".length())),
+                PREVIEW_MESSAGE_LENGTH);
+    }
+
+    /**
+     * Encodes a {@code Packet} as it is sent on the wire (JSON is sent as UTF-8 text).
+     * @param packet {@code Packet} to encode.
+     * @param wireFormat Wire format to encode the {@code Packet} with.
+     * @return Encoded {@code Packet}.
+     */
+    private static ByteString encode(final Packet packet, final WireFormat wireFormat) {
+        return wireFormat == WireFormat.JSON ? ByteString.encodeUtf8(packet.toString()) :
+                BinaryPacketCodec.encode(packet);
+    }
+
+    /**
+     * Prints the amount of bytes that each payload occupies on the wire in each wire format.
+     * @param args Unused.
+     */
+    public static void main(final String[] args) {
+        System.out.println(String.format("%-12s %10s %10s %8s", "payload", "JSON", "BINARY", "ratio"));
+        for(String payload : PAYLOADS) {
+            Packet packet = createPayload(payload);
+            int jsonSize = encode(packet, WireFormat.JSON).size();
+            int binarySize = encode(packet, WireFormat.BINARY).size();
+            System.out.println(String.format("%-12s %10d %10d %7.2fx", payload, jsonSize, binarySize,
+                    jsonSize / (double)binarySize));
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+package io.benreynolds.hottopics;
+
+import java.io.IOException;
+
+import io.benreynolds.hottopics.packets.BinaryPacketCodec;
+import io.benreynolds.hottopics.packets.Packet;
+import io.benreynolds.hottopics.packets.PacketIdentifier;
+import okio.Buffer;
+import okio.ByteString;
+
+/**
+ * {@code FrameCodec} converts between '{@code Packet}'s and the binary WebSocket frames exchanged with the Hot Topics
+ * server. Binary frames consist of a flags byte followed by a {@code Packet} encoded using the
+ * {@code BinaryPacketCodec} (or, if {@code FLAG_JSON} is set, as JSON). If {@code FLAG_DEFLATE} is set, the
+ * {@code Packet} is compressed (see {@code FrameCompressor}). Text frames are plain JSON and are decoded by
+ * {@code PacketIdentifier.decode()}.
+ */
+public class FrameCodec {
+
+    /** Binary frame flags (the first byte of every binary frame): no flags set, the payload is a {@code Packet}
+     *  encoded using the {@code BinaryPacketCodec}. */
+    public static final int FLAGS_NONE = 0;
+
+    /** Binary frame flag: the payload is compressed (see {@code FrameCompressor}). */
+    public static final int FLAG_DEFLATE = 1;
+
+    /** Binary frame flag: the payload is a JSON {@code Packet} rather than a binary one. Only used for compressed
+     *  JSON, as uncompressed JSON is sent in text frames. */
+    public static final int FLAG_JSON = 1 << 1;
+
+    /** Binary frame flags that are understood by the {@code FrameCodec}. */
+    private static final int FLAGS_KNOWN = FLAG_DEFLATE | FLAG_JSON;
+
+    /** Compresses and decompresses frame payloads. */
+    private final FrameCompressor mFrameCompressor = new FrameCompressor(FrameCompressor.THRESHOLD_DEFAULT);
+
+    /**
+     * Decodes a binary frame into a {@code Packet}. The returned {@code Packet} is not validated (see
+     * {@code Packet.isValid()}).
+     * @param frame Binary frame.
+     * @return Decoded {@code Packet}. If the frame has unknown flags or does not contain a known {@code Packet},
+     * returns {@code null}.
+     * @throws IOException If the frame's payload could not be decompressed.
+     */
+    public Packet decode(final ByteString frame) throws IOException {
+        int flags = frame.size() > 0 ? frame.getByte(0) & 0xFF : -1;
+        if(flags < 0 || (flags & ~FLAGS_KNOWN) != 0) {
+            return null;
+        }
+
+        ByteString payload = frame.substring(1);
+        if((flags & FLAG_DEFLATE) != 0) {
+            payload = mFrameCompressor.inflate(payload);
+        }
+        return (flags & FLAG_JSON) != 0 ? PacketIdentifier.decode(payload.utf8()) : BinaryPacketCodec.decode(payload);
+    }
+
+    /**
+     * Encodes a {@code Packet} into a binary frame using the {@code BinaryPacketCodec}.
+     * @param packet {@code Packet} to encode.
+     * @param compress {@code true} if the payload may be compressed (see {@code encode(ByteString, int, boolean)}).
+     * @return Binary frame. If the {@code Packet} cannot be encoded, returns {@code null}.
+     */
+    public ByteString encode(final Packet packet, final boolean compress) {
+        Buffer buffer = new Buffer();
+        if(!BinaryPacketCodec.encode(buffer, packet)) {
+            return null;
+        }
+        return encode(buffer.readByteString(), FLAGS_NONE, compress);
+    }
+
+    /**
+     * Prefixes a payload with the binary frame flags, first compressing it if {@code compress} is {@code true} and
+     * the payload is large enough for compression to be worthwhile.
+     * @param payload Encoded {@code Packet}.
+     * @param flags Binary frame flags describing the payload.
+     * @param compress {@code true} if the payload may be compressed.
+     * @return Binary frame.
+     */
+    public ByteString encode(ByteString payload, int flags, final boolean compress) {
+        if(compress && mFrameCompressor.shouldCompress(payload.size())) {
+            ByteString compressedPayload = mFrameCompressor.deflate(payload);
+            if(compressedPayload.size() < payload.size()) {
+                payload = compressedPayload;
+                flags |= FLAG_DEFLATE;
+            }
+        }
+        return new Buffer().writeByte(flags).write(payload).readByteString();
+    }
+
+    /**
+     * Returns {@code true} if a payload of the specified size is large enough for compression to be worthwhile.
+     * @param size Size of the payload (in bytes).
+     * @return {@code true} if the payload should be compressed.
+     */
+    public boolean shouldCompress(final long size) {
+        return mFrameCompressor.shouldCompress(size);
+    }
+
+    /**
+     * Returns a summary of the compression ratio achieved and the CPU time spent compressing and decompressing frames.
+     * @return Summary of the compression ratio and CPU time.
+     */
+    public String getCompressionStatistics() {
+        return mFrameCompressor.toString();
+    }
+
+}
@@ -0,0 +1,179 @@
+package io.benreynolds.hottopics;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import okio.Buffer;
+import okio.ByteString;
+
+/**
+ * {@code FrameCompressor} compresses and decompresses WebSocket frame payloads using raw DEFLATE. Each frame is
+ * compressed independently. Only payloads of at least {@code getThreshold()} bytes are worth compressing; small
+ * '{@code Packet}'s (such as '{@code AcknowledgementResponsePacket}'s) are sent as-is. The {@code FrameCompressor}
+ * records the amount of bytes it has processed and the time it has spent doing so, allowing the compression ratio and
+ * CPU cost to be reported.
+ */
+class FrameCompressor {
+
+    /** Default minimum payload size (in bytes) that is compressed. */
+    static final int THRESHOLD_DEFAULT = 512;
+
+    /** Maximum size of a decompressed payload (in bytes), matching OkHttp's maximum message size. */
+    private static final long MAX_INFLATED_SIZE = 16 * 1024 * 1024;
+
+    /** Size of the buffer used whilst compressing and decompressing. */
+    private static final int CHUNK_SIZE = 8192;
+
+    /** Minimum payload size (in bytes) that is compressed. */
+    private final int mThreshold;
+
+    /** Compressor (guarded by {@code this}). */
+    private final Deflater mDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+    /** Decompressor (guarded by {@code this}). */
+    private final Inflater mInflater = new Inflater(true);
+
+    /** Buffer used whilst compressing and decompressing (guarded by {@code this}). */
+    private final byte[] mChunk = new byte[CHUNK_SIZE];
+
+    /** Amount of payload bytes that have been compressed (guarded by {@code this}). */
+    private long mDeflatedInputBytes;
+
+    /** Amount of bytes produced by compression (guarded by {@code this}). */
+    private long mDeflatedOutputBytes;
+
+    /** Time spent compressing (in nanoseconds, guarded by {@code this}). */
+    private long mDeflateTime;
+
+    /** Amount of compressed bytes that have been decompressed (guarded by {@code this}). */
+    private long mInflatedInputBytes;
+
+    /** Amount of bytes produced by decompression (guarded by {@code this}). */
+    private long mInflatedOutputBytes;
+
+    /** Time spent decompressing (in nanoseconds, guarded by {@code this}). */
+    private long mInflateTime;
+
+    /**
+     * @param threshold Minimum payload size (in bytes) that is compressed.
+     */
+    FrameCompressor(final int threshold) {
+        mThreshold = threshold;
+    }
+
+    /**
+     * Returns the minimum payload size (in bytes) that is compressed.
+     * @return Minimum payload size (in bytes) that is compressed.
+     */
+    int getThreshold() {
+        return mThreshold;
+    }
+
+    /**
+     * Returns {@code true} if a payload of the specified size should be compressed.
+     * @param size Payload size (in bytes).
+     * @return {@code true} if a payload of the specified size should be compressed.
+     */
+    boolean shouldCompress(final long size) {
+        return size >= mThreshold;
+    }
+
+    /**
+     * Compresses a payload.
+     * @param payload Payload to compress.
+     * @return Compressed payload.
+     */
+    synchronized ByteString deflate(final ByteString payload) {
+        long startTime = System.nanoTime();
+        Buffer output = new Buffer();
+
+        mDeflater.reset();
+        mDeflater.setInput(payload.toByteArray());
+        mDeflater.finish();
+        while(!mDeflater.finished()) {
+            int count = mDeflater.deflate(mChunk);
+            output.write(mChunk, 0, count);
+        }
+
+        mDeflatedInputBytes += payload.size();
+        mDeflatedOutputBytes += output.size();
+        mDeflateTime += System.nanoTime() - startTime;
+        return output.readByteString();
+    }
+
+    /**
+     * Decompresses a payload.
+     * @param payload Compressed payload.
+     * @return Decompressed payload.
+     * @throws IOException If the payload is malformed or decompresses to more than the maximum message size.
+     */
+    synchronized ByteString inflate(final ByteString payload) throws IOException {
+        long startTime = System.nanoTime();
+        Buffer output = new Buffer();
+
+        mInflater.reset();
+        mInflater.setInput(payload.toByteArray());
+        try {
+            while(!mInflater.finished()) {
+                int count = mInflater.inflate(mChunk);
+                if(count == 0 && (mInflater.needsInput() || mInflater.needsDictionary())) {
+                    throw new IOException("Truncated DEFLATE payload.");
+                }
+                output.write(mChunk, 0, count);
+                if(output.size() > MAX_INFLATED_SIZE) {
+                    throw new IOException("DEFLATE payload exceeds the maximum message size.");
+                }
+            }
+        }
+        catch(DataFormatException exception) {
+            throw new IOException(exception);
+        }
+
+        mInflatedInputBytes += payload.size();
+        mInflatedOutputBytes += output.size();
+        mInflateTime += System.nanoTime() - startTime;
+        return output.readByteString();
+    }
+
+    /**
+     * Returns the ratio of compressed bytes to uncompressed bytes across all compressed payloads (lower is better).
+     * @return Ratio of compressed bytes to uncompressed bytes. If nothing has been compressed, returns {@code 1.0}.
+     */
+    synchronized double getCompressionRatio() {
+        return mDeflatedInputBytes > 0 ? (double)mDeflatedOutputBytes / mDeflatedInputBytes : 1.0;
+    }
+
+    /**
+     * Returns the ratio of compressed bytes to decompressed bytes across all decompressed payloads (lower is better).
+     * @return Ratio of compressed bytes to decompressed bytes. If nothing has been decompressed, returns {@code 1.0}.
+     */
+    synchronized double getDecompressionRatio() {
+        return mInflatedOutputBytes > 0 ? (double)mInflatedInputBytes / mInflatedOutputBytes : 1.0;
+    }
+
+    /**
+     * Returns the total time spent compressing (in nanoseconds).
+     * @return Total time spent compressing (in nanoseconds).
+     */
+    synchronized long getDeflateTime() {
+        return mDeflateTime;
+    }
+
+    /**
+     * Returns the total time spent decompressing (in nanoseconds).
+     * @return Total time spent decompressing (in nanoseconds).
+     */
+    synchronized long getInflateTime() {
+        return mInflateTime;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("deflate: %d -> %d bytes (%.2f) in %d us, inflate: %d -> %d bytes (%.2f) in %d us",
+                mDeflatedInputBytes, mDeflatedOutputBytes, getCompressionRatio(), mDeflateTime / 1000,
+                mInflatedInputBytes, mInflatedOutputBytes, getDecompressionRatio(), mInflateTime / 1000);
+    }
+
+}
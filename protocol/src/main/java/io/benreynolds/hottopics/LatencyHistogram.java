@@ -0,0 +1,155 @@
+package io.benreynolds.hottopics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code LatencyHistogram} records durations (in nanoseconds) into logarithmic buckets, four per power of two, meaning
+ * that reported percentiles are within 25% of the recorded values. Bucket counts are held in a {@code StripedCounter},
+ * so recording is safe from any thread, does not contend and never allocates.
+ */
+public class LatencyHistogram {
+
+    /** Amount of bits of each value (below its highest set bit) that select a bucket within its power of two. */
+    private static final int SUB_BUCKET_BITS = 2;
+
+    /** Amount of buckets per power of two. */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** Amount of buckets, enough for any non-negative {@code long}. */
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /** Amount of values recorded in each bucket. */
+    private final StripedCounter mCounts = new StripedCounter(BUCKETS);
+
+    /** Sum of the recorded values (at index {@code 0}). */
+    private final StripedCounter mSum = new StripedCounter(1);
+
+    /** Highest recorded value. */
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * Returns the bucket that a value is recorded in.
+     * @param value Non-negative value.
+     * @return Index of the bucket.
+     */
+    static int bucket(final long value) {
+        if(value < SUB_BUCKETS) {
+            return (int)value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int)(value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the highest value that is recorded in a bucket.
+     * @param bucket Index of the bucket.
+     * @return Highest value recorded in the bucket.
+     */
+    static long bucketMax(final int bucket) {
+        if(bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long lowest = (long)(SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * Records a duration. Negative durations (which {@code System.nanoTime()} can produce across cores) are recorded
+     * as {@code 0}.
+     * @param nanos Duration (in nanoseconds).
+     */
+    public void record(long nanos) {
+        if(nanos < 0) {
+            nanos = 0;
+        }
+        mCounts.increment(bucket(nanos));
+        mSum.add(0, nanos);
+
+        long max = mMax.get();
+        while(nanos > max && !mMax.compareAndSet(max, nanos)) {
+            max = mMax.get();
+        }
+    }
+
+    /**
+     * Returns the amount of recorded durations.
+     * @return Amount of recorded durations.
+     */
+    public long getCount() {
+        return mCounts.getTotal();
+    }
+
+    /**
+     * Returns the mean of the recorded durations.
+     * @return Mean duration (in nanoseconds), or {@code 0} if none have been recorded.
+     */
+    public long getMean() {
+        long count = getCount();
+        return count > 0 ? mSum.get(0) / count : 0;
+    }
+
+    /**
+     * Returns the longest recorded duration.
+     * @return Longest duration (in nanoseconds).
+     */
+    public long getMax() {
+        return mMax.get();
+    }
+
+    /**
+     * Returns the duration at the specified percentile (the upper bound of the bucket it falls in, at most
+     * {@code getMax()}).
+     * @param percentile Percentile, between {@code 0} and {@code 1}.
+     * @return Duration at the percentile (in nanoseconds), or {@code 0} if none have been recorded.
+     */
+    public long getPercentile(final double percentile) {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for(int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts[bucket] = mCounts.get(bucket);
+            count += counts[bucket];
+        }
+        if(count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long)Math.ceil(percentile * count));
+        long seen = 0;
+        for(int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if(seen >= rank) {
+                return Math.min(bucketMax(bucket), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Discards all recorded durations. Durations recorded concurrently may be lost.
+     */
+    public void reset() {
+        mCounts.reset();
+        mSum.reset();
+        mMax.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count %d, mean %d us, p50 %d us, p99 %d us, p999 %d us, max %d us", getCount(),
+                toMicros(getMean()), toMicros(getPercentile(0.5)), toMicros(getPercentile(0.99)),
+                toMicros(getPercentile(0.999)), toMicros(getMax()));
+    }
+
+    /**
+     * Converts nanoseconds to microseconds.
+     * @param nanos Nanoseconds.
+     * @return Microseconds.
+     */
+    private static long toMicros(final long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+}
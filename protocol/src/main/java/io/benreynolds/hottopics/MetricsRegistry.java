@@ -0,0 +1,181 @@
+package io.benreynolds.hottopics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code MetricsRegistry} names the metrics recorded by a component so that they can be dumped together on demand (see
+ * {@code dump()}). Three kinds of metric are supported: '{@code StripedCounter}'s (optionally with a label for each
+ * counter), '{@code LatencyHistogram}'s and '{@code Gauge}'s. Counters and histograms are recorded without locking or
+ * allocating; gauges are only evaluated when the metrics are dumped. Metrics are normally registered when their owner
+ * is constructed.
+ */
+public class MetricsRegistry {
+
+    /**
+     * {@code Gauge} reports a value that is sampled when the metrics are dumped, such as the depth of a queue.
+     */
+    public interface Gauge {
+
+        /**
+         * Returns the current value of the {@code Gauge}.
+         * @return Current value.
+         */
+        long getValue();
+
+    }
+
+    /** Registered metrics in the order they were registered, keyed by name (guarded by {@code this}). */
+    private final Map<String, Object> mMetrics = new LinkedHashMap<>();
+
+    /** Labels of the counters of each labelled {@code StripedCounter}, keyed by name (guarded by {@code this}). */
+    private final Map<String, String[]> mLabels = new LinkedHashMap<>();
+
+    /**
+     * Creates and registers a single counter.
+     * @param name Name of the counter.
+     * @return {@code StripedCounter} holding the counter (at index {@code 0}).
+     */
+    public StripedCounter counter(final String name) {
+        StripedCounter counter = new StripedCounter(1);
+        register(name, counter);
+        return counter;
+    }
+
+    /**
+     * Creates and registers a labelled set of counters, such as a counter for each {@code Packet} type.
+     * @param name Name of the counters.
+     * @param labels Label of each counter, by index.
+     * @return {@code StripedCounter} holding the counters.
+     */
+    public synchronized StripedCounter counter(final String name, final String[] labels) {
+        StripedCounter counter = new StripedCounter(labels.length);
+        register(name, counter);
+        mLabels.put(name, labels.clone());
+        return counter;
+    }
+
+    /**
+     * Creates and registers a {@code LatencyHistogram}.
+     * @param name Name of the histogram.
+     * @return Registered {@code LatencyHistogram}.
+     */
+    public LatencyHistogram histogram(final String name) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        register(name, histogram);
+        return histogram;
+    }
+
+    /**
+     * Registers a {@code LatencyHistogram} owned by another component.
+     * @param name Name of the histogram.
+     * @param histogram {@code LatencyHistogram} to register.
+     */
+    public void histogram(final String name, final LatencyHistogram histogram) {
+        register(name, histogram);
+    }
+
+    /**
+     * Registers a {@code Gauge}.
+     * @param name Name of the gauge.
+     * @param gauge {@code Gauge} to register.
+     */
+    public void gauge(final String name, final Gauge gauge) {
+        register(name, gauge);
+    }
+
+    /**
+     * Registers a metric.
+     * @param name Name of the metric.
+     * @param metric Metric to register.
+     */
+    private synchronized void register(final String name, final Object metric) {
+        if(mMetrics.containsKey(name)) {
+            throw new IllegalArgumentException(String.format("A metric named \"%s\" is already registered.", name));
+        }
+        mMetrics.put(name, metric);
+    }
+
+    /**
+     * Resets all counters and histograms (gauges are unaffected).
+     */
+    public synchronized void reset() {
+        for(Object metric : mMetrics.values()) {
+            if(metric instanceof StripedCounter) {
+                ((StripedCounter)metric).reset();
+            }
+            else if(metric instanceof LatencyHistogram) {
+                ((LatencyHistogram)metric).reset();
+            }
+        }
+    }
+
+    /**
+     * Writes the current value of every metric as text, one line per value. Labelled counters that are zero are
+     * omitted.
+     * @param writer {@code Writer} to write to.
+     * @throws IOException If the metrics could not be written.
+     */
+    public synchronized void dump(final Writer writer) throws IOException {
+        for(Map.Entry<String, Object> entry : mMetrics.entrySet()) {
+            String name = entry.getKey();
+            Object metric = entry.getValue();
+            if(metric instanceof StripedCounter) {
+                StripedCounter counter = (StripedCounter)metric;
+                String[] labels = mLabels.get(name);
+                if(labels == null) {
+                    writer.write(String.format("%s: %d\n", name, counter.get(0)));
+                    continue;
+                }
+                for(int index = 0; index < labels.length; index++) {
+                    long value = counter.get(index);
+                    if(value != 0) {
+                        writer.write(String.format("%s[%s]: %d\n", name, labels[index], value));
+                    }
+                }
+            }
+            else if(metric instanceof LatencyHistogram) {
+                writer.write(String.format("%s: %s\n", name, metric));
+            }
+            else if(metric instanceof Gauge) {
+                writer.write(String.format("%s: %d\n", name, ((Gauge)metric).getValue()));
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes the current value of every metric to a file, replacing its contents (see {@code dump(Writer)}).
+     * @param file File to write to.
+     * @throws IOException If the metrics could not be written.
+     */
+    public void dump(final File file) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), Charset.forName("UTF-8"));
+        try {
+            dump(writer);
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringWriter writer = new StringWriter();
+        try {
+            dump(writer);
+        }
+        catch(IOException exception) {
+            // StringWriter does not throw.
+        }
+        return writer.toString();
+    }
+
+}
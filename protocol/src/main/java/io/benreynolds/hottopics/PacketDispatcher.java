@@ -0,0 +1,347 @@
+package io.benreynolds.hottopics;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+import io.benreynolds.hottopics.packets.BatchPacket;
+import io.benreynolds.hottopics.packets.Packet;
+
+/**
+ * {@code PacketDispatcher} delivers the '{@code Packet}'s received from the Hot Topics server. Each valid
+ * {@code Packet} is delivered to the request with the same correlation ID or, if it has none, to the oldest
+ * uncorrelated request awaiting a response of its type (see {@code addPendingRequest()}). If no request is awaiting it,
+ * it is delivered to the registered '{@code PacketHandler}'s. A {@code Packet} that no {@code PacketHandler} takes is
+ * stored in the {@code PacketMailbox} for its type, if one has been configured or polled (see {@code getMailbox()});
+ * otherwise it is discarded, meaning that nothing is retained for types that are handled or never polled.
+ * '{@code Packet}'s contained in a {@code BatchPacket} are delivered individually, in the order they were sent.
+ * <p>
+ * {@code PacketDispatcher} holds no connection state, meaning that it can be exercised without a WebSocket (and
+ * without Android). Every method is safe to call from any thread.
+ */
+public class PacketDispatcher {
+
+    /**
+     * {@code Listener} is notified of the '{@code Packet}'s handled by a {@code PacketDispatcher}. It is invoked on the
+     * thread that dispatched the {@code Packet}.
+     */
+    public interface Listener {
+
+        /**
+         * Invoked when a valid {@code Packet} is received, before it is delivered.
+         * @param packet Received {@code Packet}.
+         */
+        void onPacketReceived(Packet packet);
+
+        /**
+         * Invoked when an invalid {@code Packet} is received (see {@code Packet.isValid()}). The {@code Packet} is
+         * not delivered.
+         * @param packet Received {@code Packet}.
+         */
+        void onPacketRejected(Packet packet);
+
+        /**
+         * Invoked when a received {@code Packet} is dropped because its {@code PacketMailbox} is full.
+         * @param packet Dropped {@code Packet}.
+         */
+        void onPacketDropped(Packet packet);
+
+    }
+
+    /** Default capacity of the '{@code PacketMailbox}'s that store received '{@code Packet}'s. */
+    public static final int MAILBOX_CAPACITY_DEFAULT = 16;
+
+    /** Default overflow policy of the '{@code PacketMailbox}'s that store received '{@code Packet}'s. */
+    public static final PacketMailbox.OverflowPolicy MAILBOX_OVERFLOW_POLICY_DEFAULT =
+            PacketMailbox.OverflowPolicy.DROP_OLDEST;
+
+    /** Placeholder stored in {@code mMailboxes} for {@code Packet} types that have been configured not to be stored. */
+    private static final PacketMailbox<?> NO_MAILBOX = new PacketMailbox<>(1, PacketMailbox.OverflowPolicy.DROP_NEWEST);
+
+    /** Bounded '{@code PacketMailbox}'s that store received '{@code Packet}'s, keyed by {@code Packet} type. */
+    private final ConcurrentMap<Class<? extends Packet>, PacketMailbox<?>> mMailboxes = new ConcurrentHashMap<>();
+
+    /** Uncorrelated requests that are awaiting a response, queued in the order they were sent by response
+     *  {@code Packet} type. */
+    private final ConcurrentMap<Class<? extends Packet>, Queue<RequestFuture<?>>> mPendingRequests =
+            new ConcurrentHashMap<>();
+
+    /** Correlated requests that are awaiting a response, keyed by correlation ID. */
+    private final ConcurrentMap<Integer, RequestFuture<?>> mCorrelatedRequests = new ConcurrentHashMap<>();
+
+    /** '{@code PacketHandler}'s that received '{@code Packet}'s are dispatched to. */
+    private final PacketHandlerRegistry mPacketHandlers = new PacketHandlerRegistry();
+
+    /** {@code Listener} notified of the '{@code Packet}'s handled by the {@code PacketDispatcher}. */
+    private final Listener mListener;
+
+    /** Time spent passing each {@code Packet} to its '{@code PacketHandler}'s. */
+    private final LatencyHistogram mHandlerTime = new LatencyHistogram();
+
+    /** Time between sending each request and receiving its response. */
+    private final LatencyHistogram mRequestLatency = new LatencyHistogram();
+
+    /**
+     * @param listener {@code Listener} notified of the '{@code Packet}'s handled by the {@code PacketDispatcher}.
+     */
+    public PacketDispatcher(final Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Validates a received {@code Packet} and delivers it to a pending request, the registered
+     * '{@code PacketHandler}'s or its {@code PacketMailbox}.
+     * @param packet Received {@code Packet}.
+     * @return {@code false} if the {@code Packet} was invalid and has not been delivered.
+     */
+    public boolean dispatch(final Packet packet) {
+        if(!packet.isValid()) {
+            mListener.onPacketRejected(packet);
+            return false;
+        }
+
+        if(packet instanceof BatchPacket) {
+            for(Packet containedPacket : ((BatchPacket)packet).getPackets()) {
+                dispatch(containedPacket);
+            }
+            return true;
+        }
+
+        mListener.onPacketReceived(packet);
+
+        // Responses to pending requests are delivered to the request that is awaiting them.
+        if(completePendingRequest(packet)) {
+            return true;
+        }
+
+        long handlerStartTime = System.nanoTime();
+        if(mPacketHandlers.dispatch(packet) > 0) {
+            mHandlerTime.record(System.nanoTime() - handlerStartTime);
+        }
+        else {
+            deliverToMailbox(packet);
+        }
+        return true;
+    }
+
+    /**
+     * Adds a {@code PacketHandler} that is passed received '{@code Packet}'s of its type. Safe to call from within a
+     * {@code PacketHandler}.
+     * @param packetHandler {@code PacketHandler} to add.
+     */
+    public void addHandler(final PacketHandler<?> packetHandler) {
+        mPacketHandlers.add(packetHandler);
+    }
+
+    /**
+     * Removes a {@code PacketHandler}. '{@code Packet}'s dispatched after this method returns are not passed to the
+     * {@code PacketHandler}. Safe to call from within a {@code PacketHandler}.
+     * @param packetHandler {@code PacketHandler} to remove.
+     */
+    public void removeHandler(final PacketHandler<?> packetHandler) {
+        mPacketHandlers.remove(packetHandler);
+    }
+
+    /**
+     * Adds a request that awaits a response of its {@code RequestFuture}'s response type. If the request has a
+     * correlation ID, it is completed by the response with the same correlation ID, meaning that any amount of
+     * correlated requests may be in flight at once. Otherwise, responses without a correlation ID are matched to
+     * requests of the same response type in the order that the requests were added. If the {@code RequestFuture} is
+     * cancelled, the request is removed (see {@code RequestFuture.cancel()}).
+     * @param requestFuture {@code RequestFuture} of the request.
+     */
+    public void addPendingRequest(final RequestFuture<?> requestFuture) {
+        requestFuture.setPacketDispatcher(this);
+        Integer correlationId = requestFuture.getCorrelationId();
+        if(correlationId != null) {
+            if(mCorrelatedRequests.putIfAbsent(correlationId, requestFuture) != null) {
+                throw new IllegalStateException(String.format("Correlation ID %d is already in use.", correlationId));
+            }
+        }
+        else {
+            Class<? extends Packet> responseType = requestFuture.getResponseType();
+            Queue<RequestFuture<?>> pendingRequests = mPendingRequests.get(responseType);
+            if(pendingRequests == null) {
+                mPendingRequests.putIfAbsent(responseType, new ConcurrentLinkedQueue<RequestFuture<?>>());
+                pendingRequests = mPendingRequests.get(responseType);
+            }
+            pendingRequests.add(requestFuture);
+        }
+
+        // If the RequestFuture was cancelled before it was added, the cancellation could not remove it.
+        if(requestFuture.isDone()) {
+            removePendingRequest(requestFuture);
+        }
+    }
+
+    /**
+     * Removes a request that is awaiting a response (used when the request times out, could not be sent or is
+     * cancelled). The {@code RequestFuture} is not completed.
+     * @param requestFuture {@code RequestFuture} of the request.
+     * @return {@code true} if the request was awaiting a response and has been removed.
+     */
+    public boolean removePendingRequest(final RequestFuture<?> requestFuture) {
+        Integer correlationId = requestFuture.getCorrelationId();
+        if(correlationId != null) {
+            return mCorrelatedRequests.remove(correlationId, requestFuture);
+        }
+
+        Queue<RequestFuture<?>> pendingRequests = mPendingRequests.get(requestFuture.getResponseType());
+        return pendingRequests != null && pendingRequests.remove(requestFuture);
+    }
+
+    /**
+     * Completes the pending request with the received {@code Packet}'s correlation ID or, if it has none, the oldest
+     * uncorrelated pending request that is awaiting a response of its type. A correlated {@code Packet} of a type other
+     * than the one its request awaits completes nothing.
+     * @param packet Received {@code Packet}.
+     * @return {@code true} if a pending request was completed with the {@code Packet}.
+     */
+    private boolean completePendingRequest(final Packet packet) {
+        Integer correlationId = packet.getCorrelationId();
+        if(correlationId != null) {
+            RequestFuture<?> requestFuture = mCorrelatedRequests.get(correlationId);
+            if(requestFuture == null || !requestFuture.getResponseType().isInstance(packet) ||
+                    !mCorrelatedRequests.remove(correlationId, requestFuture) || !requestFuture.complete(packet)) {
+                return false;
+            }
+            mRequestLatency.record(System.nanoTime() - requestFuture.getStartTime());
+            return true;
+        }
+
+        Queue<RequestFuture<?>> pendingRequests = mPendingRequests.get(packet.getClass());
+        if(pendingRequests == null) {
+            return false;
+        }
+
+        RequestFuture<?> requestFuture;
+        while((requestFuture = pendingRequests.poll()) != null) {
+            if(requestFuture.complete(packet)) {
+                mRequestLatency.record(System.nanoTime() - requestFuture.getStartTime());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Completes all pending requests with a {@code null} response (used when the connection is lost).
+     */
+    public void failPendingRequests() {
+        for(Integer correlationId : mCorrelatedRequests.keySet()) {
+            RequestFuture<?> requestFuture = mCorrelatedRequests.remove(correlationId);
+            if(requestFuture != null) {
+                requestFuture.complete(null);
+            }
+        }
+        for(Queue<RequestFuture<?>> pendingRequests : mPendingRequests.values()) {
+            RequestFuture<?> requestFuture;
+            while((requestFuture = pendingRequests.poll()) != null) {
+                requestFuture.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Configures the {@code PacketMailbox} that stores received '{@code Packet}'s of the specified type. Any
+     * '{@code Packet}'s held by the previous {@code PacketMailbox} are discarded.
+     * @param packetType {@code Packet} type.
+     * @param capacity Maximum amount of '{@code Packet}'s to hold. If {@code 0}, '{@code Packet}'s of the type are not
+     * stored.
+     * @param overflowPolicy Policy applied when a {@code Packet} is received whilst the {@code PacketMailbox} is full.
+     */
+    public <T extends Packet> void configureMailbox(final Class<T> packetType, final int capacity,
+                                                    final PacketMailbox.OverflowPolicy overflowPolicy) {
+        mMailboxes.put(packetType, capacity > 0 ? new PacketMailbox<T>(capacity, overflowPolicy) : NO_MAILBOX);
+    }
+
+    /**
+     * Returns the {@code PacketMailbox} that stores received '{@code Packet}'s of the specified type, creating one
+     * with the default capacity and overflow policy if none exists. '{@code Packet}'s that no {@code PacketHandler}
+     * takes are only stored once their type's {@code PacketMailbox} has been created, either here or by
+     * {@code configureMailbox()}.
+     * @param packetType {@code Packet} type.
+     * @return {@code PacketMailbox} that stores received '{@code Packet}'s of the specified type. If
+     * '{@code Packet}'s of the type are not stored, returns {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Packet> PacketMailbox<T> getMailbox(final Class<T> packetType) {
+        PacketMailbox<?> mailbox = mMailboxes.get(packetType);
+        if(mailbox == null) {
+            mMailboxes.putIfAbsent(packetType, new PacketMailbox<T>(MAILBOX_CAPACITY_DEFAULT,
+                    MAILBOX_OVERFLOW_POLICY_DEFAULT));
+            mailbox = mMailboxes.get(packetType);
+        }
+        return mailbox != NO_MAILBOX ? (PacketMailbox<T>)mailbox : null;
+    }
+
+    /**
+     * Stores a received {@code Packet} in the {@code PacketMailbox} for its type. If its type has no
+     * {@code PacketMailbox}, the {@code Packet} is discarded.
+     * @param packet Received {@code Packet}.
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends Packet> void deliverToMailbox(final T packet) {
+        PacketMailbox<T> mailbox = (PacketMailbox<T>)mMailboxes.get(packet.getClass());
+        if(mailbox != null && mailbox != NO_MAILBOX && !mailbox.offer(packet)) {
+            mListener.onPacketDropped(packet);
+        }
+    }
+
+    /**
+     * Removes and returns the oldest received {@code Packet} of the specified type.
+     * @param packetType {@code Packet} type.
+     * @return Oldest received {@code Packet} of the specified type. If none is available, returns {@code null}.
+     */
+    public <T extends Packet> T pollPacket(final Class<T> packetType) {
+        PacketMailbox<T> mailbox = getMailbox(packetType);
+        return mailbox != null ? mailbox.poll() : null;
+    }
+
+    /**
+     * Returns the amount of received '{@code Packet}'s held by all '{@code PacketMailbox}'s.
+     * @return Amount of received '{@code Packet}'s awaiting {@code pollPacket()}.
+     */
+    public int getMailboxDepth() {
+        int mailboxDepth = 0;
+        for(PacketMailbox<?> mailbox : mMailboxes.values()) {
+            if(mailbox != NO_MAILBOX) {
+                mailboxDepth += mailbox.size();
+            }
+        }
+        return mailboxDepth;
+    }
+
+    /**
+     * Returns the histogram of the time spent passing each {@code Packet} to its '{@code PacketHandler}'s (recorded for
+     * '{@code Packet}'s that have at least one {@code PacketHandler}).
+     * @return Histogram of the time spent in '{@code PacketHandler}'s.
+     */
+    public LatencyHistogram getHandlerTime() {
+        return mHandlerTime;
+    }
+
+    /**
+     * Returns the histogram of the time between sending each request and receiving its response (see
+     * {@code addPendingRequest()}). Requests that time out are not recorded.
+     * @return Histogram of request/response latency.
+     */
+    public LatencyHistogram getRequestLatency() {
+        return mRequestLatency;
+    }
+
+    /**
+     * Returns the total amount of received '{@code Packet}'s that have been dropped because their
+     * {@code PacketMailbox} was full.
+     * @return Total amount of received '{@code Packet}'s that have been dropped.
+     */
+    public long getDroppedPacketCount() {
+        long droppedPacketCount = 0;
+        for(PacketMailbox<?> mailbox : mMailboxes.values()) {
+            droppedPacketCount += mailbox.getDroppedCount();
+        }
+        return droppedPacketCount;
+    }
+
+}
@@ -0,0 +1,67 @@
+package io.benreynolds.hottopics;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import io.benreynolds.hottopics.packets.Packet;
+
+/**
+ * {@code PacketHandlerRegistry} stores '{@code PacketHandler}'s keyed by the {@code Packet} type that they handle (see
+ * {@code PacketHandler.packetType()}). Handlers may be added and removed from any thread whilst '{@code Packet}'s are
+ * being dispatched; changes take effect immediately. Dispatch is a lock-free lookup followed by an iteration over a
+ * snapshot of the handlers registered for the {@code Packet}'s type.
+ */
+class PacketHandlerRegistry {
+
+    /** Registered '{@code PacketHandler}'s, keyed by the {@code Packet} type that they handle. */
+    private final ConcurrentMap<Class<? extends Packet>, CopyOnWriteArrayList<PacketHandler<?>>> mHandlers =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Registers a {@code PacketHandler}. Has no effect if the {@code PacketHandler} is already registered.
+     * @param packetHandler {@code PacketHandler} to register.
+     */
+    void add(final PacketHandler<?> packetHandler) {
+        Class<? extends Packet> packetType = packetHandler.packetType();
+        CopyOnWriteArrayList<PacketHandler<?>> packetHandlers = mHandlers.get(packetType);
+        if(packetHandlers == null) {
+            mHandlers.putIfAbsent(packetType, new CopyOnWriteArrayList<PacketHandler<?>>());
+            packetHandlers = mHandlers.get(packetType);
+        }
+        packetHandlers.addIfAbsent(packetHandler);
+    }
+
+    /**
+     * Unregisters a {@code PacketHandler}.
+     * @param packetHandler {@code PacketHandler} to unregister.
+     * @return {@code true} if the {@code PacketHandler} was registered and has been removed.
+     */
+    boolean remove(final PacketHandler<?> packetHandler) {
+        List<PacketHandler<?>> packetHandlers = mHandlers.get(packetHandler.packetType());
+        return packetHandlers != null && packetHandlers.remove(packetHandler);
+    }
+
+    /**
+     * Passes a {@code Packet} to every {@code PacketHandler} registered for its type.
+     * @param packet {@code Packet} to dispatch.
+     * @return Amount of '{@code PacketHandler}'s that the {@code Packet} was passed to.
+     */
+    @SuppressWarnings("unchecked")
+    int dispatch(final Packet packet) {
+        List<PacketHandler<?>> packetHandlers = mHandlers.get(packet.getClass());
+        if(packetHandlers == null) {
+            return 0;
+        }
+
+        int handled = 0;
+        for(PacketHandler<?> packetHandler : packetHandlers) {
+            // Handlers are keyed by their packetType(), which is the Packet's exact class, so the cast is safe.
+            ((PacketHandler<Packet>)packetHandler).update(packet);
+            handled++;
+        }
+        return handled;
+    }
+
+}
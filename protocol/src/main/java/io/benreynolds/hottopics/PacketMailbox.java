@@ -0,0 +1,119 @@
+package io.benreynolds.hottopics;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import io.benreynolds.hottopics.packets.Packet;
+
+/**
+ * {@code PacketMailbox} is a bounded, thread-safe FIFO queue of received '{@code Packet}'s of a single type. When the
+ * {@code PacketMailbox} is full, an {@code OverflowPolicy} decides which {@code Packet} is dropped, and the amount of
+ * dropped '{@code Packet}'s is recorded. This keeps the memory used by unconsumed '{@code Packet}'s constant no matter
+ * how long a session lasts.
+ * @param <T> {@code Packet} type.
+ */
+public class PacketMailbox<T extends Packet> {
+
+    /**
+     * {@code OverflowPolicy} decides which {@code Packet} is dropped when a {@code Packet} is added to a full
+     * {@code PacketMailbox}.
+     */
+    public enum OverflowPolicy {
+
+        /** The oldest {@code Packet} in the {@code PacketMailbox} is dropped to make room for the new one. */
+        DROP_OLDEST,
+
+        /** The new {@code Packet} is dropped. */
+        DROP_NEWEST
+
+    }
+
+    /** Maximum amount of '{@code Packet}'s that the {@code PacketMailbox} can hold. */
+    private final int mCapacity;
+
+    /** Policy applied when a {@code Packet} is added to a full {@code PacketMailbox}. */
+    private final OverflowPolicy mOverflowPolicy;
+
+    /** '{@code Packet}'s held by the {@code PacketMailbox} (guarded by {@code this}). */
+    private final Deque<T> mPackets;
+
+    /** Amount of '{@code Packet}'s that have been dropped due to overflow (guarded by {@code this}). */
+    private long mDroppedCount;
+
+    /**
+     * @param capacity Maximum amount of '{@code Packet}'s that the {@code PacketMailbox} can hold (at least 1).
+     * @param overflowPolicy Policy applied when a {@code Packet} is added to a full {@code PacketMailbox}.
+     */
+    public PacketMailbox(final int capacity, final OverflowPolicy overflowPolicy) {
+        if(capacity < 1) {
+            throw new IllegalArgumentException("PacketMailbox capacity must be at least 1.");
+        }
+        mCapacity = capacity;
+        mOverflowPolicy = overflowPolicy;
+        mPackets = new ArrayDeque<>(capacity);
+    }
+
+    /**
+     * Adds a {@code Packet} to the {@code PacketMailbox}, applying the {@code OverflowPolicy} if it is full.
+     * @param packet {@code Packet} to add.
+     * @return {@code true} if the {@code Packet} was added.
+     */
+    public synchronized boolean offer(final T packet) {
+        if(mPackets.size() >= mCapacity) {
+            mDroppedCount++;
+            if(mOverflowPolicy == OverflowPolicy.DROP_NEWEST) {
+                return false;
+            }
+            mPackets.pollFirst();
+        }
+        return mPackets.offerLast(packet);
+    }
+
+    /**
+     * Removes and returns the oldest {@code Packet} in the {@code PacketMailbox}.
+     * @return Oldest {@code Packet} in the {@code PacketMailbox}. If it is empty, returns {@code null}.
+     */
+    public synchronized T poll() {
+        return mPackets.pollFirst();
+    }
+
+    /**
+     * Removes all '{@code Packet}'s from the {@code PacketMailbox}.
+     */
+    public synchronized void clear() {
+        mPackets.clear();
+    }
+
+    /**
+     * Returns the amount of '{@code Packet}'s in the {@code PacketMailbox}.
+     * @return Amount of '{@code Packet}'s in the {@code PacketMailbox}.
+     */
+    public synchronized int size() {
+        return mPackets.size();
+    }
+
+    /**
+     * Returns the amount of '{@code Packet}'s that have been dropped due to overflow.
+     * @return Amount of '{@code Packet}'s that have been dropped due to overflow.
+     */
+    public synchronized long getDroppedCount() {
+        return mDroppedCount;
+    }
+
+    /**
+     * Returns the maximum amount of '{@code Packet}'s that the {@code PacketMailbox} can hold.
+     * @return Maximum amount of '{@code Packet}'s that the {@code PacketMailbox} can hold.
+     */
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    /**
+     * Returns the policy applied when a {@code Packet} is added to a full {@code PacketMailbox}.
+     * @return Policy applied when a {@code Packet} is added to a full {@code PacketMailbox}.
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return mOverflowPolicy;
+    }
+
+}
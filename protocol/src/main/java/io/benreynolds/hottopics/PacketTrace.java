@@ -0,0 +1,224 @@
+package io.benreynolds.hottopics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import io.benreynolds.hottopics.packets.Packet;
+import io.benreynolds.hottopics.packets.PacketIdentifier;
+
+/**
+ * {@code PacketTrace} records what happens to each {@code Packet} as a fixed-size binary event in a preallocated ring
+ * buffer, replacing per-{@code Packet} log messages. Recording an event stores four {@code long}s: it never formats,
+ * serializes or allocates, and events below the current {@code Level} are discarded after a single volatile read.
+ * Events are only rendered as text when the trace is dumped (see {@code dump()}). Once the ring buffer is full, each
+ * event overwrites the oldest.
+ * <p>
+ * Recording is safe from any thread. An event that is overwritten whilst it is being dumped is skipped.
+ */
+public class PacketTrace {
+
+    /**
+     * {@code Level} is the severity of an {@code Event}, in ascending order.
+     */
+    public enum Level {
+        DEBUG,
+        INFO,
+        WARN,
+        /** Records nothing (only used with {@code setLevel()}). */
+        OFF
+    }
+
+    /**
+     * {@code Event} is something that happened to a {@code Packet}.
+     */
+    public enum Event {
+        /** A {@code Packet} was received. */
+        RECEIVED(Level.DEBUG),
+        /** A {@code Packet} was written to the connection. */
+        SENT(Level.DEBUG),
+        /** A received message could not be decoded. */
+        UNKNOWN(Level.WARN),
+        /** A received {@code Packet} was invalid (see {@code Packet.isValid()}). */
+        INVALID(Level.WARN),
+        /** A received {@code Packet} was dropped because its {@code PacketMailbox} was full. */
+        DROPPED(Level.WARN),
+        /** A {@code Packet} was not sent because the connection was not open or could not keep up. */
+        DISCARDED(Level.WARN);
+
+        /** {@code Level} of the {@code Event}. */
+        private final Level mLevel;
+
+        /**
+         * @param level {@code Level} of the {@code Event}.
+         */
+        Event(final Level level) {
+            mLevel = level;
+        }
+
+        /**
+         * Returns the {@code Level} of the {@code Event}.
+         * @return {@code Level} of the {@code Event}.
+         */
+        public Level getLevel() {
+            return mLevel;
+        }
+    }
+
+    /** Default amount of events held by the ring buffer. */
+    public static final int CAPACITY_DEFAULT = 1024;
+
+    /** ID recorded for events without a {@code Packet} (such as {@code UNKNOWN}). */
+    private static final int NO_PACKET = -1;
+
+    /** Amount of {@code long}s stored per event: sequence stamp, time, {@code Event} and {@code Packet} ID, size. */
+    private static final int EVENT_LONGS = 4;
+
+    /** '{@code Event}'s by ordinal (cached, as {@code Event.values()} allocates). */
+    private static final Event[] EVENTS = Event.values();
+
+    /** Simple names of the {@code Packet} types, indexed by ID. */
+    private static final String[] PACKET_NAMES = PacketIdentifier.getPacketNames();
+
+    /** Events, {@code EVENT_LONGS} per slot. The stamp of a slot is {@code 0} whilst its event is being written. */
+    private final AtomicLongArray mEvents;
+
+    /** Amount of slots in {@code mEvents} (a power of two). */
+    private final int mCapacity;
+
+    /** Sequence number of the next event. */
+    private final AtomicLong mNextSequence = new AtomicLong();
+
+    /** Lowest {@code Level} that is recorded. */
+    private volatile Level mLevel;
+
+    /**
+     * @param capacity Amount of events held by the ring buffer (rounded up to a power of two).
+     * @param level Lowest {@code Level} that is recorded.
+     */
+    public PacketTrace(final int capacity, final Level level) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("'capacity' must be positive.");
+        }
+        mCapacity = Integer.highestOneBit(capacity * 2 - 1);
+        mEvents = new AtomicLongArray(mCapacity * EVENT_LONGS);
+        mLevel = level;
+    }
+
+    /**
+     * Sets the lowest {@code Level} that is recorded. Events that have already been recorded are kept.
+     * @param level Lowest {@code Level} to record.
+     */
+    public void setLevel(final Level level) {
+        mLevel = level;
+    }
+
+    /**
+     * Returns the lowest {@code Level} that is recorded.
+     * @return Lowest {@code Level} that is recorded.
+     */
+    public Level getLevel() {
+        return mLevel;
+    }
+
+    /**
+     * Returns {@code true} if '{@code Event}'s of the specified {@code Level} are recorded (used to skip work that is
+     * only needed to record an event, such as measuring a frame).
+     * @param level {@code Level} to check.
+     * @return {@code true} if '{@code Event}'s of the specified {@code Level} are recorded.
+     */
+    public boolean isEnabled(final Level level) {
+        return level.compareTo(mLevel) >= 0;
+    }
+
+    /**
+     * Records an {@code Event}.
+     * @param event {@code Event} to record.
+     * @param packet {@code Packet} that the {@code Event} happened to, or {@code null} if it is unknown.
+     * @param size Size of the frame that carried the {@code Packet} (in bytes), or {@code 0} if it is unknown.
+     */
+    public void record(final Event event, final Packet packet, final long size) {
+        if(!isEnabled(event.mLevel)) {
+            return;
+        }
+        Integer id = packet != null ? packet.getId() : null;
+        long sequence = mNextSequence.getAndIncrement();
+        int slot = (int)(sequence & (mCapacity - 1)) * EVENT_LONGS;
+        mEvents.set(slot, 0);
+        mEvents.set(slot + 1, System.nanoTime());
+        mEvents.set(slot + 2, (long)event.ordinal() << Integer.SIZE | (id != null ? id : NO_PACKET) & 0xFFFFFFFFL);
+        mEvents.set(slot + 3, size);
+        mEvents.lazySet(slot, sequence + 1);
+    }
+
+    /**
+     * Returns the amount of events recorded since the {@code PacketTrace} was created (including those that have
+     * since been overwritten).
+     * @return Amount of events recorded.
+     */
+    public long getRecordedCount() {
+        return mNextSequence.get();
+    }
+
+    /**
+     * Writes the events held by the ring buffer as text, oldest first, one line per event. Times are relative to the
+     * newest event.
+     * @param writer {@code Writer} to write to.
+     * @throws IOException If the events could not be written.
+     */
+    public void dump(final Writer writer) throws IOException {
+        long nextSequence = mNextSequence.get();
+        long firstSequence = Math.max(0, nextSequence - mCapacity);
+        long[] times = new long[(int)(nextSequence - firstSequence)];
+        long[] types = new long[times.length];
+        long[] sizes = new long[times.length];
+        boolean[] intact = new boolean[times.length];
+
+        // Copy the events first so that rendering does not widen the window in which they can be overwritten.
+        for(long sequence = firstSequence; sequence < nextSequence; sequence++) {
+            int index = (int)(sequence - firstSequence);
+            int slot = (int)(sequence & (mCapacity - 1)) * EVENT_LONGS;
+            long stamp = mEvents.get(slot);
+            times[index] = mEvents.get(slot + 1);
+            types[index] = mEvents.get(slot + 2);
+            sizes[index] = mEvents.get(slot + 3);
+            intact[index] = stamp == sequence + 1 && mEvents.get(slot) == stamp;
+        }
+
+        long newestTime = 0;
+        for(int index = times.length - 1; index >= 0; index--) {
+            if(intact[index]) {
+                newestTime = times[index];
+                break;
+            }
+        }
+
+        for(int index = 0; index < times.length; index++) {
+            if(!intact[index]) {
+                continue;
+            }
+            Event event = EVENTS[(int)(types[index] >>> Integer.SIZE)];
+            int id = (int)types[index];
+            writer.write(String.format("%10.3f ms %-5s %-9s %s (%d bytes)\n",
+                    (times[index] - newestTime) / (double)TimeUnit.MILLISECONDS.toNanos(1), event.mLevel, event,
+                    id >= 0 && id < PACKET_NAMES.length ? PACKET_NAMES[id] : "-", sizes[index]));
+        }
+        writer.flush();
+    }
+
+    @Override
+    public String toString() {
+        StringWriter writer = new StringWriter();
+        try {
+            dump(writer);
+        }
+        catch(IOException exception) {
+            // StringWriter does not throw.
+        }
+        return writer.toString();
+    }
+
+}
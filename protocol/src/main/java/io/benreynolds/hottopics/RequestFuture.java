@@ -0,0 +1,239 @@
+package io.benreynolds.hottopics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import io.benreynolds.hottopics.packets.Packet;
+
+/**
+ * {@code RequestFuture} represents the pending response to a request {@code Packet} that has been sent to the Hot Topics
+ * server (see {@code WebSocketCommunicator.sendRequest()}). It is completed by the {@code WebSocketCommunicator} when
+ * a matching response is received, or with a {@code null} response when the request times out, is cancelled or the
+ * connection is lost. Completion is signalled to '{@code Listener}'s, meaning that no thread has to wait for it.
+ * @param <T> Response {@code Packet} type.
+ */
+public class RequestFuture<T extends Packet> implements Future<T> {
+
+    /**
+     * {@code Listener} is notified once when a {@code RequestFuture} completes.
+     * @param <T> Response {@code Packet} type.
+     */
+    public interface Listener<T extends Packet> {
+
+        /**
+         * Invoked when the {@code RequestFuture} completes. Invoked on the thread that completed the
+         * {@code RequestFuture}, or on the calling thread if it had already completed when the {@code Listener} was
+         * added.
+         * @param response Response {@code Packet} that was received. If no response was received, {@code null}.
+         */
+        void onComplete(T response);
+
+    }
+
+    /** Response {@code Packet} type that completes the {@code RequestFuture}. */
+    private final Class<T> mResponseType;
+
+    /** Correlation ID of the request, or {@code null} if responses are matched by type alone. */
+    private final Integer mCorrelationId;
+
+    /** '{@code Listener}'s awaiting completion (guarded by {@code this}). */
+    private final List<Listener<T>> mListeners = new ArrayList<>();
+
+    /** Released once the {@code RequestFuture} completes (only used by the blocking {@code get()} methods). */
+    private final CountDownLatch mCompletion = new CountDownLatch(1);
+
+    /** {@code true} once the {@code RequestFuture} has completed (written whilst holding {@code this}). */
+    private volatile boolean mDone;
+
+    /** {@code true} if the {@code RequestFuture} was cancelled. */
+    private volatile boolean mCancelled;
+
+    /** Response {@code Packet} that was received (assigned whilst holding {@code this}, before {@code mDone}). */
+    private volatile T mResponse;
+
+    /** {@code PacketDispatcher} that the request awaits its response from, which it is removed from if it is
+     *  cancelled. */
+    private volatile PacketDispatcher mPacketDispatcher;
+
+    /** Scheduled timeout of the request. */
+    private volatile TimeoutScheduler.Timeout mTimeout;
+
+    /** Time at which the {@code RequestFuture} was created (see {@code System.nanoTime()}). */
+    private final long mStartTime = System.nanoTime();
+
+    /**
+     * @param responseType Response {@code Packet} type that completes the {@code RequestFuture}.
+     */
+    RequestFuture(final Class<T> responseType) {
+        this(responseType, null);
+    }
+
+    /**
+     * @param responseType Response {@code Packet} type that completes the {@code RequestFuture}.
+     * @param correlationId Correlation ID of the request (see {@code Packet.getCorrelationId()}), or {@code null} if
+     * responses are matched by type alone.
+     */
+    RequestFuture(final Class<T> responseType, final Integer correlationId) {
+        mResponseType = responseType;
+        mCorrelationId = correlationId;
+    }
+
+    /**
+     * Returns the correlation ID of the request.
+     * @return Correlation ID of the request, or {@code null} if responses are matched by type alone.
+     */
+    public Integer getCorrelationId() {
+        return mCorrelationId;
+    }
+
+    /**
+     * Returns the time at which the {@code RequestFuture} was created, just before its request was sent.
+     * @return Time at which the {@code RequestFuture} was created (see {@code System.nanoTime()}).
+     */
+    long getStartTime() {
+        return mStartTime;
+    }
+
+    /**
+     * Returns the response {@code Packet} type that completes the {@code RequestFuture}.
+     * @return Response {@code Packet} type that completes the {@code RequestFuture}.
+     */
+    public Class<T> getResponseType() {
+        return mResponseType;
+    }
+
+    /**
+     * Adds a {@code Listener} that is notified when the {@code RequestFuture} completes. If the {@code RequestFuture}
+     * has already completed, the {@code Listener} is notified immediately.
+     * @param listener {@code Listener} to notify.
+     * @return This {@code RequestFuture}.
+     */
+    public RequestFuture<T> addListener(final Listener<T> listener) {
+        T response;
+        synchronized(this) {
+            if(!mDone) {
+                mListeners.add(listener);
+                return this;
+            }
+            response = mResponse;
+        }
+        listener.onComplete(response);
+        return this;
+    }
+
+    /**
+     * Sets the scheduled timeout of the request, which is cancelled once the {@code RequestFuture} completes.
+     * @param timeout Scheduled timeout of the request.
+     */
+    void setTimeout(final TimeoutScheduler.Timeout timeout) {
+        mTimeout = timeout;
+        if(mDone) {
+            timeout.cancel();
+        }
+    }
+
+    /**
+     * Sets the {@code PacketDispatcher} that the request awaits its response from (see
+     * {@code PacketDispatcher.addPendingRequest()}), so that the request can be removed from it if it is cancelled.
+     * @param packetDispatcher {@code PacketDispatcher} that the request awaits its response from.
+     */
+    void setPacketDispatcher(final PacketDispatcher packetDispatcher) {
+        mPacketDispatcher = packetDispatcher;
+    }
+
+    /**
+     * Completes the {@code RequestFuture} with the specified response. Has no effect if the {@code RequestFuture} has
+     * already completed.
+     * @param response Response {@code Packet}, or {@code null} if no response was received.
+     * @return {@code true} if this call completed the {@code RequestFuture}.
+     */
+    boolean complete(final Packet response) {
+        T typedResponse = mResponseType.isInstance(response) ? mResponseType.cast(response) : null;
+        List<Listener<T>> listeners;
+        // The response is assigned in the same critical section that marks the RequestFuture as done, so that a
+        // Listener added concurrently (see addListener()) can never observe it as done without its response.
+        synchronized(this) {
+            if(mDone) {
+                return false;
+            }
+            mResponse = typedResponse;
+            mDone = true;
+            listeners = new ArrayList<>(mListeners);
+            mListeners.clear();
+        }
+        mCompletion.countDown();
+
+        TimeoutScheduler.Timeout timeout = mTimeout;
+        if(timeout != null) {
+            timeout.cancel();
+        }
+
+        for(Listener<T> listener : listeners) {
+            listener.onComplete(typedResponse);
+        }
+        return true;
+    }
+
+    /**
+     * Cancels the request, completing the {@code RequestFuture} with a {@code null} response and removing the request
+     * from the {@code PacketDispatcher} (so that it no longer awaits a response). Has no effect if the
+     * {@code RequestFuture} has already completed.
+     * @param mayInterruptIfRunning Unused, as no thread runs the request.
+     * @return {@code true} if this call cancelled the {@code RequestFuture}.
+     */
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        if(!complete(null)) {
+            return false;
+        }
+        mCancelled = true;
+        PacketDispatcher packetDispatcher = mPacketDispatcher;
+        if(packetDispatcher != null) {
+            packetDispatcher.removePendingRequest(this);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return mDone;
+    }
+
+    /**
+     * Blocks until the {@code RequestFuture} completes. Prefer {@code addListener()}, which does not occupy a thread.
+     * @return Response {@code Packet} that was received. If no response was received, returns {@code null}.
+     * @throws InterruptedException If the calling thread was interrupted whilst waiting.
+     */
+    @Override
+    public T get() throws InterruptedException {
+        mCompletion.await();
+        return mResponse;
+    }
+
+    /**
+     * Blocks until the {@code RequestFuture} completes or the specified amount of time passes. Prefer
+     * {@code addListener()}, which does not occupy a thread.
+     * @param timeout Maximum amount of time to wait.
+     * @param unit Unit of {@code timeout}.
+     * @return Response {@code Packet} that was received. If no response was received, returns {@code null}.
+     * @throws InterruptedException If the calling thread was interrupted whilst waiting.
+     * @throws TimeoutException If the {@code RequestFuture} did not complete in time.
+     */
+    @Override
+    public T get(final long timeout, final TimeUnit unit) throws InterruptedException, TimeoutException {
+        if(!mCompletion.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return mResponse;
+    }
+
+}
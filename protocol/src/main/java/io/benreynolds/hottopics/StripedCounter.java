@@ -0,0 +1,115 @@
+package io.benreynolds.hottopics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@code StripedCounter} is a fixed-size array of counters that many threads can increment concurrently without
+ * contending with one another. Each counter is split into stripes; a thread only updates the stripe selected by its ID,
+ * and reading a counter sums its stripes. Stripes are kept on separate cache lines, and recording never allocates,
+ * meaning that a {@code StripedCounter} may be updated on the hot path of every {@code Packet}.
+ * <p>
+ * Reads are not atomic with respect to concurrent updates: a counter read whilst it is being incremented may or may not
+ * include the increment.
+ */
+public class StripedCounter {
+
+    /** Amount of {@code long}s in a cache line. */
+    private static final int CACHE_LINE_LONGS = 8;
+
+    /** Amount of stripes per counter: the amount of processors rounded up to a power of two, at most {@code 16}. */
+    private static final int STRIPES = Math.min(16, Integer.highestOneBit(
+            Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)));
+
+    /** Cells that hold the stripes, row by row: each row holds one stripe of every counter. */
+    private final AtomicLongArray mCells;
+
+    /** Amount of counters. */
+    private final int mSize;
+
+    /** Length of a row of {@code mCells}, padded so that no two rows share a cache line. */
+    private final int mRowLength;
+
+    /**
+     * @param size Amount of counters.
+     */
+    public StripedCounter(final int size) {
+        if(size <= 0) {
+            throw new IllegalArgumentException("'size' must be positive.");
+        }
+        mSize = size;
+        mRowLength = (size + CACHE_LINE_LONGS - 1) / CACHE_LINE_LONGS * CACHE_LINE_LONGS + CACHE_LINE_LONGS;
+        mCells = new AtomicLongArray(mRowLength * STRIPES);
+    }
+
+    /**
+     * Returns the stripe updated by the calling thread.
+     * @return Index of the stripe (between {@code 0} and {@code STRIPES - 1}).
+     */
+    static int stripe() {
+        // Spread sequential thread IDs across the stripes (Fibonacci hashing).
+        return (int)((Thread.currentThread().getId() * 0x9E3779B97F4A7C15L) >>> 32) & (STRIPES - 1);
+    }
+
+    /**
+     * Increments a counter by one.
+     * @param index Index of the counter.
+     */
+    public void increment(final int index) {
+        add(index, 1);
+    }
+
+    /**
+     * Adds an amount to a counter.
+     * @param index Index of the counter.
+     * @param delta Amount to add.
+     */
+    public void add(final int index, final long delta) {
+        if(index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException(String.format("Counter %d of %d.", index, mSize));
+        }
+        mCells.getAndAdd(stripe() * mRowLength + index, delta);
+    }
+
+    /**
+     * Returns the value of a counter.
+     * @param index Index of the counter.
+     * @return Sum of the counter's stripes.
+     */
+    public long get(final int index) {
+        long value = 0;
+        for(int stripe = 0; stripe < STRIPES; stripe++) {
+            value += mCells.get(stripe * mRowLength + index);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the sum of all counters.
+     * @return Sum of all counters.
+     */
+    public long getTotal() {
+        long total = 0;
+        for(int index = 0; index < mSize; index++) {
+            total += get(index);
+        }
+        return total;
+    }
+
+    /**
+     * Returns the amount of counters.
+     * @return Amount of counters.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Resets all counters to zero. Increments made concurrently may be lost.
+     */
+    public void reset() {
+        for(int cell = 0; cell < mCells.length(); cell++) {
+            mCells.set(cell, 0);
+        }
+    }
+
+}
@@ -0,0 +1,427 @@
+package io.benreynolds.hottopics;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@code TimeoutScheduler} runs tasks once their deadline has passed, such as request timeouts and reconnection delays.
+ * Deadlines are held as {@code long} nanoseconds (see {@code System.nanoTime()}) in a hashed timing wheel: a ring of
+ * buckets that each hold the '{@code Timeout}'s due within one tick. Scheduling and cancelling a {@code Timeout} are
+ * constant time, however many are pending, at the cost of a deadline being rounded up to the next tick.
+ * <p>
+ * The wheel is advanced by a single daemon thread that is shared by every {@code Timeout}. Rather than waking once per
+ * tick, the thread parks until the tick of the earliest pending deadline (or indefinitely, whilst no
+ * '{@code Timeout}'s are pending), and is only woken early if a {@code Timeout} is scheduled with an earlier deadline.
+ * A cancelled {@code Timeout} is removed the next time the thread wakes. Tasks are run on this thread, so must not
+ * block.
+ */
+public class TimeoutScheduler {
+
+    /**
+     * {@code Timeout} is a task scheduled by a {@code TimeoutScheduler}.
+     */
+    public static final class Timeout {
+
+        /** {@code Timeout} is awaiting its deadline. */
+        private static final int STATE_PENDING = 0;
+
+        /** {@code Timeout} was cancelled before its deadline. */
+        private static final int STATE_CANCELLED = 1;
+
+        /** {@code Timeout}'s deadline has passed and its task has been run. */
+        private static final int STATE_EXPIRED = 2;
+
+        /** Task to run once the deadline has passed. */
+        private final Runnable mTask;
+
+        /** Deadline of the {@code Timeout} (see {@code System.nanoTime()}). */
+        private final long mDeadline;
+
+        /** {@code TimeoutScheduler} that the {@code Timeout} was scheduled with. */
+        private final TimeoutScheduler mScheduler;
+
+        /** Current state of the {@code Timeout}. */
+        private final AtomicInteger mState = new AtomicInteger(STATE_PENDING);
+
+        /** Tick that the {@code Timeout} is due at the end of (wheel thread only). */
+        private long mDueTick;
+
+        /** Bucket holding the {@code Timeout}, or {@code null} if it is not in the wheel (wheel thread only). */
+        private Bucket mBucket;
+
+        /** Neighbours of the {@code Timeout} in its bucket (wheel thread only). */
+        private Timeout mPrevious;
+        private Timeout mNext;
+
+        /**
+         * @param scheduler {@code TimeoutScheduler} that the {@code Timeout} is scheduled with.
+         * @param task Task to run once the deadline has passed.
+         * @param deadline Deadline (see {@code System.nanoTime()}).
+         */
+        private Timeout(final TimeoutScheduler scheduler, final Runnable task, final long deadline) {
+            mScheduler = scheduler;
+            mTask = task;
+            mDeadline = deadline;
+        }
+
+        /**
+         * Cancels the {@code Timeout}, meaning that its task is not run. Has no effect if the task has already been
+         * run.
+         * @return {@code true} if this call cancelled the {@code Timeout}.
+         */
+        public boolean cancel() {
+            if(!mState.compareAndSet(STATE_PENDING, STATE_CANCELLED)) {
+                return false;
+            }
+            mScheduler.mCancelledTimeouts.add(this);
+            return true;
+        }
+
+        /**
+         * Returns {@code true} if the {@code Timeout} was cancelled.
+         * @return {@code true} if the {@code Timeout} was cancelled.
+         */
+        public boolean isCancelled() {
+            return mState.get() == STATE_CANCELLED;
+        }
+
+        /**
+         * Returns {@code true} if the deadline has passed and the task has been (or is being) run.
+         * @return {@code true} if the {@code Timeout} has expired.
+         */
+        public boolean isExpired() {
+            return mState.get() == STATE_EXPIRED;
+        }
+
+        /**
+         * Returns the deadline of the {@code Timeout}.
+         * @return Deadline (see {@code System.nanoTime()}).
+         */
+        public long getDeadline() {
+            return mDeadline;
+        }
+
+    }
+
+    /**
+     * {@code Bucket} is a doubly-linked list of the '{@code Timeout}'s that fall within one tick of the wheel. Only
+     * accessed by the wheel thread.
+     */
+    private static final class Bucket {
+
+        /** First and last '{@code Timeout}'s in the {@code Bucket}. */
+        private Timeout mHead;
+        private Timeout mTail;
+
+        /**
+         * Appends a {@code Timeout}.
+         * @param timeout {@code Timeout} to append.
+         */
+        void add(final Timeout timeout) {
+            timeout.mBucket = this;
+            timeout.mPrevious = mTail;
+            if(mTail == null) {
+                mHead = timeout;
+            }
+            else {
+                mTail.mNext = timeout;
+            }
+            mTail = timeout;
+        }
+
+        /**
+         * Unlinks a {@code Timeout}.
+         * @param timeout {@code Timeout} to unlink.
+         * @return {@code Timeout} that followed the unlinked {@code Timeout}.
+         */
+        Timeout remove(final Timeout timeout) {
+            Timeout next = timeout.mNext;
+            if(timeout.mPrevious != null) {
+                timeout.mPrevious.mNext = next;
+            }
+            else {
+                mHead = next;
+            }
+            if(next != null) {
+                next.mPrevious = timeout.mPrevious;
+            }
+            else {
+                mTail = timeout.mPrevious;
+            }
+            timeout.mBucket = null;
+            timeout.mPrevious = null;
+            timeout.mNext = null;
+            return next;
+        }
+
+    }
+
+    /** Default duration of a tick (in milliseconds). */
+    public static final long TICK_DURATION_DEFAULT = 10;
+
+    /** Default amount of buckets in the wheel (a full turn of the default wheel is a little over 5 seconds). */
+    public static final int WHEEL_SIZE_DEFAULT = 512;
+
+    /** Logger used to report tasks that throw. */
+    private static final Logger LOGGER = Logger.getLogger(TimeoutScheduler.class.getName());
+
+    /** Singleton instance of {@code TimeoutScheduler}. */
+    private static volatile TimeoutScheduler mInstance;
+
+    /** Buckets of the wheel, one per tick. */
+    private final Bucket[] mWheel;
+
+    /** Duration of a tick (in nanoseconds). */
+    private final long mTickDuration;
+
+    /** Time that tick {@code 0} started (see {@code System.nanoTime()}). */
+    private final long mStartTime = System.nanoTime();
+
+    /** '{@code Timeout}'s that have been scheduled but not yet placed in the wheel. */
+    private final Queue<Timeout> mNewTimeouts = new ConcurrentLinkedQueue<>();
+
+    /** '{@code Timeout}'s that have been cancelled but may still be in the wheel. */
+    private final Queue<Timeout> mCancelledTimeouts = new ConcurrentLinkedQueue<>();
+
+    /** Amount of '{@code Timeout}'s that are pending or awaiting removal from the wheel. */
+    private final AtomicInteger mTimeoutCount = new AtomicInteger();
+
+    /** Value of {@code mWakeTick} whilst no '{@code Timeout}'s are pending. */
+    private static final long NO_WAKE_TICK = Long.MAX_VALUE;
+
+    /** Tick at the end of which the wheel thread will next wake: the earliest tick that a pending {@code Timeout} is
+     *  due at the end of, or {@code NO_WAKE_TICK}. Lowered by {@code schedule()}, which then wakes the thread. */
+    private final AtomicLong mWakeTick = new AtomicLong(NO_WAKE_TICK);
+
+    /** Amount of times that the wheel thread has woken (only used to verify that it does not wake once per tick). */
+    private final AtomicLong mWakeCount = new AtomicLong();
+
+    /** Thread that advances the wheel. */
+    private final Thread mThread;
+
+    /** Earliest tick that has not yet been expired (wheel thread only). */
+    private long mTick;
+
+    /**
+     * @param tickDuration Duration of a tick. Deadlines are rounded up to the next tick.
+     * @param unit Unit of {@code tickDuration}.
+     * @param wheelSize Amount of buckets in the wheel (rounded up to a power of two).
+     */
+    public TimeoutScheduler(final long tickDuration, final TimeUnit unit, final int wheelSize) {
+        if(tickDuration <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("'tickDuration' and 'wheelSize' must be positive.");
+        }
+        mTickDuration = unit.toNanos(tickDuration);
+        mWheel = new Bucket[Integer.highestOneBit(wheelSize * 2 - 1)];
+        for(int bucket = 0; bucket < mWheel.length; bucket++) {
+            mWheel[bucket] = new Bucket();
+        }
+
+        mThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runWheel();
+            }
+        }, "TimeoutScheduler");
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    /**
+     * Returns the shared {@code TimeoutScheduler}, which uses the default tick duration and wheel size.
+     * @return Singleton instance of {@code TimeoutScheduler}.
+     */
+    public static TimeoutScheduler getInstance() {
+        if (mInstance == null) {
+            synchronized (TimeoutScheduler.class) {
+                if (mInstance == null) {
+                    mInstance = new TimeoutScheduler(TICK_DURATION_DEFAULT, TimeUnit.MILLISECONDS,
+                            WHEEL_SIZE_DEFAULT);
+                }
+            }
+        }
+        return mInstance;
+    }
+
+    /**
+     * Schedules a task to run once a delay has passed. Safe to call from any thread, including from within a task.
+     * @param task Task to run.
+     * @param delay Delay before the task is run (rounded up to the next tick).
+     * @param unit Unit of {@code delay}.
+     * @return {@code Timeout} that can be used to cancel the task.
+     */
+    public Timeout schedule(final Runnable task, final long delay, final TimeUnit unit) {
+        Timeout timeout = new Timeout(this, task, System.nanoTime() + Math.max(0, unit.toNanos(delay)));
+        mTimeoutCount.incrementAndGet();
+        mNewTimeouts.add(timeout);
+
+        // Wake the wheel thread only if it would otherwise sleep past this Timeout's tick. The Timeout is queued before
+        // the wake tick is read, and the wheel thread publishes the wake tick before it checks the queue, so either
+        // the wheel thread places the Timeout before it parks or this lowers the wake tick (see runWheel()).
+        long tick = getTick(timeout.mDeadline);
+        long wakeTick;
+        while(tick < (wakeTick = mWakeTick.get())) {
+            if(mWakeTick.compareAndSet(wakeTick, tick)) {
+                LockSupport.unpark(mThread);
+                break;
+            }
+        }
+        return timeout;
+    }
+
+    /**
+     * Returns the amount of '{@code Timeout}'s that are pending (including cancelled '{@code Timeout}'s that have not
+     * yet been removed from the wheel).
+     * @return Amount of pending '{@code Timeout}'s.
+     */
+    public int getPendingCount() {
+        return mTimeoutCount.get();
+    }
+
+    /**
+     * Returns the amount of times that the wheel thread has woken (used to verify that it parks until the earliest
+     * deadline rather than waking once per tick).
+     * @return Amount of times that the wheel thread has woken.
+     */
+    long getWakeCount() {
+        return mWakeCount.get();
+    }
+
+    /**
+     * Returns the tick that a time falls in.
+     * @param time Time (see {@code System.nanoTime()}).
+     * @return Tick that the time falls in (negative if the time precedes the {@code TimeoutScheduler}'s creation).
+     */
+    private long getTick(final long time) {
+        long elapsed = time - mStartTime;
+        return elapsed >= 0 ? elapsed / mTickDuration : -1;
+    }
+
+    /**
+     * Advances the wheel whenever the earliest pending deadline passes or a {@code Timeout} is scheduled with an
+     * earlier deadline, and parks in between (wheel thread only).
+     */
+    private void runWheel() {
+        while(true) {
+            mWakeCount.incrementAndGet();
+            removeCancelledTimeouts();
+            placeNewTimeouts();
+            // Every tick that has ended is due.
+            expireTimeouts(getTick(System.nanoTime()) - 1);
+
+            // Publish the wake tick before checking for Timeouts that were scheduled whilst the wheel was advanced,
+            // which may not have lowered it (see schedule()).
+            long wakeTick = findEarliestTick();
+            mWakeTick.set(wakeTick);
+            if(!mNewTimeouts.isEmpty()) {
+                continue;
+            }
+
+            if(wakeTick == NO_WAKE_TICK) {
+                LockSupport.park(this);
+                continue;
+            }
+            // A Timeout is due once its tick has ended.
+            long remaining = mStartTime + (wakeTick + 1) * mTickDuration - System.nanoTime();
+            if(remaining > 0) {
+                LockSupport.parkNanos(this, remaining);
+            }
+        }
+    }
+
+    /**
+     * Returns the earliest tick that a {@code Timeout} in the wheel is due at the end of. The buckets are visited in
+     * tick order, so the search ends at the first {@code Timeout} that is due in the current turn of the wheel.
+     * @return Earliest tick that a {@code Timeout} is due at the end of, or {@code NO_WAKE_TICK} if the wheel is empty.
+     */
+    private long findEarliestTick() {
+        long earliestTick = NO_WAKE_TICK;
+        for(long tick = mTick; tick < mTick + mWheel.length; tick++) {
+            for(Timeout timeout = mWheel[(int)(tick & (mWheel.length - 1))].mHead; timeout != null;
+                    timeout = timeout.mNext) {
+                if(timeout.mDueTick == tick) {
+                    return tick;
+                }
+                earliestTick = Math.min(earliestTick, timeout.mDueTick);
+            }
+        }
+        return earliestTick;
+    }
+
+    /**
+     * Removes cancelled '{@code Timeout}'s from the wheel.
+     */
+    private void removeCancelledTimeouts() {
+        Timeout timeout;
+        while((timeout = mCancelledTimeouts.poll()) != null) {
+            // Cancelled Timeouts that have not yet been placed are discarded by placeNewTimeouts().
+            if(timeout.mBucket != null) {
+                timeout.mBucket.remove(timeout);
+                mTimeoutCount.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Places newly scheduled '{@code Timeout}'s in the bucket of the tick that their deadline falls in. Overdue
+     * '{@code Timeout}'s are placed in the bucket of the earliest tick that has not yet been expired.
+     */
+    private void placeNewTimeouts() {
+        Timeout timeout;
+        while((timeout = mNewTimeouts.poll()) != null) {
+            if(timeout.isCancelled()) {
+                mTimeoutCount.decrementAndGet();
+                continue;
+            }
+            timeout.mDueTick = Math.max(mTick, getTick(timeout.mDeadline));
+            mWheel[(int)(timeout.mDueTick & (mWheel.length - 1))].add(timeout);
+        }
+    }
+
+    /**
+     * Runs the tasks of the '{@code Timeout}'s that are due at the end of the ticks up to the specified tick. Each
+     * bucket is visited at most once, however many ticks have passed since the wheel was last advanced.
+     * @param lastTick Latest tick that has ended.
+     */
+    private void expireTimeouts(final long lastTick) {
+        for(long tick = mTick; tick <= lastTick && tick < mTick + mWheel.length; tick++) {
+            expireTimeouts(mWheel[(int)(tick & (mWheel.length - 1))], lastTick);
+        }
+        mTick = Math.max(mTick, lastTick + 1);
+    }
+
+    /**
+     * Runs the tasks of the '{@code Timeout}'s in a bucket that are due at the end of the specified tick or earlier.
+     * '{@code Timeout}'s that are due in a later turn of the wheel are left in the bucket.
+     * @param bucket Bucket to expire '{@code Timeout}'s from.
+     * @param lastTick Latest tick that has ended.
+     */
+    private void expireTimeouts(final Bucket bucket, final long lastTick) {
+        Timeout timeout = bucket.mHead;
+        while(timeout != null) {
+            if(timeout.mDueTick > lastTick) {
+                timeout = timeout.mNext;
+                continue;
+            }
+
+            Timeout next = bucket.remove(timeout);
+            mTimeoutCount.decrementAndGet();
+            if(timeout.mState.compareAndSet(Timeout.STATE_PENDING, Timeout.STATE_EXPIRED)) {
+                try {
+                    timeout.mTask.run();
+                }
+                catch(RuntimeException exception) {
+                    LOGGER.log(Level.WARNING, "A timeout task threw an exception.", exception);
+                }
+            }
+            timeout = next;
+        }
+    }
+
+}
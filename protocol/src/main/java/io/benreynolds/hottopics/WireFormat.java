@@ -0,0 +1,50 @@
+package io.benreynolds.hottopics;
+
+/**
+ * {@code WireFormat} describes how '{@code Packet}'s are encoded on the WebSocket. The format is negotiated when the
+ * connection is established using the WebSocket subprotocol header; {@code JSON} is used whenever the server does not
+ * select another format.
+ */
+public enum WireFormat {
+
+    /** '{@code Packet}'s are sent as JSON text frames (see {@code PacketCodecs}). */
+    JSON("hottopics.json"),
+
+    /** '{@code Packet}'s are sent as compact binary frames (see {@code BinaryPacketCodec}). The subprotocol's version
+     *  is incremented whenever the layout of an encoded {@code Packet} changes incompatibly. */
+    BINARY("hottopics.binary.2");
+
+    /** Name of the WebSocket subprotocol that identifies the {@code WireFormat}. */
+    private final String mSubprotocol;
+
+    /**
+     * @param subprotocol Name of the WebSocket subprotocol that identifies the {@code WireFormat}.
+     */
+    WireFormat(final String subprotocol) {
+        mSubprotocol = subprotocol;
+    }
+
+    /**
+     * Returns the name of the WebSocket subprotocol that identifies the {@code WireFormat}.
+     * @return Name of the WebSocket subprotocol that identifies the {@code WireFormat}.
+     */
+    public String getSubprotocol() {
+        return mSubprotocol;
+    }
+
+    /**
+     * Returns the {@code WireFormat} identified by the specified WebSocket subprotocol. If the subprotocol is
+     * {@code null} or unknown, returns {@code JSON}.
+     * @param subprotocol Name of a WebSocket subprotocol.
+     * @return {@code WireFormat} identified by the specified WebSocket subprotocol.
+     */
+    public static WireFormat fromSubprotocol(final String subprotocol) {
+        for(WireFormat wireFormat : values()) {
+            if(wireFormat.mSubprotocol.equals(subprotocol)) {
+                return wireFormat;
+            }
+        }
+        return JSON;
+    }
+
+}
@@ -0,0 +1,53 @@
+package io.benreynolds.hottopics.packets;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * {@code BatchPacket} is an envelope that carries several '{@code Packet}'s in a single WebSocket frame. It is only sent
+ * to servers that support batching, allowing bursts of '{@code Packet}'s to be written with a single frame header (and
+ * compressed together). '{@code BatchPacket}'s cannot be nested.
+ */
+public class BatchPacket extends Packet {
+
+    /** Attempts to store the '{@code BatchPacket}'s ID (as determined by the {@code PacketIdentifier}). */
+    public static final Integer ID = PacketIdentifier.PACKET_IDS.get(BatchPacket.class);
+
+    /** '{@code Packet}'s contained in the {@code BatchPacket}, in the order they were sent. */
+    @SerializedName("packets")
+    Packet[] mPackets;
+
+    /**
+     * @param packets '{@code Packet}'s contained in the {@code BatchPacket}, in the order they were sent.
+     */
+    public BatchPacket(final Packet[] packets) {
+        mId = ID;
+        mPackets = packets;
+    }
+
+    /**
+     * Returns the '{@code Packet}'s contained in the {@code BatchPacket}, in the order they were sent.
+     * @return '{@code Packet}'s contained in the {@code BatchPacket}.
+     */
+    public Packet[] getPackets() {
+        return mPackets;
+    }
+
+    /**
+     * Returns {@code true} if the {@code BatchPacket} contains a valid ID and at least one {@code Packet}, none of
+     * which are {@code null} or '{@code BatchPacket}'s.
+     * @return {@code true} if the {@code BatchPacket} contains a valid ID and at least one {@code Packet}.
+     */
+    @Override
+    public boolean isValid() {
+        if(mId == null || mPackets == null || mPackets.length == 0) {
+            return false;
+        }
+        for(Packet packet : mPackets) {
+            if(packet == null || packet instanceof BatchPacket) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
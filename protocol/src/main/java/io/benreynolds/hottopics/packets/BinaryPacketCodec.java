@@ -0,0 +1,697 @@
+package io.benreynolds.hottopics.packets;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+import okio.Buffer;
+import okio.ByteString;
+
+/**
+ * {@code BinaryPacketCodec} is a compact binary encoding of the {@code Packet} hierarchy, used as an alternative to
+ * JSON (see {@code PacketCodecs}). A {@code Packet} is encoded as its ID (a varint), then a flags byte, then its
+ * correlation ID (a varint, only present if the {@code FLAG_CORRELATION_ID} bit is set), then its fields in
+ * declaration order:
+ * <ul>
+ *     <li>Strings are encoded as a varint of their UTF-8 length plus one, followed by their UTF-8 bytes ({@code 0}
+ *     represents {@code null}).</li>
+ *     <li>Integers (and longs) are zig-zag encoded varints. Nullable integers are preceded by a presence byte.</li>
+ *     <li>Booleans are encoded as a single byte.</li>
+ *     <li>Arrays and collections are encoded as a varint of their size plus one ({@code 0} represents {@code null}),
+ *     followed by their elements.</li>
+ * </ul>
+ * Field names are never sent, which makes the encoding considerably smaller than the equivalent JSON. As every
+ * encoded {@code Packet} is framed (by the WebSocket or by its {@code BatchPacket}), fields may be appended to a
+ * {@code Packet} without breaking older decoders, which ignore the bytes that follow the fields they know. Flags that
+ * a decoder does not know change the layout of the header, so '{@code Packet}'s carrying them are rejected; any other
+ * change to the layout requires a new {@code WireFormat} subprotocol version.
+ */
+public final class BinaryPacketCodec {
+
+    /** Maximum amount of bytes in a varint-encoded 32-bit integer. */
+    private static final int VARINT_MAX_BYTES = 5;
+
+    /** Maximum amount of bytes in a varint-encoded 64-bit integer. */
+    private static final int VARLONG_MAX_BYTES = 10;
+
+    /** Flag that is set if the {@code Packet} has a correlation ID, which follows the flags byte. */
+    private static final int FLAG_CORRELATION_ID = 0x01;
+
+    /** Flags understood by this decoder. */
+    private static final int FLAGS_KNOWN = FLAG_CORRELATION_ID;
+
+    /** '{@code Packet}' adapters, indexed by the unique ID of the {@code Packet} derivative that they handle. */
+    private static final BinaryAdapter<?>[] ADAPTERS = new BinaryAdapter<?>[PacketIdentifier.PACKET_IDS.size()];
+
+    static {
+        register(SendMessagePacket.class, new BinaryAdapter<SendMessagePacket>() {
+            @Override
+            void writeFields(final Buffer sink, final SendMessagePacket packet) {
+                writeString(sink, packet.getMessage());
+                writeString(sink, packet.getClientId());
+            }
+
+            @Override
+            SendMessagePacket readFields(final Buffer source) throws IOException {
+                return new SendMessagePacket(readString(source), readString(source));
+            }
+        });
+        register(ReceiveMessagePacket.class, new BinaryAdapter<ReceiveMessagePacket>() {
+            @Override
+            void writeFields(final Buffer sink, final ReceiveMessagePacket packet) {
+                writeReceiveMessageFields(sink, packet);
+                writeString(sink, packet.getClientId());
+            }
+
+            @Override
+            ReceiveMessagePacket readFields(final Buffer source) throws IOException {
+                ReceiveMessagePacket packet = readReceiveMessageFields(source);
+                packet.mClientId = readString(source);
+                return packet;
+            }
+        });
+        register(UsernameRequestPacket.class, new BinaryAdapter<UsernameRequestPacket>() {
+            @Override
+            void writeFields(final Buffer sink, final UsernameRequestPacket packet) {
+                writeString(sink, packet.getUsername());
+            }
+
+            @Override
+            UsernameRequestPacket readFields(final Buffer source) throws IOException {
+                return new UsernameRequestPacket(readString(source));
+            }
+        });
+        register(UsernameResponsePacket.class, new BinaryAdapter<UsernameResponsePacket>() {
+            @Override
+            void writeFields(final Buffer sink, final UsernameResponsePacket packet) {
+                writeBoolean(sink, packet.getResponse());
+            }
+
+            @Override
+            UsernameResponsePacket readFields(final Buffer source) throws IOException {
+                return new UsernameResponsePacket(readBoolean(source));
+            }
+        });
+        register(ChatroomsRequestPacket.class, new BinaryAdapter<ChatroomsRequestPacket>() {
+            @Override
+            void writeFields(final Buffer sink, final ChatroomsRequestPacket packet) {
+                writeNullableInt(sink, packet.getPreviewSize());
+            }
+
+            @Override
+            ChatroomsRequestPacket readFields(final Buffer source) throws IOException {
+                return new ChatroomsRequestPacket(readNullableInt(source));
+            }
+        });
+        register(ChatroomsResponsePacket.class, new BinaryAdapter<ChatroomsResponsePacket>() {
+            @Override
+            void writeFields(final Buffer sink, final ChatroomsResponsePacket packet) {
+                Chatroom[] chatrooms = packet.getChatrooms();
+                writeSize(sink, chatrooms != null ? chatrooms.length : null);
+                if(chatrooms != null) {
+                    for(Chatroom chatroom : chatrooms) {
+                        writeChatroom(sink, chatroom);
+                    }
+                }
+            }
+
+            @Override
+            ChatroomsResponsePacket readFields(final Buffer source) throws IOException {
+                Integer size = readSize(source);
+                Chatroom[] chatrooms = null;
+                if(size != null) {
+                    chatrooms = new Chatroom[size];
+                    for(int i = 0; i < size; i++) {
+                        chatrooms[i] = readChatroom(source);
+                    }
+                }
+                return new ChatroomsResponsePacket(chatrooms);
+            }
+        });
+        register(JoinChatroomRequestPacket.class, new BinaryAdapter<JoinChatroomRequestPacket>() {
+            @Override
+            void writeFields(final Buffer sink, final JoinChatroomRequestPacket packet) {
+                writeString(sink, packet.getChatroomName());
+            }
+
+            @Override
+            JoinChatroomRequestPacket readFields(final Buffer source) throws IOException {
+                return new JoinChatroomRequestPacket(readString(source));
+            }
+        });
+        register(JoinChatroomResponsePacket.class, new BinaryAdapter<JoinChatroomResponsePacket>() {
+            @Override
+            void writeFields(final Buffer sink, final JoinChatroomResponsePacket packet) {
+                writeBoolean(sink, packet.getResponse());
+            }
+
+            @Override
+            JoinChatroomResponsePacket readFields(final Buffer source) throws IOException {
+                return new JoinChatroomResponsePacket(readBoolean(source));
+            }
+        });
+        register(LeaveChatroomRequestPacket.class, new BinaryAdapter<LeaveChatroomRequestPacket>() {
+            @Override
+            void writeFields(final Buffer sink, final LeaveChatroomRequestPacket packet) { }
+
+            @Override
+            LeaveChatroomRequestPacket readFields(final Buffer source) {
+                return new LeaveChatroomRequestPacket();
+            }
+        });
+        register(LeaveChatroomResponsePacket.class, new BinaryAdapter<LeaveChatroomResponsePacket>() {
+            @Override
+            void writeFields(final Buffer sink, final LeaveChatroomResponsePacket packet) {
+                writeBoolean(sink, packet.getResponse());
+            }
+
+            @Override
+            LeaveChatroomResponsePacket readFields(final Buffer source) throws IOException {
+                return new LeaveChatroomResponsePacket(readBoolean(source));
+            }
+        });
+        register(ChatroomUserCountUpdatePacket.class, new BinaryAdapter<ChatroomUserCountUpdatePacket>() {
+            @Override
+            void writeFields(final Buffer sink, final ChatroomUserCountUpdatePacket packet) {
+                writeInt(sink, packet.getResponse());
+            }
+
+            @Override
+            ChatroomUserCountUpdatePacket readFields(final Buffer source) throws IOException {
+                return new ChatroomUserCountUpdatePacket(readInt(source));
+            }
+        });
+        register(AcknowledgementRequestPacket.class, new BinaryAdapter<AcknowledgementRequestPacket>() {
+            @Override
+            void writeFields(final Buffer sink, final AcknowledgementRequestPacket packet) { }
+
+            @Override
+            AcknowledgementRequestPacket readFields(final Buffer source) {
+                return new AcknowledgementRequestPacket();
+            }
+        });
+        register(AcknowledgementResponsePacket.class, new BinaryAdapter<AcknowledgementResponsePacket>() {
+            @Override
+            void writeFields(final Buffer sink, final AcknowledgementResponsePacket packet) { }
+
+            @Override
+            AcknowledgementResponsePacket readFields(final Buffer source) {
+                return new AcknowledgementResponsePacket();
+            }
+        });
+        register(BatchPacket.class, new BinaryAdapter<BatchPacket>() {
+            @Override
+            void writeFields(final Buffer sink, final BatchPacket packet) {
+                Packet[] packets = packet.getPackets();
+                writeSize(sink, packets != null ? packets.length : null);
+                if(packets != null) {
+                    for(Packet containedPacket : packets) {
+                        // Each contained Packet is prefixed with its encoded length, allowing a receiver to skip
+                        // Packets that it cannot decode (see readFields()) and still deliver the rest.
+                        Buffer buffer = new Buffer();
+                        if(containedPacket != null && !(containedPacket instanceof BatchPacket)) {
+                            encode(buffer, containedPacket);
+                        }
+                        writeVarint(sink, (int)buffer.size());
+                        sink.write(buffer, buffer.size());
+                    }
+                }
+            }
+
+            @Override
+            BatchPacket readFields(final Buffer source) throws IOException {
+                Integer size = readSize(source);
+                if(size == null) {
+                    return new BatchPacket(null);
+                }
+                // Contained Packets that cannot be decoded (or are themselves BatchPackets) are skipped.
+                List<Packet> packets = new ArrayList<>();
+                for(int i = 0; i < size; i++) {
+                    int length = readVarint(source);
+                    if(length < 0 || length > source.size()) {
+                        throw new EOFException();
+                    }
+                    Buffer buffer = new Buffer();
+                    buffer.write(source, length);
+                    Packet containedPacket = buffer.size() > 0 ? decode(buffer) : null;
+                    if(containedPacket != null && !(containedPacket instanceof BatchPacket)) {
+                        packets.add(containedPacket);
+                    }
+                }
+                return new BatchPacket(packets.toArray(new Packet[packets.size()]));
+            }
+        });
+        register(ChatroomAddedPacket.class, new BinaryAdapter<ChatroomAddedPacket>() {
+            @Override
+            void writeFields(final Buffer sink, final ChatroomAddedPacket packet) {
+                writeChatroom(sink, packet.getChatroom());
+            }
+
+            @Override
+            ChatroomAddedPacket readFields(final Buffer source) throws IOException {
+                return new ChatroomAddedPacket(readChatroom(source));
+            }
+        });
+        register(ChatroomRemovedPacket.class, new BinaryAdapter<ChatroomRemovedPacket>() {
+            @Override
+            void writeFields(final Buffer sink, final ChatroomRemovedPacket packet) {
+                writeString(sink, packet.getChatroomName());
+            }
+
+            @Override
+            ChatroomRemovedPacket readFields(final Buffer source) throws IOException {
+                return new ChatroomRemovedPacket(readString(source));
+            }
+        });
+        register(ChatroomSizeChangedPacket.class, new BinaryAdapter<ChatroomSizeChangedPacket>() {
+            @Override
+            void writeFields(final Buffer sink, final ChatroomSizeChangedPacket packet) {
+                writeString(sink, packet.getChatroomName());
+                writeInt(sink, packet.getSize());
+            }
+
+            @Override
+            ChatroomSizeChangedPacket readFields(final Buffer source) throws IOException {
+                return new ChatroomSizeChangedPacket(readString(source), readInt(source));
+            }
+        });
+        register(HistoryRequestPacket.class, new BinaryAdapter<HistoryRequestPacket>() {
+            @Override
+            void writeFields(final Buffer sink, final HistoryRequestPacket packet) {
+                writeString(sink, packet.getChatroomName());
+                writeNullableLong(sink, packet.getBefore());
+                writeInt(sink, packet.getLimit());
+            }
+
+            @Override
+            HistoryRequestPacket readFields(final Buffer source) throws IOException {
+                String chatroomName = readString(source);
+                Long before = readNullableLong(source);
+                return new HistoryRequestPacket(chatroomName, before, readInt(source));
+            }
+        });
+        register(HistoryResponsePacket.class, new BinaryAdapter<HistoryResponsePacket>() {
+            @Override
+            void writeFields(final Buffer sink, final HistoryResponsePacket packet) {
+                writeString(sink, packet.getChatroomName());
+                ReceiveMessagePacket[] messages = packet.getMessages();
+                writeSize(sink, messages != null ? messages.length : null);
+                if(messages != null) {
+                    for(ReceiveMessagePacket message : messages) {
+                        writeReceiveMessageFields(sink, message);
+                    }
+                }
+                writeBoolean(sink, packet.hasMore());
+            }
+
+            @Override
+            HistoryResponsePacket readFields(final Buffer source) throws IOException {
+                String chatroomName = readString(source);
+                Integer messageCount = readSize(source);
+                ReceiveMessagePacket[] messages = null;
+                if(messageCount != null) {
+                    messages = new ReceiveMessagePacket[messageCount];
+                    for(int i = 0; i < messages.length; i++) {
+                        messages[i] = readReceiveMessageFields(source);
+                    }
+                }
+                return new HistoryResponsePacket(chatroomName, messages, readBoolean(source));
+            }
+        });
+    }
+
+    private BinaryPacketCodec() { }
+
+    /**
+     * Stores a '{@code Packet}' adapter in the table of adapters using the ID of the {@code Packet} derivative it
+     * handles.
+     * @param packetType {@code Packet} derivative handled by the adapter.
+     * @param adapter '{@code Packet}' adapter.
+     */
+    private static <T extends Packet> void register(final Class<T> packetType, final BinaryAdapter<T> adapter) {
+        ADAPTERS[PacketIdentifier.PACKET_IDS.get(packetType)] = adapter;
+    }
+
+    /**
+     * Encodes a {@code Packet} into the specified buffer.
+     * @param sink Buffer to write the encoded {@code Packet} to.
+     * @param packet {@code Packet} to encode.
+     * @return {@code true} if the {@code Packet} was encoded. '{@code Packet}'s without a known ID cannot be encoded.
+     */
+    @SuppressWarnings("unchecked")
+    public static boolean encode(final Buffer sink, final Packet packet) {
+        Integer id = packet.getId();
+        if(id == null || id < 0 || id >= ADAPTERS.length || ADAPTERS[id] == null) {
+            return false;
+        }
+        writeVarint(sink, id);
+        if(packet.mCorrelationId != null) {
+            sink.writeByte(FLAG_CORRELATION_ID);
+            writeVarint(sink, packet.mCorrelationId);
+        }
+        else {
+            sink.writeByte(0);
+        }
+        ((BinaryAdapter<Packet>)ADAPTERS[id]).writeFields(sink, packet);
+        return true;
+    }
+
+    /**
+     * Encodes a {@code Packet}.
+     * @param packet {@code Packet} to encode.
+     * @return Encoded {@code Packet}. If the {@code Packet} could not be encoded, returns {@code null}.
+     */
+    public static ByteString encode(final Packet packet) {
+        Buffer buffer = new Buffer();
+        return encode(buffer, packet) ? buffer.readByteString() : null;
+    }
+
+    /**
+     * Decodes a {@code Packet} from the specified buffer, consuming it. The returned {@code Packet} is not validated
+     * (see {@code Packet.isValid()}).
+     * @param source Buffer containing a single encoded {@code Packet}.
+     * @return Decoded {@code Packet}. If the data is malformed or contains an unknown ID or flag, returns
+     * {@code null}.
+     */
+    public static Packet decode(final Buffer source) {
+        try {
+            int id = readVarint(source);
+            if(id < 0 || id >= ADAPTERS.length || ADAPTERS[id] == null) {
+                return null;
+            }
+            if(source.exhausted()) {
+                throw new EOFException();
+            }
+            int flags = source.readByte() & 0xFF;
+            if((flags & ~FLAGS_KNOWN) != 0) {
+                return null;
+            }
+            Integer correlationId = null;
+            if((flags & FLAG_CORRELATION_ID) != 0) {
+                correlationId = readVarint(source);
+                if(correlationId < 0) {
+                    return null;
+                }
+            }
+            Packet packet = ADAPTERS[id].readFields(source);
+            packet.mId = id;
+            packet.mCorrelationId = correlationId;
+            return packet;
+        }
+        catch(IOException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Decodes a {@code Packet}. The returned {@code Packet} is not validated (see {@code Packet.isValid()}).
+     * @param bytes Encoded {@code Packet}.
+     * @return Decoded {@code Packet}. If the data is malformed or contains an unknown ID, returns {@code null}.
+     */
+    public static Packet decode(final ByteString bytes) {
+        return decode(new Buffer().write(bytes));
+    }
+
+    /**
+     * Writes the fields of a {@code ReceiveMessagePacket} (shared by {@code ReceiveMessagePacket} and
+     * {@code Chatroom}).
+     * @param sink Buffer to write to.
+     * @param packet {@code ReceiveMessagePacket} to write.
+     */
+    private static void writeReceiveMessageFields(final Buffer sink, final ReceiveMessagePacket packet) {
+        writeString(sink, packet.getAuthor());
+        writeString(sink, packet.getMessage());
+        writeNullableLong(sink, packet.getMessageId());
+    }
+
+    /**
+     * Reads the fields of a {@code ReceiveMessagePacket}.
+     * @param source Buffer to read from.
+     * @return {@code ReceiveMessagePacket}.
+     * @throws IOException If the data is malformed.
+     */
+    private static ReceiveMessagePacket readReceiveMessageFields(final Buffer source) throws IOException {
+        String author = readString(source);
+        String message = readString(source);
+        return new ReceiveMessagePacket(author, message, readNullableLong(source));
+    }
+
+    /**
+     * Writes a {@code Chatroom}, preceded by a presence byte.
+     * @param sink Buffer to write to.
+     * @param chatroom {@code Chatroom} to write.
+     */
+    private static void writeChatroom(final Buffer sink, final Chatroom chatroom) {
+        writeBoolean(sink, chatroom != null);
+        if(chatroom == null) {
+            return;
+        }
+        writeString(sink, chatroom.getName());
+        writeNullableInt(sink, chatroom.getSize());
+        Queue<ReceiveMessagePacket> messages = chatroom.getMessages();
+        writeSize(sink, messages != null ? messages.size() : null);
+        if(messages != null) {
+            for(ReceiveMessagePacket message : messages) {
+                writeReceiveMessageFields(sink, message);
+            }
+        }
+    }
+
+    /**
+     * Reads a {@code Chatroom}.
+     * @param source Buffer to read from.
+     * @return {@code Chatroom}, or {@code null} if a {@code null} {@code Chatroom} was encoded.
+     * @throws IOException If the data is malformed.
+     */
+    private static Chatroom readChatroom(final Buffer source) throws IOException {
+        if(!readBoolean(source)) {
+            return null;
+        }
+        String name = readString(source);
+        Integer size = readNullableInt(source);
+        Integer messageCount = readSize(source);
+        Queue<ReceiveMessagePacket> messages = new LinkedList<>();
+        if(messageCount != null) {
+            for(int i = 0; i < messageCount; i++) {
+                messages.add(readReceiveMessageFields(source));
+            }
+        }
+        return new Chatroom(name, size, messages);
+    }
+
+    /**
+     * Writes an unsigned varint.
+     * @param sink Buffer to write to.
+     * @param value Value to write (interpreted as unsigned).
+     */
+    static void writeVarint(final Buffer sink, int value) {
+        while((value & ~0x7F) != 0) {
+            sink.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        sink.writeByte(value);
+    }
+
+    /**
+     * Reads an unsigned varint.
+     * @param source Buffer to read from.
+     * @return Value that was read.
+     * @throws IOException If the data is truncated or the varint is too long.
+     */
+    static int readVarint(final Buffer source) throws IOException {
+        int value = 0;
+        for(int i = 0; i < VARINT_MAX_BYTES; i++) {
+            if(source.exhausted()) {
+                throw new EOFException();
+            }
+            byte b = source.readByte();
+            value |= (b & 0x7F) << (7 * i);
+            if((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint.");
+    }
+
+    /**
+     * Writes a signed integer as a zig-zag encoded varint.
+     * @param sink Buffer to write to.
+     * @param value Value to write.
+     */
+    private static void writeInt(final Buffer sink, final int value) {
+        writeVarint(sink, (value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Reads a zig-zag encoded varint.
+     * @param source Buffer to read from.
+     * @return Value that was read.
+     * @throws IOException If the data is malformed.
+     */
+    private static int readInt(final Buffer source) throws IOException {
+        int value = readVarint(source);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Writes a nullable integer.
+     * @param sink Buffer to write to.
+     * @param value Value to write.
+     */
+    private static void writeNullableInt(final Buffer sink, final Integer value) {
+        writeBoolean(sink, value != null);
+        if(value != null) {
+            writeInt(sink, value);
+        }
+    }
+
+    /**
+     * Reads a nullable integer.
+     * @param source Buffer to read from.
+     * @return Value that was read.
+     * @throws IOException If the data is malformed.
+     */
+    private static Integer readNullableInt(final Buffer source) throws IOException {
+        return readBoolean(source) ? readInt(source) : null;
+    }
+
+    /**
+     * Writes a nullable long as a zig-zag encoded varint, preceded by a presence byte.
+     * @param sink Buffer to write to.
+     * @param value Value to write.
+     */
+    private static void writeNullableLong(final Buffer sink, final Long value) {
+        writeBoolean(sink, value != null);
+        if(value == null) {
+            return;
+        }
+        long encoded = (value << 1) ^ (value >> 63);
+        while((encoded & ~0x7FL) != 0) {
+            sink.writeByte((int)((encoded & 0x7F) | 0x80));
+            encoded >>>= 7;
+        }
+        sink.writeByte((int)encoded);
+    }
+
+    /**
+     * Reads a nullable long.
+     * @param source Buffer to read from.
+     * @return Value that was read.
+     * @throws IOException If the data is malformed.
+     */
+    private static Long readNullableLong(final Buffer source) throws IOException {
+        if(!readBoolean(source)) {
+            return null;
+        }
+        long encoded = 0;
+        for(int i = 0; i < VARLONG_MAX_BYTES; i++) {
+            if(source.exhausted()) {
+                throw new EOFException();
+            }
+            byte b = source.readByte();
+            encoded |= (long)(b & 0x7F) << (7 * i);
+            if((b & 0x80) == 0) {
+                return (encoded >>> 1) ^ -(encoded & 1);
+            }
+        }
+        throw new IOException("Malformed varint.");
+    }
+
+    /**
+     * Writes the size of a nullable array or collection.
+     * @param sink Buffer to write to.
+     * @param size Size to write, or {@code null} if the array or collection is {@code null}.
+     */
+    private static void writeSize(final Buffer sink, final Integer size) {
+        writeVarint(sink, size != null ? size + 1 : 0);
+    }
+
+    /**
+     * Reads the size of a nullable array or collection.
+     * @param source Buffer to read from.
+     * @return Size that was read, or {@code null} if the array or collection is {@code null}.
+     * @throws IOException If the data is malformed.
+     */
+    private static Integer readSize(final Buffer source) throws IOException {
+        int size = readVarint(source);
+        if(size < 0 || size - 1 > source.size()) {
+            throw new IOException("Malformed size.");
+        }
+        return size != 0 ? size - 1 : null;
+    }
+
+    /**
+     * Writes a boolean.
+     * @param sink Buffer to write to.
+     * @param value Value to write.
+     */
+    private static void writeBoolean(final Buffer sink, final boolean value) {
+        sink.writeByte(value ? 1 : 0);
+    }
+
+    /**
+     * Reads a boolean.
+     * @param source Buffer to read from.
+     * @return Value that was read.
+     * @throws IOException If the data is truncated.
+     */
+    private static boolean readBoolean(final Buffer source) throws IOException {
+        if(source.exhausted()) {
+            throw new EOFException();
+        }
+        return source.readByte() != 0;
+    }
+
+    /**
+     * Writes a nullable, length-prefixed UTF-8 string.
+     * @param sink Buffer to write to.
+     * @param value Value to write.
+     */
+    private static void writeString(final Buffer sink, final String value) {
+        if(value == null) {
+            writeVarint(sink, 0);
+            return;
+        }
+        ByteString bytes = ByteString.encodeUtf8(value);
+        writeVarint(sink, bytes.size() + 1);
+        sink.write(bytes);
+    }
+
+    /**
+     * Reads a nullable, length-prefixed UTF-8 string.
+     * @param source Buffer to read from.
+     * @return Value that was read.
+     * @throws IOException If the data is malformed.
+     */
+    private static String readString(final Buffer source) throws IOException {
+        Integer length = readSize(source);
+        return length != null ? source.readUtf8(length) : null;
+    }
+
+    /**
+     * Base class of the binary '{@code Packet}' adapters.
+     * @param <T> {@code Packet} derivative.
+     */
+    private abstract static class BinaryAdapter<T extends Packet> {
+
+        /**
+         * Writes the fields of the {@code Packet} derivative (excluding its ID).
+         * @param sink Buffer to write to.
+         * @param packet {@code Packet} to write.
+         */
+        abstract void writeFields(Buffer sink, T packet);
+
+        /**
+         * Reads the fields of the {@code Packet} derivative (excluding its ID).
+         * @param source Buffer to read from.
+         * @return {@code Packet} derivative.
+         * @throws IOException If the data is malformed.
+         */
+        abstract T readFields(Buffer source) throws IOException;
+
+    }
+
+}
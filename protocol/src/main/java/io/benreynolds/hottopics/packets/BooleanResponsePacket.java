@@ -10,7 +10,7 @@ public abstract class BooleanResponsePacket extends Packet {
 
     /** Server's response. */
     @SerializedName("response")
-    private boolean mResponse;
+    boolean mResponse;
 
     /**
      * @param response Server's response.
@@ -0,0 +1,79 @@
+package io.benreynolds.hottopics.packets;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.io.Serializable;
+import java.util.LinkedList;
+import java.util.Queue;
+
+/**
+ * '{@code Chatroom}'s are named using trend information (see {@code TrendManager}) and contain references to the user's
+ * '{@code Session}'s that are present within them.
+ */
+public class Chatroom implements Serializable {
+
+    /** Maximum amount of the most recent messages held by a {@code Chatroom} (its preview). Older messages are fetched
+     * on demand (see {@code HistoryRequestPacket}). */
+    public static final int PREVIEW_SIZE_MAX = 20;
+
+    /** Name of the {@code Chatroom}. */
+    @SerializedName("name")
+    private String mName;
+
+    /** Amount of users in the Chatroom **/
+    @SerializedName("size")
+    private Integer mSize;
+
+    /** Most recent messages that have been sent within the {@code Chatroom}, oldest first. */
+    @SerializedName("messages")
+    private Queue<ReceiveMessagePacket> mMessages = new LinkedList<>();
+
+    /**
+     * @param name Name of the {@code Chatroom}.
+     */
+    public Chatroom(final String name) {
+        mName = name;
+    }
+
+    /**
+     * @param name Name of the {@code Chatroom}.
+     * @param size Amount of users in the {@code Chatroom}.
+     * @param messages Messages that have been sent within the {@code Chatroom}, oldest first. Only the most recent
+     * {@code PREVIEW_SIZE_MAX} are kept.
+     */
+    Chatroom(final String name, final Integer size, final Queue<ReceiveMessagePacket> messages) {
+        mName = name;
+        mSize = size;
+        mMessages = messages;
+        while(mMessages != null && mMessages.size() > PREVIEW_SIZE_MAX) {
+            mMessages.remove();
+        }
+    }
+
+    /** Returns the name of the {@code Chatroom}.
+     * @return Name of the {@code Chatroom}.
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /** Returns the amount of users in the {@code Chatroom}.
+     * @return Amount of users in the {@code Chatroom}.
+     */
+    public Integer getSize() { return mSize; }
+
+    /** Sets the amount of users in the {@code Chatroom} (see {@code ChatroomSizeChangedPacket}).
+     * @param size Amount of users in the {@code Chatroom}.
+     */
+    public void setSize(final Integer size) {
+        mSize = size;
+    }
+
+    /** Returns the most recent messages that have been sent within the {@code Chatroom}.
+     * @return Most recent messages that have been sent within the {@code Chatroom}, oldest first.
+     */
+    public Queue<ReceiveMessagePacket> getMessages() {
+        return mMessages;
+    }
+
+}
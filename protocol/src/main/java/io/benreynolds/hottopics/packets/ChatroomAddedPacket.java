@@ -0,0 +1,43 @@
+package io.benreynolds.hottopics.packets;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * {@code ChatroomAddedPacket} is sent to client devices that support chatroom list deltas when a {@code Chatroom} is
+ * added to the list of available chatrooms (see {@code ChatroomsResponsePacket}).
+ */
+public class ChatroomAddedPacket extends Packet {
+
+    /** Attempts to store the '{@code ChatroomAddedPacket}'s ID (as determined by the {@code PacketIdentifier}). */
+    public static final Integer ID = PacketIdentifier.PACKET_IDS.get(ChatroomAddedPacket.class);
+
+    /** {@code Chatroom} that was added. */
+    @SerializedName("chatroom")
+    Chatroom mChatroom;
+
+    /**
+     * @param chatroom {@code Chatroom} that was added.
+     */
+    public ChatroomAddedPacket(final Chatroom chatroom) {
+        mId = ID;
+        mChatroom = chatroom;
+    }
+
+    /**
+     * Returns the {@code Chatroom} that was added.
+     * @return {@code Chatroom} that was added.
+     */
+    public Chatroom getChatroom() {
+        return mChatroom;
+    }
+
+    /**
+     * Returns {@code true} if the {@code ChatroomAddedPacket} contains a valid ID and a named {@code Chatroom}.
+     * @return {@code true} if the {@code ChatroomAddedPacket} contains a valid ID and a named {@code Chatroom}.
+     */
+    @Override
+    public boolean isValid() {
+        return mId != null && mChatroom != null && mChatroom.getName() != null;
+    }
+
+}
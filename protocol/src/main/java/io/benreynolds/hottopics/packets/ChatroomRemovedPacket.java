@@ -0,0 +1,43 @@
+package io.benreynolds.hottopics.packets;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * {@code ChatroomRemovedPacket} is sent to client devices that support chatroom list deltas when a {@code Chatroom} is
+ * removed from the list of available chatrooms (see {@code ChatroomsResponsePacket}).
+ */
+public class ChatroomRemovedPacket extends Packet {
+
+    /** Attempts to store the '{@code ChatroomRemovedPacket}'s ID (as determined by the {@code PacketIdentifier}). */
+    public static final Integer ID = PacketIdentifier.PACKET_IDS.get(ChatroomRemovedPacket.class);
+
+    /** Name of the {@code Chatroom} that was removed. */
+    @SerializedName("chatroom_name")
+    String mChatroomName;
+
+    /**
+     * @param chatroomName Name of the {@code Chatroom} that was removed.
+     */
+    public ChatroomRemovedPacket(final String chatroomName) {
+        mId = ID;
+        mChatroomName = chatroomName;
+    }
+
+    /**
+     * Returns the name of the {@code Chatroom} that was removed.
+     * @return Name of the {@code Chatroom} that was removed.
+     */
+    public String getChatroomName() {
+        return mChatroomName;
+    }
+
+    /**
+     * Returns {@code true} if the {@code ChatroomRemovedPacket} contains a valid ID and chatroom name.
+     * @return {@code true} if the {@code ChatroomRemovedPacket} contains a valid ID and chatroom name.
+     */
+    @Override
+    public boolean isValid() {
+        return mId != null && mChatroomName != null;
+    }
+
+}
@@ -0,0 +1,57 @@
+package io.benreynolds.hottopics.packets;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * {@code ChatroomSizeChangedPacket} is sent to client devices that support chatroom list deltas when the amount of
+ * users in a {@code Chatroom} changes.
+ */
+public class ChatroomSizeChangedPacket extends Packet {
+
+    /** Attempts to store the '{@code ChatroomSizeChangedPacket}'s ID (as determined by the {@code PacketIdentifier}). */
+    public static final Integer ID = PacketIdentifier.PACKET_IDS.get(ChatroomSizeChangedPacket.class);
+
+    /** Name of the {@code Chatroom} whose size changed. */
+    @SerializedName("chatroom_name")
+    String mChatroomName;
+
+    /** Amount of users in the {@code Chatroom}. */
+    @SerializedName("size")
+    int mSize;
+
+    /**
+     * @param chatroomName Name of the {@code Chatroom} whose size changed.
+     * @param size Amount of users in the {@code Chatroom}.
+     */
+    public ChatroomSizeChangedPacket(final String chatroomName, final int size) {
+        mId = ID;
+        mChatroomName = chatroomName;
+        mSize = size;
+    }
+
+    /**
+     * Returns the name of the {@code Chatroom} whose size changed.
+     * @return Name of the {@code Chatroom} whose size changed.
+     */
+    public String getChatroomName() {
+        return mChatroomName;
+    }
+
+    /**
+     * Returns the amount of users in the {@code Chatroom}.
+     * @return Amount of users in the {@code Chatroom}.
+     */
+    public int getSize() {
+        return mSize;
+    }
+
+    /**
+     * Returns {@code true} if the {@code ChatroomSizeChangedPacket} contains a valid ID, chatroom name and size.
+     * @return {@code true} if the {@code ChatroomSizeChangedPacket} contains a valid ID, chatroom name and size.
+     */
+    @Override
+    public boolean isValid() {
+        return mId != null && mChatroomName != null && mSize >= 0;
+    }
+
+}
@@ -0,0 +1,46 @@
+package io.benreynolds.hottopics.packets;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * {code ChatroomsRequestPacket} sent by client devices when requesting a list of available '{@code Chatroom}'s.
+ */
+public class ChatroomsRequestPacket extends Packet {
+
+    /** Attempts to store the '{@code ChatroomsRequestPacket}'s ID (as determined by the {@code PacketIdentifier}). */
+    public static final Integer ID = PacketIdentifier.PACKET_IDS.get(ChatroomsRequestPacket.class);
+
+    /** Maximum amount of each {@code Chatroom}'s most recent messages to include in the response. If {@code null}, the
+     * server decides. */
+    @SerializedName("preview_size")
+    Integer mPreviewSize;
+
+    public ChatroomsRequestPacket() {
+        this(Chatroom.PREVIEW_SIZE_MAX);
+    }
+
+    /**
+     * @param previewSize Maximum amount of each {@code Chatroom}'s most recent messages to include in the response.
+     */
+    public ChatroomsRequestPacket(final Integer previewSize) {
+        mId = ID;
+        mPreviewSize = previewSize;
+    }
+
+    /**
+     * Returns the maximum amount of each {@code Chatroom}'s most recent messages to include in the response.
+     * @return Maximum amount of each {@code Chatroom}'s most recent messages, or {@code null} if the server decides.
+     */
+    public Integer getPreviewSize() {
+        return mPreviewSize;
+    }
+
+    /**
+     * This method always returns {@code true} due to the packet requir
+     * @return {@code true}.
+     */
+    @Override
+    public boolean isValid() {
+        return mId != null;
+    }
+}
@@ -14,7 +14,7 @@ public class ChatroomsResponsePacket extends Packet {
      * '{@code Chatroom}'s that are available for clients to join.
      */
     @SerializedName("chatrooms")
-    private Chatroom[] mChatrooms;
+    Chatroom[] mChatrooms;
 
     /**
      * @param chatrooms '{@code Chatroom}'s that are available for clients to join.
@@ -0,0 +1,79 @@
+package io.benreynolds.hottopics.packets;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * {@code HistoryRequestPacket} is sent by client devices to request a page of the messages that were sent within a
+ * {@code Chatroom} before a given message (see {@code HistoryResponsePacket}).
+ */
+public class HistoryRequestPacket extends Packet {
+
+    /** Attempts to store the '{@code HistoryRequestPacket}'s ID (as determined by the {@code PacketIdentifier}). */
+    public static final Integer ID = PacketIdentifier.PACKET_IDS.get(HistoryRequestPacket.class);
+
+    /** Maximum amount of messages that may be requested in a single page. */
+    public static final int PAGE_SIZE_MAX = 100;
+
+    /** Name of the {@code Chatroom} whose messages are requested. */
+    @SerializedName("chatroom_name")
+    String mChatroomName;
+
+    /** Server-assigned ID of the message that the requested messages were sent before (the cursor). If {@code null},
+     * the most recent messages are requested. */
+    @SerializedName("before")
+    Long mBefore;
+
+    /** Maximum amount of messages to return. */
+    @SerializedName("limit")
+    int mLimit;
+
+    /**
+     * @param chatroomName Name of the {@code Chatroom} whose messages are requested.
+     * @param before Server-assigned ID of the message that the requested messages were sent before. If {@code null},
+     * the most recent messages are requested.
+     * @param limit Maximum amount of messages to return.
+     */
+    public HistoryRequestPacket(final String chatroomName, final Long before, final int limit) {
+        mId = ID;
+        mChatroomName = chatroomName;
+        mBefore = before;
+        mLimit = limit;
+    }
+
+    /**
+     * Returns the name of the {@code Chatroom} whose messages are requested.
+     * @return Name of the {@code Chatroom} whose messages are requested.
+     */
+    public String getChatroomName() {
+        return mChatroomName;
+    }
+
+    /**
+     * Returns the server-assigned ID of the message that the requested messages were sent before.
+     * @return Server-assigned ID of the message that the requested messages were sent before, or {@code null} if the
+     * most recent messages are requested.
+     */
+    public Long getBefore() {
+        return mBefore;
+    }
+
+    /**
+     * Returns the maximum amount of messages to return.
+     * @return Maximum amount of messages to return.
+     */
+    public int getLimit() {
+        return mLimit;
+    }
+
+    /**
+     * Returns {@code true} if the {@code HistoryRequestPacket} contains a valid ID, chatroom name and limit. Limits
+     * are considered valid if they are between {@code 1} and {@code PAGE_SIZE_MAX}.
+     * @return {@code true} if the {@code HistoryRequestPacket} contains a valid ID, chatroom name and limit.
+     */
+    @Override
+    public boolean isValid() {
+        return mId != null && mChatroomName != null && !mChatroomName.isEmpty() && mLimit > 0 &&
+                mLimit <= PAGE_SIZE_MAX;
+    }
+
+}
@@ -0,0 +1,73 @@
+package io.benreynolds.hottopics.packets;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * {@code HistoryResponsePacket} is sent to client devices as a response to a {@code HistoryRequestPacket}. It contains
+ * a page of the messages that were sent within a {@code Chatroom} before the requested message.
+ */
+public class HistoryResponsePacket extends Packet {
+
+    /** Attempts to store the '{@code HistoryResponsePacket}'s ID (as determined by the {@code PacketIdentifier}). */
+    public static final Integer ID = PacketIdentifier.PACKET_IDS.get(HistoryResponsePacket.class);
+
+    /** Name of the {@code Chatroom} whose messages were requested. */
+    @SerializedName("chatroom_name")
+    String mChatroomName;
+
+    /** Requested messages, oldest first. */
+    @SerializedName("messages")
+    ReceiveMessagePacket[] mMessages;
+
+    /** {@code true} if there are messages older than those contained in the {@code HistoryResponsePacket}. */
+    @SerializedName("has_more")
+    boolean mHasMore;
+
+    /**
+     * @param chatroomName Name of the {@code Chatroom} whose messages were requested.
+     * @param messages Requested messages, oldest first.
+     * @param hasMore {@code true} if there are older messages than those contained in the
+     * {@code HistoryResponsePacket}.
+     */
+    public HistoryResponsePacket(final String chatroomName, final ReceiveMessagePacket[] messages,
+                                 final boolean hasMore) {
+        mId = ID;
+        mChatroomName = chatroomName;
+        mMessages = messages;
+        mHasMore = hasMore;
+    }
+
+    /**
+     * Returns the name of the {@code Chatroom} whose messages were requested.
+     * @return Name of the {@code Chatroom} whose messages were requested.
+     */
+    public String getChatroomName() {
+        return mChatroomName;
+    }
+
+    /**
+     * Returns the requested messages, oldest first.
+     * @return Requested messages, oldest first.
+     */
+    public ReceiveMessagePacket[] getMessages() {
+        return mMessages;
+    }
+
+    /**
+     * Returns {@code true} if there are messages older than those contained in the {@code HistoryResponsePacket}.
+     * @return {@code true} if there are older messages.
+     */
+    public boolean hasMore() {
+        return mHasMore;
+    }
+
+    /**
+     * Returns {@code true} if the {@code HistoryResponsePacket} contains a valid ID, chatroom name and messages.
+     * @return {@code true} if the {@code HistoryResponsePacket} contains a valid ID, chatroom name and messages.
+     */
+    @Override
+    public boolean isValid() {
+        return mId != null && mChatroomName != null && mMessages != null;
+    }
+
+}
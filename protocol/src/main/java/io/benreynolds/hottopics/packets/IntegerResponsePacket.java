@@ -10,7 +10,7 @@ public abstract class IntegerResponsePacket extends Packet {
 
     /** Server's response. */
     @SerializedName("response")
-    private int mResponse;
+    int mResponse;
 
     /**
      * @param response Server's response.
@@ -12,7 +12,7 @@ public class JoinChatroomRequestPacket extends Packet {
 
     /** Name of the {@code Chatroom} to join. */
     @SerializedName("chatroom_name")
-    private String mChatroomName;
+    String mChatroomName;
 
     /**
      * @param chatroomName Name of the {@code Chatroom} to join.
@@ -1,6 +1,5 @@
 package io.benreynolds.hottopics.packets;
 
-import com.google.gson.Gson;
 import com.google.gson.annotations.SerializedName;
 
 import java.io.Serializable;
@@ -8,7 +7,8 @@ import java.io.Serializable;
 /**
  * {@code Packet} is the base class extended by all of the Hot Topics {@code Packet} classes ({@code SendMessagePacket},
  * {@code ReceiveMessagePacket}) that are used for WebSocket communications. {@code Packet} classes are intended to be
- * serialized and deserialized by the client and server applications using Google's Gson library.
+ * serialized and deserialized by the client and server applications using Google's Gson library (see
+ * {@code PacketCodecs}).
  */
 public abstract class Packet implements Serializable {
 
@@ -16,6 +16,10 @@ public abstract class Packet implements Serializable {
     @SerializedName("id")
     Integer mId = null;
 
+    /** Correlation ID that pairs a request with its response, or {@code null} if the {@code Packet} is uncorrelated. */
+    @SerializedName("cid")
+    Integer mCorrelationId = null;
+
     /**
      * Returns the unique ID of the {@code Packet}. IDs are assigned to {@code Packet} derivatives during the static
      * initialization of {@code PacketIdentifier}.
@@ -25,6 +29,26 @@ public abstract class Packet implements Serializable {
         return mId;
     }
 
+    /**
+     * Returns the correlation ID of the {@code Packet}. A request sent with a correlation ID is answered by a response
+     * with the same correlation ID, meaning that several requests of the same type can be in flight at once.
+     * @return Correlation ID of the {@code Packet}, or {@code null} if the {@code Packet} is uncorrelated.
+     */
+    public final Integer getCorrelationId() {
+        return mCorrelationId;
+    }
+
+    /**
+     * Sets the correlation ID of the {@code Packet} (see {@code getCorrelationId()}).
+     * @param correlationId Non-negative correlation ID, or {@code null} to send the {@code Packet} uncorrelated.
+     */
+    public final void setCorrelationId(final Integer correlationId) {
+        if(correlationId != null && correlationId < 0) {
+            throw new IllegalArgumentException("'correlationId' must not be negative.");
+        }
+        mCorrelationId = correlationId;
+    }
+
     /**
      * Returns {@code true} if the {@code Packet} contains the information required to complete its intended action.
      * All classes derived from {@code Packet} should provide a suitable implementation.
@@ -38,6 +62,6 @@ public abstract class Packet implements Serializable {
      */
     @Override
     public String toString() {
-        return new Gson().toJson(this);
+        return PacketCodecs.GSON.toJson(this);
     }
 }
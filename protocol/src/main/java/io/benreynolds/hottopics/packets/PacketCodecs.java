@@ -0,0 +1,956 @@
+package io.benreynolds.hottopics.packets;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * {@code PacketCodecs} is a static registry of hand-written {@code TypeAdapter}s for every known {@code Packet}
+ * derivative (and {@code Chatroom}). The adapters read and write fields directly, meaning that '{@code Packet}'s can be
+ * encoded and decoded without reflection. A single, pre-configured {@code Gson} instance ({@code GSON}) that uses the
+ * adapters is shared by the client.
+ */
+public final class PacketCodecs {
+
+    /** Key of the JSON field that contains a '{@code Packet}'s ID. */
+    static final String ID_FIELD = "id";
+
+    /** Key of the JSON field that contains a '{@code Packet}'s correlation ID (omitted if it has none). */
+    static final String CORRELATION_ID_FIELD = "cid";
+
+    /** {@code TypeAdapter} used to encode and decode '{@code ReceiveMessagePacket}'s. */
+    private static final ReceiveMessagePacketAdapter RECEIVE_MESSAGE_ADAPTER = new ReceiveMessagePacketAdapter();
+
+    /** {@code TypeAdapter} used to encode and decode '{@code Chatroom}'s. */
+    private static final ChatroomAdapter CHATROOM_ADAPTER = new ChatroomAdapter();
+
+    /** Shared {@code Gson} instance configured with the '{@code Packet}' adapters ({@code Gson} is thread-safe). */
+    public static final Gson GSON;
+
+    /** '{@code Packet}' adapters, indexed by the unique ID of the {@code Packet} derivative that they handle. */
+    private static final PacketAdapter<?>[] CODECS = new PacketAdapter<?>[PacketIdentifier.PACKET_IDS.size()];
+
+    /** Used to buffer the fields of a {@code Packet} that precede its ID ({@code JsonParser} is stateless). */
+    private static final JsonParser JSON_PARSER = new JsonParser();
+
+    static {
+        register(SendMessagePacket.class, new SendMessagePacketAdapter());
+        register(ReceiveMessagePacket.class, RECEIVE_MESSAGE_ADAPTER);
+        register(UsernameRequestPacket.class, new UsernameRequestPacketAdapter());
+        register(UsernameResponsePacket.class, new BooleanResponsePacketAdapter<UsernameResponsePacket>() {
+            @Override
+            UsernameResponsePacket create(final boolean response) {
+                return new UsernameResponsePacket(response);
+            }
+        });
+        register(ChatroomsRequestPacket.class, new ChatroomsRequestPacketAdapter());
+        register(ChatroomsResponsePacket.class, new ChatroomsResponsePacketAdapter());
+        register(JoinChatroomRequestPacket.class, new JoinChatroomRequestPacketAdapter());
+        register(JoinChatroomResponsePacket.class, new BooleanResponsePacketAdapter<JoinChatroomResponsePacket>() {
+            @Override
+            JoinChatroomResponsePacket create(final boolean response) {
+                return new JoinChatroomResponsePacket(response);
+            }
+        });
+        register(LeaveChatroomRequestPacket.class, new EmptyPacketAdapter<LeaveChatroomRequestPacket>() {
+            @Override
+            LeaveChatroomRequestPacket create() {
+                return new LeaveChatroomRequestPacket();
+            }
+        });
+        register(LeaveChatroomResponsePacket.class, new BooleanResponsePacketAdapter<LeaveChatroomResponsePacket>() {
+            @Override
+            LeaveChatroomResponsePacket create(final boolean response) {
+                return new LeaveChatroomResponsePacket(response);
+            }
+        });
+        register(ChatroomUserCountUpdatePacket.class, new IntegerResponsePacketAdapter<ChatroomUserCountUpdatePacket>() {
+            @Override
+            ChatroomUserCountUpdatePacket create(final int response) {
+                return new ChatroomUserCountUpdatePacket(response);
+            }
+        });
+        register(AcknowledgementRequestPacket.class, new EmptyPacketAdapter<AcknowledgementRequestPacket>() {
+            @Override
+            AcknowledgementRequestPacket create() {
+                return new AcknowledgementRequestPacket();
+            }
+        });
+        register(AcknowledgementResponsePacket.class, new EmptyPacketAdapter<AcknowledgementResponsePacket>() {
+            @Override
+            AcknowledgementResponsePacket create() {
+                return new AcknowledgementResponsePacket();
+            }
+        });
+        register(BatchPacket.class, new BatchPacketAdapter());
+        register(ChatroomAddedPacket.class, new ChatroomAddedPacketAdapter());
+        register(ChatroomRemovedPacket.class, new ChatroomRemovedPacketAdapter());
+        register(ChatroomSizeChangedPacket.class, new ChatroomSizeChangedPacketAdapter());
+        register(HistoryRequestPacket.class, new HistoryRequestPacketAdapter());
+        register(HistoryResponsePacket.class, new HistoryResponsePacketAdapter());
+
+        GsonBuilder gsonBuilder = new GsonBuilder();
+        for(Class<? extends Packet> packetType : PacketIdentifier.PACKET_IDS.keySet()) {
+            gsonBuilder.registerTypeAdapter(packetType, getCodec(packetType));
+        }
+        gsonBuilder.registerTypeAdapter(UnidentifiedPacket.class, new EmptyPacketAdapter<UnidentifiedPacket>() {
+            @Override
+            UnidentifiedPacket create() {
+                return new UnidentifiedPacket();
+            }
+        });
+        gsonBuilder.registerTypeAdapter(Chatroom.class, CHATROOM_ADAPTER);
+        GSON = gsonBuilder.create();
+    }
+
+    private PacketCodecs() { }
+
+    /**
+     * Stores a '{@code Packet}' adapter in the table of codecs using the ID of the {@code Packet} derivative it handles.
+     * @param packetType {@code Packet} derivative handled by the adapter.
+     * @param codec '{@code Packet}' adapter.
+     */
+    private static <T extends Packet> void register(final Class<T> packetType, final PacketAdapter<T> codec) {
+        CODECS[PacketIdentifier.PACKET_IDS.get(packetType)] = codec;
+    }
+
+    /**
+     * Returns the {@code TypeAdapter} used to encode and decode the specified {@code Packet} derivative. If the
+     * {@code Packet} derivative is unknown, returns {@code null}.
+     * @param packetType {@code Packet} derivative.
+     * @return {@code TypeAdapter} used to encode and decode the specified {@code Packet} derivative.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Packet> TypeAdapter<T> getCodec(final Class<T> packetType) {
+        Integer id = PacketIdentifier.PACKET_IDS.get(packetType);
+        return id != null ? (TypeAdapter<T>)CODECS[id] : null;
+    }
+
+    /**
+     * Returns the {@code TypeAdapter} used to encode and decode the {@code Packet} derivative that has been assigned
+     * the specified ID. If no {@code Packet} derivative has been assigned the ID, returns {@code null}.
+     * @param id Unique ID of the {@code Packet} derivative.
+     * @return {@code TypeAdapter} used to encode and decode the {@code Packet} derivative.
+     */
+    @SuppressWarnings("unchecked")
+    public static TypeAdapter<? extends Packet> getCodec(final int id) {
+        return id >= 0 && id < CODECS.length ? (TypeAdapter<? extends Packet>)CODECS[id] : null;
+    }
+
+    /**
+     * Reads a {@code Packet} in a single pass, using its ID to select the adapter that decodes the rest of its fields
+     * directly from the JSON reader. If the ID is not the first field, the fields that precede it are buffered as a
+     * tree and decoded once it has been read; the fields that follow it are still decoded directly. The reader is
+     * left positioned after the {@code Packet}, even if it cannot be decoded. The returned {@code Packet} is not
+     * validated (see {@code Packet.isValid()}).
+     * @param in JSON reader, positioned at the {@code Packet}.
+     * @param batchAllowed {@code true} if the {@code Packet} may be a {@code BatchPacket}.
+     * @return Decoded {@code Packet}, or {@code null} if it is not an object, has no ID or has an unknown ID.
+     * @throws IOException If the JSON is malformed.
+     */
+    @SuppressWarnings("unchecked")
+    static Packet readPacket(final JsonReader in, final boolean batchAllowed) throws IOException {
+        if(in.peek() != JsonToken.BEGIN_OBJECT) {
+            in.skipValue();
+            return null;
+        }
+
+        in.beginObject();
+        JsonObject precedingFields = null;
+        while(in.hasNext()) {
+            String name = in.nextName();
+            if(!name.equals(ID_FIELD)) {
+                if(precedingFields == null) {
+                    precedingFields = new JsonObject();
+                }
+                precedingFields.add(name, JSON_PARSER.parse(in));
+                continue;
+            }
+
+            Integer id = in.peek() == JsonToken.NUMBER ? in.nextInt() : null;
+            PacketAdapter<Packet> codec = id != null && id >= 0 && id < CODECS.length ?
+                    (PacketAdapter<Packet>)CODECS[id] : null;
+            if(codec == null || (!batchAllowed && id.equals(BatchPacket.ID))) {
+                if(id == null) {
+                    in.skipValue();
+                }
+                break;
+            }
+
+            Packet packet = precedingFields != null ? codec.fromJsonTree(precedingFields) : codec.create();
+            packet.mId = id;
+            codec.readFields(in, packet);
+            in.endObject();
+            return packet;
+        }
+
+        while(in.hasNext()) {
+            in.nextName();
+            in.skipValue();
+        }
+        in.endObject();
+        return null;
+    }
+
+    /**
+     * Reads a nullable string value.
+     * @param in JSON reader.
+     * @return String value, or {@code null} if the value is {@code null}.
+     * @throws IOException If the value could not be read.
+     */
+    private static String readString(final JsonReader in) throws IOException {
+        if(in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    /**
+     * Reads a nullable integer value.
+     * @param in JSON reader.
+     * @return Integer value, or {@code null} if the value is {@code null}.
+     * @throws IOException If the value could not be read.
+     */
+    private static Integer readInteger(final JsonReader in) throws IOException {
+        if(in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextInt();
+    }
+
+    /**
+     * Reads a nullable long value.
+     * @param in JSON reader.
+     * @return Long value, or {@code null} if the value is {@code null}.
+     * @throws IOException If the value could not be read.
+     */
+    private static Long readLong(final JsonReader in) throws IOException {
+        if(in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextLong();
+    }
+
+    /**
+     * Reads a boolean value, treating {@code null} as {@code false}.
+     * @param in JSON reader.
+     * @return Boolean value.
+     * @throws IOException If the value could not be read.
+     */
+    private static boolean readBoolean(final JsonReader in) throws IOException {
+        if(in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return false;
+        }
+        return in.nextBoolean();
+    }
+
+    /**
+     * Base adapter for '{@code Packet}'s. Writes the {@code Packet}'s ID and correlation ID (if it has one) before the
+     * {@code Packet} derivative's fields, so that {@code readPacket()} can decode them in a single pass. Reads the ID and
+     * correlation ID of a {@code Packet} wherever they appear, leaving all other fields to the {@code Packet}
+     * derivative's adapter (see {@code readField()}).
+     * @param <T> {@code Packet} derivative.
+     */
+    private abstract static class PacketAdapter<T extends Packet> extends TypeAdapter<T> {
+
+        @Override
+        public void write(final JsonWriter out, final T packet) throws IOException {
+            if(packet == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name(ID_FIELD).value(packet.mId);
+            if(packet.mCorrelationId != null) {
+                out.name(CORRELATION_ID_FIELD).value(packet.mCorrelationId);
+            }
+            writeFields(out, packet);
+            out.endObject();
+        }
+
+        @Override
+        public T read(final JsonReader in) throws IOException {
+            if(in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            T packet = create();
+            packet.mId = null;
+            in.beginObject();
+            readFields(in, packet);
+            in.endObject();
+            return packet;
+        }
+
+        /**
+         * Reads the remaining fields of the current JSON object into a {@code Packet}. Unknown fields are skipped.
+         * @param in JSON reader.
+         * @param packet {@code Packet} to read into.
+         * @throws IOException If the fields could not be read.
+         */
+        void readFields(final JsonReader in, final T packet) throws IOException {
+            while(in.hasNext()) {
+                String name = in.nextName();
+                switch(name) {
+                    case ID_FIELD:
+                        packet.mId = readInteger(in);
+                        break;
+                    case CORRELATION_ID_FIELD:
+                        packet.mCorrelationId = readInteger(in);
+                        break;
+                    default:
+                        if(!readField(in, name, packet)) {
+                            in.skipValue();
+                        }
+                        break;
+                }
+            }
+        }
+
+        /**
+         * Writes the fields of the {@code Packet} derivative (excluding its ID and correlation ID).
+         * @param out JSON writer.
+         * @param packet {@code Packet} to write.
+         * @throws IOException If the fields could not be written.
+         */
+        abstract void writeFields(JsonWriter out, T packet) throws IOException;
+
+        /**
+         * Creates an instance of the {@code Packet} derivative with its fields set to their defaults, into which its
+         * fields are read.
+         * @return Instance of the {@code Packet} derivative.
+         */
+        abstract T create();
+
+        /**
+         * Reads the value of one of the {@code Packet} derivative's fields (excluding its ID and correlation ID).
+         * @param in JSON reader, positioned at the value of the field.
+         * @param name Name of the field.
+         * @param packet {@code Packet} to read into.
+         * @return {@code true} if the field was read, or {@code false} if it is unknown (and was not consumed).
+         * @throws IOException If the field could not be read.
+         */
+        abstract boolean readField(JsonReader in, String name, T packet) throws IOException;
+
+    }
+
+    /**
+     * Adapter for '{@code Packet}'s that contain no fields other than their ID.
+     * @param <T> {@code Packet} derivative.
+     */
+    private abstract static class EmptyPacketAdapter<T extends Packet> extends PacketAdapter<T> {
+
+        @Override
+        void writeFields(final JsonWriter out, final T packet) { }
+
+        @Override
+        boolean readField(final JsonReader in, final String name, final T packet) {
+            return false;
+        }
+
+    }
+
+    /**
+     * Adapter for {@code BooleanResponsePacket} derivatives.
+     * @param <T> {@code BooleanResponsePacket} derivative.
+     */
+    private abstract static class BooleanResponsePacketAdapter<T extends BooleanResponsePacket> extends PacketAdapter<T> {
+
+        @Override
+        void writeFields(final JsonWriter out, final T packet) throws IOException {
+            out.name("response").value(packet.getResponse());
+        }
+
+        @Override
+        T create() {
+            return create(false);
+        }
+
+        @Override
+        boolean readField(final JsonReader in, final String name, final T packet) throws IOException {
+            if(!name.equals("response")) {
+                return false;
+            }
+            packet.mResponse = readBoolean(in);
+            return true;
+        }
+
+        /**
+         * Creates an instance of the {@code BooleanResponsePacket} derivative.
+         * @param response Server's response.
+         * @return Instance of the {@code BooleanResponsePacket} derivative.
+         */
+        abstract T create(boolean response);
+
+    }
+
+    /**
+     * Adapter for {@code IntegerResponsePacket} derivatives.
+     * @param <T> {@code IntegerResponsePacket} derivative.
+     */
+    private abstract static class IntegerResponsePacketAdapter<T extends IntegerResponsePacket> extends PacketAdapter<T> {
+
+        @Override
+        void writeFields(final JsonWriter out, final T packet) throws IOException {
+            out.name("response").value(packet.getResponse());
+        }
+
+        @Override
+        T create() {
+            return create(0);
+        }
+
+        @Override
+        boolean readField(final JsonReader in, final String name, final T packet) throws IOException {
+            if(!name.equals("response")) {
+                return false;
+            }
+            Integer value = readInteger(in);
+            packet.mResponse = value != null ? value : 0;
+            return true;
+        }
+
+        /**
+         * Creates an instance of the {@code IntegerResponsePacket} derivative.
+         * @param response Server's response.
+         * @return Instance of the {@code IntegerResponsePacket} derivative.
+         */
+        abstract T create(int response);
+
+    }
+
+    /**
+     * Adapter for '{@code SendMessagePacket}'s.
+     */
+    private static class SendMessagePacketAdapter extends PacketAdapter<SendMessagePacket> {
+
+        @Override
+        void writeFields(final JsonWriter out, final SendMessagePacket packet) throws IOException {
+            out.name("message").value(packet.getMessage());
+            if(packet.getClientId() != null) {
+                out.name("client_id").value(packet.getClientId());
+            }
+        }
+
+        @Override
+        SendMessagePacket create() {
+            return new SendMessagePacket(null, null);
+        }
+
+        @Override
+        boolean readField(final JsonReader in, final String name, final SendMessagePacket packet)
+                throws IOException {
+            switch(name) {
+                case "message":
+                    packet.mMessage = readString(in);
+                    return true;
+                case "client_id":
+                    packet.mClientId = readString(in);
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+    }
+
+    /**
+     * Adapter for '{@code ReceiveMessagePacket}'s.
+     */
+    private static class ReceiveMessagePacketAdapter extends PacketAdapter<ReceiveMessagePacket> {
+
+        @Override
+        void writeFields(final JsonWriter out, final ReceiveMessagePacket packet) throws IOException {
+            out.name("author").value(packet.getAuthor());
+            out.name("message").value(packet.getMessage());
+            if(packet.getMessageId() != null) {
+                out.name("message_id").value(packet.getMessageId());
+            }
+            if(packet.getClientId() != null) {
+                out.name("client_id").value(packet.getClientId());
+            }
+        }
+
+        @Override
+        ReceiveMessagePacket create() {
+            return new ReceiveMessagePacket(null, null, null);
+        }
+
+        @Override
+        boolean readField(final JsonReader in, final String name, final ReceiveMessagePacket packet)
+                throws IOException {
+            switch(name) {
+                case "author":
+                    packet.mAuthor = readString(in);
+                    return true;
+                case "message":
+                    packet.mMessage = readString(in);
+                    return true;
+                case "message_id":
+                    packet.mMessageId = readLong(in);
+                    return true;
+                case "client_id":
+                    packet.mClientId = readString(in);
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+    }
+
+    /**
+     * Adapter for '{@code UsernameRequestPacket}'s.
+     */
+    private static class UsernameRequestPacketAdapter extends PacketAdapter<UsernameRequestPacket> {
+
+        @Override
+        void writeFields(final JsonWriter out, final UsernameRequestPacket packet) throws IOException {
+            out.name("username").value(packet.getUsername());
+        }
+
+        @Override
+        UsernameRequestPacket create() {
+            return new UsernameRequestPacket(null);
+        }
+
+        @Override
+        boolean readField(final JsonReader in, final String name, final UsernameRequestPacket packet)
+                throws IOException {
+            if(!name.equals("username")) {
+                return false;
+            }
+            packet.mUsername = readString(in);
+            return true;
+        }
+
+    }
+
+    /**
+     * Adapter for '{@code JoinChatroomRequestPacket}'s.
+     */
+    private static class JoinChatroomRequestPacketAdapter extends PacketAdapter<JoinChatroomRequestPacket> {
+
+        @Override
+        void writeFields(final JsonWriter out, final JoinChatroomRequestPacket packet) throws IOException {
+            out.name("chatroom_name").value(packet.getChatroomName());
+        }
+
+        @Override
+        JoinChatroomRequestPacket create() {
+            return new JoinChatroomRequestPacket(null);
+        }
+
+        @Override
+        boolean readField(final JsonReader in, final String name, final JoinChatroomRequestPacket packet)
+                throws IOException {
+            if(!name.equals("chatroom_name")) {
+                return false;
+            }
+            packet.mChatroomName = readString(in);
+            return true;
+        }
+
+    }
+
+    /**
+     * Adapter for '{@code ChatroomsRequestPacket}'s.
+     */
+    private static class ChatroomsRequestPacketAdapter extends PacketAdapter<ChatroomsRequestPacket> {
+
+        @Override
+        void writeFields(final JsonWriter out, final ChatroomsRequestPacket packet) throws IOException {
+            if(packet.getPreviewSize() != null) {
+                out.name("preview_size").value(packet.getPreviewSize());
+            }
+        }
+
+        @Override
+        ChatroomsRequestPacket create() {
+            return new ChatroomsRequestPacket(null);
+        }
+
+        @Override
+        boolean readField(final JsonReader in, final String name, final ChatroomsRequestPacket packet)
+                throws IOException {
+            if(!name.equals("preview_size")) {
+                return false;
+            }
+            packet.mPreviewSize = readInteger(in);
+            return true;
+        }
+
+    }
+
+    /**
+     * Adapter for '{@code ChatroomsResponsePacket}'s.
+     */
+    private static class ChatroomsResponsePacketAdapter extends PacketAdapter<ChatroomsResponsePacket> {
+
+        @Override
+        void writeFields(final JsonWriter out, final ChatroomsResponsePacket packet) throws IOException {
+            Chatroom[] chatrooms = packet.getChatrooms();
+            if(chatrooms == null) {
+                return;
+            }
+            out.name("chatrooms").beginArray();
+            for(Chatroom chatroom : chatrooms) {
+                CHATROOM_ADAPTER.write(out, chatroom);
+            }
+            out.endArray();
+        }
+
+        @Override
+        ChatroomsResponsePacket create() {
+            return new ChatroomsResponsePacket(null);
+        }
+
+        @Override
+        boolean readField(final JsonReader in, final String name, final ChatroomsResponsePacket packet)
+                throws IOException {
+            if(!name.equals("chatrooms")) {
+                return false;
+            }
+            if(in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                packet.mChatrooms = null;
+                return true;
+            }
+            List<Chatroom> chatrooms = new ArrayList<>();
+            in.beginArray();
+            while(in.hasNext()) {
+                chatrooms.add(CHATROOM_ADAPTER.read(in));
+            }
+            in.endArray();
+            packet.mChatrooms = chatrooms.toArray(new Chatroom[chatrooms.size()]);
+            return true;
+        }
+
+    }
+
+    /**
+     * Adapter for '{@code BatchPacket}'s. Each contained {@code Packet} is written using its own adapter and read using
+     * {@code readPacket()}. Contained '{@code Packet}'s that are unknown or are themselves '{@code BatchPacket}'s are
+     * skipped, meaning that the rest of the {@code BatchPacket} can still be delivered.
+     */
+    private static class BatchPacketAdapter extends PacketAdapter<BatchPacket> {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void writeFields(final JsonWriter out, final BatchPacket packet) throws IOException {
+            Packet[] packets = packet.getPackets();
+            if(packets == null) {
+                return;
+            }
+            out.name("packets").beginArray();
+            for(Packet containedPacket : packets) {
+                TypeAdapter<Packet> codec = containedPacket != null && !(containedPacket instanceof BatchPacket) ?
+                        (TypeAdapter<Packet>)getCodec(containedPacket.getClass()) : null;
+                if(codec != null) {
+                    codec.write(out, containedPacket);
+                }
+                else {
+                    out.nullValue();
+                }
+            }
+            out.endArray();
+        }
+
+        @Override
+        BatchPacket create() {
+            return new BatchPacket(null);
+        }
+
+        @Override
+        boolean readField(final JsonReader in, final String name, final BatchPacket packet) throws IOException {
+            if(!name.equals("packets")) {
+                return false;
+            }
+            if(in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                packet.mPackets = null;
+                return true;
+            }
+            List<Packet> packets = new ArrayList<>();
+            in.beginArray();
+            while(in.hasNext()) {
+                Packet containedPacket = readPacket(in, false);
+                if(containedPacket != null) {
+                    packets.add(containedPacket);
+                }
+            }
+            in.endArray();
+            packet.mPackets = packets.toArray(new Packet[packets.size()]);
+            return true;
+        }
+
+    }
+
+    /**
+     * Adapter for '{@code ChatroomAddedPacket}'s.
+     */
+    private static class ChatroomAddedPacketAdapter extends PacketAdapter<ChatroomAddedPacket> {
+
+        @Override
+        void writeFields(final JsonWriter out, final ChatroomAddedPacket packet) throws IOException {
+            out.name("chatroom");
+            CHATROOM_ADAPTER.write(out, packet.getChatroom());
+        }
+
+        @Override
+        ChatroomAddedPacket create() {
+            return new ChatroomAddedPacket(null);
+        }
+
+        @Override
+        boolean readField(final JsonReader in, final String name, final ChatroomAddedPacket packet)
+                throws IOException {
+            if(!name.equals("chatroom")) {
+                return false;
+            }
+            packet.mChatroom = CHATROOM_ADAPTER.read(in);
+            return true;
+        }
+
+    }
+
+    /**
+     * Adapter for '{@code ChatroomRemovedPacket}'s.
+     */
+    private static class ChatroomRemovedPacketAdapter extends PacketAdapter<ChatroomRemovedPacket> {
+
+        @Override
+        void writeFields(final JsonWriter out, final ChatroomRemovedPacket packet) throws IOException {
+            out.name("chatroom_name").value(packet.getChatroomName());
+        }
+
+        @Override
+        ChatroomRemovedPacket create() {
+            return new ChatroomRemovedPacket(null);
+        }
+
+        @Override
+        boolean readField(final JsonReader in, final String name, final ChatroomRemovedPacket packet)
+                throws IOException {
+            if(!name.equals("chatroom_name")) {
+                return false;
+            }
+            packet.mChatroomName = readString(in);
+            return true;
+        }
+
+    }
+
+    /**
+     * Adapter for '{@code ChatroomSizeChangedPacket}'s.
+     */
+    private static class ChatroomSizeChangedPacketAdapter extends PacketAdapter<ChatroomSizeChangedPacket> {
+
+        @Override
+        void writeFields(final JsonWriter out, final ChatroomSizeChangedPacket packet) throws IOException {
+            out.name("chatroom_name").value(packet.getChatroomName());
+            out.name("size").value(packet.getSize());
+        }
+
+        @Override
+        ChatroomSizeChangedPacket create() {
+            return new ChatroomSizeChangedPacket(null, -1);
+        }
+
+        @Override
+        boolean readField(final JsonReader in, final String name, final ChatroomSizeChangedPacket packet)
+                throws IOException {
+            switch(name) {
+                case "chatroom_name":
+                    packet.mChatroomName = readString(in);
+                    return true;
+                case "size":
+                    Integer value = readInteger(in);
+                    packet.mSize = value != null ? value : -1;
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+    }
+
+    /**
+     * Adapter for '{@code HistoryRequestPacket}'s.
+     */
+    private static class HistoryRequestPacketAdapter extends PacketAdapter<HistoryRequestPacket> {
+
+        @Override
+        void writeFields(final JsonWriter out, final HistoryRequestPacket packet) throws IOException {
+            out.name("chatroom_name").value(packet.getChatroomName());
+            if(packet.getBefore() != null) {
+                out.name("before").value(packet.getBefore());
+            }
+            out.name("limit").value(packet.getLimit());
+        }
+
+        @Override
+        HistoryRequestPacket create() {
+            return new HistoryRequestPacket(null, null, 0);
+        }
+
+        @Override
+        boolean readField(final JsonReader in, final String name, final HistoryRequestPacket packet)
+                throws IOException {
+            switch(name) {
+                case "chatroom_name":
+                    packet.mChatroomName = readString(in);
+                    return true;
+                case "before":
+                    packet.mBefore = readLong(in);
+                    return true;
+                case "limit":
+                    Integer value = readInteger(in);
+                    packet.mLimit = value != null ? value : 0;
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+    }
+
+    /**
+     * Adapter for '{@code HistoryResponsePacket}'s.
+     */
+    private static class HistoryResponsePacketAdapter extends PacketAdapter<HistoryResponsePacket> {
+
+        @Override
+        void writeFields(final JsonWriter out, final HistoryResponsePacket packet) throws IOException {
+            out.name("chatroom_name").value(packet.getChatroomName());
+            ReceiveMessagePacket[] messages = packet.getMessages();
+            if(messages != null) {
+                out.name("messages").beginArray();
+                for(ReceiveMessagePacket message : messages) {
+                    RECEIVE_MESSAGE_ADAPTER.write(out, message);
+                }
+                out.endArray();
+            }
+            out.name("has_more").value(packet.hasMore());
+        }
+
+        @Override
+        HistoryResponsePacket create() {
+            return new HistoryResponsePacket(null, null, false);
+        }
+
+        @Override
+        boolean readField(final JsonReader in, final String name, final HistoryResponsePacket packet)
+                throws IOException {
+            switch(name) {
+                case "chatroom_name":
+                    packet.mChatroomName = readString(in);
+                    return true;
+                case "messages":
+                    if(in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                        packet.mMessages = null;
+                        return true;
+                    }
+                    List<ReceiveMessagePacket> messages = new ArrayList<>();
+                    in.beginArray();
+                    while(in.hasNext()) {
+                        messages.add(RECEIVE_MESSAGE_ADAPTER.read(in));
+                    }
+                    in.endArray();
+                    packet.mMessages = messages.toArray(new ReceiveMessagePacket[messages.size()]);
+                    return true;
+                case "has_more":
+                    packet.mHasMore = readBoolean(in);
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+    }
+
+    /**
+     * Adapter for '{@code Chatroom}'s.
+     */
+    private static class ChatroomAdapter extends TypeAdapter<Chatroom> {
+
+        @Override
+        public void write(final JsonWriter out, final Chatroom chatroom) throws IOException {
+            if(chatroom == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("name").value(chatroom.getName());
+            out.name("size").value(chatroom.getSize());
+            if(chatroom.getMessages() != null) {
+                out.name("messages").beginArray();
+                for(ReceiveMessagePacket message : chatroom.getMessages()) {
+                    RECEIVE_MESSAGE_ADAPTER.write(out, message);
+                }
+                out.endArray();
+            }
+            out.endObject();
+        }
+
+        @Override
+        public Chatroom read(final JsonReader in) throws IOException {
+            if(in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String name = null;
+            Integer size = null;
+            Queue<ReceiveMessagePacket> messages = new LinkedList<>();
+            in.beginObject();
+            while(in.hasNext()) {
+                switch(in.nextName()) {
+                    case "name":
+                        name = readString(in);
+                        break;
+                    case "size":
+                        size = readInteger(in);
+                        break;
+                    case "messages":
+                        if(in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                            break;
+                        }
+                        in.beginArray();
+                        while(in.hasNext()) {
+                            ReceiveMessagePacket message = RECEIVE_MESSAGE_ADAPTER.read(in);
+                            if(message != null) {
+                                messages.add(message);
+                            }
+                        }
+                        in.endArray();
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+
+            return new Chatroom(name, size, messages);
+        }
+
+    }
+
+}
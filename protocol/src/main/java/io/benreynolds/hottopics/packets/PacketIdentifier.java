@@ -0,0 +1,120 @@
+package io.benreynolds.hottopics.packets;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code PacketIdentifier} is a static class that upon initialization, creates a map in which it assigns unique IDs
+ * to {@code Packet} derivatives. These IDs are used to identify the types of '{@code Packet}'s before deserialization.
+ */
+public class PacketIdentifier {
+
+    /** Populated with {@code Packet} and {@code Integer} key/value pairs that are used to uniquely identify
+     * {@code Packet} derivatives before deserialization. */
+    public final static Map<Class<? extends Packet>, Integer> PACKET_IDS = new HashMap<>();
+
+    /** Contains all known and supported {@code Packet} derivatives. */
+    private static final List<Class<? extends Packet>> PACKETS = Arrays.asList(
+        SendMessagePacket.class,
+        ReceiveMessagePacket.class,
+        UsernameRequestPacket.class,
+        UsernameResponsePacket.class,
+        ChatroomsRequestPacket.class,
+        ChatroomsResponsePacket.class,
+        JoinChatroomRequestPacket.class,
+        JoinChatroomResponsePacket.class,
+        LeaveChatroomRequestPacket.class,
+        LeaveChatroomResponsePacket.class,
+        ChatroomUserCountUpdatePacket.class,
+        AcknowledgementRequestPacket.class,
+        AcknowledgementResponsePacket.class,
+        BatchPacket.class,
+        ChatroomAddedPacket.class,
+        ChatroomRemovedPacket.class,
+        ChatroomSizeChangedPacket.class,
+        HistoryRequestPacket.class,
+        HistoryResponsePacket.class
+    );
+
+    /** Contains all known and supported {@code Packet} derivatives, indexed by their unique ID. Used to look up a
+     * '{@code Packet}'s type without searching {@code PACKET_IDS}. */
+    private static final Class<?>[] PACKET_TYPES = new Class<?>[PACKETS.size()];
+
+    /** Current ID value. */
+    private static int mId;
+
+    static {
+        // Assign all known packets a unique ID number and add them to the map and table of known packets.
+        for(Class<? extends Packet> packetDerivative : PACKETS) {
+            PACKET_TYPES[mId] = packetDerivative;
+            PACKET_IDS.put(packetDerivative, mId++);
+        }
+    }
+
+    /**
+     * Returns the simple names of the {@code Packet} derivatives, indexed by their unique IDs (used to label metrics
+     * that are recorded for each {@code Packet} type).
+     * @return Simple names of the {@code Packet} derivatives, indexed by their unique IDs.
+     */
+    public static String[] getPacketNames() {
+        String[] packetNames = new String[PACKET_TYPES.length];
+        for(int id = 0; id < PACKET_TYPES.length; id++) {
+            packetNames[id] = PACKET_TYPES[id].getSimpleName();
+        }
+        return packetNames;
+    }
+
+    /**
+     * Returns the {@code Class} type of the {@code Packet} derivative that has been assigned the specified ID. If no
+     * {@code Packet} derivative has been assigned the ID, returns {@code null}.
+     * @param id Unique ID of the {@code Packet} derivative.
+     * @return {@code Class} type of the {@code Packet} derivative that has been assigned the specified ID. If no
+     * {@code Packet} derivative has been assigned the ID, returns {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    public static Class<? extends Packet> getType(final Integer id) {
+        if(id == null || id < 0 || id >= PACKET_TYPES.length) {
+            return null;
+        }
+        return (Class<? extends Packet>)PACKET_TYPES[id];
+    }
+
+    /**
+     * Decodes a JSON string into the {@code Packet} derivative identified by its ID field. The string is read once,
+     * as a stream: the ID selects the adapter that decodes the rest of the {@code Packet} (see
+     * {@code PacketCodecs.readPacket()}). The returned {@code Packet} is not validated (see {@code Packet.isValid()}).
+     * @param string JSON representation of a {@code Packet}.
+     * @return Decoded {@code Packet}. If the string is malformed or contains an unknown ID, returns {@code null}.
+     */
+    public static Packet decode(final String string) {
+        try {
+            JsonReader reader = new JsonReader(new StringReader(string));
+            Packet packet = PacketCodecs.readPacket(reader, true);
+            return reader.peek() == JsonToken.END_DOCUMENT ? packet : null;
+        }
+        catch(IOException | JsonParseException | IllegalStateException | NumberFormatException exception) {
+            return null;
+        }
+    }
+
+    public static <T extends Packet> T convertToPacket(final String string, Class<T> packetType) {
+        T packet;
+        try {
+            packet = PacketCodecs.GSON.fromJson(string, packetType);
+        }
+        catch(JsonSyntaxException exception) {
+            return null;
+        }
+        return packet != null && packet.isValid() ? packet : null;
+    }
+
+}
@@ -0,0 +1,106 @@
+package io.benreynolds.hottopics.packets;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * {@code ReceiveMessagePacket} is sent by the server to client devices when a new message is ready to be received.
+ */
+public class ReceiveMessagePacket extends Packet {
+
+    /** Attempts to store a the '{@code SendMessagePacket}'s ID (as determined by the {@code PacketIdentifier}). */
+    public static final Integer ID = PacketIdentifier.PACKET_IDS.get(ReceiveMessagePacket.class);
+
+    /** Client's name. */
+    @SerializedName("author")
+    String mAuthor;
+
+    /** Client's message. */
+    @SerializedName("message")
+    String mMessage;
+
+    /** Server-assigned ID of the message, which increases with each message sent within a chatroom (used to tell
+     * which messages a client has already received, see {@code MessageCache}). */
+    @SerializedName("message_id")
+    Long mMessageId;
+
+    /** Client-generated ID of the message (see {@code SendMessagePacket.getClientId()}), echoed by the server so that
+     * the message's author can tell that the server received it. */
+    @SerializedName("client_id")
+    String mClientId;
+
+    /**
+     * @param author Client's name.
+     * @param message Client's message.
+     */
+    public ReceiveMessagePacket(final String author, final String message) {
+        this(author, message, null);
+    }
+
+    /**
+     * @param author Client's name.
+     * @param message Client's message.
+     * @param messageId Server-assigned ID of the message.
+     */
+    public ReceiveMessagePacket(final String author, final String message, final Long messageId) {
+        this(author, message, messageId, null);
+    }
+
+    /**
+     * @param author Client's name.
+     * @param message Client's message.
+     * @param messageId Server-assigned ID of the message.
+     * @param clientId Client-generated ID of the message.
+     */
+    public ReceiveMessagePacket(final String author, final String message, final Long messageId,
+                                final String clientId) {
+        mId = ID;
+        mAuthor = author;
+        mMessage = message;
+        mMessageId = messageId;
+        mClientId = clientId;
+    }
+
+    /**
+     * Returns the client's name.
+     * @return Client's name.
+     */
+    public String getAuthor() {
+        return mAuthor;
+    }
+
+    /**
+     * Returns the client's message.
+     * @return Client's message.
+     */
+    public String getMessage() {
+        return mMessage;
+    }
+
+    /**
+     * Returns the server-assigned ID of the message. If the server did not assign the message an ID, returns
+     * {@code null}.
+     * @return Server-assigned ID of the message.
+     */
+    public Long getMessageId() {
+        return mMessageId;
+    }
+
+    /**
+     * Returns the client-generated ID of the message. If the server did not echo one, returns {@code null}.
+     * @return Client-generated ID of the message.
+     */
+    public String getClientId() {
+        return mClientId;
+    }
+
+    /**
+     * Returns {@code true} if the {@code ReceiveMessagePacket} contains a valid ID, author and message. Messages and
+     * authors are considered valid if they are non-null and not empty.
+     * @return {@code true} if the {@code ReceiveMessagePacket} contains a valid ID, author and message.
+     */
+    @Override
+    public boolean isValid() {
+        return mId != null && mAuthor != null && !mAuthor.isEmpty() && mMessage != null && !mMessage.isEmpty();
+    }
+
+}
@@ -14,14 +14,28 @@ public class SendMessagePacket extends Packet {
 
     /** Client's message. */
     @SerializedName("message")
-    private String mMessage;
+    String mMessage;
+
+    /** Client-generated ID of the message, used by the server to discard duplicates of messages that are resent after
+     * a reconnect (see {@code MessageOutbox}). */
+    @SerializedName("client_id")
+    String mClientId;
 
     /**
      * @param message Client's message.
      */
     public SendMessagePacket(final String message) {
+        this(message, null);
+    }
+
+    /**
+     * @param message Client's message.
+     * @param clientId Client-generated ID of the message.
+     */
+    public SendMessagePacket(final String message, final String clientId) {
         mId = ID;
         mMessage = message;
+        mClientId = clientId;
     }
 
     /**
@@ -32,6 +46,14 @@ public class SendMessagePacket extends Packet {
         return mMessage;
     }
 
+    /**
+     * Returns the client-generated ID of the message. If the message was not assigned an ID, returns {@code null}.
+     * @return Client-generated ID of the message.
+     */
+    public String getClientId() {
+        return mClientId;
+    }
+
     /**
      * Returns {@code true} if the {@code SendMessagePacket} contains a valid ID and message. Messages are considered
      * valid if they are non-null and not empty.
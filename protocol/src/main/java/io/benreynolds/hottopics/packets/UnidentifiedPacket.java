@@ -1,8 +1,5 @@
 package io.benreynolds.hottopics.packets;
 
-import java.util.Map;
-import java.util.Objects;
-
 /**
  * {@code UnidentifiedPacket} instances are created by deserializing JSON data with Google's GSON library.
  * {@code UnidentifiedPacket} provides a {@code getType} method that can be used to identify a '{@code Packet}'s type.
@@ -16,12 +13,7 @@ public class UnidentifiedPacket extends Packet {
      * type can be found, returns {@code null}.
      */
     public Class<?> getType() {
-        for(Map.Entry<Class<? extends Packet>, Integer> entry : PacketIdentifier.PACKET_IDS.entrySet()) {
-            if(Objects.equals(entry.getValue(), mId)) {
-                return entry.getKey();
-            }
-        }
-        return null;
+        return PacketIdentifier.getType(mId);
     }
 
     /**
@@ -25,7 +25,7 @@ public class UsernameRequestPacket extends Packet {
 
     /** Client's requested username. */
     @SerializedName("username")
-    private String mUsername;
+    String mUsername;
 
     /**
      * @param username Client's requested username.
@@ -0,0 +1,110 @@
+package io.benreynolds.hottopics;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import io.benreynolds.hottopics.packets.Chatroom;
+import io.benreynolds.hottopics.packets.ChatroomsResponsePacket;
+import io.benreynolds.hottopics.packets.Packet;
+import io.benreynolds.hottopics.packets.PacketSamples;
+import okio.ByteString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Round-trips every {@code Packet} derivative through the {@code FrameCodec}, both uncompressed and in DEFLATE frames
+ * (binary and JSON), and checks that frames with unknown flags or malformed payloads are rejected.
+ */
+public class FrameCodecTest {
+
+    private final FrameCodec mFrameCodec = new FrameCodec();
+
+    @Test
+    public void roundTripsEveryPacketType() throws Exception {
+        for(Packet packet : PacketSamples.create()) {
+            packet.setCorrelationId(300);
+            ByteString frame = mFrameCodec.encode(packet, false);
+            assertNotNull(String.format("Could not encode %s.", packet), frame);
+            assertEquals(FrameCodec.FLAGS_NONE, frame.getByte(0));
+            assertRoundTrips(packet, frame);
+        }
+    }
+
+    @Test
+    public void leavesSmallFramesUncompressed() throws Exception {
+        for(Packet packet : PacketSamples.create()) {
+            ByteString frame = mFrameCodec.encode(packet, true);
+            assertEquals(FrameCodec.FLAGS_NONE, frame.getByte(0));
+            assertRoundTrips(packet, frame);
+        }
+    }
+
+    @Test
+    public void roundTripsDeflateFrame() throws Exception {
+        Packet packet = createLargePacket();
+        packet.setCorrelationId(7);
+        ByteString uncompressedFrame = mFrameCodec.encode(packet, false);
+        ByteString frame = mFrameCodec.encode(packet, true);
+
+        assertEquals(FrameCodec.FLAG_DEFLATE, frame.getByte(0));
+        assertTrue(frame.size() < uncompressedFrame.size());
+        assertEquals(Integer.valueOf(7), assertRoundTrips(packet, frame).getCorrelationId());
+    }
+
+    @Test
+    public void roundTripsDeflateJsonFrame() throws Exception {
+        Packet packet = createLargePacket();
+        packet.setCorrelationId(7);
+        ByteString frame = mFrameCodec.encode(ByteString.encodeUtf8(packet.toString()), FrameCodec.FLAG_JSON, true);
+
+        assertEquals(FrameCodec.FLAG_DEFLATE | FrameCodec.FLAG_JSON, frame.getByte(0));
+        assertEquals(Integer.valueOf(7), assertRoundTrips(packet, frame).getCorrelationId());
+    }
+
+    @Test
+    public void rejectsUnknownFlags() throws Exception {
+        byte[] frame = mFrameCodec.encode(PacketSamples.create().get(0), false).toByteArray();
+        frame[0] |= 1 << 2;
+        assertNull(mFrameCodec.decode(ByteString.of(frame)));
+        assertNull(mFrameCodec.decode(ByteString.EMPTY));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedDeflatePayload() throws Exception {
+        ByteString frame = mFrameCodec.encode(createLargePacket(), true);
+        mFrameCodec.decode(frame.substring(0, frame.size() / 2));
+    }
+
+    /**
+     * Creates a {@code Packet} that is large enough to be compressed.
+     * @return {@code ChatroomsResponsePacket} containing several '{@code Chatroom}'s with full previews.
+     */
+    private static Packet createLargePacket() {
+        Chatroom[] chatrooms = new Chatroom[10];
+        for(int i = 0; i < chatrooms.length; i++) {
+            chatrooms[i] = PacketSamples.createChatroom(String.format("Chatroom %d", i), Chatroom.PREVIEW_SIZE_MAX);
+        }
+        return new ChatroomsResponsePacket(chatrooms);
+    }
+
+    /**
+     * Asserts that a frame decodes to a {@code Packet} equivalent to the one it was encoded from (of the same type,
+     * with the same JSON representation).
+     * @param packet {@code Packet} that the frame was encoded from.
+     * @param frame Binary frame.
+     * @return Decoded {@code Packet}.
+     * @throws IOException If the frame's payload could not be decompressed.
+     */
+    private Packet assertRoundTrips(final Packet packet, final ByteString frame) throws IOException {
+        Packet decodedPacket = mFrameCodec.decode(frame);
+        assertNotNull(String.format("Could not decode %s.", packet), decodedPacket);
+        assertEquals(packet.getClass(), decodedPacket.getClass());
+        assertEquals(packet.toString(), decodedPacket.toString());
+        return decodedPacket;
+    }
+
+}
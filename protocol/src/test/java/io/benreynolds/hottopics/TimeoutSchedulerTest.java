@@ -0,0 +1,161 @@
+package io.benreynolds.hottopics;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that '{@code Timeout}'s scheduled on a {@code TimeoutScheduler} expire (in deadline order, and not before
+ * their deadline), including '{@code Timeout}'s that are due several turns of the wheel later, that cancelled
+ * '{@code Timeout}'s never expire, and that the wheel thread parks until the earliest deadline rather than waking
+ * once per tick.
+ */
+public class TimeoutSchedulerTest {
+
+    /** Amount of time to wait for a {@code Timeout} to expire (in seconds). */
+    private static final long TIMEOUT = 10;
+
+    @Test
+    public void expiresAfterDelay() throws Exception {
+        TimeoutScheduler scheduler = new TimeoutScheduler(10, TimeUnit.MILLISECONDS, 512);
+        final CountDownLatch expired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        TimeoutScheduler.Timeout timeout = scheduler.schedule(new CountDown(expired), 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(expired.await(TIMEOUT, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+        awaitPendingCount(scheduler, 0);
+    }
+
+    @Test
+    public void cancelledTimeoutNeverExpires() throws Exception {
+        TimeoutScheduler scheduler = new TimeoutScheduler(1, TimeUnit.MILLISECONDS, 8);
+        final AtomicInteger expiredCount = new AtomicInteger();
+        TimeoutScheduler.Timeout cancelled = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                expiredCount.incrementAndGet();
+            }
+        }, 20, TimeUnit.MILLISECONDS);
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertTrue(cancelled.isCancelled());
+
+        // A later Timeout expiring means the wheel has passed the cancelled Timeout's deadline.
+        CountDownLatch expired = new CountDownLatch(1);
+        scheduler.schedule(new CountDown(expired), 60, TimeUnit.MILLISECONDS);
+        assertTrue(expired.await(TIMEOUT, TimeUnit.SECONDS));
+        assertEquals(0, expiredCount.get());
+        assertFalse(cancelled.isExpired());
+        awaitPendingCount(scheduler, 0);
+    }
+
+    @Test
+    public void expiresInDeadlineOrderAcrossWheelRounds() throws Exception {
+        // A wheel of 8 ticks of 1 millisecond turns every 8 milliseconds, so the later deadlines are several turns
+        // away.
+        TimeoutScheduler scheduler = new TimeoutScheduler(1, TimeUnit.MILLISECONDS, 8);
+        final long[] delays = { 3, 11, 27, 50, 90 };
+        final List<Long> expiredDelays = new CopyOnWriteArrayList<>();
+        final List<Long> elapsedTimes = new CopyOnWriteArrayList<>();
+        final CountDownLatch expired = new CountDownLatch(delays.length);
+        final long start = System.nanoTime();
+        for(int i = delays.length - 1; i >= 0; i--) {
+            final long delay = delays[i];
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    elapsedTimes.add(System.nanoTime() - start);
+                    expiredDelays.add(delay);
+                    expired.countDown();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        assertTrue(expired.await(TIMEOUT, TimeUnit.SECONDS));
+        for(int i = 0; i < delays.length; i++) {
+            assertEquals(delays[i], (long)expiredDelays.get(i));
+            assertTrue(elapsedTimes.get(i) >= TimeUnit.MILLISECONDS.toNanos(delays[i]));
+        }
+        awaitPendingCount(scheduler, 0);
+    }
+
+    @Test
+    public void earlierTimeoutWakesWheel() throws Exception {
+        TimeoutScheduler scheduler = new TimeoutScheduler(10, TimeUnit.MILLISECONDS, 512);
+        TimeoutScheduler.Timeout later = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, 1, TimeUnit.HOURS);
+        // Give the wheel thread time to park until the later deadline.
+        Thread.sleep(50);
+
+        CountDownLatch expired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        scheduler.schedule(new CountDown(expired), 20, TimeUnit.MILLISECONDS);
+        assertTrue(expired.await(TIMEOUT, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertFalse(later.isExpired());
+        assertEquals(1, scheduler.getPendingCount());
+        later.cancel();
+    }
+
+    @Test
+    public void parksUntilEarliestDeadline() throws Exception {
+        TimeoutScheduler scheduler = new TimeoutScheduler(1, TimeUnit.MILLISECONDS, 8);
+        CountDownLatch expired = new CountDownLatch(1);
+        scheduler.schedule(new CountDown(expired), 300, TimeUnit.MILLISECONDS);
+        assertTrue(expired.await(TIMEOUT, TimeUnit.SECONDS));
+
+        // Waking once per tick would take around 300 wakes; parking until the deadline takes a handful (allowing for
+        // spurious wake-ups).
+        long wakeCount = scheduler.getWakeCount();
+        assertTrue(String.format("Woke %d times.", wakeCount), wakeCount < 20);
+    }
+
+    /**
+     * Waits for the amount of pending '{@code Timeout}'s to reach an expected amount (a cancelled {@code Timeout} stops
+     * being counted as pending only once the wheel thread next wakes).
+     * @param scheduler {@code TimeoutScheduler} to check.
+     * @param pendingCount Expected amount of pending '{@code Timeout}'s.
+     * @throws InterruptedException If interrupted whilst waiting.
+     */
+    private static void awaitPendingCount(final TimeoutScheduler scheduler, final int pendingCount)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT);
+        while(scheduler.getPendingCount() != pendingCount && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(pendingCount, scheduler.getPendingCount());
+    }
+
+    /**
+     * {@code CountDown} counts down a latch when its {@code Timeout} expires.
+     */
+    private static class CountDown implements Runnable {
+
+        private final CountDownLatch mLatch;
+
+        CountDown(final CountDownLatch latch) {
+            mLatch = latch;
+        }
+
+        @Override
+        public void run() {
+            mLatch.countDown();
+        }
+
+    }
+
+}
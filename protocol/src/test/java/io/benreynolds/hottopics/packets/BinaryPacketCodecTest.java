@@ -0,0 +1,146 @@
+package io.benreynolds.hottopics.packets;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import okio.Buffer;
+import okio.ByteString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Round-trips every {@code Packet} derivative through the {@code BinaryPacketCodec}, with and without a correlation ID,
+ * and checks that malformed data is rejected and that a {@code BatchPacket} skips the entries it cannot decode.
+ */
+public class BinaryPacketCodecTest {
+
+    @Test
+    public void samplesCoverEveryPacketType() {
+        Set<Class<?>> sampledTypes = new HashSet<>();
+        for(Packet packet : PacketSamples.create()) {
+            sampledTypes.add(packet.getClass());
+        }
+        assertEquals(PacketIdentifier.PACKET_IDS.keySet(), sampledTypes);
+    }
+
+    @Test
+    public void roundTripsEveryPacketType() {
+        for(Packet packet : PacketSamples.create()) {
+            assertRoundTrips(packet);
+        }
+    }
+
+    @Test
+    public void roundTripsCorrelationId() {
+        int[] correlationIds = { 0, 1, 127, 128, 300, Integer.MAX_VALUE };
+        for(Packet packet : PacketSamples.create()) {
+            for(int correlationId : correlationIds) {
+                packet.setCorrelationId(correlationId);
+                assertEquals(Integer.valueOf(correlationId), assertRoundTrips(packet).getCorrelationId());
+            }
+        }
+    }
+
+    @Test
+    public void rejectsUnknownFlags() {
+        UsernameRequestPacket packet = new UsernameRequestPacket("Tester");
+        byte[] bytes = BinaryPacketCodec.encode(packet).toByteArray();
+        // The flags byte follows the (single byte) ID.
+        bytes[1] |= 0x02;
+        assertNull(BinaryPacketCodec.decode(ByteString.of(bytes)));
+    }
+
+    @Test
+    public void rejectsTruncatedData() {
+        for(Packet packet : PacketSamples.create()) {
+            packet.setCorrelationId(300);
+            ByteString bytes = BinaryPacketCodec.encode(packet);
+            for(int size = 0; size < bytes.size(); size++) {
+                assertNull(String.format("%s truncated to %d byte(s).", packet, size),
+                        BinaryPacketCodec.decode(bytes.substring(0, size)));
+            }
+        }
+    }
+
+    @Test
+    public void ignoresTrailingBytes() {
+        ReceiveMessagePacket packet = new ReceiveMessagePacket("Tester", "Hello, world!", 42L, "client-1");
+        packet.setCorrelationId(7);
+        Buffer buffer = new Buffer().write(BinaryPacketCodec.encode(packet)).writeByte(0x05).writeByte(0x00);
+        Packet decodedPacket = BinaryPacketCodec.decode(buffer);
+        assertNotNull(decodedPacket);
+        assertEquals(packet.toString(), decodedPacket.toString());
+    }
+
+    @Test
+    public void batchSkipsUndecodableEntries() {
+        UsernameRequestPacket first = new UsernameRequestPacket("Tester");
+        first.setCorrelationId(1);
+        ChatroomRemovedPacket undecodable = new ChatroomRemovedPacket("Undecodable");
+        ChatroomUserCountUpdatePacket unknown = new ChatroomUserCountUpdatePacket(99);
+        JoinChatroomRequestPacket last = new JoinChatroomRequestPacket("Lobby");
+        last.setCorrelationId(2);
+        byte[] bytes = BinaryPacketCodec.encode(new BatchPacket(new Packet[] { first, undecodable, unknown, last }))
+                .toByteArray();
+
+        // Corrupt the second entry's flags byte and the third entry's ID. Each entry is prefixed with its length, so
+        // the rest of the batch can still be decoded.
+        bytes[indexOf(bytes, BinaryPacketCodec.encode(undecodable)) + 1] |= 0x80;
+        bytes[indexOf(bytes, BinaryPacketCodec.encode(unknown))] = 0x7F;
+
+        BatchPacket batch = (BatchPacket)BinaryPacketCodec.decode(ByteString.of(bytes));
+        assertNotNull(batch);
+        assertEquals(2, batch.getPackets().length);
+        assertEquals(first.toString(), batch.getPackets()[0].toString());
+        assertEquals(last.toString(), batch.getPackets()[1].toString());
+    }
+
+    @Test
+    public void batchSkipsNestedBatchesAndNullEntries() {
+        UsernameRequestPacket first = new UsernameRequestPacket("Tester");
+        JoinChatroomRequestPacket last = new JoinChatroomRequestPacket("Lobby");
+        BatchPacket nestedBatch = new BatchPacket(new Packet[] { new ChatroomRemovedPacket("Nested") });
+
+        BatchPacket batch = (BatchPacket)BinaryPacketCodec.decode(BinaryPacketCodec.encode(
+                new BatchPacket(new Packet[] { first, nestedBatch, null, last })));
+        assertNotNull(batch);
+        assertEquals(2, batch.getPackets().length);
+        assertEquals(first.toString(), batch.getPackets()[0].toString());
+        assertEquals(last.toString(), batch.getPackets()[1].toString());
+    }
+
+    /**
+     * Asserts that a {@code Packet} decodes to an equivalent {@code Packet} (of the same type, with the same JSON
+     * representation) once encoded.
+     * @param packet {@code Packet} to round-trip.
+     * @return Decoded {@code Packet}.
+     */
+    private static Packet assertRoundTrips(final Packet packet) {
+        ByteString bytes = BinaryPacketCodec.encode(packet);
+        assertNotNull(String.format("Could not encode %s.", packet), bytes);
+        Packet decodedPacket = BinaryPacketCodec.decode(bytes);
+        assertNotNull(String.format("Could not decode %s.", packet), decodedPacket);
+        assertEquals(packet.getClass(), decodedPacket.getClass());
+        assertEquals(packet.toString(), decodedPacket.toString());
+        assertEquals(packet.isValid(), decodedPacket.isValid());
+        return decodedPacket;
+    }
+
+    /**
+     * Returns the index of the first occurrence of an encoded {@code Packet} within encoded data.
+     * @param bytes Encoded data.
+     * @param packetBytes Encoded {@code Packet} to find.
+     * @return Index of the encoded {@code Packet}.
+     */
+    private static int indexOf(final byte[] bytes, final ByteString packetBytes) {
+        int index = ByteString.of(bytes).indexOf(packetBytes);
+        assertTrue(index >= 0);
+        return index;
+    }
+
+}
@@ -0,0 +1,66 @@
+package io.benreynolds.hottopics.packets;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * {@code PacketSamples} creates a sample of every {@code Packet} derivative (and of the optional fields that they may
+ * omit), for the codec round-trip tests.
+ */
+public final class PacketSamples {
+
+    private PacketSamples() { }
+
+    /**
+     * Creates a sample of every {@code Packet} derivative. '{@code Packet}'s with optional fields are sampled with and
+     * without them.
+     * @return Sample '{@code Packet}'s.
+     */
+    public static List<Packet> create() {
+        return Arrays.asList(
+            new SendMessagePacket("Hello, world!", "client-1"),
+            new SendMessagePacket("Hello, world!"),
+            new ReceiveMessagePacket("Tester", "Hello, world!", 42L, "client-1"),
+            new ReceiveMessagePacket("Tester", "Hello, world!"),
+            new UsernameRequestPacket("Tester"),
+            new UsernameResponsePacket(true),
+            new ChatroomsRequestPacket(),
+            new ChatroomsRequestPacket(5),
+            new ChatroomsResponsePacket(new Chatroom[] { createChatroom("Lobby", 3), new Chatroom("Empty") }),
+            new ChatroomsResponsePacket(null),
+            new JoinChatroomRequestPacket("Lobby"),
+            new JoinChatroomResponsePacket(false),
+            new LeaveChatroomRequestPacket(),
+            new LeaveChatroomResponsePacket(true),
+            new ChatroomUserCountUpdatePacket(7),
+            new AcknowledgementRequestPacket(),
+            new AcknowledgementResponsePacket(),
+            new BatchPacket(new Packet[] { new UsernameResponsePacket(true), new ChatroomRemovedPacket("Lobby") }),
+            new ChatroomAddedPacket(createChatroom("Lobby", 1)),
+            new ChatroomRemovedPacket("Lobby"),
+            new ChatroomSizeChangedPacket("Lobby", 12),
+            new HistoryRequestPacket("Lobby", 42L, 20),
+            new HistoryRequestPacket("Lobby", null, 20),
+            new HistoryResponsePacket("Lobby", new ReceiveMessagePacket[] {
+                new ReceiveMessagePacket("Tester", "First", 1L), new ReceiveMessagePacket("Tester", "Second", 2L)
+            }, true)
+        );
+    }
+
+    /**
+     * Creates a {@code Chatroom} with a preview of messages.
+     * @param name Name of the {@code Chatroom}.
+     * @param messageCount Amount of messages in the preview.
+     * @return {@code Chatroom}.
+     */
+    public static Chatroom createChatroom(final String name, final int messageCount) {
+        Queue<ReceiveMessagePacket> messages = new LinkedList<>();
+        for(int i = 0; i < messageCount; i++) {
+            messages.add(new ReceiveMessagePacket("Tester", String.format("Message %d in %s.", i, name), (long)i));
+        }
+        return new Chatroom(name, messageCount, messages);
+    }
+
+}